@@ -0,0 +1,160 @@
+package benchmarks;
+
+import java.net.DatagramPacket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark of how many floor requests a BankedScheduler handles per
+ * second as banks are added. Every bank has the same number of elevators
+ * and floors, so each bank does the same work whatever the number of banks,
+ * and with a thread per bank the requests handled per second should grow
+ * close to linearly with numBanks (up to the number of cores).
+ *
+ * Each call routes a batch of requests spread over the whole building and
+ * waits for every bank to finish dispatching them. The sends go to a
+ * transport that drops them.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BankedSchedulerBenchmark {
+	// Requests routed by each call
+	private static final int BATCH = 1024;
+
+	@Param({"1", "2", "4"})
+	public int numBanks;
+
+	@Param({"4"})
+	public int elevatorsPerBank;
+
+	@Param({"20"})
+	public int floorsPerBank;
+
+	@Param({"DEFAULT"})
+	public String strategy;
+
+	private Object strategyType;
+
+	private DatagramPacket config;
+	private DatagramPacket[] requests;
+
+	private Object scheduler;
+	private long numRouted;
+
+	/**
+	 * setupTrial
+	 *
+	 * Creates the configuration and a batch of random requests with a
+	 * source floor above the lobby.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+
+		strategyType = ControlSystem.strategy(strategy);
+
+		int numFloors = (numBanks * floorsPerBank) + 1;
+		byte[] configData = {ControlSystem.CONFIG_MODE,
+		                     (byte) (numBanks * elevatorsPerBank),
+		                     (byte) numFloors,
+		                     ControlSystem.END_OF_MESSAGE};
+		config = new DatagramPacket(configData, configData.length);
+
+		Random rand = new Random(42);
+		requests = new DatagramPacket[BATCH];
+
+		for (int i = 0; i < BATCH; i++) {
+			int source = 1 + rand.nextInt(numFloors - 1);
+			int destination = rand.nextInt(numFloors - 1);
+			if (destination >= source) {
+				destination++;
+			}
+
+			byte[] data = {ControlSystem.FLOOR_REQUEST_MODE,
+			               (byte) source,
+			               (byte) ((destination > source) ? ControlSystem.UP : ControlSystem.DOWN),
+			               (byte) destination,
+			               ControlSystem.END_OF_MESSAGE};
+			requests[i] = new DatagramPacket(data, data.length);
+		}
+	}
+
+	/**
+	 * setupIteration
+	 *
+	 * Starts a new BankedScheduler for the building, so the requests
+	 * waiting in each bank do not build up across iterations.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		scheduler = ControlSystem.newBankedScheduler(numBanks, strategyType);
+		ControlSystem.route(scheduler, config);
+		numRouted = 0;
+	}
+
+	/**
+	 * teardownIteration
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Iteration)
+	public void teardownIteration() {
+		ControlSystem.teardown(scheduler);
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() {
+		ControlSystem.restoreOutput();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void route() {
+		for (DatagramPacket request : requests) {
+			ControlSystem.route(scheduler, request);
+		}
+		numRouted += BATCH;
+
+		while (ControlSystem.getNumRequestsHandled(scheduler) < numRouted) {
+			Thread.onSpinWait();
+		}
+	}
+}
@@ -0,0 +1,865 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ *
+ * Access to the elevator control system classes from the benchmarks. The
+ * system is written in the default package, which code in a named package
+ * (and so JMH, which will not generate a benchmark in the default package)
+ * cannot refer to. Every call used by the benchmarks goes through a method
+ * handle looked up once here, which the JIT inlines like a direct call.
+ *
+ */
+final class ControlSystem {
+	static final byte CONFIG_MODE = 0;
+	static final byte FLOOR_SENSOR_MODE = 1;
+	static final byte FLOOR_REQUEST_MODE = 2;
+	static final byte ELEVATOR_DIRECTION_MODE = 4;
+	static final byte ELEVATOR_DOOR_MODE = 5;
+	static final byte SEND_DESTINATION_TO_ELEVATOR_MODE = 6;
+	static final byte ERROR_MESSAGE_MODE = 9;
+	static final byte END_OF_MESSAGE = -1;
+
+	// Direction ordinals, the same as UtilityInformation.ElevatorDirection
+	static final int UP = 1;
+	static final int DOWN = 2;
+
+	private static final Class<?> DIRECTION_CLASS;
+	private static final Class<?> STRATEGY_CLASS;
+	private static final Class<?> WORKER_MODE_CLASS;
+	private static final Class<?> INBOX_TYPE_CLASS;
+	private static final Class<?> WAIT_STRATEGY_CLASS;
+	private static final Class<?> TRANSPORT_TYPE_CLASS;
+	private static final Object[] DIRECTIONS;
+
+	private static final MethodHandle NEW_REQUEST;
+	private static final MethodHandle NEW_ALGORITHM;
+	private static final MethodHandle SET_NUM_FLOORS;
+	private static final MethodHandle REQUEST_MADE;
+	private static final MethodHandle REACHED_FLOOR;
+	private static final MethodHandle WHAT_DIRECTION;
+
+	private static final MethodHandle NEW_SCHEDULER;
+	private static final MethodHandle NEW_SCHEDULER_WITH_INBOX;
+	private static final MethodHandle GET_CLOCK;
+	private static final MethodHandle SIGNAL_RECEIVED;
+	private static final MethodHandle NEXT_REQUEST;
+	private static final MethodHandle RELEASE_REQUEST;
+	private static final MethodHandle HANDLE_MESSAGE;
+	private static final MethodHandle SCHEDULER_TEARDOWN;
+	private static final MethodHandle TRANSMIT;
+
+	private static final MethodHandle MESSAGE_PRIORITIES;
+	private static final MethodHandle CREATE_INBOX;
+	private static final MethodHandle INBOX_PUT;
+	private static final MethodHandle INBOX_TAKE;
+	private static final MethodHandle INBOX_CAPACITY;
+
+	private static final MethodHandle CREATE_SERVER;
+	private static final MethodHandle FIND_FREE_PORT;
+
+	private static final MethodHandle NEW_BANKED_SCHEDULER;
+	private static final MethodHandle ROUTE;
+	private static final MethodHandle GET_NUM_REQUESTS_HANDLED;
+
+	private static final MethodHandle NEW_ELEVATOR_SUBSYSTEM;
+	private static final MethodHandle CONFIG_SUBSYSTEM;
+	private static final MethodHandle GET_NUM_IDLE_ELEVATORS;
+	private static final MethodHandle GET_NUM_RUNNING_ELEVATORS;
+	private static final MethodHandle SET_WORKER_MODE;
+	private static final MethodHandle IS_VIRTUAL_AVAILABLE;
+
+	private static final MethodHandle NEW_SIMULATOR;
+	private static final MethodHandle SIMULATOR_RUN;
+	private static final MethodHandle SET_RECORD_MESSAGES;
+	private static final MethodHandle GET_DELIVERED_MESSAGES;
+
+	// Transport that drops everything the Scheduler sends
+	private static final Object NULL_TRANSPORT;
+
+	// Where System.out went before it was silenced
+	private static PrintStream savedOut = null;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+			Class<?> requestClass = Class.forName("Request");
+			Class<?> algorithmClass = Class.forName("SchedulerAlgorithm");
+			Class<?> schedulerClass = Class.forName("Scheduler");
+			Class<?> bankedSchedulerClass = Class.forName("BankedScheduler");
+			Class<?> serverClass = Class.forName("ServerPattern");
+			Class<?> transportClass = Class.forName("SignalTransport");
+			Class<?> inboxClass = Class.forName("SignalInbox");
+			Class<?> testUtilitiesClass = Class.forName("TestUtilities");
+			Class<?> clockClass = Class.forName("SimulationClock");
+			Class<?> simulatorClass = Class.forName("ElevatorSimulator");
+			Class<?> elevatorSubsystemClass = Class.forName("Elevator_Subsystem");
+			Class<?> workerThreadsClass = Class.forName("WorkerThreads");
+
+			DIRECTION_CLASS = Class.forName("UtilityInformation$ElevatorDirection");
+			STRATEGY_CLASS = Class.forName("DispatchStrategy$Type");
+			WORKER_MODE_CLASS = Class.forName("WorkerThreads$Mode");
+			INBOX_TYPE_CLASS = Class.forName("SignalInbox$Type");
+			WAIT_STRATEGY_CLASS = Class.forName("SignalInbox$WaitStrategy");
+			TRANSPORT_TYPE_CLASS = Class.forName("SignalTransport$Type");
+			DIRECTIONS = DIRECTION_CLASS.getEnumConstants();
+
+			NEW_REQUEST = generic(lookup.unreflectConstructor(requestClass.getConstructor(long.class, int.class, int.class, DIRECTION_CLASS)));
+			NEW_ALGORITHM = generic(lookup.unreflectConstructor(algorithmClass.getConstructor(byte.class, STRATEGY_CLASS)));
+			SET_NUM_FLOORS = generic(lookup.unreflect(algorithmClass.getMethod("setNumberOfFloors", int.class)));
+			REQUEST_MADE = generic(lookup.unreflect(algorithmClass.getMethod("elevatorRequestMade", requestClass)));
+			REACHED_FLOOR = generic(lookup.unreflect(algorithmClass.getMethod("elevatorHasReachedFloor", int.class, byte.class)));
+			WHAT_DIRECTION = generic(lookup.unreflect(algorithmClass.getMethod("whatDirectionShouldTravel", byte.class)));
+
+			NEW_SCHEDULER = generic(lookup.unreflectConstructor(schedulerClass.getConstructor(STRATEGY_CLASS, transportClass, clockClass)));
+			NEW_SCHEDULER_WITH_INBOX = generic(lookup.unreflectConstructor(schedulerClass.getConstructor(STRATEGY_CLASS, transportClass, clockClass, INBOX_TYPE_CLASS, WAIT_STRATEGY_CLASS)));
+			GET_CLOCK = generic(lookup.unreflect(clockClass.getMethod("getClock")));
+			SIGNAL_RECEIVED = generic(lookup.unreflect(serverClass.getMethod("signalReceived", DatagramPacket.class)));
+			NEXT_REQUEST = generic(lookup.unreflect(serverClass.getMethod("getNextRequest")));
+			RELEASE_REQUEST = generic(lookup.unreflect(serverClass.getMethod("releaseRequest", DatagramPacket.class)));
+			SCHEDULER_TEARDOWN = generic(lookup.unreflect(serverClass.getMethod("teardown")));
+
+			MESSAGE_PRIORITIES = generic(lookup.unreflect(serverClass.getMethod("createMessagePriorities")));
+			CREATE_INBOX = generic(lookup.unreflect(serverClass.getMethod("createInbox", INBOX_TYPE_CLASS, WAIT_STRATEGY_CLASS, Map.class, int.class)));
+			INBOX_PUT = generic(lookup.unreflect(inboxClass.getMethod("put", DatagramPacket.class)));
+			INBOX_TAKE = generic(lookup.unreflect(inboxClass.getMethod("take")));
+			INBOX_CAPACITY = generic(lookup.unreflect(inboxClass.getMethod("capacity")));
+
+			CREATE_SERVER = generic(lookup.unreflect(testUtilitiesClass.getMethod("createServer", int.class, String.class, TRANSPORT_TYPE_CLASS)));
+			FIND_FREE_PORT = generic(lookup.unreflect(testUtilitiesClass.getMethod("findFreePort")));
+
+			NEW_BANKED_SCHEDULER = generic(lookup.unreflectConstructor(bankedSchedulerClass.getConstructor(int.class, STRATEGY_CLASS, transportClass, clockClass)));
+			ROUTE = generic(lookup.unreflect(bankedSchedulerClass.getMethod("route", DatagramPacket.class)));
+			GET_NUM_REQUESTS_HANDLED = generic(lookup.unreflect(bankedSchedulerClass.getMethod("getNumRequestsHandled")));
+
+			NEW_ELEVATOR_SUBSYSTEM = generic(lookup.unreflectConstructor(elevatorSubsystemClass.getConstructor(transportClass)));
+			CONFIG_SUBSYSTEM = generic(lookup.unreflect(elevatorSubsystemClass.getMethod("configSubsystem", int.class, int.class)));
+			GET_NUM_IDLE_ELEVATORS = generic(lookup.unreflect(elevatorSubsystemClass.getMethod("getNumIdleElevators")));
+			GET_NUM_RUNNING_ELEVATORS = generic(lookup.unreflect(elevatorSubsystemClass.getMethod("getNumRunningElevators")));
+			SET_WORKER_MODE = generic(lookup.unreflect(workerThreadsClass.getMethod("setMode", WORKER_MODE_CLASS)));
+			IS_VIRTUAL_AVAILABLE = generic(lookup.unreflect(workerThreadsClass.getMethod("isVirtualAvailable")));
+
+			// Protected, so they have to be opened up first
+			Method handleMessage = schedulerClass.getDeclaredMethod("handleMessage", DatagramPacket.class);
+			handleMessage.setAccessible(true);
+			HANDLE_MESSAGE = generic(lookup.unreflect(handleMessage));
+
+			Method transmit = serverClass.getDeclaredMethod("transmit", byte[].class, int.class, InetAddress.class, int.class);
+			transmit.setAccessible(true);
+			TRANSMIT = generic(lookup.unreflect(transmit));
+
+			Constructor<?> simulatorConstructor = simulatorClass.getConstructor(int.class, int.class, STRATEGY_CLASS);
+			NEW_SIMULATOR = generic(lookup.unreflectConstructor(simulatorConstructor));
+			SIMULATOR_RUN = generic(lookup.unreflect(simulatorClass.getMethod("run", ArrayList.class)));
+			SET_RECORD_MESSAGES = generic(lookup.unreflect(simulatorClass.getMethod("setRecordMessages", boolean.class)));
+			GET_DELIVERED_MESSAGES = generic(lookup.unreflect(simulatorClass.getMethod("getDeliveredMessages")));
+
+			NULL_TRANSPORT = Proxy.newProxyInstance(transportClass.getClassLoader(),
+			                                        new Class<?>[] {transportClass},
+			                                        (proxy, method, args) -> {
+				if (method.getName().equals("hashCode")) {
+					return(System.identityHashCode(proxy));
+				} else if (method.getName().equals("equals")) {
+					return(proxy == args[0]);
+				} else if (method.getName().equals("toString")) {
+					return("NullTransport");
+				}
+
+				return(null);
+			});
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private ControlSystem() {
+	}
+
+	/**
+	 * generic
+	 *
+	 * Changes the given handle to take and return Objects so it can be
+	 * called without knowing the system's classes. Methods returning void
+	 * return null.
+	 *
+	 * @param handle   The method handle
+	 *
+	 * @return MethodHandle    The same method taking and returning Objects
+	 */
+	private static MethodHandle generic(MethodHandle handle) {
+		return(handle.asType(handle.type().generic()));
+	}
+
+	/**
+	 * rethrow
+	 *
+	 * Turns anything thrown by the system into an unchecked exception so
+	 * JMH reports it against the benchmark.
+	 *
+	 * @param t    What was thrown
+	 *
+	 * @return RuntimeException    Never returns normally
+	 */
+	private static RuntimeException rethrow(Throwable t) {
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		}
+
+		throw new IllegalStateException(t);
+	}
+
+	/**
+	 * silenceOutput
+	 *
+	 * The Scheduler and SchedulerAlgorithm print every event they handle,
+	 * which would otherwise be most of what is measured. Sends System.out
+	 * nowhere until restoreOutput is called.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	static synchronized void silenceOutput() {
+		if (savedOut == null) {
+			savedOut = System.out;
+			System.setOut(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+				}
+			}));
+		}
+	}
+
+	/**
+	 * restoreOutput
+	 *
+	 * Puts System.out back the way it was before silenceOutput.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	static synchronized void restoreOutput() {
+		if (savedOut != null) {
+			System.setOut(savedOut);
+			savedOut = null;
+		}
+	}
+
+	/**
+	 * strategy
+	 *
+	 * @param name Name of a DispatchStrategy.Type
+	 *
+	 * @return Object  The DispatchStrategy.Type with that name
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static Object strategy(String name) {
+		return(Enum.valueOf((Class) STRATEGY_CLASS, name));
+	}
+
+	/**
+	 * inboxType
+	 *
+	 * @param name Name of a SignalInbox.Type
+	 *
+	 * @return Object  The SignalInbox.Type with that name
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static Object inboxType(String name) {
+		return(Enum.valueOf((Class) INBOX_TYPE_CLASS, name));
+	}
+
+	/**
+	 * waitStrategy
+	 *
+	 * @param name Name of a SignalInbox.WaitStrategy
+	 *
+	 * @return Object  The SignalInbox.WaitStrategy with that name
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static Object waitStrategy(String name) {
+		return(Enum.valueOf((Class) WAIT_STRATEGY_CLASS, name));
+	}
+
+	/**
+	 * transportType
+	 *
+	 * @param name Name of a SignalTransport.Type
+	 *
+	 * @return Object  The SignalTransport.Type with that name
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static Object transportType(String name) {
+		return(Enum.valueOf((Class) TRANSPORT_TYPE_CLASS, name));
+	}
+
+	/**
+	 * setWorkerMode
+	 *
+	 * Sets how the Floor and Elevator workers created from now on are run.
+	 *
+	 * @param name Name of a WorkerThreads.Mode
+	 *
+	 * @return void
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static void setWorkerMode(String name) {
+		try {
+			Object unused = SET_WORKER_MODE.invokeExact((Object) Enum.valueOf((Class) WORKER_MODE_CLASS, name));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * isVirtualAvailable
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if workers can run on virtual threads here
+	 */
+	static boolean isVirtualAvailable() {
+		try {
+			Object available = IS_VIRTUAL_AVAILABLE.invokeExact();
+			return((Boolean) available);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newRequest
+	 *
+	 * Creates a Request between the given floors, going up or down
+	 * depending on where the destination is.
+	 *
+	 * @param time Time of the request in nanoseconds
+	 * @param source   Source floor
+	 * @param destination  Destination floor
+	 *
+	 * @return Object  The new Request
+	 */
+	static Object newRequest(long time, int source, int destination) {
+		Object dir = DIRECTIONS[(destination < source) ? DOWN : UP];
+
+		try {
+			return(NEW_REQUEST.invokeExact((Object) time, (Object) source, (Object) destination, dir));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newAlgorithm
+	 *
+	 * @param numElevators Number of elevators
+	 * @param numFloors    Number of floors
+	 * @param strategy Dispatch strategy from strategy()
+	 *
+	 * @return Object  A new SchedulerAlgorithm
+	 */
+	static Object newAlgorithm(int numElevators, int numFloors, Object strategy) {
+		try {
+			Object algorithm = NEW_ALGORITHM.invokeExact((Object) (byte) numElevators, strategy);
+			Object unused = SET_NUM_FLOORS.invokeExact(algorithm, (Object) numFloors);
+
+			return(algorithm);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * elevatorRequestMade
+	 *
+	 * @param algorithm    The SchedulerAlgorithm
+	 * @param request  The Request
+	 *
+	 * @return int Number of the elevator that was given the request
+	 */
+	static int elevatorRequestMade(Object algorithm, Object request) {
+		try {
+			Object elevatorNum = REQUEST_MADE.invokeExact(algorithm, request);
+			return((Byte) elevatorNum);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * elevatorHasReachedFloor
+	 *
+	 * @param algorithm    The SchedulerAlgorithm
+	 * @param floorNum The floor reached
+	 * @param elevatorNum  The elevator that reached it
+	 *
+	 * @return void
+	 */
+	static void elevatorHasReachedFloor(Object algorithm, int floorNum, int elevatorNum) {
+		try {
+			Object unused = REACHED_FLOOR.invokeExact(algorithm, (Object) floorNum, (Object) (byte) elevatorNum);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * whatDirectionShouldTravel
+	 *
+	 * @param algorithm    The SchedulerAlgorithm
+	 * @param elevatorNum  The elevator
+	 *
+	 * @return Object  The ElevatorDirection the elevator should travel in
+	 */
+	static Object whatDirectionShouldTravel(Object algorithm, int elevatorNum) {
+		try {
+			return(WHAT_DIRECTION.invokeExact(algorithm, (Object) (byte) elevatorNum));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newScheduler
+	 *
+	 * Creates a Scheduler that sends everything to a transport that drops
+	 * it, and so never touches a socket.
+	 *
+	 * @param strategy Dispatch strategy from strategy()
+	 *
+	 * @return Object  The new Scheduler
+	 */
+	static Object newScheduler(Object strategy) {
+		try {
+			Object clock = GET_CLOCK.invokeExact();
+			return(NEW_SCHEDULER.invokeExact(strategy, NULL_TRANSPORT, clock));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newScheduler
+	 *
+	 * Creates a Scheduler that sends everything to a transport that drops
+	 * it and queues what it receives in an inbox of the given type.
+	 *
+	 * @param strategy Dispatch strategy from strategy()
+	 * @param inboxType    Inbox type from inboxType()
+	 * @param waitStrategy Wait strategy from waitStrategy()
+	 *
+	 * @return Object  The new Scheduler
+	 */
+	static Object newScheduler(Object strategy, Object inboxType, Object waitStrategy) {
+		try {
+			Object clock = GET_CLOCK.invokeExact();
+			return(NEW_SCHEDULER_WITH_INBOX.invokeExact(strategy, NULL_TRANSPORT, clock, inboxType, waitStrategy));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * findFreePort
+	 *
+	 * @param  None
+	 *
+	 * @return int Port number that is not currently in use
+	 */
+	static int findFreePort() {
+		try {
+			Object portNum = FIND_FREE_PORT.invokeExact();
+			return((Integer) portNum);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newServer
+	 *
+	 * Creates a ServerPattern that receives on the given port with a
+	 * transport of the given type and only queues what it receives.
+	 *
+	 * @param portNum  Port to receive on
+	 * @param name Name of the ServerPattern
+	 * @param transportType    Transport type from transportType()
+	 *
+	 * @return Object  The new ServerPattern
+	 */
+	static Object newServer(int portNum, String name, Object transportType) {
+		try {
+			return(CREATE_SERVER.invokeExact((Object) portNum, (Object) name, transportType));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * transmit
+	 *
+	 * @param server   The ServerPattern to send from
+	 * @param data The message
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @return void
+	 */
+	static void transmit(Object server, byte[] data, InetAddress address, int portNum) {
+		try {
+			Object unused = TRANSMIT.invokeExact(server, (Object) data, (Object) data.length, (Object) address, (Object) portNum);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newInbox
+	 *
+	 * Creates an inbox of the given type that holds about the given number
+	 * of signals in total. Each lane of a lane ring gets an equal share,
+	 * rounded up, and then to a power of two by the lane itself.
+	 *
+	 * @param inboxType    Inbox type from inboxType()
+	 * @param waitStrategy Wait strategy from waitStrategy()
+	 * @param totalCapacity    Number of signals to hold in total
+	 *
+	 * @return Object  The new SignalInbox
+	 */
+	static Object newInbox(Object inboxType, Object waitStrategy, int totalCapacity) {
+		try {
+			Object priorities = MESSAGE_PRIORITIES.invokeExact();
+			int capacity = totalCapacity;
+
+			if (((Enum<?>) inboxType).name().equals("LANE_RING")) {
+				int numLanes = new HashSet<Object>(((Map<?, ?>) priorities).values()).size();
+				capacity = (totalCapacity + numLanes - 1) / numLanes;
+			}
+
+			return(CREATE_INBOX.invokeExact(inboxType, waitStrategy, priorities, (Object) capacity));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * put
+	 *
+	 * @param inbox    The SignalInbox
+	 * @param packet   The packet to add, waiting while the inbox is full
+	 *
+	 * @return void
+	 */
+	static void put(Object inbox, DatagramPacket packet) {
+		try {
+			Object unused = INBOX_PUT.invokeExact(inbox, (Object) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * take
+	 *
+	 * @param inbox    The SignalInbox
+	 *
+	 * @return DatagramPacket  The next packet, waiting while the inbox is empty
+	 */
+	static DatagramPacket take(Object inbox) {
+		try {
+			Object packet = INBOX_TAKE.invokeExact(inbox);
+			return((DatagramPacket) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * capacity
+	 *
+	 * @param inbox    The SignalInbox
+	 *
+	 * @return int Number of signals it holds in total
+	 */
+	static int capacity(Object inbox) {
+		try {
+			Object capacity = INBOX_CAPACITY.invokeExact(inbox);
+			return((Integer) capacity);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * teardown
+	 *
+	 * @param server   The Scheduler or other ServerPattern to tear down
+	 *
+	 * @return void
+	 */
+	static void teardown(Object server) {
+		try {
+			Object unused = SCHEDULER_TEARDOWN.invokeExact(server);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * signalReceived
+	 *
+	 * @param server   The ServerPattern
+	 * @param packet   The received packet to put in its inbox
+	 *
+	 * @return void
+	 */
+	static void signalReceived(Object server, DatagramPacket packet) {
+		try {
+			Object unused = SIGNAL_RECEIVED.invokeExact(server, (Object) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * getNextRequest
+	 *
+	 * @param server   The ServerPattern
+	 *
+	 * @return DatagramPacket  The next packet in its inbox
+	 */
+	static DatagramPacket getNextRequest(Object server) {
+		try {
+			Object packet = NEXT_REQUEST.invokeExact(server);
+			return((DatagramPacket) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * releaseRequest
+	 *
+	 * @param server   The ServerPattern
+	 * @param packet   A packet from getNextRequest
+	 *
+	 * @return void
+	 */
+	static void releaseRequest(Object server, DatagramPacket packet) {
+		try {
+			Object unused = RELEASE_REQUEST.invokeExact(server, (Object) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * handleMessage
+	 *
+	 * Has the Scheduler handle the given packet as if it had just been
+	 * taken from its inbox.
+	 *
+	 * @param scheduler    The Scheduler
+	 * @param packet   The packet
+	 *
+	 * @return void
+	 */
+	static void handleMessage(Object scheduler, DatagramPacket packet) {
+		try {
+			Object unused = HANDLE_MESSAGE.invokeExact(scheduler, (Object) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * newBankedScheduler
+	 *
+	 * Creates a BankedScheduler that sends everything to a transport that
+	 * drops it, and starts the thread of each of its banks.
+	 *
+	 * @param numBanks Number of banks
+	 * @param strategy Dispatch strategy from strategy()
+	 *
+	 * @return Object  The new BankedScheduler
+	 */
+	static Object newBankedScheduler(int numBanks, Object strategy) {
+		try {
+			Object clock = GET_CLOCK.invokeExact();
+			return(NEW_BANKED_SCHEDULER.invokeExact((Object) numBanks, strategy, NULL_TRANSPORT, clock));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * route
+	 *
+	 * Has the BankedScheduler route the given packet as if it had just
+	 * been taken from its inbox.
+	 *
+	 * @param scheduler    The BankedScheduler
+	 * @param packet   The packet
+	 *
+	 * @return void
+	 */
+	static void route(Object scheduler, DatagramPacket packet) {
+		try {
+			Object unused = ROUTE.invokeExact(scheduler, (Object) packet);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * getNumRequestsHandled
+	 *
+	 * @param scheduler    The BankedScheduler
+	 *
+	 * @return long    Number of floor requests its banks have handled
+	 */
+	static long getNumRequestsHandled(Object scheduler) {
+		try {
+			Object count = GET_NUM_REQUESTS_HANDLED.invokeExact(scheduler);
+			return((Long) count);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * startElevators
+	 *
+	 * Creates an Elevator_Subsystem that sends everything to a transport
+	 * that drops it, and configures it, which starts a worker for each of
+	 * its elevators.
+	 *
+	 * @param numFloors    Number of floors in the building
+	 * @param numElevators Number of elevators
+	 *
+	 * @return Object  The new Elevator_Subsystem
+	 */
+	static Object startElevators(int numFloors, int numElevators) {
+		try {
+			Object elevatorSubsystem = NEW_ELEVATOR_SUBSYSTEM.invokeExact(NULL_TRANSPORT);
+			Object unused = CONFIG_SUBSYSTEM.invokeExact(elevatorSubsystem, (Object) numFloors, (Object) numElevators);
+
+			return(elevatorSubsystem);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * getNumIdleElevators
+	 *
+	 * @param elevatorSubsystem    The Elevator_Subsystem
+	 *
+	 * @return int Number of its elevators waiting for their next action
+	 */
+	static int getNumIdleElevators(Object elevatorSubsystem) {
+		try {
+			Object count = GET_NUM_IDLE_ELEVATORS.invokeExact(elevatorSubsystem);
+			return((Integer) count);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * getNumRunningElevators
+	 *
+	 * @param elevatorSubsystem    The Elevator_Subsystem
+	 *
+	 * @return int Number of its elevator threads that have not finished
+	 */
+	static int getNumRunningElevators(Object elevatorSubsystem) {
+		try {
+			Object count = GET_NUM_RUNNING_ELEVATORS.invokeExact(elevatorSubsystem);
+			return((Integer) count);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * createTrace
+	 *
+	 * Creates a trace of random requests. The first backlog requests all
+	 * arrive at once, and the rest arrive one at a time every few seconds.
+	 *
+	 * @param numFloors    Number of floors in the building
+	 * @param backlog  Number of requests that arrive at the start
+	 * @param numRequests  Total number of requests
+	 * @param seed Seed for the random floors
+	 *
+	 * @return ArrayList<int[]>    Requests as [time, start floor, final floor, direction]
+	 */
+	static ArrayList<int[]> createTrace(int numFloors, int backlog, int numRequests, long seed) {
+		ArrayList<int[]> trace = new ArrayList<int[]>();
+		Random rand = new Random(seed);
+
+		for (int i = 0; i < numRequests; i++) {
+			int time = Math.max(0, i - backlog) * 3000;
+			int source = rand.nextInt(numFloors);
+			int destination = rand.nextInt(numFloors - 1);
+			if (destination >= source) {
+				destination++;
+			}
+
+			trace.add(new int[] {time, source, destination, (destination < source) ? DOWN : UP});
+		}
+
+		return(trace);
+	}
+
+	/**
+	 * recordSchedulerInput
+	 *
+	 * Runs the given trace through the ElevatorSimulator and returns every
+	 * message the simulated elevators and floors gave the Scheduler, in
+	 * order, starting with the config message. Replaying them into a new
+	 * Scheduler makes it take exactly the same decisions.
+	 *
+	 * @param numFloors    Number of floors in the building
+	 * @param numElevators Number of elevators
+	 * @param strategy Dispatch strategy from strategy()
+	 * @param trace    Requests as [time, start floor, final floor, direction]
+	 *
+	 * @return ArrayList<byte[]>   Every message given to the Scheduler
+	 */
+	@SuppressWarnings("unchecked")
+	static ArrayList<byte[]> recordSchedulerInput(int numFloors, int numElevators, Object strategy, ArrayList<int[]> trace) {
+		try {
+			Object simulator = NEW_SIMULATOR.invokeExact((Object) numFloors, (Object) numElevators, strategy);
+			Object unused = SET_RECORD_MESSAGES.invokeExact(simulator, (Object) true);
+			unused = SIMULATOR_RUN.invokeExact(simulator, (Object) trace);
+
+			Object messages = GET_DELIVERED_MESSAGES.invokeExact(simulator);
+			return((ArrayList<byte[]>) messages);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+}
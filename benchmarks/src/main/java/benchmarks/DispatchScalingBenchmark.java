@@ -0,0 +1,155 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark of how long the dispatch strategy takes to choose an elevator
+ * as the building grows, up to 150 floors and 32 elevators. Every elevator
+ * holds the same number of backlog requests, so the load on each elevator
+ * is the same whatever the size of the building.
+ *
+ * The stops of each elevator are kept in bitsets sized for the building,
+ * so the time to score one elevator should not grow with the number of
+ * floors. Every strategy scores each elevator once, so the time per
+ * elevator (the score divided by numElevators) should stay flat as
+ * floors x elevators grows.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchScalingBenchmark {
+	// Number of random requests and floors to pick from
+	private static final int NUM_RANDOM = 1024;
+
+	@Param({"22", "50", "100", "150"})
+	public int numFloors;
+
+	@Param({"4", "8", "16", "32"})
+	public int numElevators;
+
+	@Param({"4"})
+	public int backlogPerElevator;
+
+	@Param({"DEFAULT", "NEAREST_CAR", "COLLECTIVE_CONTROL", "COST_FUNCTION", "DESTINATION_DISPATCH"})
+	public String strategy;
+
+	private Object strategyType;
+
+	// Random [source, destination] pairs, and floors for the elevators
+	private int[][] trips;
+	private int[] floors;
+	private int next;
+
+	/**
+	 * setupTrial
+	 *
+	 * Creates the random trips and elevator floors.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+
+		strategyType = ControlSystem.strategy(strategy);
+
+		Random rand = new Random(42);
+		trips = new int[NUM_RANDOM][];
+		floors = new int[NUM_RANDOM];
+
+		for (int i = 0; i < NUM_RANDOM; i++) {
+			int source = rand.nextInt(numFloors);
+			int destination = rand.nextInt(numFloors - 1);
+			if (destination >= source) {
+				destination++;
+			}
+
+			trips[i] = new int[] {source, destination};
+			floors[i] = rand.nextInt(numFloors);
+		}
+
+		next = 0;
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() {
+		ControlSystem.restoreOutput();
+	}
+
+	/**
+	 * createAlgorithm
+	 *
+	 * Creates an algorithm sized for the building, moves its elevators to
+	 * random floors and gives it the backlog requests.
+	 *
+	 * @param  None
+	 *
+	 * @return Object  The new SchedulerAlgorithm
+	 */
+	Object createAlgorithm() {
+		Object newAlgorithm = ControlSystem.newAlgorithm(numElevators, numFloors, strategyType);
+
+		for (int i = 0; i < numElevators; i++) {
+			ControlSystem.elevatorHasReachedFloor(newAlgorithm, floors[i], i);
+		}
+
+		for (int i = 0; i < backlogPerElevator * numElevators; i++) {
+			int[] trip = trips[i % NUM_RANDOM];
+			ControlSystem.elevatorRequestMade(newAlgorithm, ControlSystem.newRequest(i, trip[0], trip[1]));
+		}
+
+		return(newAlgorithm);
+	}
+
+	/**
+	 *
+	 * A new algorithm holding the backlog for every call.
+	 *
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+		Object algorithm;
+
+		@Setup(Level.Invocation)
+		public void setup(DispatchScalingBenchmark benchmark) {
+			algorithm = benchmark.createAlgorithm();
+		}
+	}
+
+	@Benchmark
+	public int elevatorRequestMade(Fresh fresh) {
+		next = (next + 1) & (NUM_RANDOM - 1);
+		int[] trip = trips[next];
+
+		return(ControlSystem.elevatorRequestMade(fresh.algorithm, ControlSystem.newRequest(0, trip[0], trip[1])));
+	}
+}
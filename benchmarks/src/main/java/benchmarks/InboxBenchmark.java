@@ -0,0 +1,190 @@
+package benchmarks;
+
+import java.net.DatagramPacket;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark comparing the SignalInbox implementations that ServerPattern
+ * can use. Producer threads act like receiver threads and add packets with
+ * a mix of modes while the benchmark thread takes them all, so the score is
+ * the time to pass one packet through the inbox. Every inbox is sized to
+ * hold about CAPACITY signals in total, so the lane ring is not given more
+ * room than the priority queue, and the capacity each inbox actually has is
+ * reported as an extra row. The priority queue always blocks, so its runs
+ * with the other wait strategies measure the same thing.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InboxBenchmark {
+	// Mix of message modes seen during a burst of hall calls
+	private static final byte[] MODES = {ControlSystem.FLOOR_REQUEST_MODE,
+	                                     ControlSystem.FLOOR_REQUEST_MODE,
+	                                     ControlSystem.FLOOR_SENSOR_MODE,
+	                                     ControlSystem.FLOOR_SENSOR_MODE,
+	                                     ControlSystem.ELEVATOR_DIRECTION_MODE,
+	                                     ControlSystem.ELEVATOR_DOOR_MODE,
+	                                     ControlSystem.SEND_DESTINATION_TO_ELEVATOR_MODE,
+	                                     ControlSystem.ERROR_MESSAGE_MODE};
+
+	// Number of signals every inbox holds in total
+	private static final int CAPACITY = 100;
+
+	// Packets passed through the inbox by each call, shared between the producers
+	private static final int PACKETS_PER_CALL = 8192;
+
+	@Param({"PRIORITY_QUEUE", "LANE_RING"})
+	public String inboxType;
+
+	@Param({"BLOCKING", "SPINNING", "PARKING"})
+	public String waitStrategy;
+
+	@Param({"1", "2", "4"})
+	public int numProducers;
+
+	private Object inbox;
+
+	private Thread[] producers;
+	private CyclicBarrier start;
+	private volatile boolean running;
+
+	/**
+	 *
+	 * Capacity of the inbox being measured, reported next to the score.
+	 *
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Capacity {
+		public long capacity;
+	}
+
+	/**
+	 * setupTrial
+	 *
+	 * Creates the inbox and the packets, and starts the producers, which
+	 * each add their share of the packets every time the benchmark thread
+	 * calls for them.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		inbox = ControlSystem.newInbox(ControlSystem.inboxType(inboxType), ControlSystem.waitStrategy(waitStrategy), CAPACITY);
+
+		start = new CyclicBarrier(numProducers + 1);
+		running = true;
+
+		Random rand = new Random(42);
+		int packetsPerProducer = PACKETS_PER_CALL / numProducers;
+
+		producers = new Thread[numProducers];
+		for (int i = 0; i < numProducers; i++) {
+			// Built up front so only the inbox is measured
+			final DatagramPacket[] packets = new DatagramPacket[packetsPerProducer];
+			for (int j = 0; j < packetsPerProducer; j++) {
+				byte[] data = {MODES[rand.nextInt(MODES.length)], 0, 0, ControlSystem.END_OF_MESSAGE};
+				packets[j] = new DatagramPacket(data, data.length);
+			}
+
+			producers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (awaitStart() && running) {
+						for (DatagramPacket packet : packets) {
+							ControlSystem.put(inbox, packet);
+						}
+					}
+				}
+			}, "Producer " + i);
+			producers[i].setDaemon(true);
+			producers[i].start();
+		}
+	}
+
+	/**
+	 * awaitStart
+	 *
+	 * Waits until the benchmark thread and every producer are ready
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True once they are all ready, false if the wait was
+	 *                 interrupted or broken
+	 */
+	private boolean awaitStart() {
+		try {
+			start.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return(false);
+		} catch (BrokenBarrierException e) {
+			return(false);
+		}
+
+		return(true);
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * Lets the producers finish and waits for them
+	 *
+	 * @param  None
+	 *
+	 * @throws InterruptedException
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() throws InterruptedException {
+		running = false;
+		awaitStart();
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKETS_PER_CALL)
+	public DatagramPacket putTake(Capacity counters) {
+		DatagramPacket packet = null;
+
+		awaitStart();
+
+		for (int i = 0; i < PACKETS_PER_CALL; i++) {
+			packet = ControlSystem.take(inbox);
+		}
+
+		counters.capacity = ControlSystem.capacity(inbox);
+
+		return(packet);
+	}
+}
@@ -0,0 +1,193 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmarks of the SchedulerAlgorithm calls the Scheduler makes for every
+ * request and floor sensor message. Each is run on an algorithm whose
+ * elevators are on random floors and that already holds backlog requests
+ * spread over the elevators by the dispatch strategy.
+ *
+ * elevatorRequestMade and elevatorHasReachedFloor change the requests, so
+ * they get a new algorithm with the same backlog before every call. That
+ * set up is not measured, but the calls are short enough that the timer
+ * adds a few tens of nanoseconds to them.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulerAlgorithmBenchmark {
+	// Number of random requests and floors to pick from
+	private static final int NUM_RANDOM = 1024;
+
+	@Param({"5", "10", "22"})
+	public int numFloors;
+
+	@Param({"1", "2", "4"})
+	public int numElevators;
+
+	@Param({"0", "16", "256"})
+	public int backlog;
+
+	@Param({"DEFAULT"})
+	public String strategy;
+
+	private Object strategyType;
+
+	// Random [source, destination] pairs, and floors for the sensor
+	private int[][] trips;
+	private int[] floors;
+	private int next;
+
+	// Algorithm holding the backlog for the calls that do not change it
+	private Object algorithm;
+
+	/**
+	 * setupTrial
+	 *
+	 * Creates the random trips and floors used by every call.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+
+		strategyType = ControlSystem.strategy(strategy);
+
+		Random rand = new Random(42);
+		trips = new int[NUM_RANDOM][];
+		floors = new int[NUM_RANDOM];
+
+		for (int i = 0; i < NUM_RANDOM; i++) {
+			int source = rand.nextInt(numFloors);
+			int destination = rand.nextInt(numFloors - 1);
+			if (destination >= source) {
+				destination++;
+			}
+
+			trips[i] = new int[] {source, destination};
+			floors[i] = rand.nextInt(numFloors);
+		}
+
+		next = 0;
+	}
+
+	/**
+	 * setupIteration
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		algorithm = createAlgorithm();
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() {
+		ControlSystem.restoreOutput();
+	}
+
+	/**
+	 * createAlgorithm
+	 *
+	 * Creates an algorithm, moves its elevators to random floors and gives
+	 * it the backlog requests.
+	 *
+	 * @param  None
+	 *
+	 * @return Object  The new SchedulerAlgorithm
+	 */
+	Object createAlgorithm() {
+		Object newAlgorithm = ControlSystem.newAlgorithm(numElevators, numFloors, strategyType);
+
+		for (int i = 0; i < numElevators; i++) {
+			ControlSystem.elevatorHasReachedFloor(newAlgorithm, floors[i], i);
+		}
+
+		for (int i = 0; i < backlog; i++) {
+			int[] trip = trips[i % NUM_RANDOM];
+			ControlSystem.elevatorRequestMade(newAlgorithm, ControlSystem.newRequest(i, trip[0], trip[1]));
+		}
+
+		return(newAlgorithm);
+	}
+
+	/**
+	 * nextIndex
+	 *
+	 * @param  None
+	 *
+	 * @return int The next index into the random trips and floors
+	 */
+	private int nextIndex() {
+		next = (next + 1) & (NUM_RANDOM - 1);
+
+		return(next);
+	}
+
+	/**
+	 *
+	 * A new algorithm holding the backlog for every call.
+	 *
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+		Object algorithm;
+
+		@Setup(Level.Invocation)
+		public void setup(SchedulerAlgorithmBenchmark benchmark) {
+			algorithm = benchmark.createAlgorithm();
+		}
+	}
+
+	@Benchmark
+	public int elevatorRequestMade(Fresh fresh) {
+		int[] trip = trips[nextIndex()];
+
+		return(ControlSystem.elevatorRequestMade(fresh.algorithm, ControlSystem.newRequest(0, trip[0], trip[1])));
+	}
+
+	@Benchmark
+	public void elevatorHasReachedFloor(Fresh fresh) {
+		int ind = nextIndex();
+
+		ControlSystem.elevatorHasReachedFloor(fresh.algorithm, floors[ind], ind % numElevators);
+	}
+
+	@Benchmark
+	public Object whatDirectionShouldTravel() {
+		return(ControlSystem.whatDirectionShouldTravel(algorithm, nextIndex() % numElevators));
+	}
+}
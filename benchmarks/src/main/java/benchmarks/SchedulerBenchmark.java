@@ -0,0 +1,140 @@
+package benchmarks;
+
+import java.net.DatagramPacket;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * End to end benchmark of the Scheduler handling one message, from the
+ * mode byte through eventOccured and the dispatch strategy to the batched
+ * sends, which go to a transport that drops them.
+ *
+ * The message stream is recorded once per trial by running a synthetic
+ * trace through the ElevatorSimulator: backlog requests at the start and
+ * then one every few seconds, with the floor sensor messages of the
+ * simulated elevators in between. Replaying it into a new Scheduler makes
+ * it take the same decisions, so every message is one the Scheduler would
+ * really see. When the stream runs out a new Scheduler is started, which
+ * is spread over the thousands of messages in the stream.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulerBenchmark {
+	// Requests in the trace that are not part of the backlog
+	private static final int NUM_LATER_REQUESTS = 200;
+
+	@Param({"5", "10", "22"})
+	public int numFloors;
+
+	@Param({"1", "2", "4"})
+	public int numElevators;
+
+	@Param({"0", "16", "256"})
+	public int backlog;
+
+	@Param({"DEFAULT"})
+	public String strategy;
+
+	private Object strategyType;
+
+	private DatagramPacket[] stream;
+	private int next;
+
+	private Object scheduler;
+
+	/**
+	 * setupTrial
+	 *
+	 * Records the message stream for the building.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+
+		strategyType = ControlSystem.strategy(strategy);
+
+		ArrayList<int[]> trace = ControlSystem.createTrace(numFloors, backlog, backlog + NUM_LATER_REQUESTS, 42);
+		ArrayList<byte[]> messages = ControlSystem.recordSchedulerInput(numFloors, numElevators, strategyType, trace);
+
+		stream = new DatagramPacket[messages.size()];
+		for (int i = 0; i < stream.length; i++) {
+			byte[] data = messages.get(i);
+			stream[i] = new DatagramPacket(data, data.length);
+		}
+	}
+
+	/**
+	 * setupIteration
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		restart();
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() {
+		ControlSystem.restoreOutput();
+	}
+
+	/**
+	 * restart
+	 *
+	 * Starts a new Scheduler at the beginning of the stream.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	private void restart() {
+		if (scheduler != null) {
+			ControlSystem.teardown(scheduler);
+		}
+
+		scheduler = ControlSystem.newScheduler(strategyType);
+		next = 0;
+	}
+
+	@Benchmark
+	public void eventOccured() {
+		if (next == stream.length) {
+			restart();
+		}
+
+		ControlSystem.handleMessage(scheduler, stream[next++]);
+	}
+}
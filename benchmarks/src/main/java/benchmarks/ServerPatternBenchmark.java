@@ -0,0 +1,161 @@
+package benchmarks;
+
+import java.net.DatagramPacket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark of adding a received packet to a ServerPattern's inbox and
+ * taking the next one out, with backlog packets already waiting. The
+ * packets are floor requests and floor sensor messages for the given
+ * building, so the priority inboxes see a realistic mix. The inbox holds
+ * at most 100 packets, in each lane for the lane ring. The priority queue
+ * always blocks, so its runs with the other wait strategies measure the
+ * same thing.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServerPatternBenchmark {
+	// Number of packets to cycle through
+	private static final int NUM_PACKETS = 1024;
+
+	@Param({"5", "10", "22"})
+	public int numFloors;
+
+	@Param({"1", "2", "4"})
+	public int numElevators;
+
+	@Param({"0", "16", "64"})
+	public int backlog;
+
+	@Param({"PRIORITY_QUEUE", "LANE_RING"})
+	public String inboxType;
+
+	@Param({"BLOCKING", "SPINNING", "PARKING"})
+	public String waitStrategy;
+
+	private DatagramPacket[] packets;
+	private int next;
+
+	private Object server;
+
+	/**
+	 * setupTrial
+	 *
+	 * Creates the packets, half of them floor requests and half floor
+	 * sensor messages.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+
+		Random rand = new Random(42);
+		packets = new DatagramPacket[NUM_PACKETS];
+
+		for (int i = 0; i < NUM_PACKETS; i++) {
+			byte[] data;
+
+			if ((i % 2) == 0) {
+				int source = rand.nextInt(numFloors);
+				int destination = rand.nextInt(numFloors - 1);
+				if (destination >= source) {
+					destination++;
+				}
+
+				data = new byte[] {ControlSystem.FLOOR_REQUEST_MODE,
+				                   (byte) source,
+				                   (byte) ((destination < source) ? ControlSystem.DOWN : ControlSystem.UP),
+				                   (byte) destination,
+				                   ControlSystem.END_OF_MESSAGE};
+			} else {
+				data = new byte[] {ControlSystem.FLOOR_SENSOR_MODE,
+				                   (byte) rand.nextInt(numFloors),
+				                   (byte) rand.nextInt(numElevators),
+				                   ControlSystem.END_OF_MESSAGE};
+			}
+
+			packets[i] = new DatagramPacket(data, data.length);
+		}
+
+		next = 0;
+	}
+
+	/**
+	 * setupIteration
+	 *
+	 * Creates a server with backlog packets waiting in its inbox.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		server = ControlSystem.newScheduler(ControlSystem.strategy("DEFAULT"),
+		                                    ControlSystem.inboxType(inboxType),
+		                                    ControlSystem.waitStrategy(waitStrategy));
+
+		for (int i = 0; i < backlog; i++) {
+			ControlSystem.signalReceived(server, packets[i % NUM_PACKETS]);
+		}
+	}
+
+	/**
+	 * teardownIteration
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Iteration)
+	public void teardownIteration() {
+		ControlSystem.teardown(server);
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() {
+		ControlSystem.restoreOutput();
+	}
+
+	@Benchmark
+	public DatagramPacket enqueueDequeue() {
+		next = (next + 1) & (NUM_PACKETS - 1);
+
+		ControlSystem.signalReceived(server, packets[next]);
+		DatagramPacket packet = ControlSystem.getNextRequest(server);
+		ControlSystem.releaseRequest(server, packet);
+
+		return(packet);
+	}
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark comparing the SignalTransport implementations that ServerPattern
+ * can use. A client ServerPattern sends messages over loopback to a server
+ * ServerPattern that echoes them back, with window messages in flight at
+ * once. Each call takes one reply and sends the next message, so the score
+ * is the time per message; the round trip time is about window times that.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransportBenchmark {
+	private static final byte[] MESSAGE = {ControlSystem.FLOOR_SENSOR_MODE, 0, 0, ControlSystem.END_OF_MESSAGE};
+
+	// Longest time to wait for the echo thread to finish
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	@Param({"SOCKET", "CHANNEL"})
+	public String transportType;
+
+	@Param({"1", "8", "32"})
+	public int window;
+
+	private InetAddress localAddress;
+	private Object client;
+	private Object server;
+	private int clientPort;
+	private int serverPort;
+
+	private Thread echo;
+	private volatile boolean running;
+
+	/**
+	 * setupTrial
+	 *
+	 * Creates the client and server, starts echoing every message back to
+	 * the client and fills the window.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+
+		localAddress = InetAddress.getLoopbackAddress();
+		clientPort = ControlSystem.findFreePort();
+		serverPort = ControlSystem.findFreePort();
+		client = ControlSystem.newServer(clientPort, "BenchmarkClient", ControlSystem.transportType(transportType));
+		server = ControlSystem.newServer(serverPort, "BenchmarkServer", ControlSystem.transportType(transportType));
+
+		running = true;
+		echo = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running) {
+					DatagramPacket request = ControlSystem.getNextRequest(server);
+					ControlSystem.transmit(server, MESSAGE, localAddress, clientPort);
+					ControlSystem.releaseRequest(server, request);
+				}
+			}
+		}, "Echo");
+		echo.setDaemon(true);
+		echo.start();
+
+		for (int i = 0; i < window; i++) {
+			ControlSystem.transmit(client, MESSAGE, localAddress, serverPort);
+		}
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * Stops the echo thread with one last message and tears down the
+	 * client and server.
+	 *
+	 * @param  None
+	 *
+	 * @throws InterruptedException
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() throws InterruptedException {
+		running = false;
+		ControlSystem.transmit(client, MESSAGE, localAddress, serverPort);
+		echo.join(TIMEOUT_MILLIS);
+
+		ControlSystem.teardown(client);
+		ControlSystem.teardown(server);
+		ControlSystem.restoreOutput();
+	}
+
+	@Benchmark
+	public DatagramPacket roundTrip() {
+		DatagramPacket reply = ControlSystem.getNextRequest(client);
+		ControlSystem.releaseRequest(client, reply);
+		ControlSystem.transmit(client, MESSAGE, localAddress, serverPort);
+
+		return(reply);
+	}
+}
@@ -0,0 +1,303 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+
+/**
+ *
+ * Benchmark of how long it takes to start the elevator workers of a
+ * building, and how much memory they hold while they wait, with the workers
+ * on platform threads and on virtual threads.
+ *
+ * Each call starts the Elevator_Subsystems of several buildings and waits
+ * until every elevator is waiting for its first action, which is where the
+ * workers spend most of their time. The score is the time to start one
+ * building. The memory counters are the average growth per building in
+ * resident memory (which includes the stacks of platform threads) and in
+ * the heap in use after a collection (which includes the stacks of parked
+ * virtual threads), measured before the buildings are torn down. Resident
+ * memory is only read on Linux.
+ *
+ * The Floor workers only live while their floor has requests to send, and
+ * the FloorSubsystem needs a display, so only the Elevator workers are
+ * started here. VIRTUAL runs on platform threads before Java 21, so run the
+ * benchmarks jar on Java 21 or later to compare the two.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkerThreadBenchmark {
+	// Buildings started by each call
+	private static final int BUILDINGS = 16;
+
+	// Longest time to wait for every elevator to start or stop
+	private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	// Time for finished platform threads to let go of their workers
+	private static final long SETTLE_MILLIS = 100;
+
+	private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+	@Param({"PLATFORM", "VIRTUAL"})
+	public String mode;
+
+	@Param({"32", "127"})
+	public int numElevators;
+
+	@Param({"100"})
+	public int numFloors;
+
+	private Object[] buildings;
+
+	// Memory in use before the buildings were started
+	private long rssBefore;
+	private long heapBefore;
+
+	/**
+	 *
+	 * Memory held per building, reported next to the start up time. JMH
+	 * adds event counters up over the iterations, so each iteration
+	 * reports its share of its own average.
+	 *
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Memory {
+		public long rssBytesPerBuilding;
+		public long heapBytesPerBuilding;
+
+		// Growth measured so far in this iteration
+		private long rssTotal;
+		private long heapTotal;
+		private long numBuildings;
+
+		/**
+		 * reset
+		 *
+		 * @param  None
+		 *
+		 * @return void
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			rssBytesPerBuilding = 0;
+			heapBytesPerBuilding = 0;
+			rssTotal = 0;
+			heapTotal = 0;
+			numBuildings = 0;
+		}
+
+		/**
+		 * add
+		 *
+		 * Adds the growth measured for some buildings to this iteration's
+		 * average.
+		 *
+		 * @param rss  Growth in resident memory in bytes
+		 * @param heap Growth in heap in use in bytes
+		 * @param buildings    Number of buildings started
+		 * @param numIterations    Number of iterations the counters are added up over
+		 *
+		 * @return void
+		 */
+		void add(long rss, long heap, int buildings, int numIterations) {
+			rssTotal += rss;
+			heapTotal += heap;
+			numBuildings += buildings;
+
+			rssBytesPerBuilding = rssTotal / (numBuildings * numIterations);
+			heapBytesPerBuilding = heapTotal / (numBuildings * numIterations);
+		}
+	}
+
+	/**
+	 * setupTrial
+	 *
+	 * Sets how the workers are run.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		ControlSystem.silenceOutput();
+		ControlSystem.setWorkerMode(mode);
+
+		if (mode.equals("VIRTUAL") && !ControlSystem.isVirtualAvailable()) {
+			System.err.println("Virtual threads are not available on this runtime, VIRTUAL runs on platform threads");
+		}
+
+		buildings = new Object[BUILDINGS];
+	}
+
+	/**
+	 * setupInvocation
+	 *
+	 * Measures the memory in use before the buildings are started.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		System.gc();
+		rssBefore = residentBytes();
+		heapBefore = heapBytes();
+	}
+
+	/**
+	 * teardownInvocation
+	 *
+	 * Measures the memory held by the waiting workers, then tears the
+	 * buildings down and waits for every worker to finish, so the next
+	 * call starts from the same memory.
+	 *
+	 * @param memory   Where the memory per building is reported
+	 * @param params   The current iteration
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Invocation)
+	public void teardownInvocation(Memory memory, IterationParams params) {
+		System.gc();
+		memory.add(residentBytes() - rssBefore, heapBytes() - heapBefore, BUILDINGS, params.getCount());
+
+		for (Object building : buildings) {
+			ControlSystem.teardown(building);
+		}
+
+		long deadline = System.nanoTime() + TIMEOUT_NANOS;
+		for (Object building : buildings) {
+			while (ControlSystem.getNumRunningElevators(building) != 0) {
+				if (System.nanoTime() > deadline) {
+					throw new IllegalStateException("Elevators did not finish");
+				}
+
+				Thread.yield();
+			}
+		}
+
+		// A platform thread keeps its worker reachable for a moment after it
+		// has finished, which would be counted against the next call
+		try {
+			Thread.sleep(SETTLE_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (int i = 0; i < BUILDINGS; i++) {
+			buildings[i] = null;
+		}
+	}
+
+	/**
+	 * teardownTrial
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	@TearDown(Level.Trial)
+	public void teardownTrial() {
+		ControlSystem.setWorkerMode("PLATFORM");
+		ControlSystem.restoreOutput();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BUILDINGS)
+	public void startBuildings() {
+		for (int i = 0; i < BUILDINGS; i++) {
+			buildings[i] = ControlSystem.startElevators(numFloors, numElevators);
+		}
+
+		for (Object building : buildings) {
+			waitForIdleElevators(building);
+		}
+	}
+
+	/**
+	 * waitForIdleElevators
+	 *
+	 * Waits until every elevator of the building is waiting for its next
+	 * action.
+	 *
+	 * @param building The Elevator_Subsystem of the building
+	 *
+	 * @return void
+	 */
+	private void waitForIdleElevators(Object building) {
+		long deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+		while (ControlSystem.getNumIdleElevators(building) != numElevators) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Elevators did not start");
+			}
+
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * heapBytes
+	 *
+	 * @param  None
+	 *
+	 * @return long    Bytes of heap in use
+	 */
+	private static long heapBytes() {
+		return(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+	}
+
+	/**
+	 * residentBytes
+	 *
+	 * @param  None
+	 *
+	 * @return long    Resident memory of this process in bytes, or 0 if it
+	 *                 cannot be read
+	 */
+	private static long residentBytes() {
+		try {
+			List<String> lines = Files.readAllLines(PROC_STATUS);
+
+			for (String line : lines) {
+				if (line.startsWith("VmRSS:")) {
+					String[] fields = line.trim().split("\\s+");
+					return(Long.parseLong(fields[1]) * 1024);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Not on Linux
+		}
+
+		return(0);
+	}
+}
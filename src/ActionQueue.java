@@ -0,0 +1,264 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Actions waiting to be carried out by one Elevator. Each elevator has its
+ * own queue and lock, so adding an action wakes only the elevator it is
+ * for, and elevators never wait on each other's actions.
+ *
+ * Actions are kept as their ordinals in a ring of bytes, next to the time
+ * they were added, so queueing an action does not allocate until the ring
+ * has to grow. Only one thread may take from a queue, but any thread may
+ * add to it.
+ *
+ * The queue counts how often its elevator woke up while waiting, and how
+ * often it woke up to find nothing to do. The time from adding each action
+ * to the elevator taking it is recorded in the given histogram.
+ *
+ */
+public class ActionQueue {
+	// Actions indexed by ordinal, shared so looking one up does not copy values()
+	private static final Elevator.Action[] ACTIONS = Elevator.Action.values();
+
+	// Actions the ring holds before it first grows
+	private static final int INITIAL_CAPACITY = 8;
+
+	// Guards the queue, and is signalled when an action is added or the
+	// queue is closed. Not a monitor, so a virtual thread is not pinned
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	// Ring of action ordinals and the times they were added
+	private byte[] actions;
+	private long[] addTimes;
+	private int head;
+	private int size;
+
+	// Whether the elevator is waiting for an action, and whether it should stop
+	private boolean waiting;
+	private boolean closed;
+
+	private long numWakeups;
+	private long numEmptyWakeups;
+
+	// Time from adding an action until it was taken, in nanoseconds
+	private LatencyHistogram latencies;
+
+	/**
+	 * ActionQueue
+	 *
+	 * Constructor
+	 *
+	 * Create a new empty queue that records how long actions wait in the
+	 * given histogram.
+	 *
+	 * @param latencies    Histogram of the time each action waits, shared
+	 *                     with other queues
+	 *
+	 * @return None
+	 */
+	public ActionQueue(LatencyHistogram latencies) {
+		this.latencies = latencies;
+
+		actions = new byte[INITIAL_CAPACITY];
+		addTimes = new long[INITIAL_CAPACITY];
+		head = 0;
+		size = 0;
+
+		waiting = false;
+		closed = false;
+
+		numWakeups = 0;
+		numEmptyWakeups = 0;
+	}
+
+	/**
+	 * add
+	 *
+	 * Adds the given action to the end of the queue and wakes the elevator
+	 * if it is waiting for one.
+	 *
+	 * @param action   The action to add
+	 *
+	 * @return None
+	 */
+	public void add(Elevator.Action action) {
+		lock.lock();
+		try {
+			if (size == actions.length) {
+				grow();
+			}
+
+			int tail = (head + size) & (actions.length - 1);
+			actions[tail] = (byte) action.ordinal();
+			addTimes[tail] = System.nanoTime();
+			size++;
+
+			if (waiting) {
+				changed.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * take
+	 *
+	 * Removes and returns the action at the front of the queue. Waits until
+	 * there is one, or until the queue is closed or the thread is interrupted.
+	 *
+	 * @param  None
+	 *
+	 * @return Elevator.Action The next action, or null if the queue is closed
+	 *                         or the thread was interrupted
+	 */
+	public Elevator.Action take() {
+		lock.lock();
+		try {
+			while ((size == 0) && !closed) {
+				waiting = true;
+
+				try {
+					changed.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return(null);
+				} finally {
+					waiting = false;
+				}
+
+				numWakeups++;
+				if ((size == 0) && !closed) {
+					numEmptyWakeups++;
+				}
+			}
+
+			if (closed) {
+				return(null);
+			}
+
+			Elevator.Action action = ACTIONS[actions[head]];
+			latencies.record(System.nanoTime() - addTimes[head]);
+
+			head = (head + 1) & (actions.length - 1);
+			size--;
+
+			return(action);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * close
+	 *
+	 * Stops the elevator. Any waiting take returns null, and so does every
+	 * take after this, even if actions are left in the queue.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * isWaiting
+	 *
+	 * Returns whether the elevator is waiting for an action.
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if the elevator is waiting in take
+	 */
+	public boolean isWaiting() {
+		lock.lock();
+		try {
+			return(waiting);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * size
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of actions in the queue
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return(size);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * getNumWakeups
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of times the elevator woke up while waiting
+	 */
+	public long getNumWakeups() {
+		lock.lock();
+		try {
+			return(numWakeups);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * getNumEmptyWakeups
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of times the elevator woke up with no action to take
+	 */
+	public long getNumEmptyWakeups() {
+		lock.lock();
+		try {
+			return(numEmptyWakeups);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * grow
+	 *
+	 * Doubles the size of the ring, keeping the actions in order. Must be
+	 * called with the lock held.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void grow() {
+		byte[] newActions = new byte[actions.length * 2];
+		long[] newAddTimes = new long[addTimes.length * 2];
+
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) & (actions.length - 1);
+			newActions[i] = actions[index];
+			newAddTimes[i] = addTimes[index];
+		}
+
+		actions = newActions;
+		addTimes = newAddTimes;
+		head = 0;
+	}
+}
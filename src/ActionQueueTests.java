@@ -0,0 +1,201 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class ActionQueueTests {
+    // Longest time to wait for an elevator to start waiting or take an action
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    /**
+     * testActionsTakenInOrder
+     *
+     * Tests that actions come out in the order they were added, including
+     * once the ring has grown, and that each one's wait is recorded.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testActionsTakenInOrder() {
+        LatencyHistogram latencies = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+                                                          UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+        ActionQueue queue = new ActionQueue(latencies);
+        Elevator.Action[] actions = Elevator.Action.values();
+
+        // Take a few first so the ring wraps before it grows
+        for (int i = 0; i < 5; i++) {
+            queue.add(actions[i % actions.length]);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(actions[i % actions.length], queue.take());
+        }
+
+        for (int i = 0; i < 50; i++) {
+            queue.add(actions[i % actions.length]);
+        }
+        assertEquals(50, queue.size());
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(actions[i % actions.length], queue.take());
+        }
+
+        assertEquals(0, queue.size());
+        assertEquals(55, latencies.getTotalCount());
+        assertEquals(0, queue.getNumWakeups());
+    }
+
+    /**
+     * testOnlyTargetElevatorWoken
+     *
+     * Tests that adding an action for one elevator wakes only that
+     * elevator, and that closing a queue stops its elevator.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testOnlyTargetElevatorWoken() throws InterruptedException {
+        LatencyHistogram latencies = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+                                                          UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+        ActionQueue first = new ActionQueue(latencies);
+        ActionQueue second = new ActionQueue(latencies);
+
+        AtomicReference<Elevator.Action> taken = new AtomicReference<Elevator.Action>();
+        Thread firstElevator = TestUtilities.startDaemon(() -> {
+            taken.set(first.take());
+            first.take();
+        }, "First elevator");
+        Thread secondElevator = TestUtilities.startDaemon(second::take, "Second elevator");
+
+        waitUntilWaiting(first);
+        waitUntilWaiting(second);
+
+        first.add(Elevator.Action.MOVE_UP);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while ((taken.get() == null) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+        waitUntilWaiting(first);
+
+        assertEquals(Elevator.Action.MOVE_UP, taken.get());
+        assertEquals(1, first.getNumWakeups());
+        assertEquals(0, first.getNumEmptyWakeups());
+        assertEquals(0, second.getNumWakeups());
+
+        first.close();
+        second.close();
+        firstElevator.join(TIMEOUT_MILLIS);
+        secondElevator.join(TIMEOUT_MILLIS);
+
+        assertTrue(!firstElevator.isAlive() && !secondElevator.isAlive());
+        assertNull(first.take());
+        assertEquals(1, latencies.getTotalCount());
+    }
+
+    /**
+     * testInterruptStopsTake
+     *
+     * Tests that interrupting an elevator waiting for an action makes take
+     * return null with the interrupt still set.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testInterruptStopsTake() throws InterruptedException {
+        ActionQueue queue = new ActionQueue(new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+                                                                 UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS));
+
+        AtomicReference<Boolean> interrupted = new AtomicReference<Boolean>();
+        AtomicReference<Elevator.Action> taken = new AtomicReference<Elevator.Action>(Elevator.Action.WAITING);
+        Thread elevator = TestUtilities.startDaemon(() -> {
+            taken.set(queue.take());
+            interrupted.set(Thread.currentThread().isInterrupted());
+        }, "Elevator");
+
+        waitUntilWaiting(queue);
+        elevator.interrupt();
+        elevator.join(TIMEOUT_MILLIS);
+
+        assertTrue(!elevator.isAlive());
+        assertNull(taken.get());
+        assertEquals(true, interrupted.get());
+    }
+
+    /**
+     * testMetricsWritten
+     *
+     * Tests that the Elevator_Subsystem publishes the wake ups of each
+     * elevator and the time actions wait.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testMetricsWritten() throws InterruptedException {
+        Elevator_Subsystem elevatorSubsystem = new Elevator_Subsystem(new TestUtilities.RecordingTransport());
+
+        try {
+            elevatorSubsystem.configSubsystem(10, 2);
+            waitUntilWaiting(elevatorSubsystem.getActionQueue(1));
+
+            // Elevator 1 carries out the action and waits for the next one
+            elevatorSubsystem.addActionToQueue(1, Elevator.Action.OPEN_DOOR);
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while ((elevatorSubsystem.getActionLatencies().getTotalCount() == 0) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            StringWriter text = new StringWriter();
+            elevatorSubsystem.writeMetrics(new PrintWriter(text));
+            String metrics = text.toString();
+
+            String elevator0 = MetricsServer.labels("subsystem", "Elevator_Subsystem", "elevator", "0");
+            String elevator1 = MetricsServer.labels("subsystem", "Elevator_Subsystem", "elevator", "1");
+            assertTrue(metrics.contains("ecs_elevator_wakeups_total" + elevator0 + " 0"), metrics);
+            assertTrue(metrics.contains("ecs_elevator_wakeups_total" + elevator1 + " 1"), metrics);
+            assertTrue(metrics.contains("ecs_elevator_empty_wakeups_total" + elevator1 + " 0"), metrics);
+            assertTrue(metrics.contains("ecs_action_latency_nanos_count" + MetricsServer.labels("subsystem", "Elevator_Subsystem") + " 1"), metrics);
+        } finally {
+            elevatorSubsystem.teardown();
+        }
+    }
+
+    /**
+     * waitUntilWaiting
+     *
+     * Waits until the elevator taking from the queue is waiting for an action
+     *
+     * @param queue The queue
+     *
+     * @throws InterruptedException
+     *
+     * @return  void
+     */
+    private void waitUntilWaiting(ActionQueue queue) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!queue.isWaiting() && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(queue.isWaiting());
+    }
+}
@@ -0,0 +1,389 @@
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Asynchronous log shared by everything in this process. Callers only check
+ * the level and put a record on a bounded queue; a background thread turns
+ * the records into lines and writes them, so printing never blocks a
+ * message handler. If the queue is full the record is dropped and counted
+ * rather than waiting for the writer.
+ *
+ * Every record is written as one compact line:
+ *     <micros since start> <level> <source> <message> [<host>:<port> <bytes>]
+ *
+ * Per-packet information is logged at DEBUG, which is below the default level
+ * in UtilityInformation, so the hot path does no printing unless it is asked
+ * for.
+ *
+ */
+public class AsyncLog {
+
+	// Levels a record can be logged at, from least to most important
+	public enum Level {
+		DEBUG, INFO, WARN, ERROR, OFF
+	}
+
+	// One logged event, turned into a line by the writer thread
+	private static class Record {
+		long time;
+		Level level;
+		String source;
+		String message;
+		byte data[];
+		InetAddress address;
+		int port;
+	}
+
+	private static final long START_TIME = System.nanoTime();
+
+	private static volatile Level level = UtilityInformation.DEFAULT_LOG_LEVEL;
+	private static volatile PrintStream output = System.out;
+
+	private static final ArrayBlockingQueue<Record> queue = new ArrayBlockingQueue<Record>(UtilityInformation.LOG_QUEUE_SIZE);
+
+	// Records queued, written and dropped since the process started
+	private static final AtomicLong numQueued = new AtomicLong();
+	private static final AtomicLong numDropped = new AtomicLong();
+	private static long numWritten = 0;
+
+	private static Thread writer;
+
+	/**
+	 * isEnabled
+	 *
+	 * Static
+	 *
+	 * Returns whether records at the given level are logged. Callers building
+	 * an expensive message should check this first.
+	 *
+	 * @param recordLevel  Level of the record
+	 *
+	 * @return boolean True if the record would be logged
+	 */
+	public static boolean isEnabled(Level recordLevel) {
+		return(recordLevel.compareTo(level) >= 0 && recordLevel != Level.OFF);
+	}
+
+	/**
+	 * setLevel
+	 *
+	 * Static
+	 *
+	 * Sets the lowest level that is logged
+	 *
+	 * @param newLevel The new level, or OFF to log nothing
+	 *
+	 * @return None
+	 */
+	public static void setLevel(Level newLevel) {
+		level = newLevel;
+	}
+
+	/**
+	 * getLevel
+	 *
+	 * Static
+	 *
+	 * Returns the lowest level that is logged
+	 *
+	 * @param  None
+	 *
+	 * @return Level   The current level
+	 */
+	public static Level getLevel() {
+		return(level);
+	}
+
+	/**
+	 * setOutput
+	 *
+	 * Static
+	 *
+	 * Sets where the writer thread writes lines. Records already queued may be
+	 * written to either stream.
+	 *
+	 * @param newOutput    The stream to write to
+	 *
+	 * @return None
+	 */
+	public static void setOutput(PrintStream newOutput) {
+		output = newOutput;
+	}
+
+	/**
+	 * debug
+	 *
+	 * Static
+	 *
+	 * Logs the given message at DEBUG
+	 *
+	 * @param source   Name of what is logging, e.g. Scheduler
+	 * @param message  The message
+	 *
+	 * @return None
+	 */
+	public static void debug(String source, String message) {
+		log(Level.DEBUG, source, message);
+	}
+
+	/**
+	 * info
+	 *
+	 * Static
+	 *
+	 * Logs the given message at INFO
+	 *
+	 * @param source   Name of what is logging, e.g. Scheduler
+	 * @param message  The message
+	 *
+	 * @return None
+	 */
+	public static void info(String source, String message) {
+		log(Level.INFO, source, message);
+	}
+
+	/**
+	 * log
+	 *
+	 * Static
+	 *
+	 * Logs the given message at the given level
+	 *
+	 * @param recordLevel  Level of the message
+	 * @param source   Name of what is logging, e.g. Scheduler
+	 * @param message  The message
+	 *
+	 * @return None
+	 */
+	public static void log(Level recordLevel, String source, String message) {
+		if (!isEnabled(recordLevel)) {
+			return;
+		}
+
+		Record record = new Record();
+		record.level = recordLevel;
+		record.source = source;
+		record.message = message;
+
+		enqueue(record);
+	}
+
+	/**
+	 * packet
+	 *
+	 * Static
+	 *
+	 * Logs a packet sent or received at DEBUG. The bytes are copied only
+	 * if the record is logged, and are formatted on the writer thread.
+	 *
+	 * @param source   Name of what is logging, e.g. Scheduler
+	 * @param event    What happened to the packet, e.g. send
+	 * @param data     The packet's data
+	 * @param length   Number of bytes of data in the packet
+	 * @param address  Address the packet was sent to or received from
+	 * @param port     Port the packet was sent to or received from
+	 *
+	 * @return None
+	 */
+	public static void packet(String source, String event, byte[] data, int length, InetAddress address, int port) {
+		if (!isEnabled(Level.DEBUG)) {
+			return;
+		}
+
+		Record record = new Record();
+		record.level = Level.DEBUG;
+		record.source = source;
+		record.message = event;
+		record.data = new byte[length];
+		System.arraycopy(data, 0, record.data, 0, length);
+		record.address = address;
+		record.port = port;
+
+		enqueue(record);
+	}
+
+	/**
+	 * getNumDropped
+	 *
+	 * Static
+	 *
+	 * Returns the number of records dropped because the queue was full
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of dropped records
+	 */
+	public static long getNumDropped() {
+		return(numDropped.get());
+	}
+
+	/**
+	 * flush
+	 *
+	 * Static
+	 *
+	 * Waits until every record queued before the call has been written, or
+	 * for at most UtilityInformation.LOG_FLUSH_TIMEOUT milliseconds.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public static void flush() {
+		long target = numQueued.get() - numDropped.get();
+		long deadline = System.currentTimeMillis() + UtilityInformation.LOG_FLUSH_TIMEOUT;
+
+		synchronized (queue) {
+			while (numWritten < target) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return;
+				}
+
+				try {
+					queue.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * enqueue
+	 *
+	 * Static
+	 *
+	 * Stamps the given record and queues it for the writer thread, starting
+	 * the thread the first time. Drops the record if the queue is full.
+	 *
+	 * @param record   The record to queue
+	 *
+	 * @return None
+	 */
+	private static void enqueue(Record record) {
+		record.time = System.nanoTime();
+
+		if (writer == null) {
+			startWriter();
+		}
+
+		numQueued.incrementAndGet();
+		if (!queue.offer(record)) {
+			numDropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * startWriter
+	 *
+	 * Static
+	 *
+	 * Starts the writer thread, and a shutdown hook that writes whatever is
+	 * still queued when the process exits.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private static synchronized void startWriter() {
+		if (writer != null) {
+			return;
+		}
+
+		writer = new Thread(AsyncLog::writeRecords, "AsyncLog");
+		writer.setDaemon(true);
+		writer.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread(AsyncLog::flush, "AsyncLogShutdown"));
+	}
+
+	/**
+	 * writeRecords
+	 *
+	 * Static
+	 *
+	 * Body of the writer thread. Takes every queued record, writes it, and
+	 * flushes the output once the queue is empty.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private static void writeRecords() {
+		ArrayList<Record> batch = new ArrayList<Record>();
+		StringBuilder line = new StringBuilder();
+
+		while (true) {
+			try {
+				Record first = queue.poll(UtilityInformation.LOG_FLUSH_TIMEOUT, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			queue.drainTo(batch);
+
+			PrintStream out = output;
+			for (Record record : batch) {
+				line.setLength(0);
+				format(record, line);
+				out.println(line);
+			}
+			out.flush();
+
+			synchronized (queue) {
+				numWritten += batch.size();
+				queue.notifyAll();
+			}
+
+			batch.clear();
+		}
+	}
+
+	/**
+	 * format
+	 *
+	 * Static
+	 *
+	 * Appends the line for the given record to the given builder
+	 *
+	 * @param record   The record to format
+	 * @param line     Where to append the line
+	 *
+	 * @return None
+	 */
+	private static void format(Record record, StringBuilder line) {
+		line.append((record.time - START_TIME) / 1000).append(' ');
+		line.append(record.level).append(' ');
+		line.append(record.source).append(' ');
+		line.append(record.message);
+
+		if (record.data != null) {
+			line.append(' ');
+			if (record.address != null) {
+				line.append(record.address.getHostAddress());
+			}
+			line.append(':').append(record.port).append(" [");
+
+			for (int i = 0; i < record.data.length; i++) {
+				if (i != 0) {
+					line.append(',');
+				}
+				line.append(record.data[i]);
+			}
+
+			line.append(']');
+		}
+	}
+}
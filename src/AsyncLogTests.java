@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncLogTests {
+    private ByteArrayOutputStream text;
+
+    @BeforeEach
+    void setUp() {
+        text = new ByteArrayOutputStream();
+        AsyncLog.setOutput(new PrintStream(text, true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        AsyncLog.flush();
+        AsyncLog.setOutput(System.out);
+        AsyncLog.setLevel(UtilityInformation.DEFAULT_LOG_LEVEL);
+    }
+
+    /**
+     * getLines
+     *
+     * Waits for the log to be written and returns its lines
+     *
+     * @param   None
+     *
+     * @return  String[]   The written lines
+     */
+    private String[] getLines() {
+        AsyncLog.flush();
+
+        String written = new String(text.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (written.isEmpty()) {
+            return(new String[0]);
+        }
+
+        return(written.split("\\R"));
+    }
+
+    /**
+     * testPacketsOffByDefault
+     *
+     * Tests that packets are not logged at the default level, but messages
+     * at INFO are.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testPacketsOffByDefault() {
+        AsyncLog.setLevel(UtilityInformation.DEFAULT_LOG_LEVEL);
+
+        byte[] data = {UtilityInformation.FLOOR_SENSOR_MODE, 3, 1, UtilityInformation.END_OF_MESSAGE};
+        AsyncLog.packet("Scheduler", "send", data, data.length, InetAddress.getLoopbackAddress(), UtilityInformation.ELEVATOR_PORT_NUM);
+        AsyncLog.debug("Scheduler", "Hidden");
+        AsyncLog.info("Scheduler", "Shown");
+
+        String[] lines = getLines();
+
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].endsWith(" INFO Scheduler Shown"), lines[0]);
+    }
+
+    /**
+     * testPacketFormat
+     *
+     * Tests that a packet logged at DEBUG is written as one compact line
+     * with its address, port and only the bytes it holds.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testPacketFormat() {
+        AsyncLog.setLevel(AsyncLog.Level.DEBUG);
+
+        byte[] data = {UtilityInformation.FLOOR_SENSOR_MODE, 3, 1, UtilityInformation.END_OF_MESSAGE, 0, 0};
+        AsyncLog.packet("Scheduler", "send", data, 4, InetAddress.getLoopbackAddress(), UtilityInformation.ELEVATOR_PORT_NUM);
+
+        // Changing the data afterwards does not change what is logged
+        data[1] = 9;
+
+        String[] lines = getLines();
+
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].matches("\\d+ DEBUG Scheduler send 127\\.0\\.0\\.1:69 \\[1,3,1,-1\\]"), lines[0]);
+    }
+
+    /**
+     * testOff
+     *
+     * Tests that nothing is logged when the level is OFF.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testOff() {
+        AsyncLog.setLevel(AsyncLog.Level.OFF);
+
+        AsyncLog.log(AsyncLog.Level.ERROR, "Scheduler", "Hidden");
+        AsyncLog.log(AsyncLog.Level.OFF, "Scheduler", "Hidden");
+
+        assertEquals(0, getLines().length);
+    }
+}
@@ -0,0 +1,759 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ *
+ * Scheduler for a building whose elevators are split into banks, each
+ * serving its own zone of floors (e.g. a low-rise, a high-rise and an
+ * express bank). Every bank is a Scheduler with its own SchedulerAlgorithm
+ * running on its own thread, so the banks make their decisions in parallel.
+ *
+ * The BankedScheduler itself only routes. It receives on the Scheduler port
+ * like a Scheduler and hands each message to one bank:
+ *
+ *     FLOOR_REQUEST_MODE goes to the bank whose zone holds the source floor,
+ *     or the destination floor when the request starts at the lobby
+ *     (floor 0), which every bank serves.
+ *     Messages about an elevator go to the bank the elevator belongs to.
+ *
+ * Elevators are numbered from 0 in each bank. Their numbers are changed to
+ * and from the numbers the rest of the system uses as messages go through
+ * the router. The configuration, its confirmation and teardown are handled
+ * by the router itself, and ALL_REQUESTS_FINISHED_MODE is only sent to the
+ * floors once every bank has finished.
+ *
+ * The elevators and the floors above the lobby are shared out as evenly as
+ * possible, in order, when the configuration is received.
+ *
+ */
+public class BankedScheduler extends ServerPattern {
+	// Index of the elevator number in messages that have one
+	private static final int ELEVATOR_IND = 2;
+	private static final int FIX_DOOR_ELEVATOR_IND = 1;
+
+	private Bank[] banks;
+	private int numBanksInUse;
+
+	// Bank that serves each floor, and that each elevator belongs to
+	private int[] bankOfFloor;
+	private int[] bankOfElevator;
+
+	// Requests routed to each bank, and how many each bank had handled
+	// the last time it finished all of its requests
+	private int[] numRouted;
+	private int[] numHandledWhenFinished;
+	private boolean finishedSent;
+
+	private InetAddress floorIP;
+	private InetAddress elevatorIP;
+
+	/**
+	 * BankedScheduler
+	 *
+	 * Constructor
+	 *
+	 * Create a new BankedScheduler on the Scheduler port with the given
+	 * number of banks that each use the given dispatch strategy
+	 *
+	 * @param numBanks Number of banks to split the elevators into
+	 * @param strategyType Dispatch strategy used by every bank
+	 *
+	 * @return None
+	 */
+	public BankedScheduler(int numBanks, DispatchStrategy.Type strategyType) {
+		super(UtilityInformation.SCHEDULER_PORT_NUM, "Scheduler");
+
+		initialize(numBanks, strategyType, SimulationClock.getClock());
+	}
+
+	/**
+	 * BankedScheduler
+	 *
+	 * Constructor
+	 *
+	 * Create a new BankedScheduler that sends and receives messages with the
+	 * given transport, and whose banks report request times from the given
+	 * clock
+	 *
+	 * @param numBanks Number of banks to split the elevators into
+	 * @param strategyType Dispatch strategy used by every bank
+	 * @param transport    Transport to send and receive messages with
+	 * @param clock    Clock used for the times reported for requests
+	 *
+	 * @return None
+	 */
+	public BankedScheduler(int numBanks, DispatchStrategy.Type strategyType, SignalTransport transport, SimulationClock clock) {
+		super(transport);
+
+		initialize(numBanks, strategyType, clock);
+	}
+
+	/**
+	 * initialize
+	 *
+	 * Creates the banks and starts a thread for each of them
+	 *
+	 * @param numBanks Number of banks
+	 * @param strategyType Dispatch strategy used by every bank
+	 * @param clock    Clock used for the times reported for requests
+	 *
+	 * @return void
+	 */
+	private void initialize(int numBanks, DispatchStrategy.Type strategyType, SimulationClock clock) {
+		banks = new Bank[numBanks];
+		numRouted = new int[numBanks];
+		numHandledWhenFinished = new int[numBanks];
+		finishedSent = false;
+
+		// Nothing is routed until the configuration is received
+		numBanksInUse = 0;
+		bankOfFloor = new int[0];
+		bankOfElevator = new int[0];
+
+		try {
+			floorIP = InetAddress.getLocalHost();
+			elevatorIP = InetAddress.getLocalHost();
+		} catch (UnknownHostException e) {
+			e.printStackTrace();
+		}
+
+		for (int i = 0; i < numBanks; i++) {
+			banks[i] = new Bank(this, i, strategyType, new BankTransport(this), clock);
+
+			Thread bankThread = new Thread(banks[i]::runBank, "Bank " + i);
+			bankThread.setDaemon(true);
+			bankThread.start();
+		}
+	}
+
+	/**
+	 * runBankedScheduler
+	 *
+	 * Routes every received message to the banks
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void runBankedScheduler() {
+		while (true) {
+			route(this.getNextRequest());
+		}
+	}
+
+	/**
+	 * route
+	 *
+	 * Hands the given message to the bank it is for, or handles it if it is
+	 * for the whole building. A message handed to a bank is released by
+	 * the bank once it has been handled.
+	 *
+	 * @param packet   The received message
+	 *
+	 * @return void
+	 */
+	public void route(DatagramPacket packet) {
+		byte[] data = packet.getData();
+		byte mode = data[UtilityInformation.MODE_BYTE_IND];
+
+		if (mode == UtilityInformation.FLOOR_REQUEST_MODE) {
+			int source = Byte.toUnsignedInt(data[1]);
+			int destination = Byte.toUnsignedInt(data[3]);
+
+			if ((source >= bankOfFloor.length) || (destination >= bankOfFloor.length)) {
+				System.out.println("Error in BankedScheduler: Request outside of the configured building.");
+				releaseRequest(packet);
+				return;
+			}
+
+			int bankNum = getBankOfRequest(source, destination);
+
+			synchronized (this) {
+				numRouted[bankNum]++;
+				finishedSent = false;
+			}
+
+			banks[bankNum].signalReceived(packet);
+		} else if (getElevatorInd(mode) != -1) {
+			int elevatorInd = getElevatorInd(mode);
+			int elevatorNum = data[elevatorInd];
+
+			if ((elevatorNum < 0) || (elevatorNum >= bankOfElevator.length)) {
+				System.out.println("Error in BankedScheduler: Elevator outside of the configured building.");
+				releaseRequest(packet);
+				return;
+			}
+
+			Bank bank = banks[bankOfElevator[elevatorNum]];
+			data[elevatorInd] = (byte) (elevatorNum - bank.transport.firstElevator);
+
+			bank.signalReceived(packet);
+		} else if (mode == UtilityInformation.CONFIG_MODE) {
+			configure(data[1], Byte.toUnsignedInt(data[2]));
+
+			sendMessage(data, packet.getLength(), elevatorIP, UtilityInformation.ELEVATOR_PORT_NUM);
+			releaseRequest(packet);
+		} else if (mode == UtilityInformation.CONFIG_CONFIRM_MODE) {
+			sendMessage(data, packet.getLength(), floorIP, UtilityInformation.FLOOR_PORT_NUM);
+			releaseRequest(packet);
+		} else if (mode == UtilityInformation.TEARDOWN_MODE) {
+			sendTearDownMessage();
+		} else {
+			System.out.println(String.format("Error in BankedScheduler: Undefined mode: %d", mode));
+			releaseRequest(packet);
+		}
+	}
+
+	/**
+	 * getElevatorInd
+	 *
+	 * Static
+	 *
+	 * Returns where the elevator number is in messages of the given mode
+	 *
+	 * @param mode The mode of the message
+	 *
+	 * @return int Index of the elevator number, or -1 if there is none
+	 */
+	private static int getElevatorInd(byte mode) {
+		switch (mode) {
+		case UtilityInformation.FLOOR_SENSOR_MODE:
+		case UtilityInformation.ELEVATOR_BUTTON_HIT_MODE:
+		case UtilityInformation.ELEVATOR_DIRECTION_MODE:
+		case UtilityInformation.ELEVATOR_DOOR_MODE:
+		case UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE:
+		case UtilityInformation.ERROR_MESSAGE_MODE:
+		case UtilityInformation.FIX_ERROR_MODE:
+			return(ELEVATOR_IND);
+		case UtilityInformation.FIX_DOOR_MODE:
+			return(FIX_DOOR_ELEVATOR_IND);
+		default:
+			return(-1);
+		}
+	}
+
+	/**
+	 * configure
+	 *
+	 * Shares the elevators and the floors above the lobby out between the
+	 * banks and gives each bank its configuration. There are never more
+	 * banks in use than elevators or floors above the lobby.
+	 *
+	 * @param numElevators Number of elevators in the building
+	 * @param numFloors    Number of floors in the building
+	 *
+	 * @return void
+	 */
+	private void configure(int numElevators, int numFloors) {
+		int numUpperFloors = Math.max(1, numFloors - 1);
+		numBanksInUse = Math.max(1, Math.min(banks.length, Math.min(numElevators, numUpperFloors)));
+
+		int[] newBankOfElevator = new int[numElevators];
+		int[] newBankOfFloor = new int[numFloors];
+
+		int firstElevator = 0;
+		int firstFloor = 1;
+
+		for (int i = 0; i < banks.length; i++) {
+			int bankElevators = 0;
+
+			if (i < numBanksInUse) {
+				bankElevators = (numElevators / numBanksInUse) + ((i < (numElevators % numBanksInUse)) ? 1 : 0);
+				int bankFloors = (numUpperFloors / numBanksInUse) + ((i < (numUpperFloors % numBanksInUse)) ? 1 : 0);
+
+				for (int j = firstElevator; j < firstElevator + bankElevators; j++) {
+					newBankOfElevator[j] = i;
+				}
+
+				for (int j = firstFloor; (j < firstFloor + bankFloors) && (j < numFloors); j++) {
+					newBankOfFloor[j] = i;
+				}
+
+				firstFloor += bankFloors;
+			}
+
+			// Configured here rather than through the bank's inbox, which
+			// could hand the bank a request before its configuration. The
+			// bank sees this once it takes the next message routed to it.
+			banks[i].transport.firstElevator = firstElevator;
+			banks[i].setNumElevators((byte) bankElevators);
+			banks[i].setNumFloors(numFloors);
+			firstElevator += bankElevators;
+		}
+
+		bankOfElevator = newBankOfElevator;
+		bankOfFloor = newBankOfFloor;
+	}
+
+	/**
+	 * getBankOfRequest
+	 *
+	 * Returns the bank that serves a request between the given floors: the
+	 * bank of the source floor, or of the destination floor if the request
+	 * starts at the lobby
+	 *
+	 * @param source   Source floor of the request
+	 * @param destination  Destination floor of the request
+	 *
+	 * @return int Number of the bank
+	 */
+	public int getBankOfRequest(int source, int destination) {
+		if (source == 0) {
+			return(bankOfFloor[destination]);
+		}
+
+		return(bankOfFloor[source]);
+	}
+
+	/**
+	 * getBankOfElevator
+	 *
+	 * Returns the bank that the given elevator belongs to
+	 *
+	 * @param elevatorNum  Number of the elevator
+	 *
+	 * @return int Number of the bank
+	 */
+	public int getBankOfElevator(int elevatorNum) {
+		return(bankOfElevator[elevatorNum]);
+	}
+
+	/**
+	 * getNumBanksInUse
+	 *
+	 * Returns the number of banks that were given elevators
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of banks in use
+	 */
+	public int getNumBanksInUse() {
+		return(numBanksInUse);
+	}
+
+	/**
+	 * getNumRequestsHandled
+	 *
+	 * Returns the number of floor requests that every bank has finished
+	 * handling
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of requests handled
+	 */
+	public long getNumRequestsHandled() {
+		long count = 0;
+
+		for (Bank bank : banks) {
+			count += bank.numHandled;
+		}
+
+		return(count);
+	}
+
+	/**
+	 * getNumPassengersDelivered
+	 *
+	 * Returns the number of passengers every bank has delivered
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of passengers delivered
+	 */
+	public int getNumPassengersDelivered() {
+		int count = 0;
+
+		for (Bank bank : banks) {
+			count += bank.getAlgorithm().getNumPassengersDelivered();
+		}
+
+		return(count);
+	}
+
+	/**
+	 * bankFinished
+	 *
+	 * Called by a bank when it has finished all of its requests. Tells the
+	 * floors that all requests are finished once no bank has any left.
+	 *
+	 * @param bankNum  Number of the bank
+	 * @param numHandled   Number of requests the bank has handled
+	 *
+	 * @return void
+	 */
+	private synchronized void bankFinished(int bankNum, int numHandled) {
+		numHandledWhenFinished[bankNum] = numHandled;
+
+		for (int i = 0; i < banks.length; i++) {
+			if (numHandledWhenFinished[i] != numRouted[i]) {
+				return;
+			}
+		}
+
+		if (!finishedSent) {
+			byte[] message = {UtilityInformation.ALL_REQUESTS_FINISHED_MODE,
+			                  UtilityInformation.END_OF_MESSAGE};
+
+			sendMessage(message, message.length, floorIP, UtilityInformation.FLOOR_PORT_NUM);
+			finishedSent = true;
+		}
+	}
+
+	/**
+	 * sendMessage
+	 *
+	 * Sends a message, exiting if it cannot be sent
+	 *
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @return void
+	 */
+	private void sendMessage(byte[] data, int length, InetAddress address, int portNum) {
+		AsyncLog.packet("Scheduler", "send", data, length, address, portNum);
+
+		try {
+			this.transmit(data, length, address, portNum);
+		} catch (IOException e) {
+			System.out.println("Send socket failure!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * sendTearDownMessage
+	 *
+	 * Relays the tear down message to the Elevator, prints what each bank
+	 * did and shuts everything down.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	private void sendTearDownMessage() {
+		byte[] tearDown = {UtilityInformation.TEARDOWN_MODE, UtilityInformation.END_OF_MESSAGE};
+		sendMessage(tearDown, tearDown.length, elevatorIP, UtilityInformation.ELEVATOR_PORT_NUM);
+
+		System.out.println("\n\nTEARING DOWN!\n\n");
+		for (int i = 0; i < numBanksInUse; i++) {
+			SchedulerAlgorithm algor = banks[i].getAlgorithm();
+
+			System.out.println(String.format("Bank %d, %s dispatch: %s",
+			                                 i,
+			                                 algor.getDispatchStrategyType(),
+			                                 algor.getDecisionLatency()));
+			System.out.println(String.format("Bank %d delivered %d passengers, %.2f per minute.",
+			                                 i,
+			                                 algor.getNumPassengersDelivered(),
+			                                 algor.getPassengersDeliveredPerMinute()));
+		}
+
+		teardown();
+		System.exit(0);
+	}
+
+	/**
+	 * writeMetrics
+	 *
+	 * Overridden
+	 *
+	 * Writes the ServerPattern metrics, the requests routed to and waiting
+	 * in each bank and how long each bank's dispatch strategy took to
+	 * choose an elevator.
+	 *
+	 * @param writer   Where to write the metrics
+	 *
+	 * @return None
+	 */
+	@Override
+	public void writeMetrics(PrintWriter writer) {
+		super.writeMetrics(writer);
+
+		int[] routed;
+		synchronized (this) {
+			routed = numRouted.clone();
+		}
+
+		MetricsServer.writeType(writer, "ecs_bank_requests_total", "counter", "Floor requests routed to the bank");
+		for (int i = 0; i < banks.length; i++) {
+			writer.println("ecs_bank_requests_total" + MetricsServer.labels("subsystem", "Scheduler", "bank", Integer.toString(i)) + " " + routed[i]);
+		}
+
+		MetricsServer.writeType(writer, "ecs_bank_queue_depth", "gauge", "Messages waiting to be handled by the bank");
+		for (int i = 0; i < banks.length; i++) {
+			writer.println("ecs_bank_queue_depth" + MetricsServer.labels("subsystem", "Scheduler", "bank", Integer.toString(i)) + " " + banks[i].getQueueDepth());
+		}
+
+		MetricsServer.writeType(writer, "ecs_dispatch_decision_nanos", "summary", "Time the dispatch strategy took to choose an elevator for a request");
+		for (int i = 0; i < banks.length; i++) {
+			MetricsServer.writeSummary(writer,
+			                           "ecs_dispatch_decision_nanos",
+			                           MetricsServer.labels("subsystem", "Scheduler", "bank", Integer.toString(i)),
+			                           banks[i].getAlgorithm().getDecisionLatency());
+		}
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Overridden
+	 *
+	 * Tears down the router and every bank
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void teardown() {
+		super.teardown();
+
+		for (Bank bank : banks) {
+			bank.teardown();
+		}
+	}
+
+	/**
+	 * main
+	 *
+	 * Main method
+	 *
+	 * Creates and runs a new BankedScheduler. The number of banks and the
+	 * name of a dispatch strategy can be given as the arguments.
+	 *
+	 * @param args
+	 *
+	 * @return None
+	 */
+	public static void main(String[] args) {
+		int numBanks = UtilityInformation.DEFAULT_NUM_BANKS;
+		DispatchStrategy.Type strategyType = UtilityInformation.DEFAULT_DISPATCH_STRATEGY;
+
+		if (args.length > 0) {
+			numBanks = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			strategyType = DispatchStrategy.Type.valueOf(args[1]);
+		}
+
+		BankedScheduler scheduler = new BankedScheduler(numBanks, strategyType);
+		if (UtilityInformation.METRICS_ENABLED) {
+			scheduler.startMetricsServer(UtilityInformation.SCHEDULER_METRICS_PORT_NUM);
+		}
+		scheduler.runBankedScheduler();
+	}
+
+	/**
+	 *
+	 * One bank of elevators. A Scheduler that is configured by the router,
+	 * takes its messages from the router, sends through the router and tells
+	 * the router when it has finished instead of telling the floors.
+	 *
+	 */
+	private static class Bank extends Scheduler {
+		private BankedScheduler router;
+		private int bankNum;
+		private BankTransport transport;
+
+		// Floor requests this bank has finished handling
+		private volatile int numHandled;
+
+		/**
+		 * Bank
+		 *
+		 * Constructor
+		 *
+		 * Create a new Bank that sends with the given transport
+		 *
+		 * @param router   The BankedScheduler that the bank belongs to
+		 * @param bankNum  Number of the bank
+		 * @param strategyType Dispatch strategy to use
+		 * @param transport    Transport that sends through the router
+		 * @param clock    Clock used for the times reported for requests
+		 *
+		 * @return None
+		 */
+		public Bank(BankedScheduler router, int bankNum, DispatchStrategy.Type strategyType, BankTransport transport, SimulationClock clock) {
+			super(strategyType, transport, clock);
+
+			this.router = router;
+			this.bankNum = bankNum;
+			this.transport = transport;
+			numHandled = 0;
+		}
+
+		/**
+		 * runBank
+		 *
+		 * Handles every message the router gives the bank
+		 *
+		 * @param  None
+		 *
+		 * @return None
+		 */
+		public void runBank() {
+			while (true) {
+				DatagramPacket nextReq = this.getNextRequest();
+				boolean isRequest = (nextReq.getData()[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.FLOOR_REQUEST_MODE);
+
+				handleMessage(nextReq);
+
+				// The packet came from the router, so it goes back to the router
+				router.releaseRequest(nextReq);
+
+				if (isRequest) {
+					numHandled++;
+				}
+
+				printInfo();
+			}
+		}
+
+		/**
+		 * sendAllRequestsFinishedMessage
+		 *
+		 * Overridden
+		 *
+		 * Tells the router that this bank has finished all of its requests
+		 *
+		 * @param packet   The received DatagramPacket that triggered this method call
+		 *
+		 * @return void
+		 */
+		@Override
+		protected void sendAllRequestsFinishedMessage(DatagramPacket packet) {
+			router.bankFinished(bankNum, numHandled);
+		}
+	}
+
+	/**
+	 *
+	 * Transport a bank sends with. Changes the bank's elevator numbers back
+	 * to the numbers the rest of the system uses, including in multi-message
+	 * frames, and sends through the router. The bank receives from the
+	 * router, so there is nothing to start.
+	 *
+	 */
+	private static class BankTransport implements SignalTransport {
+		private BankedScheduler router;
+
+		// Number of the bank's elevator 0 in the rest of the system
+		private volatile int firstElevator;
+
+		// Copy of the message being sent, so the bank's buffers are left as they were
+		private byte[] sendBuffer;
+
+		/**
+		 * BankTransport
+		 *
+		 * Constructor
+		 *
+		 * Create a new BankTransport that sends through the given router
+		 *
+		 * @param router   The BankedScheduler to send through
+		 *
+		 * @return None
+		 */
+		public BankTransport(BankedScheduler router) {
+			this.router = router;
+
+			firstElevator = 0;
+			sendBuffer = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+		}
+
+		/**
+		 * start
+		 *
+		 * Overridden
+		 *
+		 * @param controller   The bank
+		 *
+		 * @return None
+		 */
+		@Override
+		public void start(ServerPattern controller) {
+		}
+
+		/**
+		 * send
+		 *
+		 * Overridden
+		 *
+		 * Sends a copy of the given message through the router with the
+		 * elevator numbers changed. Only called by the bank's thread.
+		 *
+		 * @param data Bytes to send
+		 * @param length   Number of bytes to send
+		 * @param address  Address to send to
+		 * @param portNum  Port to send to
+		 *
+		 * @throws IOException If the datagram could not be sent
+		 *
+		 * @return None
+		 */
+		@Override
+		public void send(byte[] data, int length, InetAddress address, int portNum) throws IOException {
+			if (sendBuffer.length < length) {
+				sendBuffer = new byte[length];
+			}
+			System.arraycopy(data, 0, sendBuffer, 0, length);
+
+			if (sendBuffer[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.MULTI_MESSAGE_MODE) {
+				// Laid out as in MessageBatcher: mode, number of messages,
+				// then the length of each message followed by the message
+				int numMessages = sendBuffer[1] & 0xFF;
+				int offset = 2;
+
+				for (int i = 0; (i < numMessages) && (offset < length); i++) {
+					int messageLength = sendBuffer[offset] & 0xFF;
+					offset++;
+
+					addFirstElevator(sendBuffer, offset);
+					offset += messageLength;
+				}
+			} else {
+				addFirstElevator(sendBuffer, 0);
+			}
+
+			router.transmit(sendBuffer, length, address, portNum);
+		}
+
+		/**
+		 * addFirstElevator
+		 *
+		 * Changes the elevator number in the message at the given offset
+		 * from the bank's number to the system's number
+		 *
+		 * @param buffer   Buffer holding the message
+		 * @param offset   Index of the message's mode byte
+		 *
+		 * @return void
+		 */
+		private void addFirstElevator(byte[] buffer, int offset) {
+			int elevatorInd = getElevatorInd(buffer[offset]);
+
+			if (elevatorInd != -1) {
+				buffer[offset + elevatorInd] += firstElevator;
+			}
+		}
+
+		/**
+		 * teardown
+		 *
+		 * Overridden
+		 *
+		 * @param  None
+		 *
+		 * @return None
+		 */
+		@Override
+		public void teardown() {
+		}
+	}
+}
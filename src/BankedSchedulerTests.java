@@ -0,0 +1,153 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BankedSchedulerTests {
+    // Longest time to wait for every request to be delivered
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    /**
+     * testRequestsRoutedToZones
+     *
+     * Tests that the elevators and floors are split between the banks in
+     * order, that requests go to the bank of their source floor, or of their
+     * destination floor when they start at the lobby, and that elevator
+     * numbers are changed to the bank's numbers and back.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testRequestsRoutedToZones() {
+        TestUtilities.RecordingTransport recorder = new TestUtilities.RecordingTransport();
+        List<byte[]> sent = recorder.getMessages();
+
+        BankedScheduler scheduler = new BankedScheduler(2, DispatchStrategy.Type.DEFAULT, recorder, new VirtualClock());
+
+        try {
+            // Floors 1 to 10 are bank 0's, floors 11 to 20 are bank 1's
+            byte[] config = {UtilityInformation.CONFIG_MODE, 4, 21, UtilityInformation.END_OF_MESSAGE};
+            scheduler.route(new DatagramPacket(config, config.length));
+
+            assertEquals(2, scheduler.getNumBanksInUse());
+            assertEquals(0, scheduler.getBankOfElevator(1));
+            assertEquals(1, scheduler.getBankOfElevator(2));
+
+            assertEquals(0, scheduler.getBankOfRequest(0, 5));
+            assertEquals(1, scheduler.getBankOfRequest(0, 15));
+            assertEquals(1, scheduler.getBankOfRequest(15, 0));
+            assertEquals(0, scheduler.getBankOfRequest(3, 8));
+            assertEquals(1, scheduler.getBankOfRequest(12, 4));
+
+            // Only bank 1's elevators can be sent to floor 15
+            byte[] request = {UtilityInformation.FLOOR_REQUEST_MODE, 15, (byte) UtilityInformation.ElevatorDirection.DOWN.ordinal(),
+                              0, UtilityInformation.END_OF_MESSAGE};
+            scheduler.route(new DatagramPacket(request, request.length));
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while ((scheduler.getNumRequestsHandled() < 1) && (System.currentTimeMillis() < deadline)) {
+                Thread.yield();
+            }
+            assertEquals(1, scheduler.getNumRequestsHandled());
+
+            synchronized (sent) {
+                for (byte[] message : sent) {
+                    if ((message[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.ELEVATOR_DIRECTION_MODE)
+                            || (message[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE)) {
+                        assertTrue((message[2] == 2) || (message[2] == 3), "Sent to elevator " + message[2]);
+                    }
+                }
+            }
+        } finally {
+            scheduler.teardown();
+        }
+    }
+
+    /**
+     * testTraceCompletes
+     *
+     * Tests that a BankedScheduler with two banks and the Elevator_Subsystem
+     * deliver every passenger of a short trace with requests in both zones
+     * and from the lobby, and that the floors are told once all of them
+     * are finished.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testTraceCompletes() throws IOException, InterruptedException {
+        final int[][] trace = {{0, 6}, {0, 17}, {3, 9}, {14, 19}, {18, 0}, {5, 1}, {12, 0}};
+
+        SimulationClock oldClock = SimulationClock.getClock();
+        SimulationClock.setClock(new ScaledClock(UtilityInformation.SIMULATION_SPEEDUP));
+
+        BankedScheduler scheduler = new BankedScheduler(2, DispatchStrategy.Type.DEFAULT,
+                                                        new SocketTransport(UtilityInformation.SCHEDULER_PORT_NUM, "Scheduler", null),
+                                                        SimulationClock.getClock());
+        Elevator_Subsystem elevatorSubsystem = new Elevator_Subsystem(
+                new SocketTransport(UtilityInformation.ELEVATOR_PORT_NUM, "Elevator_Subsystem", null));
+        ServerPattern floors = new ServerPattern(new SocketTransport(UtilityInformation.FLOOR_PORT_NUM, "Floors", null)) {};
+
+        try {
+            TestUtilities.startDaemon(scheduler::runBankedScheduler, "Scheduler");
+            TestUtilities.startDaemon(elevatorSubsystem::runElevatorSubsystem, "Elevator_Subsystem");
+
+            InetAddress schedulerAddress = InetAddress.getLocalHost();
+            byte[] config = {UtilityInformation.CONFIG_MODE, 4, 21, UtilityInformation.END_OF_MESSAGE};
+            floors.transmit(config, config.length, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+
+            DatagramPacket confirm;
+            do {
+                confirm = floors.getNextRequest();
+            } while (confirm.getData()[UtilityInformation.MODE_BYTE_IND] != UtilityInformation.CONFIG_CONFIRM_MODE);
+
+            for (int[] request : trace) {
+                UtilityInformation.ElevatorDirection dir = (request[1] > request[0]) ? UtilityInformation.ElevatorDirection.UP
+                                                                                      : UtilityInformation.ElevatorDirection.DOWN;
+                byte[] message = {UtilityInformation.FLOOR_REQUEST_MODE, (byte) request[0], (byte) dir.ordinal(),
+                                  (byte) request[1], UtilityInformation.END_OF_MESSAGE};
+                floors.transmit(message, message.length, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+            }
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            boolean finished = false;
+
+            while (!finished && (System.currentTimeMillis() < deadline)) {
+                if (floors.getQueueDepth() == 0) {
+                    Thread.sleep(10);
+                    continue;
+                }
+
+                DatagramPacket message = floors.getNextRequest();
+                finished = (message.getData()[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.ALL_REQUESTS_FINISHED_MODE);
+                floors.releaseRequest(message);
+            }
+
+            assertTrue(finished);
+
+            // The last passenger is counted once they have left the elevator
+            while ((scheduler.getNumPassengersDelivered() < trace.length) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(trace.length, scheduler.getNumPassengersDelivered());
+            assertEquals(trace.length, scheduler.getNumRequestsHandled());
+        } finally {
+            floors.teardown();
+            elevatorSubsystem.teardown();
+            scheduler.teardown();
+            SimulationClock.setClock(oldClock);
+        }
+    }
+}
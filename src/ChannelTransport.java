@@ -0,0 +1,768 @@
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * SignalTransport using a non-blocking DatagramChannel and a Selector.
+ *
+ * A single event loop thread receives datagrams and sends the datagrams
+ * that other threads queue with send. Datagrams are received into and sent
+ * from direct ByteBuffers owned by the event loop. Datagrams pass between
+ * the event loop and the other threads through rings of preallocated slots
+ * in the style of MpscRing: a thread claims a slot, copies its datagram
+ * into the slot's buffer and publishes it, and the other side frees the
+ * slot once it is done with it, so neither direction allocates.
+ *
+ * Received datagrams are handed to a receiver thread, which copies each one
+ * into a DatagramPacket (leased from the pool in pooled mode) and passes it
+ * to the ServerPattern, so the rest of the subsystem is the same for both
+ * transports. The receiver thread waits while the inbox of the ServerPattern
+ * is full, but the event loop never does: it stops reading from the channel
+ * until the receiver thread frees a slot, and keeps sending meanwhile.
+ * Senders wait while the outbound ring is full, which the event loop always
+ * empties, so a handler sending while its inbox is full does not wait
+ * forever. Datagrams are sent in the order they were queued and are never
+ * dropped.
+ *
+ */
+public class ChannelTransport implements SignalTransport {
+	private DatagramChannel channel;
+	private Selector selector;
+	private SelectionKey key;
+
+	// Buffers only used by the event loop
+	private ByteBuffer receiveBuffer;
+	private ByteBuffer sendBuffer;
+
+	// Datagrams waiting to be sent by the event loop, and datagrams received
+	// by the event loop waiting to be passed to the ServerPattern
+	private SlotRing outbound;
+	private SlotRing inbound;
+
+	// Set by the event loop when it stops reading because the inbound ring
+	// is full, and by the receiver thread before it waits for a datagram
+	private volatile boolean readPaused;
+	private volatile boolean receiverWaiting;
+
+	// Set by the event loop while the channel can not take any more datagrams
+	private boolean writeBlocked;
+
+	// Addresses already sent to, so each send does not create a new one
+	private volatile InetSocketAddress[] destinations;
+
+	private ServerPattern controller;
+	private PacketPool packetPool;
+	private String name;
+
+	private volatile boolean run;
+	private Thread eventLoopThread;
+	private Thread receiverThread;
+
+	// Largest datagram that can be sent
+	private final int MAX_DATAGRAM_SIZE = 65507;
+
+	// Number of datagrams that can be waiting to be sent, a power of two
+	private final int MAX_NUM_OUTBOUND = 256;
+
+	// Number of received datagrams that can be waiting for the receiver
+	// thread, a power of two
+	private final int MAX_NUM_INBOUND = 256;
+
+	// Number of addresses kept for reuse
+	private final int MAX_NUM_DESTINATIONS = 64;
+
+	// Time that senders sleep for between attempts when the outbound ring is full
+	private final long SEND_PARK_NANOS = 10000;
+
+	// Time to wait for queued datagrams to be sent when tearing down
+	private final long TEARDOWN_WAIT_MILLIS = 1000;
+
+	/**
+	 * ChannelTransport
+	 *
+	 * Constructor
+	 *
+	 * Create a new ChannelTransport that receives on the given port.
+	 *
+	 * @param portNum  Port number to receive datagrams on
+	 * @param name Name of the ServerPattern using this transport
+	 * @param packetPool   Pool to lease receive packets from, or null to allocate a new packet per message
+	 *
+	 * @return None
+	 */
+	public ChannelTransport(int portNum, String name, PacketPool packetPool) {
+		this.name = name;
+		this.packetPool = packetPool;
+
+		receiveBuffer = ByteBuffer.allocateDirect(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+		sendBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+
+		outbound = new SlotRing(MAX_NUM_OUTBOUND);
+		inbound = new SlotRing(MAX_NUM_INBOUND);
+		readPaused = false;
+		receiverWaiting = false;
+		writeBlocked = false;
+
+		destinations = new InetSocketAddress[0];
+
+		try {
+			selector = Selector.open();
+
+			channel = DatagramChannel.open();
+			channel.bind(new InetSocketAddress(portNum));
+			channel.configureBlocking(false);
+
+			key = channel.register(selector, SelectionKey.OP_READ);
+		} catch (IOException e) {
+			e.printStackTrace();
+			this.teardown();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * start
+	 *
+	 * Overridden
+	 *
+	 * Starts the event loop and receiver threads.
+	 *
+	 * @param controller   The ServerPattern that receives the datagrams
+	 *
+	 * @return None
+	 */
+	@Override
+	public void start(ServerPattern controller) {
+		this.controller = controller;
+
+		run = true;
+
+		receiverThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runReceiver();
+			}
+		}, name + " receiver");
+		receiverThread.setDaemon(true);
+		receiverThread.start();
+
+		eventLoopThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runEventLoop();
+			}
+		}, name + " event loop");
+		eventLoopThread.start();
+	}
+
+	/**
+	 * send
+	 *
+	 * Overridden
+	 *
+	 * Copies the datagram into the outbound ring and wakes the event loop
+	 * to send it. Waits while the ring is full, as the event loop never
+	 * waits for anything but the channel and always empties it.
+	 *
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @throws IOException If the transport has been torn down
+	 *
+	 * @return None
+	 */
+	@Override
+	public void send(byte[] data, int length, InetAddress address, int portNum) throws IOException {
+		InetSocketAddress destination = findDestination(address, portNum);
+
+		while (!outbound.offer(data, length, destination)) {
+			if (!run) {
+				throw new IOException(name + " transport is closed");
+			}
+
+			LockSupport.parkNanos(this, SEND_PARK_NANOS);
+		}
+
+		if (!run) {
+			throw new IOException(name + " transport is closed");
+		}
+
+		selector.wakeup();
+	}
+
+	/**
+	 * findDestination
+	 *
+	 * Returns the socket address for the given address and port, reusing
+	 * the one created the last time it was sent to.
+	 *
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @return InetSocketAddress   The socket address
+	 */
+	private InetSocketAddress findDestination(InetAddress address, int portNum) {
+		InetSocketAddress[] known = destinations;
+
+		for (int i = 0; i < known.length; i++) {
+			if ((known[i].getPort() == portNum) && known[i].getAddress().equals(address)) {
+				return(known[i]);
+			}
+		}
+
+		InetSocketAddress destination = new InetSocketAddress(address, portNum);
+
+		synchronized (this) {
+			known = destinations;
+			if (known.length < MAX_NUM_DESTINATIONS) {
+				InetSocketAddress[] grown = new InetSocketAddress[known.length + 1];
+				System.arraycopy(known, 0, grown, 0, known.length);
+				grown[known.length] = destination;
+				destinations = grown;
+			}
+		}
+
+		return(destination);
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Overridden
+	 *
+	 * Stops the event loop and waits for it to send the datagrams
+	 * that are still queued before closing the channel. If the event loop
+	 * has not stopped in time, the channel is closed from here so the
+	 * port is free for the next transport.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void teardown() {
+		run = false;
+
+		if (eventLoopThread == null) {
+			closeChannel();
+			return;
+		}
+
+		selector.wakeup();
+		LockSupport.unpark(receiverThread);
+
+		if (Thread.currentThread() != eventLoopThread) {
+			try {
+				eventLoopThread.join(TEARDOWN_WAIT_MILLIS);
+			} catch (InterruptedException e) {
+				System.out.println("Error waiting in teardown method in ChannelTransport.");
+				e.printStackTrace();
+			}
+
+			if (eventLoopThread.isAlive()) {
+				closeChannel();
+			}
+		}
+	}
+
+	/**
+	 * runEventLoop
+	 *
+	 * Waits for the channel to be readable or writable, or for datagrams
+	 * to be queued, and handles them until the transport is torn down.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void runEventLoop() {
+		try {
+			while (run) {
+				selector.select();
+				selector.selectedKeys().clear();
+
+				receiveSignals();
+				sendSignals();
+
+				updateInterest();
+			}
+		} catch (IOException e) {
+			if (run) {
+				e.printStackTrace();
+				closeChannel();
+				System.exit(1);
+			}
+		}
+
+		flushAndClose();
+	}
+
+	/**
+	 * receiveSignals
+	 *
+	 * Receives every datagram waiting on the channel into the inbound ring
+	 * and wakes the receiver thread. Stops reading while the ring is full.
+	 *
+	 * @param  None
+	 *
+	 * @throws IOException If the channel fails
+	 *
+	 * @return None
+	 */
+	private void receiveSignals() throws IOException {
+		boolean received = false;
+
+		while (true) {
+			if (inbound.isFull()) {
+				readPaused = true;
+
+				// The receiver thread may have freed a slot before it could see the flag
+				if (inbound.isFull()) {
+					break;
+				}
+				readPaused = false;
+			}
+
+			SocketAddress source = channel.receive(receiveBuffer);
+			if (source == null) {
+				break;
+			}
+
+			receiveBuffer.flip();
+			inbound.offer(receiveBuffer, source);
+			receiveBuffer.clear();
+
+			received = true;
+		}
+
+		if (received && receiverWaiting) {
+			LockSupport.unpark(receiverThread);
+		}
+	}
+
+	/**
+	 * sendSignals
+	 *
+	 * Sends queued datagrams until the queue is empty or the channel
+	 * cannot take any more.
+	 *
+	 * @param  None
+	 *
+	 * @throws IOException If the channel fails
+	 *
+	 * @return None
+	 */
+	private void sendSignals() throws IOException {
+		ChannelSlot signal = outbound.peek();
+
+		while (signal != null) {
+			sendBuffer.clear();
+			sendBuffer.put(signal.data, 0, signal.length);
+			sendBuffer.flip();
+
+			// Keep the slot until the channel has room for it
+			if (channel.send(sendBuffer, signal.address) == 0) {
+				writeBlocked = true;
+				return;
+			}
+
+			outbound.release();
+			signal = outbound.peek();
+		}
+
+		writeBlocked = false;
+	}
+
+	/**
+	 * updateInterest
+	 *
+	 * Only reads while the inbound ring has room, and wakes the event loop
+	 * again once the channel is writable if a datagram could not be sent.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void updateInterest() {
+		int interestOps = 0;
+
+		if (!readPaused) {
+			interestOps |= SelectionKey.OP_READ;
+		}
+
+		if (writeBlocked) {
+			interestOps |= SelectionKey.OP_WRITE;
+		}
+
+		if (key.interestOps() != interestOps) {
+			key.interestOps(interestOps);
+		}
+	}
+
+	/**
+	 * runReceiver
+	 *
+	 * Passes each datagram in the inbound ring to the controller, waiting
+	 * for the event loop to receive more when the ring is empty, until the
+	 * transport is torn down.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void runReceiver() {
+		while (run) {
+			ChannelSlot slot = inbound.peek();
+
+			if (slot == null) {
+				receiverWaiting = true;
+
+				// The event loop may have received a datagram before it could see the flag
+				if (inbound.peek() == null) {
+					LockSupport.park(this);
+				}
+				receiverWaiting = false;
+
+				continue;
+			}
+
+			// Copy the datagram into a packet
+			DatagramPacket packet;
+			if (packetPool != null) {
+				packet = packetPool.acquire();
+			} else {
+				byte[] data = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+				packet = new DatagramPacket(data, data.length);
+			}
+
+			int length = Math.min(slot.length, packet.getData().length);
+			System.arraycopy(slot.data, 0, packet.getData(), 0, length);
+			packet.setLength(length);
+			packet.setSocketAddress(slot.address);
+
+			inbound.release();
+
+			if (readPaused) {
+				readPaused = false;
+				selector.wakeup();
+			}
+
+			controller.signalReceived(packet);
+		}
+	}
+
+	/**
+	 * flushAndClose
+	 *
+	 * Sends every datagram still queued, then closes the channel.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void flushAndClose() {
+		try {
+			// The channel can only block once it is no longer registered
+			selector.close();
+			channel.configureBlocking(true);
+
+			ChannelSlot signal = outbound.peek();
+
+			while (signal != null) {
+				sendBuffer.clear();
+				sendBuffer.put(signal.data, 0, signal.length);
+				sendBuffer.flip();
+
+				channel.send(sendBuffer, signal.address);
+
+				outbound.release();
+				signal = outbound.peek();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		closeChannel();
+	}
+
+	/**
+	 * closeChannel
+	 *
+	 * Closes the selector and channel if they are open.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void closeChannel() {
+		try {
+			if (selector != null) {
+				selector.close();
+			}
+
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
+
+/**
+ *
+ * Bounded ring of preallocated datagram slots used by a ChannelTransport.
+ *
+ * A slot can be written once its sequence equals the position claimed for
+ * it, and read once it is one past it, as in MpscRing. Any number of threads
+ * may offer datagrams, but only one may peek and release them. The slot
+ * returned by peek stays in the ring until it is released, so a datagram
+ * that can not be handled yet keeps its place.
+ *
+ */
+class SlotRing {
+	private ChannelSlot[] slots;
+	private AtomicLongArray sequences;
+	private int mask;
+
+	private AtomicLong tail;
+	private long head;
+
+	/**
+	 * SlotRing
+	 *
+	 * Constructor
+	 *
+	 * Create a new SlotRing with the given number of slots, each with room
+	 * for any message.
+	 *
+	 * @param capacity Number of slots, a power of two
+	 *
+	 * @return None
+	 */
+	public SlotRing(int capacity) {
+		slots = new ChannelSlot[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new ChannelSlot();
+			sequences.set(i, i);
+		}
+
+		mask = capacity - 1;
+		tail = new AtomicLong(0);
+		head = 0;
+	}
+
+	/**
+	 * offer
+	 *
+	 * Claims the next free slot, copies the datagram into it and publishes it.
+	 *
+	 * @param data Bytes of the datagram
+	 * @param length   Number of bytes in the datagram
+	 * @param address  Where the datagram is going or came from
+	 *
+	 * @return boolean True if the datagram was added, false if every slot is in use
+	 */
+	public boolean offer(byte[] data, int length, SocketAddress address) {
+		long pos = claim();
+		if (pos < 0) {
+			return(false);
+		}
+
+		int index = (int) (pos & mask);
+		slots[index].set(data, length, address);
+		sequences.set(index, pos + 1);
+
+		return(true);
+	}
+
+	/**
+	 * offer
+	 *
+	 * Claims the next free slot, copies the remaining bytes of the buffer
+	 * into it and publishes it.
+	 *
+	 * @param buffer   Buffer holding the datagram
+	 * @param address  Where the datagram is going or came from
+	 *
+	 * @return boolean True if the datagram was added, false if every slot is in use
+	 */
+	public boolean offer(ByteBuffer buffer, SocketAddress address) {
+		long pos = claim();
+		if (pos < 0) {
+			return(false);
+		}
+
+		int index = (int) (pos & mask);
+		slots[index].set(buffer, address);
+		sequences.set(index, pos + 1);
+
+		return(true);
+	}
+
+	/**
+	 * peek
+	 *
+	 * Returns the oldest datagram without freeing its slot.
+	 * Must only be called by one thread.
+	 *
+	 * @param  None
+	 *
+	 * @return ChannelSlot The oldest datagram, or null if the ring is empty
+	 */
+	public ChannelSlot peek() {
+		int index = (int) (head & mask);
+
+		if (sequences.get(index) != head + 1) {
+			return(null);
+		}
+
+		return(slots[index]);
+	}
+
+	/**
+	 * release
+	 *
+	 * Frees the slot of the oldest datagram. Must only be called by the
+	 * thread that peeked it.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void release() {
+		int index = (int) (head & mask);
+
+		sequences.set(index, head + slots.length);
+		head++;
+	}
+
+	/**
+	 * isFull
+	 *
+	 * Returns whether the next slot for a producer is still in use
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if the ring is full
+	 */
+	public boolean isFull() {
+		long pos = tail.get();
+
+		return(sequences.get((int) (pos & mask)) < pos);
+	}
+
+	/**
+	 * claim
+	 *
+	 * Claims the next free slot for the calling thread.
+	 *
+	 * @param  None
+	 *
+	 * @return long    Position of the claimed slot, or -1 if every slot is in use
+	 */
+	private long claim() {
+		long pos = tail.get();
+
+		while (true) {
+			int index = (int) (pos & mask);
+			long diff = sequences.get(index) - pos;
+
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					return(pos);
+				}
+				pos = tail.get();
+			} else if (diff < 0) {
+				return(-1);
+			} else {
+				pos = tail.get();
+			}
+		}
+	}
+}
+
+/**
+ *
+ * A slot in a SlotRing, reused for every datagram put in it
+ *
+ */
+class ChannelSlot {
+	byte[] data;
+	int length;
+	SocketAddress address;
+
+	/**
+	 * ChannelSlot
+	 *
+	 * Constructor
+	 *
+	 * Creates a new empty ChannelSlot with room for any message.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public ChannelSlot() {
+		data = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+		length = 0;
+		address = null;
+	}
+
+	/**
+	 * set
+	 *
+	 * Copies the given datagram into this slot, growing the buffer if the
+	 * datagram does not fit.
+	 *
+	 * @param data Bytes of the datagram
+	 * @param length   Number of bytes in the datagram
+	 * @param address  Where the datagram is going or came from
+	 *
+	 * @return None
+	 */
+	public void set(byte[] data, int length, SocketAddress address) {
+		if (this.data.length < length) {
+			this.data = new byte[length];
+		}
+		System.arraycopy(data, 0, this.data, 0, length);
+
+		this.length = length;
+		this.address = address;
+	}
+
+	/**
+	 * set
+	 *
+	 * Copies the remaining bytes of the given buffer into this slot,
+	 * growing the slot's buffer if they do not fit.
+	 *
+	 * @param buffer   Buffer holding the datagram
+	 * @param address  Where the datagram is going or came from
+	 *
+	 * @return None
+	 */
+	public void set(ByteBuffer buffer, SocketAddress address) {
+		int length = buffer.remaining();
+		if (data.length < length) {
+			data = new byte[length];
+		}
+		buffer.get(data, 0, length);
+
+		this.length = length;
+		this.address = address;
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ *
+ * Collective control dispatching. Every elevator is assumed to sweep in its
+ * current direction until it has no stops left ahead of it (LOOK) and then
+ * turn around. The request is given to the elevator that would reach the
+ * request's floor, travelling in the requested direction, after the fewest
+ * floors along its sweep.
+ *
+ */
+public class CollectiveControlDispatchStrategy implements DispatchStrategy {
+
+	/**
+	 * chooseElevator
+	 *
+	 * Overridden
+	 *
+	 * Returns the usable elevator that would reach the request soonest
+	 * along its sweep. Ties go to the elevator with fewer active requests.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param request  The new request
+	 *
+	 * @return byte    Number of the chosen elevator, or -1 if no elevator is usable
+	 */
+	@Override
+	public byte chooseElevator(SchedulerAlgorithm algorithm, Request request) {
+		byte chosenElevator = -1;
+
+		int bestFloors = -1;
+		int bestQueue = -1;
+
+		for (byte i = 0; i < algorithm.getNumberOfElevators(); i++) {
+			if (algorithm.isUsable(i)) {
+				int floors = floorsUntilReached(algorithm, i, request.getSourceFloor(), request.getRequestDirection());
+				int queue = algorithm.howManyMoreActiveRequests(i);
+
+				if ((bestFloors == -1) ||
+				    (floors < bestFloors) ||
+				    ((floors == bestFloors) && (queue < bestQueue))) {
+					chosenElevator = i;
+					bestFloors = floors;
+					bestQueue = queue;
+				}
+			}
+		}
+
+		return(chosenElevator);
+	}
+
+	/**
+	 * floorsUntilReached
+	 *
+	 * Static
+	 *
+	 * Returns the number of floors the given elevator would travel along its
+	 * sweep before it is at the given floor heading in the given direction.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param elevatorNum  The number of the elevator
+	 * @param floor    The floor to reach
+	 * @param requestDir   The direction the elevator should be heading at the floor
+	 *
+	 * @return int Number of floors travelled
+	 */
+	static int floorsUntilReached(SchedulerAlgorithm algorithm,
+	                              byte elevatorNum,
+	                              int floor,
+	                              UtilityInformation.ElevatorDirection requestDir) {
+		int currFloor = algorithm.getCurrentFloor(elevatorNum);
+		UtilityInformation.ElevatorDirection dir = algorithm.getDirection(elevatorNum);
+
+		int highestStop = Math.max(algorithm.getHighestStop(elevatorNum), currFloor);
+		int lowestStop = algorithm.getLowestStop(elevatorNum);
+		if (lowestStop == -1) {
+			lowestStop = currFloor;
+		}
+		lowestStop = Math.min(lowestStop, currFloor);
+
+		if (dir == UtilityInformation.ElevatorDirection.UP) {
+			if ((floor >= currFloor) && (requestDir != UtilityInformation.ElevatorDirection.DOWN)) {
+				return(floor - currFloor);
+			}
+
+			// Go up to where the sweep turns around
+			int top = Math.max(highestStop, floor);
+			if (requestDir == UtilityInformation.ElevatorDirection.DOWN) {
+				return((top - currFloor) + (top - floor));
+			}
+
+			// Up, all the way down, and back up again
+			int bottom = Math.min(lowestStop, floor);
+			return((top - currFloor) + (top - bottom) + (floor - bottom));
+		}
+
+		if (dir == UtilityInformation.ElevatorDirection.DOWN) {
+			if ((floor <= currFloor) && (requestDir != UtilityInformation.ElevatorDirection.UP)) {
+				return(currFloor - floor);
+			}
+
+			int bottom = Math.min(lowestStop, floor);
+			if (requestDir == UtilityInformation.ElevatorDirection.UP) {
+				return((currFloor - bottom) + (floor - bottom));
+			}
+
+			int top = Math.max(highestStop, floor);
+			return((currFloor - bottom) + (top - bottom) + (top - floor));
+		}
+
+		return(Math.abs(floor - currFloor));
+	}
+
+	/**
+	 * getType
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return Type    COLLECTIVE_CONTROL
+	 */
+	@Override
+	public Type getType() {
+		return(Type.COLLECTIVE_CONTROL);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ * Cost function dispatching. For every usable elevator the strategy estimates
+ * how long the new passenger would wait to be picked up and how long their
+ * ride would take, plus how much the extra stops would delay the passengers
+ * the elevator already has. The request is given to the elevator with the
+ * lowest total.
+ *
+ * Elevators are assumed to follow a collective control (LOOK) sweep, and
+ * every stop costs the time to stop at a floor and open and close the door.
+ *
+ */
+public class CostFunctionDispatchStrategy implements DispatchStrategy {
+	// Time taken by every stop along the way (in milliseconds)
+	static final int TIME_PER_STOP = UtilityInformation.TIME_STOP_AT_FLOOR +
+	                                         UtilityInformation.OPEN_DOOR_TIME +
+	                                         UtilityInformation.CLOSE_DOOR_TIME;
+
+	/**
+	 * chooseElevator
+	 *
+	 * Overridden
+	 *
+	 * Returns the usable elevator with the lowest estimated cost.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param request  The new request
+	 *
+	 * @return byte    Number of the chosen elevator, or -1 if no elevator is usable
+	 */
+	@Override
+	public byte chooseElevator(SchedulerAlgorithm algorithm, Request request) {
+		byte chosenElevator = -1;
+		long lowestCost = -1;
+
+		for (byte i = 0; i < algorithm.getNumberOfElevators(); i++) {
+			if (algorithm.isUsable(i)) {
+				long cost = estimateCost(algorithm, i, request);
+
+				if ((lowestCost == -1) || (cost < lowestCost)) {
+					chosenElevator = i;
+					lowestCost = cost;
+				}
+			}
+		}
+
+		return(chosenElevator);
+	}
+
+	/**
+	 * estimateCost
+	 *
+	 * Returns the estimated wait time plus ride time of the request if it was
+	 * given to the given elevator, plus the delay added to the elevator's
+	 * current passengers.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param elevatorNum  The number of the elevator
+	 * @param request  The new request
+	 *
+	 * @return long    Estimated cost in milliseconds
+	 */
+	long estimateCost(SchedulerAlgorithm algorithm, byte elevatorNum, Request request) {
+		int currFloor = algorithm.getCurrentFloor(elevatorNum);
+		int sourceFloor = request.getSourceFloor();
+		int destFloor = request.getDestinationFloor();
+
+		// Waiting: travel along the sweep plus every stop passed on the way
+		int floorsToPickup = CollectiveControlDispatchStrategy.floorsUntilReached(algorithm,
+		                                                                          elevatorNum,
+		                                                                          sourceFloor,
+		                                                                          request.getRequestDirection());
+		long waitTime = ((long) floorsToPickup * UtilityInformation.TIME_UP_ONE_FLOOR) +
+		                ((long) algorithm.countStopsBetween(elevatorNum, currFloor, sourceFloor) * TIME_PER_STOP);
+
+		// Riding: travel to the destination plus the stops in between
+		long rideTime = ((long) Math.abs(destFloor - sourceFloor) * UtilityInformation.TIME_UP_ONE_FLOOR) +
+		                ((long) algorithm.countStopsBetween(elevatorNum, sourceFloor, destFloor) * TIME_PER_STOP);
+
+		// Every new stop holds up the passengers already assigned
+		int newStops = 0;
+		if (!algorithm.hasStopAt(elevatorNum, sourceFloor)) {
+			newStops++;
+		}
+		if ((destFloor != sourceFloor) && !algorithm.hasStopAt(elevatorNum, destFloor)) {
+			newStops++;
+		}
+		long delayToOthers = (long) newStops * algorithm.howManyMoreActiveRequests(elevatorNum) * TIME_PER_STOP;
+
+		return(waitTime + rideTime + delayToOthers);
+	}
+
+	/**
+	 * getType
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return Type    COST_FUNCTION
+	 */
+	@Override
+	public Type getType() {
+		return(Type.COST_FUNCTION);
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ * The original dispatch heuristic. Gives the request to the elevator that
+ * would reach the request's floor soonest, unless another elevator has
+ * fewer active requests.
+ *
+ */
+public class DefaultDispatchStrategy implements DispatchStrategy {
+
+	/**
+	 * chooseElevator
+	 *
+	 * Overridden
+	 *
+	 * Returns the usable elevator with the smallest queue, using the time
+	 * until the request would be served to decide between equal queues.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param request  The new request
+	 *
+	 * @return byte    Number of the chosen elevator, or -1 if no elevator is usable
+	 */
+	@Override
+	public byte chooseElevator(SchedulerAlgorithm algorithm, Request request) {
+		byte chosenElevator = -1;
+
+		int shortestTime = -1;
+		int smallestQueue = -1;
+
+		int time;
+		int queue;
+
+		for (byte i = 0; i < algorithm.getNumberOfElevators(); i++) {
+			if (algorithm.isUsable(i)) {
+				time = algorithm.howLongUntilRequestWouldBeServed(i, request);
+				queue = algorithm.howManyMoreActiveRequests(i);
+
+				if (((shortestTime == -1) ||
+				    ((time < shortestTime) && (queue <= smallestQueue)) ||
+				     (queue < smallestQueue))) {
+					chosenElevator = i;
+					shortestTime = time;
+					smallestQueue = queue;
+				}
+			}
+		}
+
+		return(chosenElevator);
+	}
+
+	/**
+	 * getType
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return Type    DEFAULT
+	 */
+	@Override
+	public Type getType() {
+		return(Type.DEFAULT);
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ *
+ * Destination dispatching. Floor requests already carry the destination
+ * floor, so passengers can be grouped by where they are going instead of
+ * only by direction. Every usable elevator is given a cost made of:
+ *
+ *     the time to reach the passenger along its sweep,
+ *     the time for every new stop, multiplied by the number of passengers it holds up,
+ *     the time to travel past the furthest floor the elevator is already going to.
+ *
+ * Passengers going to the same floor add no stop, and passengers going to a
+ * nearby floor only add a short extension to the trip, so they end up in the
+ * same car. An elevator that already has ELEVATOR_CAPACITY passengers is not
+ * given more. If every usable elevator is full no elevator is chosen, so the
+ * hall call is kept pending by the SchedulerAlgorithm until a car has room,
+ * rather than overloading the least loaded car.
+ *
+ */
+public class DestinationDispatchStrategy implements DispatchStrategy {
+
+	/**
+	 * chooseElevator
+	 *
+	 * Overridden
+	 *
+	 * Returns the usable elevator with room for the passenger and the lowest
+	 * cost.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param request  The new request
+	 *
+	 * @return byte    Number of the chosen elevator, or -1 if no usable elevator has room
+	 */
+	@Override
+	public byte chooseElevator(SchedulerAlgorithm algorithm, Request request) {
+		byte chosenElevator = -1;
+		long lowestCost = -1;
+
+		for (byte i = 0; i < algorithm.getNumberOfElevators(); i++) {
+			if (algorithm.isUsable(i) && (algorithm.howManyMoreActiveRequests(i) < UtilityInformation.ELEVATOR_CAPACITY)) {
+				long cost = estimateCost(algorithm, i, request);
+
+				if ((lowestCost == -1) || (cost < lowestCost)) {
+					chosenElevator = i;
+					lowestCost = cost;
+				}
+			}
+		}
+
+		return(chosenElevator);
+	}
+
+	/**
+	 * estimateCost
+	 *
+	 * Returns the estimated cost of giving the request to the given elevator
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param elevatorNum  The number of the elevator
+	 * @param request  The new request
+	 *
+	 * @return long    Estimated cost in milliseconds
+	 */
+	long estimateCost(SchedulerAlgorithm algorithm, byte elevatorNum, Request request) {
+		int currFloor = algorithm.getCurrentFloor(elevatorNum);
+		int sourceFloor = request.getSourceFloor();
+		int destFloor = request.getDestinationFloor();
+		int numPassengers = algorithm.howManyMoreActiveRequests(elevatorNum);
+
+		// Waiting for the elevator
+		int floorsToPickup = CollectiveControlDispatchStrategy.floorsUntilReached(algorithm,
+		                                                                          elevatorNum,
+		                                                                          sourceFloor,
+		                                                                          request.getRequestDirection());
+		long cost = (long) floorsToPickup * UtilityInformation.TIME_UP_ONE_FLOOR;
+
+		// A new pickup stop, unless the elevator is already stopped there
+		boolean stoppedAtSource = (currFloor == sourceFloor) &&
+		                          (algorithm.getDirection(elevatorNum) == UtilityInformation.ElevatorDirection.STATIONARY);
+		if (!stoppedAtSource && !algorithm.hasStopAt(elevatorNum, sourceFloor)) {
+			cost += (long) (numPassengers + 1) * CostFunctionDispatchStrategy.TIME_PER_STOP;
+		}
+
+		// A new drop off stop, unless someone else is already going there
+		if (!isGoingTo(algorithm, elevatorNum, destFloor)) {
+			cost += (long) (numPassengers + 1) * CostFunctionDispatchStrategy.TIME_PER_STOP;
+		}
+
+		// Travelling further than the elevator already has to
+		cost += (long) getTripExtension(algorithm, elevatorNum, request) * UtilityInformation.TIME_UP_ONE_FLOOR;
+
+		return(cost);
+	}
+
+	/**
+	 * isGoingTo
+	 *
+	 * Returns whether the given elevator already has to stop at the given floor,
+	 * either for a pending stop or to drop off a passenger it has not picked up yet.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param elevatorNum  The number of the elevator
+	 * @param floor    The floor to check
+	 *
+	 * @return boolean True if the elevator will stop at the floor
+	 */
+	private boolean isGoingTo(SchedulerAlgorithm algorithm, byte elevatorNum, int floor) {
+		if (algorithm.hasStopAt(elevatorNum, floor)) {
+			return(true);
+		}
+
+		for (Request req : algorithm.getRequests(elevatorNum)) {
+			if (req.getDestinationFloor() == floor) {
+				return(true);
+			}
+		}
+
+		return(false);
+	}
+
+	/**
+	 * getTripExtension
+	 *
+	 * Returns how many floors past the furthest floor the given elevator is
+	 * already going to, in the direction of the request, the elevator would
+	 * have to travel to serve the request.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param elevatorNum  The number of the elevator
+	 * @param request  The new request
+	 *
+	 * @return int Number of extra floors
+	 */
+	private int getTripExtension(SchedulerAlgorithm algorithm, byte elevatorNum, Request request) {
+		int furthestFloor = algorithm.getCurrentFloor(elevatorNum);
+		boolean goingDown = request.getRequestDirection() == UtilityInformation.ElevatorDirection.DOWN;
+
+		for (Request req : algorithm.getRequests(elevatorNum)) {
+			if (goingDown) {
+				furthestFloor = Math.min(furthestFloor, Math.min(req.getSourceFloor(), req.getDestinationFloor()));
+			} else {
+				furthestFloor = Math.max(furthestFloor, Math.max(req.getSourceFloor(), req.getDestinationFloor()));
+			}
+		}
+
+		if (goingDown) {
+			return(Math.max(0, furthestFloor - request.getDestinationFloor()));
+		}
+
+		return(Math.max(0, request.getDestinationFloor() - furthestFloor));
+	}
+
+	/**
+	 * getType
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return Type    DESTINATION_DISPATCH
+	 */
+	@Override
+	public Type getType() {
+		return(Type.DESTINATION_DISPATCH);
+	}
+}
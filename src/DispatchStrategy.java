@@ -0,0 +1,41 @@
+/**
+ *
+ * Interface for deciding which elevator should be given a new request.
+ *
+ * A SchedulerAlgorithm asks its DispatchStrategy to choose an elevator for
+ * every request that is made, and times how long each decision takes.
+ *
+ */
+public interface DispatchStrategy {
+
+	// Strategies that the Scheduler can be configured with
+	public enum Type {
+		DEFAULT, NEAREST_CAR, COLLECTIVE_CONTROL, COST_FUNCTION, DESTINATION_DISPATCH
+	}
+
+	/**
+	 * chooseElevator
+	 *
+	 * Returns the number of the elevator that should be given the request.
+	 * Only usable elevators may be chosen. If none is chosen, the
+	 * SchedulerAlgorithm keeps the request pending and asks again once an
+	 * elevator has delivered a passenger or been fixed.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param request  The new request
+	 *
+	 * @return byte    Number of the chosen elevator, or -1 if no elevator can take the request
+	 */
+	public byte chooseElevator(SchedulerAlgorithm algorithm, Request request);
+
+	/**
+	 * getType
+	 *
+	 * Returns the type of this strategy
+	 *
+	 * @param  None
+	 *
+	 * @return Type    The type of this strategy
+	 */
+	public Type getType();
+}
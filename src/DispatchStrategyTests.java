@@ -0,0 +1,210 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class DispatchStrategyTests {
+
+    /**
+     * createRequest
+     *
+     * Creates a request between the given floors
+     *
+     * @param source    Source floor of the request
+     * @param destination   Destination floor of the request
+     *
+     * @return  Request The created request
+     */
+    private Request createRequest(int source, int destination) {
+        UtilityInformation.ElevatorDirection dir = UtilityInformation.ElevatorDirection.UP;
+        if (destination < source) {
+            dir = UtilityInformation.ElevatorDirection.DOWN;
+        }
+
+        return(new Request(System.nanoTime(), (byte) source, (byte) destination, dir));
+    }
+
+    /**
+     * createMovingElevator
+     *
+     * Creates an algorithm with two elevators. Elevator 0 has picked someone up
+     * at floor 0 and is on its way up to floor 8, currently at floor 2.
+     * Elevator 1 is idle at floor 0.
+     *
+     * @param strategyType  Strategy to use once the elevators are set up
+     *
+     * @return  SchedulerAlgorithm  The created algorithm
+     */
+    private SchedulerAlgorithm createMovingElevator(DispatchStrategy.Type strategyType) {
+        SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 2, DispatchStrategy.Type.DEFAULT);
+
+        assertEquals(0, algor.elevatorRequestMade(createRequest(0, 8)));
+        algor.elevatorHasReachedFloor((byte) 0, (byte) 0);
+        algor.elevatorHasReachedFloor((byte) 2, (byte) 0);
+        assertEquals(UtilityInformation.ElevatorDirection.UP, algor.whatDirectionShouldTravel((byte) 0));
+
+        algor.setDispatchStrategy(strategyType);
+
+        return(algor);
+    }
+
+    /**
+     * testNearestCar
+     *
+     * Tests that nearest car prefers an elevator heading towards the request
+     * and avoids an elevator moving away from it.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testNearestCar() {
+        SchedulerAlgorithm algor = createMovingElevator(DispatchStrategy.Type.NEAREST_CAR);
+        assertEquals(0, algor.elevatorRequestMade(createRequest(5, 9)));
+
+        algor = createMovingElevator(DispatchStrategy.Type.NEAREST_CAR);
+        assertEquals(1, algor.elevatorRequestMade(createRequest(1, 0)));
+    }
+
+    /**
+     * testCollectiveControl
+     *
+     * Tests that collective control gives the request to the elevator that
+     * reaches it first along its sweep.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testCollectiveControl() {
+        SchedulerAlgorithm algor = createMovingElevator(DispatchStrategy.Type.COLLECTIVE_CONTROL);
+        assertEquals(0, algor.elevatorRequestMade(createRequest(5, 9)));
+
+        // Elevator 0 would have to go up to 8 and back down first
+        algor = createMovingElevator(DispatchStrategy.Type.COLLECTIVE_CONTROL);
+        assertEquals(1, algor.elevatorRequestMade(createRequest(1, 3)));
+    }
+
+    /**
+     * testCostFunction
+     *
+     * Tests that the cost function avoids delaying the passengers of a busy
+     * elevator when an idle one is just as close.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testCostFunction() {
+        SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 2, DispatchStrategy.Type.COST_FUNCTION);
+
+        // Give elevator 0 three passengers waiting at floor 0
+        algor.pauseElevator((byte) 1);
+        for (int i = 5; i < 8; i++) {
+            assertEquals(0, algor.elevatorRequestMade(createRequest(0, i)));
+        }
+        algor.resumeUsingElevator((byte) 1);
+
+        assertEquals(1, algor.elevatorRequestMade(createRequest(0, 4)));
+    }
+
+    /**
+     * testPausedElevatorNeverChosen
+     *
+     * Tests that no strategy gives a request to a paused elevator, and that
+     * every decision is timed.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testPausedElevatorNeverChosen() {
+        for (DispatchStrategy.Type strategyType : DispatchStrategy.Type.values()) {
+            SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 3, strategyType);
+            algor.pauseElevator((byte) 0);
+            algor.pauseElevator((byte) 2);
+
+            for (int i = 0; i < 10; i++) {
+                byte chosen = algor.elevatorRequestMade(createRequest(i, 10 - i));
+
+                // Destination dispatch keeps requests pending once the only usable elevator is full
+                if ((strategyType == DispatchStrategy.Type.DESTINATION_DISPATCH) && (i >= UtilityInformation.ELEVATOR_CAPACITY)) {
+                    assertEquals(-1, chosen);
+                } else {
+                    assertEquals(1, chosen);
+                }
+            }
+
+            assertEquals(strategyType, algor.getDispatchStrategyType());
+            assertEquals(10, algor.getDecisionLatency().getTotalCount());
+        }
+    }
+
+    /**
+     * testDestinationDispatch
+     *
+     * Tests that destination dispatch puts passengers going to the same or
+     * nearby floors in the same elevator, and sends someone going far away
+     * in a different one.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testDestinationDispatch() {
+        SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 2, DispatchStrategy.Type.DESTINATION_DISPATCH);
+
+        assertEquals(0, algor.elevatorRequestMade(createRequest(0, 12)));
+        assertEquals(0, algor.elevatorRequestMade(createRequest(0, 12)));
+        assertEquals(0, algor.elevatorRequestMade(createRequest(0, 13)));
+        assertEquals(1, algor.elevatorRequestMade(createRequest(0, 2)));
+        assertEquals(1, algor.elevatorRequestMade(createRequest(0, 3)));
+    }
+
+    /**
+     * testDestinationDispatchCapacity
+     *
+     * Tests that destination dispatch stops giving passengers to a full
+     * elevator, and that once every elevator is full the requests are kept
+     * pending and given out in order once an elevator has room.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testDestinationDispatchCapacity() {
+        SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 2, DispatchStrategy.Type.DESTINATION_DISPATCH);
+
+        for (int i = 0; i < UtilityInformation.ELEVATOR_CAPACITY; i++) {
+            assertEquals(0, algor.elevatorRequestMade(createRequest(0, 12)));
+        }
+
+        for (int i = 0; i < UtilityInformation.ELEVATOR_CAPACITY; i++) {
+            assertEquals(1, algor.elevatorRequestMade(createRequest(0, 12)));
+        }
+
+        // Every elevator is full
+        assertEquals(-1, algor.elevatorRequestMade(createRequest(0, 5)));
+        assertEquals(-1, algor.elevatorRequestMade(createRequest(0, 6)));
+        assertEquals(2, algor.getNumPendingRequests());
+        assertEquals(-1, algor.assignPendingRequest());
+        assertEquals(UtilityInformation.ELEVATOR_CAPACITY, algor.howManyMoreActiveRequests((byte) 0));
+        assertEquals(UtilityInformation.ELEVATOR_CAPACITY, algor.howManyMoreActiveRequests((byte) 1));
+
+        // Elevator 0 delivers its passengers
+        algor.elevatorHasReachedFloor(0, (byte) 0);
+        algor.elevatorHasReachedFloor(12, (byte) 0);
+        assertEquals(0, algor.howManyMoreActiveRequests((byte) 0));
+
+        assertEquals(0, algor.assignPendingRequest());
+        assertEquals(5, algor.getRequests((byte) 0).get(algor.getRequests((byte) 0).size() - 1).getDestinationFloor());
+        assertEquals(0, algor.assignPendingRequest());
+        assertEquals(-1, algor.assignPendingRequest());
+        assertEquals(0, algor.getNumPendingRequests());
+    }
+}
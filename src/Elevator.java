@@ -34,6 +34,9 @@ public class Elevator implements Runnable {
 	
 	private Elevator_Subsystem controller;
 	
+	// Clock used for the time taken to move and open and close the door
+	private SimulationClock clock;
+	
 	/*
 	 * General Constructor for Elevator Class
 	 */	
@@ -56,6 +59,7 @@ public class Elevator implements Runnable {
 	public Elevator(Elevator_Subsystem controller, int number, int numFloors) {
 		elevatorNumber = number;
 		this.controller = controller;
+		clock = SimulationClock.getClock();
 		currAction = Action.WAITING;
 		
         allButtons = new UtilityInformation.LampState[numFloors];
@@ -86,7 +90,9 @@ public class Elevator implements Runnable {
 	 * Method to make the elevator move up one floor.
 	 */
 	public void move(UtilityInformation.ElevatorDirection dir) {		
-    	System.out.println(String.format("Elevator Moving %s One Floor", dir.toString()));
+    	if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+    		AsyncLog.debug("Elevator " + elevatorNumber, String.format("Elevator Moving %s One Floor", dir.toString()));
+    	}
     	
     	if (dir.equals(UtilityInformation.ElevatorDirection.UP)) {
     	    if ((currentFloor == controller.getNumFloors() - 1)) {
@@ -95,7 +101,7 @@ public class Elevator implements Runnable {
     	    }
     	    
     		try  { 
-                Thread.sleep(UtilityInformation.TIME_UP_ONE_FLOOR);
+                clock.sleep(UtilityInformation.TIME_UP_ONE_FLOOR);
             } catch (InterruptedException ie)  {
 
             }              
@@ -108,7 +114,7 @@ public class Elevator implements Runnable {
     	    }
     	    
     		try  { 
-                Thread.sleep(UtilityInformation.TIME_DOWN_ONE_FLOOR);
+                clock.sleep(UtilityInformation.TIME_DOWN_ONE_FLOOR);
             } catch (InterruptedException ie)  {
 
             }              
@@ -116,7 +122,7 @@ public class Elevator implements Runnable {
             currentFloor--;
     	} else if (dir.equals(UtilityInformation.ElevatorDirection.STATIONARY)) {
     	    try  { 
-                Thread.sleep(UtilityInformation.TIME_STOP_AT_FLOOR);
+                clock.sleep(UtilityInformation.TIME_STOP_AT_FLOOR);
             } catch (InterruptedException ie)  {
 
             }  
@@ -124,14 +130,18 @@ public class Elevator implements Runnable {
         
         controller.sendFloorSensorMessage(elevatorNumber);
         
-        System.out.println("Elevator arrives on floor");
+        if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+        	AsyncLog.debug("Elevator " + elevatorNumber, "Elevator arrives on floor");
+        }
 	}
 	
 	/*
 	 * Method to make the elevator stop moving.
 	 */
 	public void Stop() {
-        System.out.println("The elevator has stopped moving");
+        if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+        	AsyncLog.debug("Elevator " + elevatorNumber, "The elevator has stopped moving");
+        }
 	}
 
 	/*
@@ -140,22 +150,23 @@ public class Elevator implements Runnable {
 	public void changeDoorState(UtilityInformation.DoorState newState) {
 		if (newState.equals(UtilityInformation.DoorState.OPEN)) {
 			try  { 
-	            Thread.sleep(UtilityInformation.OPEN_DOOR_TIME);
+	            clock.sleep(UtilityInformation.OPEN_DOOR_TIME);
 	        } catch (InterruptedException ie)  {
 
 	        }
 		} else if (newState.equals(UtilityInformation.DoorState.CLOSE)) {
 			try  { 
-	            Thread.sleep(UtilityInformation.CLOSE_DOOR_TIME);
+	            clock.sleep(UtilityInformation.CLOSE_DOOR_TIME);
 	        } catch (InterruptedException ie)  {
 
 	        }
 		}        
         
-        System.out.println(String.format("Elevator Door %s", newState.toString()));
-        
 		door = newState;
-		System.out.println("Door: " + door + " on floor: " + currentFloor);
+		
+		if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+			AsyncLog.debug("Elevator " + elevatorNumber, "Door: " + door + " on floor: " + currentFloor);
+		}
 	}
 	
 	/**
@@ -208,7 +219,7 @@ public class Elevator implements Runnable {
         
         while(broken) {
             try {
-                Thread.sleep(sleepTimeBetweenAttempts);
+                clock.sleep(sleepTimeBetweenAttempts);
             } catch (InterruptedException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
@@ -312,7 +323,7 @@ public class Elevator implements Runnable {
 	 * 
 	 * override
 	 * 
-	 * Infinitely repeats the following:
+	 * Repeats the following until the controller is torn down:
 	 *     Get the next action for the elevator from the controller
 	 *     Execute the retrieved action
 	 *     
@@ -322,9 +333,11 @@ public class Elevator implements Runnable {
 	 */
 	@Override
 	public void run() {		
-		while (true) {
-			Action nextAction = controller.getNextActionForElevator(elevatorNumber);
+		Action nextAction = controller.getNextActionForElevator(elevatorNumber);
+		
+		while (nextAction != null) {
 			changeAction(nextAction);
+			nextAction = controller.getNextActionForElevator(elevatorNumber);
 		}
 		
 	}
@@ -0,0 +1,741 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ *
+ * Headless discrete-event simulation of the whole control loop in one
+ * thread. A real Scheduler is given this simulator as its transport, so
+ * every message it sends comes here instead of going over UDP. The
+ * elevators and floors are modelled by an event queue in virtual time:
+ *
+ *     Requests from a trace file are sent to the Scheduler at their time.
+ *     Direction messages become actions that each elevator runs one after
+ *     another, taking the times in UtilityInformation.
+ *     Moving or stopping ends with a floor sensor message to the Scheduler.
+ *     Errors from the trace are sent to the Scheduler at their time, for an
+ *     elevator picked at random the way FloorSubsystem does.
+ *
+ * Like Elevator_Subsystem, door messages are not acted on and directions
+ * for a floor the elevator has already left are ignored. A move past the
+ * top or bottom floor, which would stop an Elevator, is counted and treated
+ * as a stop. Like Elevator, a stuck door takes one or more fix attempts of
+ * DOOR_FIX_ATTEMPT_TIME that each work with DOOR_FIX_CHANCE, then the door
+ * moves and the Scheduler is told the door is fixed. A stuck elevator stays
+ * stuck, as nothing fixes it. The random choices use a fixed seed, so every
+ * run of a trace gives the same results. The wait and ride time of every
+ * request is reported in simulated milliseconds.
+ *
+ */
+public class ElevatorSimulator implements SignalTransport {
+	// Longest a trace may run for before the simulation gives up (in milliseconds)
+	private static final long MAX_SIMULATED_MILLIS = 24L * 60 * 60 * 1000;
+
+	// Time of one attempt to fix a stuck door and its chance of working, as in Elevator
+	private static final long DOOR_FIX_ATTEMPT_TIME = 1000;
+	private static final float DOOR_FIX_CHANCE = 0.4f;
+
+	// Seed of the random choices made for errors
+	private static final long ERROR_SEED = 0;
+
+	private int numFloors;
+	private int numElevators;
+	private DispatchStrategy.Type strategyType;
+
+	// Events waiting to happen, earliest first
+	private PriorityQueue<SimulationEvent> events;
+	private long nextEventNum;
+
+	// Current simulated time (in milliseconds)
+	private long now;
+	private VirtualClock clock;
+
+	private Scheduler scheduler;
+
+	// State of every elevator
+	private int elevatorFloors[];
+	private ArrayList<LinkedList<Elevator.Action>> elevatorActions;
+	private boolean elevatorBusy[];
+	private boolean elevatorDoorOpen[];
+	private boolean elevatorStuck[];
+	private int numInvalidMoves;
+
+	// Errors sent to the Scheduler and the random choices made for them
+	private int numErrors;
+	private Random errorRandom;
+
+	// Every message given to the Scheduler in the last run, if recorded
+	private boolean recordMessages;
+	private ArrayList<byte[]> deliveredMessages;
+
+	/**
+	 * ElevatorSimulator
+	 *
+	 * Constructor
+	 *
+	 * Create a new simulator for a building with the given number of floors
+	 * and elevators, where the Scheduler uses the given dispatch strategy.
+	 *
+	 * @param numFloors    Number of floors in the building
+	 * @param numElevators Number of elevators in the building
+	 * @param strategyType Dispatch strategy the Scheduler uses
+	 *
+	 * @return None
+	 */
+	public ElevatorSimulator(int numFloors, int numElevators, DispatchStrategy.Type strategyType) {
+		this.numFloors = numFloors;
+		this.numElevators = numElevators;
+		this.strategyType = strategyType;
+
+		events = new PriorityQueue<SimulationEvent>();
+		elevatorActions = new ArrayList<LinkedList<Elevator.Action>>();
+
+		recordMessages = false;
+		deliveredMessages = new ArrayList<byte[]>();
+	}
+
+	/**
+	 * readTrace
+	 *
+	 * Static
+	 *
+	 * Reads the requests in the given trace file, in the format used by
+	 * FloorSubsystem.parseInputFile.
+	 *
+	 * @param pathToFile   Path to the trace file
+	 *
+	 * @throws IOException If the file could not be read
+	 *
+	 * @return ArrayList<int[]>    Requests as [time, start floor, final floor, direction]
+	 *                             and errors as [time, error type]
+	 */
+	public static ArrayList<int[]> readTrace(String pathToFile) throws IOException {
+		ArrayList<int[]> requests = new ArrayList<int[]>();
+		TraceReader trace = new TraceReader(pathToFile);
+
+		try {
+			while (trace.next()) {
+				if (trace.isError()) {
+					requests.add(new int[] {trace.getTime(),
+					                        trace.getErrorType().ordinal()});
+				} else {
+					requests.add(new int[] {trace.getTime(),
+					                        trace.getStartFloor(),
+					                        trace.getFinalFloor(),
+					                        trace.getDirection().ordinal()});
+				}
+			}
+		} finally {
+			trace.close();
+		}
+
+		return(requests);
+	}
+
+	/**
+	 * run
+	 *
+	 * Replays the given trace file and returns every request made.
+	 *
+	 * @param pathToFile   Path to the trace file
+	 *
+	 * @throws IOException If the file could not be read
+	 *
+	 * @return ArrayList<Request>  Every request in the trace with its service times
+	 */
+	public ArrayList<Request> run(String pathToFile) throws IOException {
+		return(run(readTrace(pathToFile)));
+	}
+
+	/**
+	 * run
+	 *
+	 * Replays the given requests, with times relative to the first request,
+	 * until no events are left, and returns every request made. The
+	 * Scheduler of the run is torn down once its requests are collected.
+	 *
+	 * @param requests Requests as [time, start floor, final floor, direction]
+	 *                 and errors as [time, error type]
+	 *
+	 * @return ArrayList<Request>  Every request with its service times
+	 */
+	public ArrayList<Request> run(ArrayList<int[]> requests) {
+		events.clear();
+		nextEventNum = 0;
+		now = 0;
+		clock = new VirtualClock();
+
+		elevatorFloors = new int[numElevators];
+		elevatorBusy = new boolean[numElevators];
+		elevatorDoorOpen = new boolean[numElevators];
+		elevatorStuck = new boolean[numElevators];
+		elevatorActions.clear();
+		numInvalidMoves = 0;
+		numErrors = 0;
+		errorRandom = new Random(ERROR_SEED);
+		deliveredMessages.clear();
+		for (int i = 0; i < numElevators; i++) {
+			elevatorActions.add(new LinkedList<Elevator.Action>());
+		}
+
+		scheduler = new Scheduler(strategyType, this, clock);
+
+		byte[] config = {UtilityInformation.CONFIG_MODE,
+		                 (byte) numElevators,
+		                 (byte) numFloors,
+		                 UtilityInformation.END_OF_MESSAGE};
+		deliver(config);
+
+		// Schedule the requests
+		if (!requests.isEmpty()) {
+			int timeOfFirstRequest = requests.get(0)[0];
+
+			for (int[] request : requests) {
+				byte[] msg;
+
+				if (request.length == 2) {
+					msg = new byte[] {UtilityInformation.ERROR_MESSAGE_MODE,
+					                  (byte) request[1],
+					                  (byte) errorRandom.nextInt(numElevators),
+					                  UtilityInformation.END_OF_MESSAGE};
+					numErrors++;
+				} else {
+					msg = new byte[] {UtilityInformation.FLOOR_REQUEST_MODE,
+					                  (byte) request[1],
+					                  (byte) request[3],
+					                  (byte) request[2],
+					                  UtilityInformation.END_OF_MESSAGE};
+				}
+
+				schedule(request[0] - timeOfFirstRequest, SimulationEvent.Type.REQUEST, -1, msg);
+			}
+		}
+
+		// Run the events in order
+		while (!events.isEmpty() && (events.peek().time <= MAX_SIMULATED_MILLIS)) {
+			SimulationEvent event = events.poll();
+
+			clock.advance(event.time - now);
+			now = event.time;
+
+			if (event.type == SimulationEvent.Type.REQUEST) {
+				deliver(event.data);
+			} else {
+				finishAction(event.elevatorNum);
+			}
+		}
+
+		// Collect every request, completed or not
+		SchedulerAlgorithm algor = scheduler.getAlgorithm();
+		ArrayList<Request> served = new ArrayList<Request>();
+
+		for (byte i = 0; i < numElevators; i++) {
+			algor.archiveCompletedRequests(i);
+			served.addAll(algor.getCompletedRequests(i));
+			served.addAll(algor.getRequests(i));
+		}
+
+		scheduler.teardown();
+
+		return(served);
+	}
+
+	/**
+	 * getNow
+	 *
+	 * Returns the current simulated time
+	 *
+	 * @param  None
+	 *
+	 * @return long    Current simulated time in milliseconds
+	 */
+	public long getNow() {
+		return(now);
+	}
+
+	/**
+	 * getNumInvalidMoves
+	 *
+	 * Returns the number of moves past the top or bottom floor in the last run
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of invalid moves
+	 */
+	public int getNumInvalidMoves() {
+		return(numInvalidMoves);
+	}
+
+	/**
+	 * getNumErrors
+	 *
+	 * Returns the number of errors sent to the Scheduler in the last run
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of errors
+	 */
+	public int getNumErrors() {
+		return(numErrors);
+	}
+
+	/**
+	 * setRecordMessages
+	 *
+	 * Sets whether every message given to the Scheduler is kept, so the
+	 * same stream can be replayed into another Scheduler later
+	 *
+	 * @param newVal   True to keep the messages of later runs
+	 *
+	 * @return void
+	 */
+	public void setRecordMessages(boolean newVal) {
+		recordMessages = newVal;
+	}
+
+	/**
+	 * getDeliveredMessages
+	 *
+	 * Returns every message given to the Scheduler in the last run, in
+	 * order, starting with the config message. Empty unless recording.
+	 *
+	 * @param  None
+	 *
+	 * @return ArrayList<byte[]>   The messages given to the Scheduler
+	 */
+	public ArrayList<byte[]> getDeliveredMessages() {
+		return(deliveredMessages);
+	}
+
+	/**
+	 * getScheduler
+	 *
+	 * Returns the Scheduler of the last run. It has been torn down, so
+	 * only its results and metrics can be read.
+	 *
+	 * @param  None
+	 *
+	 * @return Scheduler   The simulated Scheduler
+	 */
+	public Scheduler getScheduler() {
+		return(scheduler);
+	}
+
+	/**
+	 * schedule
+	 *
+	 * Adds an event at the given time
+	 *
+	 * @param time Time of the event in milliseconds
+	 * @param type Type of the event
+	 * @param elevatorNum  Elevator the event is for, or -1
+	 * @param data Message to deliver to the Scheduler, or null
+	 *
+	 * @return void
+	 */
+	private void schedule(long time, SimulationEvent.Type type, int elevatorNum, byte[] data) {
+		events.add(new SimulationEvent(time, nextEventNum++, type, elevatorNum, data));
+	}
+
+	/**
+	 * deliver
+	 *
+	 * Gives the given message to the Scheduler as if it had been received
+	 *
+	 * @param data The message
+	 *
+	 * @return void
+	 */
+	private void deliver(byte[] data) {
+		if (recordMessages) {
+			deliveredMessages.add(data.clone());
+		}
+
+		scheduler.handleMessage(new DatagramPacket(data, data.length));
+	}
+
+	/**
+	 * elevatorMessageReceived
+	 *
+	 * Turns a direction or error message sent to the elevators into an action
+	 * for the elevator, the same way Elevator_Subsystem does. A stuck elevator
+	 * ignores every message.
+	 *
+	 * @param data The message
+	 *
+	 * @return void
+	 */
+	private void elevatorMessageReceived(byte[] data) {
+		if (data[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.ERROR_MESSAGE_MODE) {
+			if (elevatorStuck[data[2]]) {
+				return;
+			}
+
+			if (data[1] == UtilityInformation.ErrorType.DOOR_STUCK_ERROR.ordinal()) {
+				queueAction(data[2], Elevator.Action.DAMAGED);
+			} else if (data[1] == UtilityInformation.ErrorType.ELEVATOR_STUCK_ERROR.ordinal()) {
+				queueAction(data[2], Elevator.Action.BROKEN);
+			}
+		} else if (data[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.ELEVATOR_DIRECTION_MODE) {
+			if (elevatorStuck[data[2]]) {
+				return;
+			}
+
+			// Directions for a different floor are out of date
+			if (Byte.toUnsignedInt(data[1]) != elevatorFloors[data[2]]) {
+				return;
+			}
+
+			UtilityInformation.ElevatorDirection dir = UtilityInformation.ElevatorDirection.values()[data[3]];
+
+			if (dir == UtilityInformation.ElevatorDirection.UP) {
+				queueAction(data[2], Elevator.Action.MOVE_UP);
+			} else if (dir == UtilityInformation.ElevatorDirection.DOWN) {
+				queueAction(data[2], Elevator.Action.MOVE_DOWN);
+			} else {
+				queueAction(data[2], Elevator.Action.STOP);
+			}
+		}
+	}
+
+	/**
+	 * queueAction
+	 *
+	 * Adds the given action to the given elevator's queue and starts it
+	 * if the elevator is not busy.
+	 *
+	 * @param elevatorNum  The elevator
+	 * @param action   The action to add
+	 *
+	 * @return void
+	 */
+	private void queueAction(int elevatorNum, Elevator.Action action) {
+		elevatorActions.get(elevatorNum).add(action);
+
+		if (!elevatorBusy[elevatorNum]) {
+			startNextAction(elevatorNum);
+		}
+	}
+
+	/**
+	 * startNextAction
+	 *
+	 * Starts the next action in the given elevator's queue, if there is one.
+	 * A broken elevator becomes stuck and drops the rest of its queue.
+	 *
+	 * @param elevatorNum  The elevator
+	 *
+	 * @return void
+	 */
+	private void startNextAction(int elevatorNum) {
+		Elevator.Action action = elevatorActions.get(elevatorNum).peek();
+
+		if (action == null) {
+			elevatorBusy[elevatorNum] = false;
+			return;
+		}
+
+		if (action == Elevator.Action.BROKEN) {
+			elevatorStuck[elevatorNum] = true;
+			elevatorActions.get(elevatorNum).clear();
+			elevatorBusy[elevatorNum] = false;
+			return;
+		}
+
+		elevatorBusy[elevatorNum] = true;
+		schedule(now + getActionTime(elevatorNum, action), SimulationEvent.Type.ACTION_FINISHED, elevatorNum, null);
+	}
+
+	/**
+	 * finishAction
+	 *
+	 * Finishes the action the given elevator is running. Moving and stopping
+	 * send a floor sensor message to the Scheduler. Fixing a stuck door moves
+	 * the door and sends a door fixed message and then a floor sensor message.
+	 * Then the next action starts.
+	 *
+	 * @param elevatorNum  The elevator
+	 *
+	 * @return void
+	 */
+	private void finishAction(int elevatorNum) {
+		Elevator.Action action = elevatorActions.get(elevatorNum).remove();
+
+		if (action == Elevator.Action.MOVE_UP) {
+			if (elevatorFloors[elevatorNum] == (numFloors - 1)) {
+				numInvalidMoves++;
+			} else {
+				elevatorFloors[elevatorNum]++;
+			}
+		} else if (action == Elevator.Action.MOVE_DOWN) {
+			if (elevatorFloors[elevatorNum] == 0) {
+				numInvalidMoves++;
+			} else {
+				elevatorFloors[elevatorNum]--;
+			}
+		}
+
+		if (action == Elevator.Action.DAMAGED) {
+			elevatorDoorOpen[elevatorNum] = !elevatorDoorOpen[elevatorNum];
+
+			byte[] doorFixed = {UtilityInformation.FIX_DOOR_MODE,
+			                    (byte) elevatorNum,
+			                    UtilityInformation.END_OF_MESSAGE};
+			deliver(doorFixed);
+		}
+
+		if ((action == Elevator.Action.MOVE_UP) ||
+		    (action == Elevator.Action.MOVE_DOWN) ||
+		    (action == Elevator.Action.STOP) ||
+		    (action == Elevator.Action.DAMAGED)) {
+			byte[] floorSensor = {UtilityInformation.FLOOR_SENSOR_MODE,
+			                      (byte) elevatorFloors[elevatorNum],
+			                      (byte) elevatorNum,
+			                      UtilityInformation.END_OF_MESSAGE};
+			deliver(floorSensor);
+		}
+
+		startNextAction(elevatorNum);
+	}
+
+	/**
+	 * getActionTime
+	 *
+	 * Returns how long the given action takes the given elevator. Fixing a
+	 * stuck door takes a random number of attempts, then the door moves.
+	 *
+	 * @param elevatorNum  The elevator
+	 * @param action   The action
+	 *
+	 * @return long    Time taken in milliseconds
+	 */
+	private long getActionTime(int elevatorNum, Elevator.Action action) {
+		switch (action) {
+		case MOVE_UP:
+			return(UtilityInformation.TIME_UP_ONE_FLOOR);
+		case MOVE_DOWN:
+			return(UtilityInformation.TIME_DOWN_ONE_FLOOR);
+		case STOP:
+			return(UtilityInformation.TIME_STOP_AT_FLOOR);
+		case DAMAGED:
+			long time = DOOR_FIX_ATTEMPT_TIME;
+			while (errorRandom.nextFloat() > DOOR_FIX_CHANCE) {
+				time += DOOR_FIX_ATTEMPT_TIME;
+			}
+
+			if (elevatorDoorOpen[elevatorNum]) {
+				return(time + UtilityInformation.CLOSE_DOOR_TIME);
+			}
+			return(time + UtilityInformation.OPEN_DOOR_TIME);
+		default:
+			return(0);
+		}
+	}
+
+	/**
+	 * start
+	 *
+	 * Overridden
+	 *
+	 * Nothing is received from a socket, messages are delivered directly.
+	 *
+	 * @param controller   The Scheduler
+	 *
+	 * @return None
+	 */
+	@Override
+	public void start(ServerPattern controller) {
+	}
+
+	/**
+	 * send
+	 *
+	 * Overridden
+	 *
+	 * Passes the messages the Scheduler sends to the elevators on to them.
+	 * Messages for the floors are not needed by the simulation.
+	 *
+	 * @param data Bytes sent
+	 * @param length   Number of bytes sent
+	 * @param address  Address sent to
+	 * @param portNum  Port sent to
+	 *
+	 * @return None
+	 */
+	@Override
+	public void send(byte[] data, int length, InetAddress address, int portNum) {
+		if (portNum != UtilityInformation.ELEVATOR_PORT_NUM) {
+			return;
+		}
+
+		if (data[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.MULTI_MESSAGE_MODE) {
+			for (byte[] message : MessageBatcher.unpack(data, length)) {
+				elevatorMessageReceived(message);
+			}
+		} else {
+			elevatorMessageReceived(Arrays.copyOf(data, length));
+		}
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void teardown() {
+	}
+
+	/**
+	 * printResults
+	 *
+	 * Prints the wait and ride time of every request, then the averages
+	 *
+	 * @param requests The requests from a run
+	 * @param out  Where to print to
+	 *
+	 * @return void
+	 */
+	public static void printResults(ArrayList<Request> requests, PrintStream out) {
+		long totalWait = 0;
+		long totalRide = 0;
+		int numDelivered = 0;
+
+		out.println("Source Destination Wait(ms) Ride(ms)");
+
+		for (Request req : requests) {
+			if (req.getElevatorArrivedDestinationTime() == -1) {
+				out.println(String.format("%d %d not delivered", req.getSourceFloor(), req.getDestinationFloor()));
+				continue;
+			}
+
+			long wait = (req.getElevatorPickupTime() - req.getElevatorRequestTime()) / 1000000;
+			long ride = (req.getElevatorArrivedDestinationTime() - req.getElevatorPickupTime()) / 1000000;
+
+			out.println(String.format("%d %d %d %d", req.getSourceFloor(), req.getDestinationFloor(), wait, ride));
+
+			totalWait += wait;
+			totalRide += ride;
+			numDelivered++;
+		}
+
+		if (numDelivered > 0) {
+			out.println(String.format("Delivered %d of %d, average wait %d ms, average ride %d ms",
+			                          numDelivered,
+			                          requests.size(),
+			                          totalWait / numDelivered,
+			                          totalRide / numDelivered));
+		}
+	}
+
+	/**
+	 * main
+	 *
+	 * Main method
+	 *
+	 * Replays a trace file, or every trace file in a folder, and prints the
+	 * results. Arguments: the trace file or folder, then optionally the
+	 * dispatch strategy, the number of elevators and the number of floors.
+	 *
+	 * @param args
+	 *
+	 * @return None
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: ElevatorSimulator <trace file or folder> [strategy] [elevators] [floors]");
+			System.exit(1);
+		}
+
+		DispatchStrategy.Type strategyType = UtilityInformation.DEFAULT_DISPATCH_STRATEGY;
+		int numElevators = UtilityInformation.DEFAULT_NUM_ELEVATORS;
+		int numFloors = UtilityInformation.DEFAULT_NUM_FLOORS;
+
+		if (args.length > 1) {
+			strategyType = DispatchStrategy.Type.valueOf(args[1]);
+		}
+		if (args.length > 2) {
+			numElevators = Integer.parseInt(args[2]);
+		}
+		if (args.length > 3) {
+			numFloors = Integer.parseInt(args[3]);
+		}
+
+		ArrayList<File> traces = new ArrayList<File>();
+		File path = new File(args[0]);
+		if (path.isDirectory()) {
+			for (File file : path.listFiles()) {
+				if (file.getName().endsWith(".txt")) {
+					traces.add(file);
+				}
+			}
+		} else {
+			traces.add(path);
+		}
+
+		ElevatorSimulator simulator = new ElevatorSimulator(numFloors, numElevators, strategyType);
+		PrintStream out = System.out;
+
+		long startTime = System.nanoTime();
+
+		for (File trace : traces) {
+			ArrayList<Request> requests = simulator.run(trace.getPath());
+
+			out.println(String.format("%s (%s, %d elevators, %d floors):", trace.getName(), strategyType, numElevators, numFloors));
+			printResults(requests, out);
+			out.println(String.format("Finished after %d ms simulated, %.2f passengers per minute, %d errors, %d invalid moves\n",
+			                          simulator.getNow(),
+			                          simulator.getScheduler().getAlgorithm().getPassengersDeliveredPerMinute(),
+			                          simulator.getNumErrors(),
+			                          simulator.getNumInvalidMoves()));
+		}
+
+		out.println(String.format("Simulated %d traces in %d ms", traces.size(), (System.nanoTime() - startTime) / 1000000));
+	}
+}
+
+/**
+ *
+ * Something that happens at a point in simulated time. Events at the same
+ * time happen in the order they were scheduled.
+ *
+ */
+class SimulationEvent implements Comparable<SimulationEvent> {
+	public enum Type {
+		REQUEST, ACTION_FINISHED
+	}
+
+	public final long time;
+	public final long eventNum;
+	public final Type type;
+	public final int elevatorNum;
+	public final byte[] data;
+
+	public SimulationEvent(long time, long eventNum, Type type, int elevatorNum, byte[] data) {
+		this.time = time;
+		this.eventNum = eventNum;
+		this.type = type;
+		this.elevatorNum = elevatorNum;
+		this.data = data;
+	}
+
+	@Override
+	public int compareTo(SimulationEvent other) {
+		if (time != other.time) {
+			return(Long.compare(time, other.time));
+		}
+
+		return(Long.compare(eventNum, other.eventNum));
+	}
+}
@@ -0,0 +1,237 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class ElevatorSimulatorTests {
+
+    /**
+     * createRequest
+     *
+     * Creates a trace line for a request between the given floors
+     *
+     * @param time  Time of the request in milliseconds
+     * @param source    Source floor of the request
+     * @param destination   Destination floor of the request
+     *
+     * @return  int[]   The request as [time, start floor, final floor, direction]
+     */
+    private int[] createRequest(int time, int source, int destination) {
+        UtilityInformation.ElevatorDirection dir = UtilityInformation.ElevatorDirection.UP;
+        if (destination < source) {
+            dir = UtilityInformation.ElevatorDirection.DOWN;
+        }
+
+        int[] request = {time, source, destination, dir.ordinal()};
+
+        return(request);
+    }
+
+    /**
+     * testSingleRequest
+     *
+     * Tests the wait and ride time of one request with one elevator. The
+     * elevator stops at floor 0 twice before leaving and then moves up
+     * three floors.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSingleRequest() {
+        ElevatorSimulator simulator = new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 1, DispatchStrategy.Type.DEFAULT);
+
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        trace.add(createRequest(0, 0, 3));
+
+        ArrayList<Request> requests = simulator.run(trace);
+        assertEquals(1, requests.size());
+
+        Request req = requests.get(0);
+        long wait = (req.getElevatorPickupTime() - req.getElevatorRequestTime()) / 1000000;
+        long ride = (req.getElevatorArrivedDestinationTime() - req.getElevatorPickupTime()) / 1000000;
+
+        assertEquals(UtilityInformation.TIME_STOP_AT_FLOOR, wait);
+        assertEquals(UtilityInformation.TIME_STOP_AT_FLOOR + (3 * UtilityInformation.TIME_UP_ONE_FLOOR), ride);
+    }
+
+    /**
+     * testEveryStrategyDeliversEveryone
+     *
+     * Tests that every dispatch strategy delivers every passenger of a busy
+     * trace, and that running the same trace twice gives the same times.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testEveryStrategyDeliversEveryone() {
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        for (int i = 0; i < 30; i++) {
+            trace.add(createRequest(i * 3000, (i * 7) % 22, (i * 13 + 5) % 22));
+        }
+
+        for (DispatchStrategy.Type strategyType : DispatchStrategy.Type.values()) {
+            ElevatorSimulator simulator = new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 4, strategyType);
+
+            ArrayList<Request> first = simulator.run(trace);
+            long firstFinish = simulator.getNow();
+            ArrayList<Request> second = simulator.run(trace);
+
+            assertEquals(trace.size(), first.size());
+            assertEquals(firstFinish, simulator.getNow());
+            assertEquals(0, simulator.getNumInvalidMoves());
+
+            for (Request req : second) {
+                assertEquals(true, req.getElevatorArrivedDestinationTime() != -1);
+            }
+        }
+    }
+
+    /**
+     * testDoorStuckDelaysRequest
+     *
+     * Tests that a stuck door is sent to the Scheduler and holds up the only
+     * elevator until it is fixed, after which the request is delivered.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testDoorStuckDelaysRequest() {
+        ElevatorSimulator simulator = new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 1, DispatchStrategy.Type.DEFAULT);
+
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        trace.add(new int[] {0, UtilityInformation.ErrorType.DOOR_STUCK_ERROR.ordinal()});
+        trace.add(createRequest(10, 0, 3));
+
+        ArrayList<Request> requests = simulator.run(trace);
+        assertEquals(1, requests.size());
+        assertEquals(1, simulator.getNumErrors());
+
+        Request req = requests.get(0);
+        long wait = (req.getElevatorPickupTime() - req.getElevatorRequestTime()) / 1000000;
+
+        assertEquals(true, req.getElevatorArrivedDestinationTime() != -1);
+        assertEquals(true, wait >= 1000 + UtilityInformation.OPEN_DOOR_TIME - 10);
+    }
+
+    /**
+     * testElevatorStuckOthersDeliver
+     *
+     * Tests that once an elevator is stuck, the other elevators deliver
+     * every request.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testElevatorStuckOthersDeliver() {
+        ElevatorSimulator simulator = new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 2, DispatchStrategy.Type.DEFAULT);
+
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        trace.add(createRequest(0, 0, 5));
+        trace.add(new int[] {100, UtilityInformation.ErrorType.ELEVATOR_STUCK_ERROR.ordinal()});
+        for (int i = 1; i < 10; i++) {
+            trace.add(createRequest(i * 2000, (i * 7) % 22, (i * 13 + 5) % 22));
+        }
+
+        ArrayList<Request> requests = simulator.run(trace);
+        assertEquals(1, simulator.getNumErrors());
+
+        int numDelivered = 0;
+        for (Request req : requests) {
+            if (req.getElevatorArrivedDestinationTime() != -1) {
+                numDelivered++;
+            }
+        }
+
+        assertEquals(trace.size() - 1, numDelivered);
+    }
+
+    /**
+     * testSameTraceSameServiceTimes
+     *
+     * Tests that running one trace twice, on two separate simulators,
+     * gives every request the same wait and ride time.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSameTraceSameServiceTimes() {
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        for (int i = 0; i < 40; i++) {
+            trace.add(createRequest(i * 1500, (i * 5) % 22, (i * 11 + 3) % 22));
+        }
+
+        ArrayList<String> first = getServiceTimes(new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 4, DispatchStrategy.Type.DEFAULT).run(trace));
+        ArrayList<String> second = getServiceTimes(new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 4, DispatchStrategy.Type.DEFAULT).run(trace));
+
+        assertEquals(trace.size(), first.size());
+        assertEquals(first, second);
+    }
+
+    /**
+     * getServiceTimes
+     *
+     * Describes the floors, wait time and ride time of each request
+     *
+     * @param requests  The delivered requests
+     *
+     * @return  ArrayList<String>   One line for each request, in order
+     */
+    private ArrayList<String> getServiceTimes(ArrayList<Request> requests) {
+        ArrayList<String> times = new ArrayList<String>();
+
+        for (Request req : requests) {
+            long wait = req.getElevatorPickupTime() - req.getElevatorRequestTime();
+            long ride = req.getElevatorArrivedDestinationTime() - req.getElevatorPickupTime();
+
+            times.add(req.getSourceFloor() + " " + req.getDestinationFloor() + " " + wait + " " + ride);
+        }
+
+        return(times);
+    }
+
+    /**
+     * testLargeBuildingDeliversEveryone
+     *
+     * Tests that every dispatch strategy delivers every passenger in a
+     * building with 150 floors and 32 elevators, where floor numbers above
+     * 127 no longer fit in a signed byte.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testLargeBuildingDeliversEveryone() {
+        final int numFloors = 150;
+        final int numElevators = 32;
+
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        for (int i = 0; i < 100; i++) {
+            trace.add(createRequest(i * 500, (i * 37) % numFloors, (i * 53 + 149) % numFloors));
+        }
+
+        for (DispatchStrategy.Type strategyType : DispatchStrategy.Type.values()) {
+            ElevatorSimulator simulator = new ElevatorSimulator(numFloors, numElevators, strategyType);
+
+            ArrayList<Request> requests = simulator.run(trace);
+
+            assertEquals(trace.size(), requests.size());
+            assertEquals(0, simulator.getNumInvalidMoves());
+
+            for (Request req : requests) {
+                assertEquals(true, req.getElevatorArrivedDestinationTime() != -1);
+            }
+        }
+    }
+}
@@ -3,9 +3,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.*;
 
@@ -45,17 +43,27 @@ public class Elevator_Subsystem extends ServerPattern {
 	// The current elevator number being accessed
 	private static byte currentElevatorToWork = 0;
 
-	// Datagram Packets and Sockets for sending and receiving data
-	private DatagramPacket sendPacket, receivePacket;
-	private DatagramSocket sendSocket;
+	// Last packet received
+	private DatagramPacket receivePacket;
 
 	// Information for System
 	private InetAddress schedulerIP;
 	
-	private ArrayList<LinkedList<Elevator.Action>> nextActions;
+	// Actions waiting for each elevator, indexed by elevator number. Replaced
+	// rather than changed when elevators are added, so the elevators can
+	// look up their queue without a lock
+	private volatile ActionQueue[] actionQueues = new ActionQueue[0];
+	
+	// Time from each action being queued until its elevator took it
+	private LatencyHistogram actionLatencies = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+	                                                                UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+	
+	// Threads running the elevators
+	private ArrayList<Thread> elevatorThreads = new ArrayList<Thread>();
+	
+	// Time to wait for each elevator to finish its action when tearing down
+	private final long TEARDOWN_WAIT_MILLIS = 1000;
 	
-    private ArrayList<ArrayList<Long>> frequencyTimes;
-    private ArrayList<ArrayList<Long>> executionDurationTimes;
 
 	// USED ENUMS:
 	// State machine states
@@ -76,36 +84,36 @@ public class Elevator_Subsystem extends ServerPattern {
 	public Elevator_Subsystem() {
 	    super(UtilityInformation.ELEVATOR_PORT_NUM, "Elevator_Subsystem");
 	    
-        frequencyTimes = new ArrayList<ArrayList<Long>>();      
-        for (int i = 0; i < 14; i++) {
-            frequencyTimes.add(new ArrayList<Long>());
-        }
-        
-        executionDurationTimes = new ArrayList<ArrayList<Long>>();
-        for (int i = 0; i < 14; i++) {
-            executionDurationTimes.add(new ArrayList<Long>());
-        }
-	    
-	    nextActions = new ArrayList<LinkedList<Elevator.Action>>();
-	    
 		try {
 			schedulerIP = InetAddress.getLocalHost();
 		} catch (UnknownHostException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
+	}
+
+	/**
+	 * Elevator_Subsystem
+	 *
+	 * Constructor
+	 *
+	 * Create a new Elevator_Subsystem that sends and receives messages with
+	 * the given transport instead of on the elevator port
+	 *
+	 * @param transport    Transport to send and receive messages with
+	 *
+	 * @return None
+	 */
+	public Elevator_Subsystem(SignalTransport transport) {
+	    super(transport);
 
 		try {
-			// Construct a Datagram socket and bind it to any available port on the local
-			// host machine. This socket will be used to
-			// send UDP Datagram packets.
-			sendSocket = new DatagramSocket();
-		} catch (SocketException se) {
-			se.printStackTrace();
-			System.exit(1);
+			schedulerIP = InetAddress.getLocalHost();
+		} catch (UnknownHostException e) {
+			e.printStackTrace();
 		}
 	}
-	
+
 
 	/*
 	 * This method sends an array of bytes to a specific Ip address and port number.
@@ -117,21 +125,13 @@ public class Elevator_Subsystem extends ServerPattern {
 	 * @param port the port number on the destination computer
 	 */
 	public void sendData(byte[] data, InetAddress IP, int port) {
-		sendPacket = new DatagramPacket(data, data.length, IP, UtilityInformation.SCHEDULER_PORT_NUM);
-		System.out.println("Elevator: Sending packet:");
-		System.out.println("To host: " + sendPacket.getAddress());
-		System.out.println("Destination host port: " + sendPacket.getPort());
-		int len = sendPacket.getLength();
-		System.out.println("Length: " + len);
-		System.out.print("Containing: ");
-		System.out.println(Arrays.toString(data)); // or could print "s"
+		AsyncLog.packet("Elevator", "send", data, data.length, IP, UtilityInformation.SCHEDULER_PORT_NUM);
 		try {
-			sendSocket.send(sendPacket);
+			this.transmit(data, data.length, IP, UtilityInformation.SCHEDULER_PORT_NUM);
 		} catch (IOException e) {
 			e.printStackTrace();
 			System.exit(1);
 		}
-		System.out.println("Elevator: Packet sent.\n");
 	}
 	/*
 	 * Returns true if the System is in an error state and
@@ -297,7 +297,7 @@ public class Elevator_Subsystem extends ServerPattern {
 		// Setting up our "Building" with configurable number of elevators and floors
 		if (str.equals("config")) {
 			numberOfElevators = data[1];
-			numberOfFloors = data[2];
+			numberOfFloors = Byte.toUnsignedInt(data[2]);
 			
 			configSubsystem(numberOfFloors, numberOfElevators);
 		}
@@ -320,7 +320,7 @@ public class Elevator_Subsystem extends ServerPattern {
 		}
 		// getting destination from scheduler for each input
 		if (str.equals("destination")) {
-			destinationFloor = data[1];
+			destinationFloor = Byte.toUnsignedInt(data[1]);
 			currentElevatorToWork = data[2];
 			allElevators.get(currentElevatorToWork).turnOnDestButton(destinationFloor);
 		}
@@ -390,7 +390,7 @@ public class Elevator_Subsystem extends ServerPattern {
 		} else if (data[0] == UtilityInformation.ELEVATOR_DIRECTION_MODE) {
 			currentElevatorToWork = data[2];
 			
-			byte checkFloor = data[1];
+			int checkFloor = Byte.toUnsignedInt(data[1]);
 			
 			if (checkFloor != allElevators.get(currentElevatorToWork).getCurrentFloor()) {				
 				return "ignore";
@@ -455,6 +455,9 @@ public class Elevator_Subsystem extends ServerPattern {
 	 */
 	public static void main(String[] args) {
 		Elevator_Subsystem elvSub = new Elevator_Subsystem();
+		if (UtilityInformation.METRICS_ENABLED) {
+			elvSub.startMetricsServer(UtilityInformation.ELEVATOR_METRICS_PORT_NUM);
+		}
 		elvSub.runElevatorSubsystem();
 		
 	}
@@ -485,6 +488,9 @@ public class Elevator_Subsystem extends ServerPattern {
             long finishTime = System.nanoTime();
             saveTimes(startTime, finishTime, nextReq.getData()[0]);
             
+            // Finished with the packet, so let it be reused
+            this.releaseRequest(nextReq);
+            
             allElevators.get(currentElevatorToWork).display();
         }
 	}
@@ -501,8 +507,7 @@ public class Elevator_Subsystem extends ServerPattern {
 	 * @return void
 	 */
     public void saveTimes(long startTime, long finishTime, byte mode) {
-        frequencyTimes.get(mode).add(startTime);
-        executionDurationTimes.get(mode).add(finishTime - startTime);
+        getMessageTimings().record(mode, startTime, finishTime);
     }
     
     /**
@@ -528,41 +533,7 @@ public class Elevator_Subsystem extends ServerPattern {
             e.printStackTrace();
         }
         
-        for (int i = 0; i < executionDurationTimes.size(); i++) {
-            if (i == 0) {
-                writer.println("CONFIG_MODE");
-            } else if (i == 1) {
-                writer.println("FLOOR_SENSOR_MODE");
-            } else if (i == 2) {
-                writer.println("FLOOR_REQUEST_MODE");
-            } else if (i == 3) {
-                writer.println("ELEVATOR_BUTTON_HIT_MODE");
-            } else if (i == 4) {
-                writer.println("ELEVATOR_DIRECTION_MODE");
-            } else if (i == 5) {
-                writer.println("ELEVATOR_DOOR_MODE");
-            } else if (i == 6) {
-                writer.println("SEND_DESTINATION_TO_ELEVATOR_MODE");
-            } else if (i == 7) {
-                writer.println("TEARDOWN_MODE");
-            } else if (i == 8) {
-                writer.println("CONFIG_CONFIRM_MODE");
-            } else if (i == 9) {
-                writer.println("ERROR_MESSAGE_MODE");
-            } else if (i == 10) {
-                writer.println("FIX_ERROR_MODE");
-            } else if (i == 11) {
-                writer.println("FIX_DOOR_MODE");
-            } else if (i == 12) {
-                writer.println("ALL_REQUESTS_FINISHED_MODE");
-            }
-            
-            for (Long time : executionDurationTimes.get(i)) {
-                writer.println(time);
-            }
-            
-            writer.println("");
-        }
+        getMessageTimings().printDurations(writer);
         
         writer.close();     
     }
@@ -590,41 +561,7 @@ public class Elevator_Subsystem extends ServerPattern {
             e.printStackTrace();
         }
         
-        for (int i = 0; i < frequencyTimes.size(); i++) {
-            if (i == 0) {
-                writer.println("CONFIG_MODE");
-            } else if (i == 1) {
-                writer.println("FLOOR_SENSOR_MODE");
-            } else if (i == 2) {
-                writer.println("FLOOR_REQUEST_MODE");
-            } else if (i == 3) {
-                writer.println("ELEVATOR_BUTTON_HIT_MODE");
-            } else if (i == 4) {
-                writer.println("ELEVATOR_DIRECTION_MODE");
-            } else if (i == 5) {
-                writer.println("ELEVATOR_DOOR_MODE");
-            } else if (i == 6) {
-                writer.println("SEND_DESTINATION_TO_ELEVATOR_MODE");
-            } else if (i == 7) {
-                writer.println("TEARDOWN_MODE");
-            } else if (i == 8) {
-                writer.println("CONFIG_CONFIRM_MODE");
-            } else if (i == 9) {
-                writer.println("ERROR_MESSAGE_MODE");
-            } else if (i == 10) {
-                writer.println("FIX_ERROR_MODE");
-            } else if (i == 11) {
-                writer.println("FIX_DOOR_MODE");
-            } else if (i == 12) {
-                writer.println("ALL_REQUESTS_FINISHED_MODE");
-            }
-            
-            for (Long time : frequencyTimes.get(i)) {
-                writer.println(time);
-            }
-            
-            writer.println("");
-        }
+        getMessageTimings().printInterArrivals(writer);
         
         writer.close();     
     }
@@ -632,48 +569,137 @@ public class Elevator_Subsystem extends ServerPattern {
     /**
      * addActionToQueue
      * 
-     * synchronized
-     * 
-     * Adds the given action type to the queue for the given elevator
+     * Adds the given action type to the queue for the given elevator,
+     * waking only that elevator
      * 
      * @param elevatorNumber    Number of elevator to add the action for
      * @param stateToAdd        Next action to add to queue
      * 
      * @return  void
      */
-	public synchronized void addActionToQueue(int elevatorNumber, Elevator.Action actionToAdd) {
-		nextActions.get(elevatorNumber).add(actionToAdd);
-		
-		notifyAll();
+	public void addActionToQueue(int elevatorNumber, Elevator.Action actionToAdd) {
+		actionQueues[elevatorNumber].add(actionToAdd);
 	}
 
 	/**
 	 * getNextActionForElevator
 	 * 
-	 * synchronized
-	 * 
 	 * Returns the next action in the queue for the given elevator.
-	 * Waits until an action is available,
+	 * Waits until an action is available, or until the subsystem is
+	 * torn down.
 	 * 
 	 * @param elevatorNumber   Elevator number to get the next action for
 	 * 
-	 * @return Action  The next action for the elevator
+	 * @return Action  The next action for the elevator, or null if the
+	 *                 elevator should stop
+	 */
+	public Elevator.Action getNextActionForElevator(int elevatorNumber) {
+		return(actionQueues[elevatorNumber].take());
+	}
+	
+	/**
+	 * getNumIdleElevators
+	 * 
+	 * Returns the number of elevators waiting for their next action.
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of idle elevators
+	 */
+	public int getNumIdleElevators() {
+		int numIdle = 0;
+		
+		for (ActionQueue queue : actionQueues) {
+			if (queue.isWaiting()) {
+				numIdle++;
+			}
+		}
+		
+		return(numIdle);
+	}
+	
+	/**
+	 * getNumRunningElevators
+	 * 
+	 * Returns the number of elevator threads that have not finished.
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of running elevator threads
 	 */
-	public synchronized Elevator.Action getNextActionForElevator(int elevatorNumber) {
-		while (nextActions.get(elevatorNumber).isEmpty()) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+	public int getNumRunningElevators() {
+		int numRunning = 0;
+		
+		synchronized (elevatorThreads) {
+			for (Thread t : elevatorThreads) {
+				if (t.isAlive()) {
+					numRunning++;
+				}
 			}
 		}
 		
-		Elevator.Action nextAction = nextActions.get(elevatorNumber).remove();
+		return(numRunning);
+	}
+	
+	/**
+	 * getActionQueue
+	 * 
+	 * Returns the queue of actions waiting for the given elevator.
+	 * 
+	 * @param elevatorNumber   Number of the elevator
+	 * 
+	 * @return ActionQueue The elevator's queue
+	 */
+	public ActionQueue getActionQueue(int elevatorNumber) {
+		return(actionQueues[elevatorNumber]);
+	}
+	
+	/**
+	 * getActionLatencies
+	 * 
+	 * Returns the times from actions being queued until their elevator
+	 * took them.
+	 * 
+	 * @param  None
+	 * 
+	 * @return LatencyHistogram    Times in nanoseconds
+	 */
+	public LatencyHistogram getActionLatencies() {
+		return(actionLatencies);
+	}
+	
+	/**
+	 * writeMetrics
+	 * 
+	 * Overridden
+	 * 
+	 * Writes the ServerPattern metrics, how often each elevator woke up
+	 * waiting for an action, and how long actions waited to be taken.
+	 * 
+	 * @param writer   Where to write the metrics
+	 * 
+	 * @return None
+	 */
+	@Override
+	public void writeMetrics(PrintWriter writer) {
+		super.writeMetrics(writer);
 		
-		notifyAll();
+		ActionQueue[] queues = actionQueues;
 		
-		return(nextAction);
+		MetricsServer.writeType(writer, "ecs_elevator_wakeups_total", "counter", "Times the elevator woke up while waiting for an action");
+		for (int i = 0; i < queues.length; i++) {
+			writer.println("ecs_elevator_wakeups_total" + MetricsServer.labels("subsystem", "Elevator_Subsystem", "elevator", Integer.toString(i))
+			               + " " + queues[i].getNumWakeups());
+		}
+		
+		MetricsServer.writeType(writer, "ecs_elevator_empty_wakeups_total", "counter", "Times the elevator woke up with no action to take");
+		for (int i = 0; i < queues.length; i++) {
+			writer.println("ecs_elevator_empty_wakeups_total" + MetricsServer.labels("subsystem", "Elevator_Subsystem", "elevator", Integer.toString(i))
+			               + " " + queues[i].getNumEmptyWakeups());
+		}
+		
+		MetricsServer.writeType(writer, "ecs_action_latency_nanos", "summary", "Time from an action being queued until its elevator took it");
+		MetricsServer.writeSummary(writer, "ecs_action_latency_nanos", MetricsServer.labels("subsystem", "Elevator_Subsystem"), actionLatencies);
 	}
 
 	/**
@@ -692,16 +718,40 @@ public class Elevator_Subsystem extends ServerPattern {
     /**
      * teardown
      * 
-     * Tears down the Elevator subsystem object
+     * Tears down the Elevator subsystem object. Each elevator finishes the
+     * action it is taking before the transport is closed, so it does not
+     * send on a closed socket.
      * 
      * @param   None
      * 
      * @return  void
      */
     public void teardown() {
-        sendPacket = null;
+        // Let the elevators finish
+        for (ActionQueue queue : actionQueues) {
+            queue.close();
+        }
+        
+        ArrayList<Thread> threads;
+        synchronized (elevatorThreads) {
+            threads = new ArrayList<Thread>(elevatorThreads);
+        }
+        
+        for (Thread t : threads) {
+            // An elevator can not wait for itself to finish
+            if (t == Thread.currentThread()) {
+                continue;
+            }
+            
+            try {
+                t.join(TEARDOWN_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        
         receivePacket = null;
-        sendSocket.close();
         super.teardown();
     }
     
@@ -717,19 +767,24 @@ public class Elevator_Subsystem extends ServerPattern {
      */
     public void configSubsystem(int numFloors, int numElevators) {
         // Based on the config message, set up the elevators and their lights.
+        ActionQueue[] queues = Arrays.copyOf(actionQueues, actionQueues.length + numElevators);
         for (int i = 0; i < numElevators; i++) {
             Elevator hold = new Elevator(this, i, numFloors);
             // add to elevator subsystem ArrayList of elevators
             allElevators.add(hold);
-            nextActions.add(new LinkedList<Elevator.Action>());
+            queues[queues.length - numElevators + i] = new ActionQueue(actionLatencies);
         }
+        actionQueues = queues;
         // allButtons = new lampState[numberOfFloors];
         byte[] response = { UtilityInformation.CONFIG_CONFIRM_MODE, 1, -1 };
         this.sendData(response, schedulerIP, UtilityInformation.SCHEDULER_PORT_NUM);
         
-        for (Elevator ele : allElevators) {
-            Thread t = new Thread(ele);
-            t.start();
+        synchronized (elevatorThreads) {
+            for (Elevator ele : allElevators) {
+                Thread t = WorkerThreads.newThread(ele, "Elevator " + ele.getElevatorNumber());
+                elevatorThreads.add(t);
+                t.start();
+            }
         }
     }
 }
\ No newline at end of file
@@ -1,25 +1,42 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Floor implements Runnable {
+	// Directions indexed by ordinal, shared so looking one up does not copy values()
+	private static final UtilityInformation.ElevatorDirection[] DIRECTIONS = UtilityInformation.ElevatorDirection.values();
+
 	private FloorSubsystem controller; // The FloorSubsystem that this object belongs to
 
 	private int floorNum; // The number of this floor
 	private int numElevatorShafts; // The number of elevator shafts on this floor
 
 	// Information for the arrival lamps and their directions
-	// There is one set of arrival lamsp and directions for each elevator on the floor
-	private ArrayList<Integer> elevatorLocation;
-	private ArrayList<UtilityInformation.LampState> arrivalLamp;
-	private ArrayList<UtilityInformation.ElevatorDirection> arrivalLampDir;
+	// There is one set of arrival lamsp and directions for each elevator on the floor,
+	// indexed by elevator shaft. A set bit is a lamp that is ON and each direction
+	// is stored as its ordinal.
+	private int[] elevatorLocation;
+	private BitSet arrivalLamp;
+	private byte[] arrivalLampDir;
 
 	// Information for the buttons the floor
 	private UtilityInformation.ButtonState upButton;
 	private UtilityInformation.ButtonState downButton;
 	
-	private ArrayList<Integer[]> serviceRequests;
+	// Requests waiting to be sent, and the next one being sent
+	private RequestWindow serviceRequests;
+	private final int[] nextRequest = new int[RequestWindow.NUM_FIELDS];
 	
 	private long timeOfPreviousRequest;
+	
+	// Clock used to wait until each request should be sent
+	private SimulationClock clock;
+	
+	// Held while waiting to send a request and sending it. Not a monitor, as
+	// a virtual thread sleeping in a synchronized method pins its carrier
+	private final ReentrantLock requestLock = new ReentrantLock();
 
 	/**
 	 * Floor
@@ -35,11 +52,12 @@ public class Floor implements Runnable {
 	 * @return None
 	 */
 	public Floor(FloorSubsystem controller, int floorNum, int numElevatorShafts) {
-	    serviceRequests = new ArrayList<Integer[]>();
+	    serviceRequests = new RequestWindow();
 	    
-		elevatorLocation = new ArrayList<Integer>();
-		arrivalLamp = new ArrayList<UtilityInformation.LampState>();
-		arrivalLampDir = new ArrayList<UtilityInformation.ElevatorDirection>();
+		// Every lamp starts OFF and STATIONARY with its elevator at floor 0
+		elevatorLocation = new int[0];
+		arrivalLamp = new BitSet();
+		arrivalLampDir = new byte[0];
 
 		// Save all of the information
 		this.controller = controller;
@@ -47,24 +65,20 @@ public class Floor implements Runnable {
 		this.floorNum = floorNum;
 		this.setNumElevatorShafts(numElevatorShafts);
 
-		// Configure lamps and buttons
-		for (int i = 0; i < numElevatorShafts; i++) {
-			elevatorLocation.add(0);
-			arrivalLamp.add(UtilityInformation.LampState.OFF);
-			arrivalLampDir.add(UtilityInformation.ElevatorDirection.STATIONARY);
-		}
-
+		// Configure buttons
 		upButton = UtilityInformation.ButtonState.UNPRESSED;
 		downButton = UtilityInformation.ButtonState.UNPRESSED;
 		
 		timeOfPreviousRequest = 0;
+		clock = SimulationClock.getClock();
 	}
 
 	/**
 	 * createElevatorRequest
 	 * 
 	 * Tells the FloorSubsystem that a new request was made at this Floor. Sets the
-	 * corresponding lamp and button values.
+	 * corresponding lamp and button values. Waits while the window of
+	 * requests to send is full.
 	 * 
 	 * @param timeOfReq    Time at which the request was made in ms
 	 * @param direction    Direction that the user wants to travel
@@ -73,27 +87,34 @@ public class Floor implements Runnable {
 	 * @return void
 	 */
 	public void createElevatorRequest(int timeOfReq, UtilityInformation.ElevatorDirection direction, int endFloor) {
+		pressButton(direction);
+		
+		serviceRequests.add(timeOfReq, -1, direction.ordinal(), endFloor);
+	}
+	
+	/**
+	 * pressButton
+	 * 
+	 * Sets the button for the given direction to pressed.
+	 * 
+	 * @param direction    Direction that the user wants to travel
+	 * 
+	 * @return void
+	 */
+	public void pressButton(UtilityInformation.ElevatorDirection direction) {
 		// Set the button and lamp states
 		if (direction == UtilityInformation.ElevatorDirection.UP) {
 			upButton = UtilityInformation.ButtonState.PRESSED;
 		} else if (direction == UtilityInformation.ElevatorDirection.DOWN) {
 			downButton = UtilityInformation.ButtonState.PRESSED;
 		}
-		
-		Integer[] request = new Integer[5];
-		request[0] = timeOfReq;
-		request[1] = this.getFloorNumber();
-		request[2] = direction.ordinal();
-		request[3] = endFloor;
-		request[4] = (int) UtilityInformation.END_OF_MESSAGE;
-
-		serviceRequests.add(request);
 	}
 	
 	/**
 	 * createErrorOccuredRequest
 	 * 
-	 * Adds an error request to the list of requests to send.
+	 * Adds an error request to the list of requests to send. Waits while the
+	 * window of requests to send is full.
 	 * 
 	 * @param timeOfReq: Time in millliseconds when the error occurs relative to the start time
 	 * @param type: The type of error that occured
@@ -101,12 +122,7 @@ public class Floor implements Runnable {
 	 * @return None
 	 */
 	public void createErrorOccuranceRequest(int timeOfReq, UtilityInformation.ErrorType type) {
-	    Integer[] request = new Integer[3];
-	    request[0] = timeOfReq;
-	    request[1] = type.ordinal();
-	    request[2] = (int) UtilityInformation.END_OF_MESSAGE;
-	    
-	    serviceRequests.add(request);
+	    serviceRequests.add(timeOfReq, type.ordinal(), -1, -1);
 	}
 	
 	/**
@@ -131,7 +147,7 @@ public class Floor implements Runnable {
     	if ((floorNum == this.getFloorNumber()) && 
     		(direction == UtilityInformation.ElevatorDirection.STATIONARY)) {
     		// Turn off up/down buttons if the elevator is stopping at this floor
-			arrivalLamp.set(elevatorShaftNum, UtilityInformation.LampState.ON);
+			arrivalLamp.set(elevatorShaftNum);
 			
 			gui.setDownButtonUnlit(numElevatorShafts, getFloorNumber());
 			gui.setUpButtonUnlit(numElevatorShafts, getFloorNumber());
@@ -139,12 +155,12 @@ public class Floor implements Runnable {
 			downButton = UtilityInformation.ButtonState.UNPRESSED;
 			upButton = UtilityInformation.ButtonState.UNPRESSED;
     	} else {
-    		arrivalLamp.set(elevatorShaftNum, UtilityInformation.LampState.OFF);
+    		arrivalLamp.clear(elevatorShaftNum);
     	}
     	
     	// Update the elevator location and direction
-    	elevatorLocation.set(elevatorShaftNum, floorNum);
-    	arrivalLampDir.set(elevatorShaftNum, direction);
+    	elevatorLocation[elevatorShaftNum] = floorNum;
+    	arrivalLampDir[elevatorShaftNum] = (byte) direction.ordinal();
     }
 
 	/**
@@ -185,42 +201,11 @@ public class Floor implements Runnable {
 	public void setNumElevatorShafts(int numElevatorShafts) {
 		this.numElevatorShafts = numElevatorShafts;
 		
-		// Update the array lists which are dependent on the number of elevators
-		if (elevatorLocation.size() > numElevatorShafts) {
-		    // If size is less than the number of elevators,
-		    // add values to the array list
-			while (elevatorLocation.size() > numElevatorShafts) {
-				elevatorLocation.remove(elevatorLocation.size() - 1);
-			}
-		} else {
-		    // If size is greater than the number of elevators,
-            // remove values from teh array list
-			while (elevatorLocation.size() < numElevatorShafts) {
-				elevatorLocation.add(0);
-			}
-		}
-		
-		// Repeat the same as above for the next array list
-		if (arrivalLamp.size() > numElevatorShafts) {
-			while (arrivalLamp.size() > numElevatorShafts) {
-				arrivalLamp.remove(arrivalLamp.size() - 1);
-			}
-		} else {
-			while (arrivalLamp.size() < numElevatorShafts) {
-				arrivalLamp.add(UtilityInformation.LampState.OFF);
-			}
-		}
-		
-		// Repeat the same as above for the next array list
-		if (arrivalLampDir.size() > numElevatorShafts) {
-			while (arrivalLampDir.size() > numElevatorShafts) {
-				arrivalLampDir.remove(arrivalLampDir.size() - 1);
-			}
-		} else {
-			while (arrivalLampDir.size() < numElevatorShafts) {
-				arrivalLampDir.add(UtilityInformation.ElevatorDirection.STATIONARY);
-			}
-		}
+		// Resize the arrays which are dependent on the number of elevators.
+		// Added shafts start at floor 0, STATIONARY (ordinal 0) and OFF.
+		elevatorLocation = Arrays.copyOf(elevatorLocation, numElevatorShafts);
+		arrivalLampDir = Arrays.copyOf(arrivalLampDir, numElevatorShafts);
+		arrivalLamp.clear(numElevatorShafts, Math.max(numElevatorShafts, arrivalLamp.length()));
 	}
 
 	/**
@@ -233,7 +218,7 @@ public class Floor implements Runnable {
 	 * @return lampState The state of the arrival lamp
 	 */
 	public UtilityInformation.LampState getArrivalLamp(int elevatorShaftNum) {
-		return arrivalLamp.get(elevatorShaftNum);
+		return (arrivalLamp.get(elevatorShaftNum) ? UtilityInformation.LampState.ON : UtilityInformation.LampState.OFF);
 	}
 
 	/**
@@ -247,7 +232,7 @@ public class Floor implements Runnable {
 	 * @return void
 	 */
 	public void setArrivalLamp(UtilityInformation.LampState newLampState, int elevatorShaftNum) {
-		arrivalLamp.set(elevatorShaftNum - 1, newLampState);
+		arrivalLamp.set(elevatorShaftNum - 1, newLampState == UtilityInformation.LampState.ON);
 	}
 
 	/**
@@ -261,7 +246,7 @@ public class Floor implements Runnable {
 	 *         lamp
 	 */
 	public UtilityInformation.ElevatorDirection getArrivalLampDir(int elevatorShaftNum) {
-		return arrivalLampDir.get(elevatorShaftNum);
+		return DIRECTIONS[arrivalLampDir[elevatorShaftNum]];
 	}
 
 	/**
@@ -275,7 +260,7 @@ public class Floor implements Runnable {
 	 * @return void
 	 */
 	public void setArrivalLampDir(UtilityInformation.ElevatorDirection newDirection, int elevatorShaftNum) {
-		arrivalLampDir.set(elevatorShaftNum - 1, newDirection);
+		arrivalLampDir[elevatorShaftNum - 1] = (byte) newDirection.ordinal();
 	}
 	
 	/**
@@ -349,9 +334,9 @@ public class Floor implements Runnable {
 	    // Add the information about the lamps
 	    for (int i = 0; i < numElevatorShafts; i++) {
 	        toReturn += String.format("; Elevator: %d", i);
-	        toReturn += String.format(", Floor: %d", elevatorLocation.get(i));
-            toReturn += String.format(", Direction: %s", arrivalLampDir.get(i).toString());
-            toReturn += String.format(", ArrivalLamp: %s", arrivalLamp.get(i).toString());
+	        toReturn += String.format(", Floor: %d", elevatorLocation[i]);
+            toReturn += String.format(", Direction: %s", getArrivalLampDir(i).toString());
+            toReturn += String.format(", ArrivalLamp: %s", getArrivalLamp(i).toString());
 	    }
 	    
         toReturn += String.format("; Up Button: %s", upButton.toString());
@@ -362,55 +347,108 @@ public class Floor implements Runnable {
 	    
 	}
 	
+	/**
+	 * openRequests
+	 * 
+	 * Empties the requests to send, ready for a new trace.
+	 * 
+	 * @param maxRequests  Most requests held at once, or RequestWindow.UNBOUNDED
+	 * 
+	 * @return None
+	 */
+	public void openRequests(int maxRequests) {
+	    serviceRequests.open(maxRequests);
+	}
+	
+	/**
+	 * closeRequests
+	 * 
+	 * Says that every request in the trace has been added, so this Floor
+	 * stops once it has sent them all. If discard is true the requests not
+	 * yet sent are dropped, so it stops after the one it is sending.
+	 * 
+	 * @param discard  Whether to drop the requests not yet sent
+	 * 
+	 * @return None
+	 */
+	public void closeRequests(boolean discard) {
+	    if (discard) {
+	        serviceRequests.discard();
+	    } else {
+	        serviceRequests.close();
+	    }
+	}
+	
 	/**
 	 * getServiceRequests
 	 * 
-	 * Get the current list of service requests.
+	 * Get a copy of the current list of service requests. Elevator requests
+	 * are {time, floor, direction, destination, END_OF_MESSAGE} and errors
+	 * are {time, error type, END_OF_MESSAGE}.
 	 * 
 	 * @param  None
 	 * 
 	 * @return ArrayList<Integer[]> List containing all current requests
 	 */
 	public ArrayList<Integer[]> getServiceRequests(){
-	    return(serviceRequests);
+	    ArrayList<Integer[]> requests = new ArrayList<Integer[]>();
+	    int[] request = new int[RequestWindow.NUM_FIELDS];
+	    
+	    for (int i = 0; i < serviceRequests.size(); i++) {
+	        serviceRequests.get(i, request);
+	        
+	        if (request[RequestWindow.ERROR_TYPE_IND] != -1) {
+	            requests.add(new Integer[] {request[RequestWindow.TIME_IND],
+	                                        request[RequestWindow.ERROR_TYPE_IND],
+	                                        (int) UtilityInformation.END_OF_MESSAGE});
+	        } else {
+	            requests.add(new Integer[] {request[RequestWindow.TIME_IND],
+	                                        this.getFloorNumber(),
+	                                        request[RequestWindow.DIRECTION_IND],
+	                                        request[RequestWindow.FINAL_FLOOR_IND],
+	                                        (int) UtilityInformation.END_OF_MESSAGE});
+	        }
+	    }
+	    
+	    return(requests);
 	}
 	
 	/**
 	 * sendRequest
 	 * 
-	 * Send the next request in the list of requests at the appropriate time.
+	 * Send the given request at the appropriate time.
 	 * 
-	 * @param  None
+	 * @param request  The request, as taken from the RequestWindow
 	 * 
 	 * @return None
 	 */
-	public synchronized void sendRequest() {
-	    // Wait until the proper time to send the request
-		long timeToSleep = serviceRequests.get(0)[0] - timeOfPreviousRequest;
-		timeOfPreviousRequest = serviceRequests.get(0)[0];
-
+	private void sendRequest(int[] request) {
+		requestLock.lock();
 		try {
-			Thread.sleep(timeToSleep);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-	    
-	    Integer[] request = serviceRequests.get(0);
+		    // Wait until the proper time to send the request
+			long timeToSleep = request[RequestWindow.TIME_IND] - timeOfPreviousRequest;
+			timeOfPreviousRequest = request[RequestWindow.TIME_IND];
+
+			try {
+				clock.sleep(timeToSleep);
+			} catch (InterruptedException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
 	    
-	    // Tell the controller to send the request
-	    if (request.length == 3) {	        
-	        Random rand = new Random();
+		    // Tell the controller to send the request
+		    if (request[RequestWindow.ERROR_TYPE_IND] != -1) {	        
+		        Random rand = new Random();
 	        
-	        controller.sendErrorOccursMessage(UtilityInformation.ErrorType.values()[request[1]], rand.nextInt(numElevatorShafts));
-	    } else {	        
-	        controller.sendElevatorRequest(request[1], 
-	                                       request[3], 
-	                                       UtilityInformation.ElevatorDirection.values()[request[2]]);
-	    }
-	    
-	    // Remove the sent request from the list
-	    serviceRequests.remove(0);
+		        controller.sendErrorOccursMessage(UtilityInformation.ErrorType.values()[request[RequestWindow.ERROR_TYPE_IND]], rand.nextInt(numElevatorShafts));
+		    } else {	        
+		        controller.sendElevatorRequest(this.getFloorNumber(), 
+		                                       request[RequestWindow.FINAL_FLOOR_IND], 
+		                                       DIRECTIONS[request[RequestWindow.DIRECTION_IND]]);
+		    }
+		} finally {
+			requestLock.unlock();
+		}
 	}
 
 	/**
@@ -418,7 +456,8 @@ public class Floor implements Runnable {
 	 * 
 	 * Overridden
 	 * 
-	 * Runs this Floor. Send all requests in the list of requests.
+	 * Runs this Floor. Send all requests in the list of requests, waiting
+	 * for more while the trace is still being read.
 	 * 
 	 * @param  None
 	 * 
@@ -426,8 +465,8 @@ public class Floor implements Runnable {
 	 */
     @Override
     public void run() {        
-        while (serviceRequests.size() > 0) {
-            this.sendRequest();
+        while (serviceRequests.take(nextRequest)) {
+            this.sendRequest(nextRequest);
         }
     }
 }
@@ -1,24 +1,15 @@
-import java.io.BufferedReader;
-
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.Arrays;
-
+import java.util.concurrent.locks.ReentrantLock;
 
-public class FloorSubsystem extends ServerPattern{
-	// Sockets and packets used for UDP
-	private DatagramPacket sendPacket;
-	private DatagramSocket sendSocket;
 
+public class FloorSubsystem extends ServerPattern implements RequestInjector.Sender {
 	// Important floor indices
 	private int numFloors; // Number of floors that the elevator services
 
@@ -30,6 +21,9 @@ public class FloorSubsystem extends ServerPattern{
 	private final int TEARDOWN_SIZE = 10;
 	
 	private int requestCount;
+	
+	// Whether a trace is still being streamed to the floors
+	private volatile boolean readingTrace;
 
 	private FloorSubsystemGUI gui;
 	
@@ -41,8 +35,13 @@ public class FloorSubsystem extends ServerPattern{
 	
 	private ArrayList<Thread> floorThreads;
 	
-    private ArrayList<ArrayList<Long>> frequencyTimes;
-    private ArrayList<ArrayList<Long>> executionDurationTimes;
+	// Sends the requests of a trace when REQUEST_INJECTOR is set
+	private RequestInjector injector;
+	
+	// Lets one floor at a time send a request. Floors may run on virtual
+	// threads, which a synchronized method would pin while sending
+	private final ReentrantLock sendLock = new ReentrantLock();
+	
 
 	/**
 	 * FloorSubsystem
@@ -63,32 +62,15 @@ public class FloorSubsystem extends ServerPattern{
 	public FloorSubsystem(int numFloors, int numElevators) {
 	    super(UtilityInformation.FLOOR_PORT_NUM, "FloorSubsystem");
 	    
-        frequencyTimes = new ArrayList<ArrayList<Long>>();      
-        for (int i = 0; i < 14; i++) {
-            frequencyTimes.add(new ArrayList<Long>());
-        }
-        
-        executionDurationTimes = new ArrayList<ArrayList<Long>>();
-        for (int i = 0; i < 14; i++) {
-            executionDurationTimes.add(new ArrayList<Long>());
-        }
-
 		floors = new ArrayList<Floor>();
 		floorThreads = new ArrayList<Thread>();
+		injector = new RequestInjector(this, SimulationClock.getClock());
 
 		this.setNumElevators(numElevators);
 		this.setNumFloors(numFloors);
 
 		// Initialize GUI
 		gui = new FloorSubsystemGUI(this);
-		// Initialize the DatagramSocket
-		try {
-			sendSocket = new DatagramSocket();
-		} catch (SocketException se) {
-			se.printStackTrace();
-			this.teardown();
-			System.exit(1);
-		}
 
 		// Set the address to send to
 		try {
@@ -148,7 +130,7 @@ public class FloorSubsystem extends ServerPattern{
 		floorThreads.clear();
 		
 		for (Floor currFloor : floors) {
-		    floorThreads.add(new Thread(currFloor));
+		    floorThreads.add(WorkerThreads.newThread(currFloor, "Floor " + currFloor.getFloorNumber()));
 		}
 	}
 
@@ -199,6 +181,9 @@ public class FloorSubsystem extends ServerPattern{
 	 * 		FloorButton = Direction button the passenger pressed (Up or Down) 
 	 * 		CarButton = Integer representing the desired destination floor
 	 * 
+	 * Every request in the file is read before this returns. Use
+	 * streamInputFile for traces too long to hold in memory.
+	 * 
 	 * @param pathToFile String containing a path to the file to parse
 	 * 
 	 * @return void
@@ -206,26 +191,26 @@ public class FloorSubsystem extends ServerPattern{
 	public void parseInputFile(String pathToFile) {
 		requestCount = 0;
 		
-		// Setup the file for parsing
-		FileReader input = null;
-
-		try {
-			input = new FileReader(pathToFile);
-		} catch (FileNotFoundException e) {
-			System.out.println("Error: File could not be found: " + pathToFile);
-			e.printStackTrace();
-			this.teardown();
-			System.exit(1);
-		}
-
-		BufferedReader bufRead = new BufferedReader(input);
+		TraceReader trace = openInputFile(pathToFile);
 
 		System.out.println("Parsing test file...");
+		
+		openRequests(RequestWindow.UNBOUNDED);
+		
+		int timeOfFirstRequest = -1;
 
-		// Get the first line in the file
-		String currLine = "";
+		// Add each request to the floor it was made on
 		try {
-			currLine = bufRead.readLine();
+			while (trace.next()) {
+				if (timeOfFirstRequest == -1) {
+				    timeOfFirstRequest = trace.getTime();
+				}
+				
+				if (addRequest(trace, trace.getTime() - timeOfFirstRequest)) {
+				    System.out.println(String.format("TIME: %d", trace.getTime() - timeOfFirstRequest));
+				    requestCount += 1;
+				}
+			}
 		} catch (IOException e) {
 			System.out.println("Error while reading file: " + pathToFile);
 			e.printStackTrace();
@@ -233,147 +218,215 @@ public class FloorSubsystem extends ServerPattern{
 			System.exit(1);
 		}
 		
-		int timeOfFirstRequest = -1;
+		closeRequests(false);
 
-		// Parse the current line
-		// Add the request
-		// Go to the next line
-		while (currLine != null) {
-			int[] vals = parseInputFileLine(currLine);
-			
-			if (timeOfFirstRequest == -1) {
-			    timeOfFirstRequest = vals[0];
-			}
-			
-			// Find the floor where the request was made,
-			// and make the request
-			for (Floor floor : floors) {
-				if (floor.getFloorNumber() == vals[1]) {
-				    System.out.println(String.format("TIME: %d", vals[0] - timeOfFirstRequest));
-				    
-				    if (vals[2] == -1) {
-				        floor.createErrorOccuranceRequest(vals[0] - timeOfFirstRequest, 
-				        								  UtilityInformation.ErrorType.values()[vals[1]]);
-				    } else {
-				        floor.createElevatorRequest(vals[0] - timeOfFirstRequest, 
-                                                    UtilityInformation.ElevatorDirection.values()[vals[3]], 
-                                                    vals[2]);
-				    }
-				}
-			}
-			
-			requestCount += 1;
+		closeInputFile(trace);
 
-			// Get the next line in the file
+		System.out.println("Finished parsing test file.");
+	}
+	
+	/**
+	 * streamInputFile
+	 * 
+	 * Reads the requests in the given file, in the format read by
+	 * parseInputFile, while the floors send them, as streamRequests does.
+	 * The requests of each floor must be in the order they are made, as
+	 * they are for a recorded trace.
+	 * 
+	 * @param pathToFile String containing a path to the file to stream
+	 * 
+	 * @return void
+	 */
+	public void streamInputFile(String pathToFile) {
+		System.out.println("Streaming test file...");
+		streamRequests(openInputFile(pathToFile));
+	}
+	
+	/**
+	 * streamRequests
+	 * 
+	 * Takes the requests from the given source on a thread of its own
+	 * while the floors send them. At most UtilityInformation.TRACE_LOOKAHEAD
+	 * requests for each floor are held that have not been sent yet, and
+	 * taking the next request waits while there is no room for it, so a
+	 * source of any length, or one that never ends, is sent in a bounded
+	 * amount of memory.
+	 * 
+	 * @param source   Where the requests come from
+	 * 
+	 * @return void
+	 */
+	public void streamRequests(RequestSource source) {
+		requestCount = 0;
+		readingTrace = true;
+		
+		openRequests(UtilityInformation.TRACE_LOOKAHEAD);
+		
+		Thread reader = new Thread(() -> {
+			int timeOfFirstRequest = -1;
+			
 			try {
-				currLine = bufRead.readLine();
+				while (source.next()) {
+					if (timeOfFirstRequest == -1) {
+					    timeOfFirstRequest = source.getTime();
+					}
+					
+					// The floor may send the request before it is counted,
+					// but the count is only checked once reading is done
+					if (addRequest(source, source.getTime() - timeOfFirstRequest)) {
+						sendLock.lock();
+						try {
+							requestCount += 1;
+						} finally {
+							sendLock.unlock();
+						}
+					}
+				}
 			} catch (IOException e) {
-				System.out.println("Error while reading file: " + pathToFile);
+				System.out.println("Error while reading requests after " + source.describe());
 				e.printStackTrace();
-				this.teardown();
-				System.exit(1);
+			} finally {
+				closeRequests(false);
+				
+				closeInputFile(source);
+				readingTrace = false;
 			}
+		}, "Trace reader");
+		
+		reader.start();
+	}
+	
+	/**
+	 * addRequest
+	 * 
+	 * Adds the request last taken from the given source to the Floor it was
+	 * made on. The floor is found by its number, which is its place in the
+	 * list of floors. An error is added to the floor numbered by its error
+	 * type. Waits while that floor has no room for the request.
+	 * 
+	 * @param trace        The source the request was taken from
+	 * @param timeOfReq    Time of the request relative to the first request in ms
+	 * 
+	 * @return boolean True if the request was added, false if there is no such floor
+	 */
+	private boolean addRequest(RequestSource trace, int timeOfReq) {
+		int floorNum = trace.isError() ? trace.getErrorType().ordinal() : trace.getStartFloor();
+		
+		if (floorNum >= floors.size()) {
+		    System.out.println("Error: Request from " + trace.describe() + " is for floor " + floorNum + ", which does not exist.");
+		    return(false);
 		}
-
-		// Close the file being read
+		
+		Floor floor = floors.get(floorNum);
+		
+		if (UtilityInformation.REQUEST_INJECTOR) {
+		    if (trace.isError()) {
+		        injector.add(timeOfReq, floorNum, trace.getErrorType().ordinal(), -1, -1);
+		    } else {
+		        floor.pressButton(trace.getDirection());
+		        injector.add(timeOfReq, floorNum, -1, trace.getDirection().ordinal(), trace.getFinalFloor());
+		    }
+		} else if (trace.isError()) {
+		    floor.createErrorOccuranceRequest(timeOfReq, trace.getErrorType());
+		} else {
+		    floor.createElevatorRequest(timeOfReq, trace.getDirection(), trace.getFinalFloor());
+		}
+		
+		return(true);
+	}
+	
+	/**
+	 * openRequests
+	 * 
+	 * Empties the requests waiting to be sent, ready for a new trace. With
+	 * the RequestInjector they wait in its timer wheel, and otherwise in the
+	 * window of each Floor.
+	 * 
+	 * @param maxPerFloor  Most requests held for each floor, or RequestWindow.UNBOUNDED
+	 * 
+	 * @return void
+	 */
+	private void openRequests(int maxPerFloor) {
+		if (UtilityInformation.REQUEST_INJECTOR) {
+		    if (maxPerFloor == RequestWindow.UNBOUNDED) {
+		        injector.open(RequestInjector.UNBOUNDED);
+		    } else {
+		        injector.open(maxPerFloor * floors.size());
+		    }
+		} else {
+		    for (Floor floor : floors) {
+		        floor.openRequests(maxPerFloor);
+		    }
+		}
+	}
+	
+	/**
+	 * closeRequests
+	 * 
+	 * Says that every request in the trace has been added. If discard is
+	 * true the requests not yet sent are dropped.
+	 * 
+	 * @param discard  Whether to drop the requests not yet sent
+	 * 
+	 * @return void
+	 */
+	private void closeRequests(boolean discard) {
+		if (injector != null) {
+		    if (discard) {
+		        injector.discard();
+		    } else {
+		        injector.close();
+		    }
+		}
+		
+		for (Floor floor : floors) {
+		    floor.closeRequests(discard);
+		}
+	}
+	
+	/**
+	 * openInputFile
+	 * 
+	 * Opens the given trace file, exiting if it cannot be opened.
+	 * 
+	 * @param pathToFile String containing a path to the file to open
+	 * 
+	 * @return TraceReader Reader of the requests in the file
+	 */
+	private TraceReader openInputFile(String pathToFile) {
+		TraceReader trace = null;
+		
 		try {
-			input.close();
+			trace = new TraceReader(pathToFile);
 		} catch (IOException e) {
-			System.out.println("Error: Unable to close input file.");
+			System.out.println("Error: File could not be found: " + pathToFile);
 			e.printStackTrace();
 			this.teardown();
 			System.exit(1);
 		}
-
-		System.out.println("Finished parsing test file.");
+		
+		return(trace);
 	}
 	
 	/**
-	 * Parse a line in the given input file.
-	 * Returns a list containing the parsed information.
-	 * 
-	 * Expected format for input file line:
-	 *     For Elevator Request:
-	 *         HH:MM:SS.SSS START_FLOOR DIRECTION END_FLOOR
-	 *     For Error Request:
-	 *         HH:MM:SS.SSS ERROR_TYPE
-	 * 
-	 * Format of return:
-	 *     Elevator Request:
-	 *         [Time of request, start floor, final floor, direction]
-	 *     Error Request:
-	 *         [Time of request, error type]
-	 *         
-	 * @param line A line from the input file given as a string
-	 * 
-	 * @return Integer[] containg the information from the line
+	 * closeInputFile
+	 * 
+	 * Closes the given trace file or other source of requests, exiting if
+	 * it cannot be closed.
+	 * 
+	 * @param trace    The source to close
+	 * 
+	 * @return void
 	 */
-	private int[] parseInputFileLine(String line) { 
-        int[] returnVal = new int[4];
-        
-        // Set all values in the return array to -1
-        for (int i = 0; i < returnVal.length; i++) {
-            returnVal[i] = -1;
-        }
-        
-        String[] info = line.split(" ");
-
-        // Get all important parts of data
-        String timeStr = info[0];
-        String startFloorStr = info[1];
-        
-        // Convert the data to the proper format
-        // Time format is hh:mm:ss.mmmm
-        String[] timeParts = timeStr.split(":");
-
-        // Get the hour and minute
-        int hourInt = Integer.parseInt(timeParts[0]);
-        int minInt = Integer.parseInt(timeParts[1]);
-
-        String[] secParts = timeParts[2].split("\\.");
-
-        // Get the second and millisecond
-        int secInt = Integer.parseInt(secParts[0]);
-        int milliSecInt = Integer.parseInt(secParts[1]);
-
-        // Get the time of request in milliseconds
-        milliSecInt += secInt * 1000;
-        milliSecInt += minInt * 60 * 1000;
-        milliSecInt += hourInt * 60 * 60 * 1000;
-        
-        // Check if the current line is an error occurrence or an elevator request
-        try {
-            UtilityInformation.ErrorType errorType = UtilityInformation.ErrorType.valueOf(startFloorStr.toUpperCase());
-            
-            returnVal[0] = milliSecInt;
-            returnVal[1] = errorType.ordinal();
-        } catch (Exception e1) {
-            String directionStr = info[2];
-            String finalFloorStr = info[3];
-            
-            int startFloorInt = 0;
-            try {
-                startFloorInt = Integer.parseInt(startFloorStr);
-            } catch (Exception e2) {
-                System.out.println("Error: Start floor must be an integer.");
-            }
-
-            int finalFloorInt = 0;
-            try {
-                finalFloorInt = Integer.parseInt(finalFloorStr);
-            } catch (Exception e3) {
-                System.out.println("Error: Start floor must be an integer.");
-            }
-
-            UtilityInformation.ElevatorDirection directionEnum = UtilityInformation.ElevatorDirection.valueOf(directionStr.toUpperCase());
-            
-            returnVal[0] = milliSecInt;
-            returnVal[1] = startFloorInt;
-            returnVal[2] = finalFloorInt;
-            returnVal[3] = directionEnum.ordinal();
-        }
-        
-        return(returnVal);
+	private void closeInputFile(RequestSource trace) {
+		try {
+			trace.close();
+		} catch (IOException e) {
+			System.out.println("Error: Unable to close input file.");
+			e.printStackTrace();
+			this.teardown();
+			System.exit(1);
+		}
 	}
 
 	/**
@@ -386,9 +439,10 @@ public class FloorSubsystem extends ServerPattern{
 	 * @return void
 	 */
 	public void teardown() {
+		closeRequests(true);
+		
 		sendTeardownSignal();
 		super.teardown();
-		sendSocket.close();
 		
 		printTimingInformation();
 		printFrequencyInformation();
@@ -406,15 +460,15 @@ public class FloorSubsystem extends ServerPattern{
 	 * @return String  String representing this FloorSubsystem
 	 */
 	public String toString() {
-		String toReturn = "";
+		StringBuilder toReturn = new StringBuilder();
 
 		// Add the information about each Floor object in the FloorSubsystem
 		for (Floor currFloor : floors) {
-			toReturn += currFloor.toString();
-			toReturn += "\n";
+			toReturn.append(currFloor.toString());
+			toReturn.append("\n");
 		}
 
-		return (toReturn);
+		return (toReturn.toString());
 	}
 
 	/**
@@ -500,7 +554,7 @@ public class FloorSubsystem extends ServerPattern{
 
 		// Wait for a confirmation from the Scheduler before commencing the program
 		System.out.println("Waiting for response to configuration signal...");
-		this.getNextRequest();
+		this.releaseRequest(this.getNextRequest());
 		System.out.println("Respone to configuration received.");
 	}
 
@@ -522,30 +576,32 @@ public class FloorSubsystem extends ServerPattern{
 	 * 
 	 * @return None
 	 */
-	public synchronized void sendElevatorRequest(int sourceFloor, int destFloor, UtilityInformation.ElevatorDirection diRequest) {
+	public void sendElevatorRequest(int sourceFloor, int destFloor, UtilityInformation.ElevatorDirection diRequest) {
+		sendLock.lock();
+		try {
+			//Light the gui's elevator request button according to the request
+			if(diRequest == UtilityInformation.ElevatorDirection.DOWN) {
+				gui.setDownButtonLit(numElevators, sourceFloor);
+			}else if (diRequest == UtilityInformation.ElevatorDirection.UP) {
+				gui.setUpButtonLit(numElevators, sourceFloor);
+			}
 		
-		//Light the gui's elevator request button according to the request
-		if(diRequest == UtilityInformation.ElevatorDirection.DOWN) {
-			gui.setDownButtonLit(numElevators, sourceFloor);
-		}else if (diRequest == UtilityInformation.ElevatorDirection.UP) {
-			gui.setUpButtonLit(numElevators, sourceFloor);
-		}
 		
+			// Construct a message to send with data from given parameters
+			byte[] msg = new byte[REQUEST_SIZE];
+			msg[0] = UtilityInformation.FLOOR_REQUEST_MODE;
+			msg[1] = (byte) sourceFloor;
+			msg[2] = (byte) diRequest.ordinal();
+			msg[3] = (byte) destFloor;
+			msg[4] = UtilityInformation.END_OF_MESSAGE;
+
+			// Send the signal
+			sendSignal(msg, UtilityInformation.SCHEDULER_PORT_NUM, schedulerIP);
 		
-		// Construct a message to send with data from given parameters
-		byte[] msg = new byte[REQUEST_SIZE];
-		msg[0] = UtilityInformation.FLOOR_REQUEST_MODE;
-		msg[1] = (byte) sourceFloor;
-		msg[2] = (byte) diRequest.ordinal();
-		msg[3] = (byte) destFloor;
-		msg[4] = UtilityInformation.END_OF_MESSAGE;
-
-		// Send the signal
-		System.out.println("Sending elevator request...");
-		sendSignal(msg, UtilityInformation.SCHEDULER_PORT_NUM, schedulerIP);
-		System.out.println("Elevator request sent...");
-		
-		requestCount -= 1;
+			requestCount -= 1;
+		} finally {
+			sendLock.unlock();
+		}
 	}
 	
 	/**
@@ -561,7 +617,7 @@ public class FloorSubsystem extends ServerPattern{
 	 * 
 	 * @return None
 	 */
-	public synchronized void sendErrorOccursMessage(UtilityInformation.ErrorType type, int elevatorNum) {
+	public void sendErrorOccursMessage(UtilityInformation.ErrorType type, int elevatorNum) {
 	    // Construct a message to send with data from given parameters
 	    byte[] msg = new byte[REQUEST_SIZE];
 	    msg[0] = UtilityInformation.ERROR_MESSAGE_MODE;
@@ -569,12 +625,17 @@ public class FloorSubsystem extends ServerPattern{
 	    msg[2] = (byte) elevatorNum;
 	    msg[3] = UtilityInformation.END_OF_MESSAGE;
 	    
-        // Send the signal
-        System.out.println("Sending error occurs message...");
-        sendSignal(msg, UtilityInformation.SCHEDULER_PORT_NUM, schedulerIP);
-        System.out.println("Error occurs message sent...");
-        
-        requestCount -= 1;
+	    sendLock.lock();
+	    try {
+	        // Send the signal
+	        System.out.println("Sending error occurs message...");
+	        sendSignal(msg, UtilityInformation.SCHEDULER_PORT_NUM, schedulerIP);
+	        System.out.println("Error occurs message sent...");
+	        
+	        requestCount -= 1;
+	    } finally {
+	        sendLock.unlock();
+	    }
 	}
 
 	/**
@@ -597,19 +658,20 @@ public class FloorSubsystem extends ServerPattern{
 	public void runSubsystem() {
 		boolean run = true;
 	    while (run) {
-	        byte data[] = this.getNextRequest().getData();
+	        DatagramPacket nextReq = this.getNextRequest();
+	        byte data[] = nextReq.getData();
 	        
 	        long startTime = System.nanoTime();
 	        
 	        byte mode = data[0];
 	        
 	        if (mode == UtilityInformation.ALL_REQUESTS_FINISHED_MODE) {
-	        	if (requestCount <= 0) {
+	        	if (!readingTrace && (requestCount <= 0)) {
 	        		run = false;
 	        	}
 	        } else if (mode == UtilityInformation.ELEVATOR_DIRECTION_MODE) {
 	        	// Get the floor number and elevator number
-		        byte floorNum = data[1];
+		        int floorNum = Byte.toUnsignedInt(data[1]);
 		        
 		        // Request currently does not contain the elevator number,
 		        // so hardcode the value to 1 for now.
@@ -630,7 +692,9 @@ public class FloorSubsystem extends ServerPattern{
 		            currFloor.updateElevatorLocation(elevatorNum, floorNum, dir, gui);
 		        }
 		        
-		        System.out.println(this.toString());
+		        if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+		        	AsyncLog.debug("FloorSubsystem", this.toString());
+		        }
 	        } else {
 	        	System.out.println("Error: Unexpected message type.");
 	        	teardown();
@@ -639,6 +703,9 @@ public class FloorSubsystem extends ServerPattern{
 	        
 	        long finishTime = System.nanoTime();
             saveTimes(startTime, finishTime, mode);
+            
+            // Finished with the packet, so let it be reused
+            this.releaseRequest(nextReq);
 	    }
 	}
 	
@@ -654,16 +721,15 @@ public class FloorSubsystem extends ServerPattern{
      * @return void
      */
     public void saveTimes(long startTime, long finishTime, byte mode) {
-        frequencyTimes.get(mode).add(startTime);
-        executionDurationTimes.get(mode).add(finishTime - startTime);
+        getMessageTimings().record(mode, startTime, finishTime);
     }
 
 	/**
 	 * sendSignal
 	 * 
 	 * Sends the given message to the port number through
-	 * the given address. Information about the created
-	 * packet is printed before sending.
+	 * the given address. Information about the message
+	 * is logged before sending.
 	 * 
 	 * @param msg          byte[] consisting of the message to send
 	 * @param portNumber   The port to send the created packet to
@@ -672,28 +738,17 @@ public class FloorSubsystem extends ServerPattern{
 	 * @return None
 	 */
 	public void sendSignal(byte[] msg, int portNumber, InetAddress address) {
-	    // Create the DatagramPacket
-		sendPacket = new DatagramPacket(msg, msg.length, address, portNumber);
-
-		// Print out info about the message being sent
-		System.out.println("FloorSubsystem: Sending packet:");
-		System.out.println("To host: " + sendPacket.getAddress());
-		System.out.println("Destination host port: " + sendPacket.getPort());
-		int len = sendPacket.getLength();
-		System.out.println("Length: " + len);
-		System.out.print("Containing (as bytes): ");
-		System.out.println(Arrays.toString(sendPacket.getData()));
+		// Log info about the message being sent
+		AsyncLog.packet("FloorSubsystem", "send", msg, msg.length, address, portNumber);
 
 		// Send the packet
 		try {
-			sendSocket.send(sendPacket);
+			this.transmit(msg, msg.length, address, portNumber);
 		} catch (IOException e) {
 			e.printStackTrace();
 			this.teardown();
 			System.exit(1);
 		}
-
-		System.out.println("FloorSubsystem: Packet sent.\n");
 	}
 	
 	/**
@@ -713,17 +768,60 @@ public class FloorSubsystem extends ServerPattern{
 	/**
 	 * startFloorThread
 	 * 
-	 * Starts all floor threads in that the controller owns
+	 * Starts sending the requests of the trace. With the RequestInjector
+	 * its thread sends them all, and otherwise starts all floor threads
+	 * in that the controller owns.
 	 * 
 	 * @param  None
 	 * 
 	 * @return None
 	 */
 	public void startFloorThreads() {
+	    if (UtilityInformation.REQUEST_INJECTOR) {
+	        injector.start();
+	        return;
+	    }
+	    
 	    for (Thread thread : floorThreads) {
 	        thread.start();
 	    }
 	}
+	
+	/**
+	 * writeMetrics
+	 * 
+	 * Overridden
+	 * 
+	 * Writes the ServerPattern metrics, the number of requests the
+	 * RequestInjector has sent and how late it sent them.
+	 * 
+	 * @param writer   Where to write the metrics
+	 * 
+	 * @return None
+	 */
+	@Override
+	public void writeMetrics(PrintWriter writer) {
+		super.writeMetrics(writer);
+		
+		String labels = MetricsServer.labels("subsystem", "FloorSubsystem");
+		
+		MetricsServer.writeType(writer, "ecs_requests_released_total", "counter", "Trace requests sent by the request injector");
+		writer.println("ecs_requests_released_total" + labels + " " + injector.getNumReleased());
+		
+		MetricsServer.writeType(writer, "ecs_request_release_jitter_nanos", "summary", "Time each trace request was sent after it was due");
+		MetricsServer.writeSummary(writer, "ecs_request_release_jitter_nanos", labels, injector.getJitter());
+	}
+	
+	/**
+	 * getRequestInjector
+	 * 
+	 * @param  None
+	 * 
+	 * @return RequestInjector The injector that sends the requests of a trace
+	 */
+	public RequestInjector getRequestInjector() {
+	    return(injector);
+	}
 
 	/**
 	 * main
@@ -750,6 +848,9 @@ public class FloorSubsystem extends ServerPattern{
 
 		// Create a FloorSubsystem with the given information
 		FloorSubsystem floorController = new FloorSubsystem(ui.getNumFloors(), ui.getNumElevators());
+		if (UtilityInformation.METRICS_ENABLED) {
+			floorController.startMetricsServer(UtilityInformation.FLOOR_METRICS_PORT_NUM);
+		}
 
 		floorController.sendConfigurationSignal(floorController.getNumElevators(), floorController.getNumFloors());
 
@@ -773,7 +874,16 @@ public class FloorSubsystem extends ServerPattern{
 						floorController.getNumFloors());
 			} else if (val == UserInterface.ReturnVals.NEW_TEST_FILE) {
 				// If a new test file was entered, parse the file
-				floorController.parseInputFile(ui.getTestFile());
+				if (UtilityInformation.STREAM_TRACES) {
+					floorController.streamInputFile(ui.getTestFile());
+				} else {
+					floorController.parseInputFile(ui.getTestFile());
+				}
+				floorController.startFloorThreads();
+				floorController.runSubsystem();
+			} else if (val == UserInterface.ReturnVals.GENERATE_TRAFFIC) {
+				// If traffic was chosen, send it until the program is torn down
+				floorController.streamRequests(ui.getTraffic(floorController.getNumFloors()));
 				floorController.startFloorThreads();
 				floorController.runSubsystem();
 			} else if (val == UserInterface.ReturnVals.TEARDOWN) {
@@ -802,6 +912,10 @@ public class FloorSubsystem extends ServerPattern{
         ArrayList<Integer[]> allRequests = new ArrayList<Integer[]>();
         ArrayList<Integer[]> tempRequests;
         
+        if (UtilityInformation.REQUEST_INJECTOR) {
+            return(injector.getPendingRequests());
+        }
+        
         for (Floor floor : floors) {
             tempRequests = floor.getServiceRequests();
             for (Integer[] req : tempRequests) {
@@ -835,41 +949,7 @@ public class FloorSubsystem extends ServerPattern{
             e.printStackTrace();
         }
         
-        for (int i = 0; i < executionDurationTimes.size(); i++) {
-            if (i == 0) {
-                writer.println("CONFIG_MODE");
-            } else if (i == 1) {
-                writer.println("FLOOR_SENSOR_MODE");
-            } else if (i == 2) {
-                writer.println("FLOOR_REQUEST_MODE");
-            } else if (i == 3) {
-                writer.println("ELEVATOR_BUTTON_HIT_MODE");
-            } else if (i == 4) {
-                writer.println("ELEVATOR_DIRECTION_MODE");
-            } else if (i == 5) {
-                writer.println("ELEVATOR_DOOR_MODE");
-            } else if (i == 6) {
-                writer.println("SEND_DESTINATION_TO_ELEVATOR_MODE");
-            } else if (i == 7) {
-                writer.println("TEARDOWN_MODE");
-            } else if (i == 8) {
-                writer.println("CONFIG_CONFIRM_MODE");
-            } else if (i == 9) {
-                writer.println("ERROR_MESSAGE_MODE");
-            } else if (i == 10) {
-                writer.println("FIX_ERROR_MODE");
-            } else if (i == 11) {
-                writer.println("FIX_DOOR_MODE");
-            } else if (i == 12) {
-                writer.println("ALL_REQUESTS_FINISHED_MODE");
-            }
-            
-            for (Long time : executionDurationTimes.get(i)) {
-                writer.println(time);
-            }
-            
-            writer.println("");
-        }
+        getMessageTimings().printDurations(writer);
         
         writer.close();     
     }
@@ -897,41 +977,7 @@ public class FloorSubsystem extends ServerPattern{
             e.printStackTrace();
         }
         
-        for (int i = 0; i < frequencyTimes.size(); i++) {
-            if (i == 0) {
-                writer.println("CONFIG_MODE");
-            } else if (i == 1) {
-                writer.println("FLOOR_SENSOR_MODE");
-            } else if (i == 2) {
-                writer.println("FLOOR_REQUEST_MODE");
-            } else if (i == 3) {
-                writer.println("ELEVATOR_BUTTON_HIT_MODE");
-            } else if (i == 4) {
-                writer.println("ELEVATOR_DIRECTION_MODE");
-            } else if (i == 5) {
-                writer.println("ELEVATOR_DOOR_MODE");
-            } else if (i == 6) {
-                writer.println("SEND_DESTINATION_TO_ELEVATOR_MODE");
-            } else if (i == 7) {
-                writer.println("TEARDOWN_MODE");
-            } else if (i == 8) {
-                writer.println("CONFIG_CONFIRM_MODE");
-            } else if (i == 9) {
-                writer.println("ERROR_MESSAGE_MODE");
-            } else if (i == 10) {
-                writer.println("FIX_ERROR_MODE");
-            } else if (i == 11) {
-                writer.println("FIX_DOOR_MODE");
-            } else if (i == 12) {
-                writer.println("ALL_REQUESTS_FINISHED_MODE");
-            }
-            
-            for (Long time : frequencyTimes.get(i)) {
-                writer.println(time);
-            }
-            
-            writer.println("");
-        }
+        getMessageTimings().printInterArrivals(writer);
         
         writer.close();     
     }
@@ -2,7 +2,6 @@ import java.awt.Container;
 import java.awt.GridLayout;
 import java.awt.Image;
 import java.io.File;
-import java.util.ArrayList;
 
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -15,11 +14,11 @@ import javax.swing.JPanel;
 import javax.swing.SwingConstants;
 
 public class FloorSubsystemGUI implements Runnable {
-    // Array lists to hold JLables for all icon types
-    private ArrayList<JLabel> upButtonArray;
-    private ArrayList<JLabel> downButtonArray;
-    private ArrayList<JLabel> floorNumArray;
-    private ArrayList<JLabel> directionArray;
+    // Arrays to hold JLables for all icon types, one per elevator on each floor
+    private JLabel[] upButtonArray;
+    private JLabel[] downButtonArray;
+    private JLabel[] floorNumArray;
+    private JLabel[] directionArray;
     
     // Icons
     // Icons used for floor request buttons
@@ -139,34 +138,34 @@ public class FloorSubsystemGUI implements Runnable {
         downDirIcon = new ImageIcon(downDir);
         
         
-        // Initialize arraylists of GUI items
-        ArrayList<JPanel> buttonPArray = new ArrayList<JPanel>();
-        upButtonArray = new ArrayList<JLabel>();
-        downButtonArray = new ArrayList<JLabel>();
+        // Initialize arrays of GUI items
+        int numLabels = sub.getNumFloors() * sub.getNumElevators();
+        upButtonArray = new JLabel[numLabels];
+        downButtonArray = new JLabel[numLabels];
         
-        directionArray = new ArrayList<JLabel>();
-        floorNumArray = new ArrayList<JLabel>();
+        directionArray = new JLabel[numLabels];
+        floorNumArray = new JLabel[numLabels];
         
         //Loop for the amount of elevators on all floors to populate them
-        for (int i = 0; i < sub.getNumFloors() * sub.getNumElevators(); i++) {
+        for (int i = 0; i < numLabels; i++) {
 
             
-            buttonPArray.add(new JPanel(new GridLayout(2, 1))); //Create a panel to position a up button and down button
+            JPanel buttonPanel = new JPanel(new GridLayout(2, 1)); //Create a panel to position a up button and down button
             // Set default button states, positions, and directions off elevators
-            directionArray.add(new JLabel(stationaryIcon));
-            floorNumArray.add(new JLabel("0", SwingConstants.CENTER));
+            directionArray[i] = new JLabel(stationaryIcon);
+            floorNumArray[i] = new JLabel("0", SwingConstants.CENTER);
 
-            upButtonArray.add(new JLabel(upUnlitIcon));
-            downButtonArray.add(new JLabel(downUnlitIcon));
+            upButtonArray[i] = new JLabel(upUnlitIcon);
+            downButtonArray[i] = new JLabel(downUnlitIcon);
             
             //Populate the button panel
-            buttonPArray.get(i).add(upButtonArray.get(i));
-            buttonPArray.get(i).add(downButtonArray.get(i));
+            buttonPanel.add(upButtonArray[i]);
+            buttonPanel.add(downButtonArray[i]);
             
             //Populate the dedicated area for each elevator on each floor
-            floorPanel.add(buttonPArray.get(i));
-            floorPanel.add(directionArray.get(i));
-            floorPanel.add(floorNumArray.get(i));
+            floorPanel.add(buttonPanel);
+            floorPanel.add(directionArray[i]);
+            floorPanel.add(floorNumArray[i]);
         }
         
         
@@ -206,7 +205,7 @@ public class FloorSubsystemGUI implements Runnable {
      */
     public void setUpButtonLit(int totalElevators, int sourceFloor) {
         for (int i = 0; i < totalElevators; i++) {
-            upButtonArray.get((sourceFloor * totalElevators)  + i).setIcon(upLitIcon);
+            upButtonArray[(sourceFloor * totalElevators)  + i].setIcon(upLitIcon);
         }
     }
     
@@ -222,7 +221,7 @@ public class FloorSubsystemGUI implements Runnable {
      */
     public void setDownButtonLit(int totalElevators, int sourceFloor) {
         for (int i = 0; i < totalElevators; i++) {
-            downButtonArray.get((sourceFloor * totalElevators)  + i).setIcon(downLitIcon);
+            downButtonArray[(sourceFloor * totalElevators)  + i].setIcon(downLitIcon);
         }
     }
     
@@ -238,7 +237,7 @@ public class FloorSubsystemGUI implements Runnable {
      */ 
     public void setUpButtonUnlit(int totalElevators, int floor) {
         for (int i = 0; i < totalElevators; i++) {
-            upButtonArray.get((floor * totalElevators)  + i).setIcon(upUnlitIcon);
+            upButtonArray[(floor * totalElevators)  + i].setIcon(upUnlitIcon);
         }
     }
 
@@ -254,7 +253,7 @@ public class FloorSubsystemGUI implements Runnable {
      */ 
     public void setDownButtonUnlit(int totalElevators, int floor) {
         for (int i = 0; i < totalElevators; i++) {
-            downButtonArray.get((floor * totalElevators)  + i).setIcon(downUnlitIcon);
+            downButtonArray[(floor * totalElevators)  + i].setIcon(downUnlitIcon);
         }
     }
     
@@ -274,15 +273,15 @@ public class FloorSubsystemGUI implements Runnable {
     public void updateFloorNum(int totalFloors, int totalElevators, int floor, int elevator, UtilityInformation.ElevatorDirection dir) {
         for (int i = 0; i < totalFloors; i++ ) {
         	//Set the text to the new floor number for that elevator shaft across all floors
-        	floorNumArray.get((i * totalElevators) + elevator).setText(Integer.toString(floor));
+        	floorNumArray[(i * totalElevators) + elevator].setText(Integer.toString(floor));
             
         	//Set the directional display direction for that elevator shaft across all floors
             if (dir == UtilityInformation.ElevatorDirection.UP) {
-                directionArray.get((i * totalElevators) + elevator).setIcon(upDirIcon);
+                directionArray[(i * totalElevators) + elevator].setIcon(upDirIcon);
             }else if (dir == UtilityInformation.ElevatorDirection.DOWN) {
-                directionArray.get((i * totalElevators) + elevator).setIcon(downDirIcon);
+                directionArray[(i * totalElevators) + elevator].setIcon(downDirIcon);
             }else {
-                directionArray.get((i * totalElevators) + elevator).setIcon(stationaryIcon);
+                directionArray[(i * totalElevators) + elevator].setIcon(stationaryIcon);
             }
         }
     }
@@ -0,0 +1,567 @@
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ *
+ * Versioned binary wire format for the messages sent between subsystems.
+ *
+ * Every frame starts with a fixed header, followed by the fields of the
+ * message without its mode byte or END_OF_MESSAGE:
+ *
+ *     Byte 0:      FRAME_MAGIC, which is never a mode, so unframed messages
+ *                  can still be told apart
+ *     Byte 1:      VERSION
+ *     Byte 2:      Mode
+ *     Byte 3:      Flags, FLAG_RELIABLE or FLAG_ACK
+ *     Bytes 4-5:   Number of payload bytes
+ *     Bytes 6-9:   Sequence number, counted separately for each destination
+ *     Bytes 10-17: Time the frame was sent, in the sender's nanoseconds
+ *     Bytes 18-:   Payload
+ *
+ * Each mode has a fixed payload layout, given in PAYLOAD_SIZES, so a field
+ * never has to be told apart from END_OF_MESSAGE. Only MULTI_MESSAGE_MODE
+ * frames are variable length.
+ *
+ * A frame sent with FLAG_RELIABLE is answered with an acknowledgement frame
+ * (see ReliableDelivery). An acknowledgement has FLAG_ACK set, the sequence
+ * number and timestamp of the frame it answers in its header, and a payload
+ * of the cumulative acknowledgement (every sequence number below it was
+ * received) followed by a bitmap of the sequence numbers received from the
+ * cumulative acknowledgement on.
+ *
+ * Received frames are turned back into the usual message layout in the
+ * packet they were received in, so the subsystems handle them exactly as
+ * before. The sequence numbers from each sender are checked to count lost,
+ * late and rejected frames.
+ *
+ * Encoding and decoding work on ByteBuffers and do not allocate. A codec
+ * belongs to one ServerPattern. Only one thread may call frame at a time,
+ * but unframe may be called from another thread.
+ *
+ */
+public class FrameCodec {
+	public static final byte FRAME_MAGIC = (byte) 0xEC;
+	public static final byte VERSION = 1;
+
+	// Indexes of the header fields
+	public static final int MAGIC_IND = 0;
+	public static final int VERSION_IND = 1;
+	public static final int MODE_IND = 2;
+	public static final int FLAGS_IND = 3;
+	public static final int LENGTH_IND = 4;
+	public static final int SEQUENCE_IND = 6;
+	public static final int TIMESTAMP_IND = 10;
+	public static final int HEADER_SIZE = 18;
+
+	// Flags
+	public static final byte FLAG_RELIABLE = 1;
+	public static final byte FLAG_ACK = 2;
+
+	// Indexes and size of the payload of an acknowledgement
+	public static final int ACK_CUMULATIVE_IND = HEADER_SIZE;
+	public static final int ACK_BITMAP_IND = HEADER_SIZE + 4;
+	public static final int ACK_SIZE = HEADER_SIZE + 12;
+
+	// Payload size of a variable length frame
+	public static final int VARIABLE_SIZE = -1;
+
+	// Payload bytes of each mode:
+	//     CONFIG_MODE:                       number of elevators, number of floors
+	//     FLOOR_SENSOR_MODE:                 floor, elevator
+	//     FLOOR_REQUEST_MODE:                source floor, direction, destination floor
+	//     ELEVATOR_BUTTON_HIT_MODE:          floor, elevator
+	//     ELEVATOR_DIRECTION_MODE:           floor, elevator, direction
+	//     ELEVATOR_DOOR_MODE:                door state, elevator
+	//     SEND_DESTINATION_TO_ELEVATOR_MODE: floor, elevator
+	//     TEARDOWN_MODE:                     none
+	//     CONFIG_CONFIRM_MODE:               status
+	//     ERROR_MESSAGE_MODE:                error type, elevator
+	//     FIX_ERROR_MODE:                    error type, elevator
+	//     FIX_DOOR_MODE:                     elevator
+	//     ALL_REQUESTS_FINISHED_MODE:        none
+	//     MULTI_MESSAGE_MODE:                variable
+	private static final int[] PAYLOAD_SIZES = {2, 2, 3, 2, 3, 2, 2, 0, 1, 2, 2, 1, 0, VARIABLE_SIZE};
+
+	// Most senders and destinations whose sequence numbers are kept
+	private static final int MAX_NUM_PEERS = 16;
+
+	// Sequence numbers sent to each destination and received from each sender
+	private Peer destinations[];
+	private Peer sources[];
+	private int numDestinations;
+	private int numSources;
+
+	// Buffer frames are encoded into before being sent, and the sequence
+	// number of the last frame encoded
+	private ByteBuffer sendBuffer;
+	private int sendSequence;
+
+	private long numFramesReceived;
+	private long numFramesLost;
+	private long numFramesLate;
+	private long numFramesRejected;
+
+	/**
+	 * FrameCodec
+	 *
+	 * Constructor
+	 *
+	 * Create a new FrameCodec for messages up to the given size.
+	 *
+	 * @param maxMessageSize   Size of the largest unframed message that is sent
+	 *
+	 * @return None
+	 */
+	public FrameCodec(int maxMessageSize) {
+		destinations = new Peer[MAX_NUM_PEERS];
+		sources = new Peer[MAX_NUM_PEERS];
+		for (int i = 0; i < MAX_NUM_PEERS; i++) {
+			destinations[i] = new Peer();
+			sources[i] = new Peer();
+		}
+
+		numDestinations = 0;
+		numSources = 0;
+
+		sendBuffer = ByteBuffer.allocate(HEADER_SIZE + maxMessageSize);
+	}
+
+	/**
+	 * getPayloadSize
+	 *
+	 * Static
+	 *
+	 * Returns the number of payload bytes in a frame of the given mode
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return int Number of bytes, VARIABLE_SIZE, or -2 for an unknown mode
+	 */
+	public static int getPayloadSize(byte mode) {
+		if ((mode < 0) || (mode >= PAYLOAD_SIZES.length)) {
+			return(-2);
+		}
+
+		return(PAYLOAD_SIZES[mode]);
+	}
+
+	/**
+	 * isFrame
+	 *
+	 * Static
+	 *
+	 * Returns whether the given bytes start with a frame header
+	 *
+	 * @param data The received bytes
+	 * @param length   Number of bytes received
+	 *
+	 * @return boolean True if the bytes are a frame, false if they are an unframed message
+	 */
+	public static boolean isFrame(byte[] data, int length) {
+		return((length > 0) && (data[MAGIC_IND] == FRAME_MAGIC));
+	}
+
+	/**
+	 * encode
+	 *
+	 * Static
+	 *
+	 * Writes the given unframed message as a frame at the position of the
+	 * given buffer, and moves the position past it.
+	 *
+	 * @param out  Buffer to write the frame to
+	 * @param message  The unframed message, starting with its mode
+	 * @param length   Number of bytes of the message
+	 * @param sequence Sequence number of the frame
+	 * @param timestamp    Time the frame is sent, in nanoseconds
+	 *
+	 * @return int Number of bytes written, or -1 if the message is not valid
+	 */
+	public static int encode(ByteBuffer out, byte[] message, int length, int sequence, long timestamp) {
+		return(encode(out, message, length, sequence, timestamp, (byte) 0));
+	}
+
+	/**
+	 * encode
+	 *
+	 * Static
+	 *
+	 * Writes the given unframed message as a frame with the given flags at the
+	 * position of the given buffer, and moves the position past it.
+	 *
+	 * @param out  Buffer to write the frame to
+	 * @param message  The unframed message, starting with its mode
+	 * @param length   Number of bytes of the message
+	 * @param sequence Sequence number of the frame
+	 * @param timestamp    Time the frame is sent, in nanoseconds
+	 * @param flags    Flags of the frame
+	 *
+	 * @return int Number of bytes written, or -1 if the message is not valid
+	 */
+	public static int encode(ByteBuffer out, byte[] message, int length, int sequence, long timestamp, byte flags) {
+		if (length < 1) {
+			return(-1);
+		}
+
+		byte mode = message[UtilityInformation.MODE_BYTE_IND];
+		int payloadSize = getPayloadSize(mode);
+
+		if (payloadSize == VARIABLE_SIZE) {
+			// Everything after the mode, without END_OF_MESSAGE
+			payloadSize = length - 1;
+			if ((payloadSize > 0) && (message[length - 1] == UtilityInformation.END_OF_MESSAGE)) {
+				payloadSize--;
+			}
+		}
+
+		if ((payloadSize < 0) || ((payloadSize + 1) > length) || ((HEADER_SIZE + payloadSize) > out.remaining())) {
+			return(-1);
+		}
+
+		out.put(FRAME_MAGIC);
+		out.put(VERSION);
+		out.put(mode);
+		out.put(flags);
+		out.putShort((short) payloadSize);
+		out.putInt(sequence);
+		out.putLong(timestamp);
+		out.put(message, 1, payloadSize);
+
+		return(HEADER_SIZE + payloadSize);
+	}
+
+	/**
+	 * encodeAck
+	 *
+	 * Static
+	 *
+	 * Writes an acknowledgement of a frame at the position of the given
+	 * buffer, and moves the position past it.
+	 *
+	 * @param out  Buffer to write the acknowledgement to
+	 * @param sequence Sequence number of the frame being acknowledged
+	 * @param timestamp    Timestamp of the frame being acknowledged
+	 * @param cumulative   Lowest sequence number not received yet
+	 * @param bitmap   Bit i is set if cumulative + i was received
+	 *
+	 * @return int Number of bytes written
+	 */
+	public static int encodeAck(ByteBuffer out, int sequence, long timestamp, int cumulative, long bitmap) {
+		out.put(FRAME_MAGIC);
+		out.put(VERSION);
+		out.put((byte) 0);
+		out.put(FLAG_ACK);
+		out.putShort((short) (ACK_SIZE - HEADER_SIZE));
+		out.putInt(sequence);
+		out.putLong(timestamp);
+		out.putInt(cumulative);
+		out.putLong(bitmap);
+
+		return(ACK_SIZE);
+	}
+
+	/**
+	 * decode
+	 *
+	 * Static
+	 *
+	 * Checks the frame at the start of the given buffer and writes the message
+	 * it holds, in the unframed layout ending with END_OF_MESSAGE, to the
+	 * start of the given array. The array may be the one behind the buffer.
+	 *
+	 * @param in   Buffer holding the frame, from 0 to its limit
+	 * @param message  Array to write the unframed message to
+	 *
+	 * @return int Length of the unframed message, or -1 if the frame is not valid
+	 */
+	public static int decode(ByteBuffer in, byte[] message) {
+		if ((in.limit() < HEADER_SIZE) || (in.get(MAGIC_IND) != FRAME_MAGIC) || (in.get(VERSION_IND) != VERSION) ||
+		    ((in.get(FLAGS_IND) & FLAG_ACK) != 0)) {
+			return(-1);
+		}
+
+		byte mode = in.get(MODE_IND);
+		int payloadSize = in.getShort(LENGTH_IND) & 0xFFFF;
+		int expectedSize = getPayloadSize(mode);
+
+		if ((expectedSize == -2) ||
+		    ((expectedSize != VARIABLE_SIZE) && (payloadSize != expectedSize)) ||
+		    ((HEADER_SIZE + payloadSize) > in.limit()) ||
+		    ((payloadSize + 2) > message.length)) {
+			return(-1);
+		}
+
+		if (in.hasArray() && (in.array() == message)) {
+			System.arraycopy(message, in.arrayOffset() + HEADER_SIZE, message, 1, payloadSize);
+		} else {
+			for (int i = 0; i < payloadSize; i++) {
+				message[1 + i] = in.get(HEADER_SIZE + i);
+			}
+		}
+
+		message[UtilityInformation.MODE_BYTE_IND] = mode;
+		message[1 + payloadSize] = UtilityInformation.END_OF_MESSAGE;
+
+		return(payloadSize + 2);
+	}
+
+	/**
+	 * getFlags
+	 *
+	 * Static
+	 *
+	 * Returns the flags of the frame in the given buffer
+	 *
+	 * @param in   Buffer holding the frame
+	 *
+	 * @return byte    The flags
+	 */
+	public static byte getFlags(ByteBuffer in) {
+		return(in.get(FLAGS_IND));
+	}
+
+	/**
+	 * getSequence
+	 *
+	 * Static
+	 *
+	 * Returns the sequence number of the frame in the given buffer
+	 *
+	 * @param in   Buffer holding the frame
+	 *
+	 * @return int The sequence number
+	 */
+	public static int getSequence(ByteBuffer in) {
+		return(in.getInt(SEQUENCE_IND));
+	}
+
+	/**
+	 * getTimestamp
+	 *
+	 * Static
+	 *
+	 * Returns the time the frame in the given buffer was sent
+	 *
+	 * @param in   Buffer holding the frame
+	 *
+	 * @return long    Time in the sender's nanoseconds
+	 */
+	public static long getTimestamp(ByteBuffer in) {
+		return(in.getLong(TIMESTAMP_IND));
+	}
+
+	/**
+	 * frame
+	 *
+	 * Encodes the given message as the next frame for the given destination.
+	 * The frame is only valid until frame is called again, so callers must
+	 * make sure only one of them frames and sends at a time.
+	 *
+	 * @param message  The unframed message
+	 * @param length   Number of bytes of the message
+	 * @param address  Address the frame is sent to
+	 * @param portNum  Port the frame is sent to
+	 * @param flags    Flags of the frame
+	 *
+	 * @return int Number of bytes of the frame in getSendBuffer, or -1 if the message is not valid
+	 */
+	public int frame(byte[] message, int length, InetAddress address, int portNum, byte flags) {
+		Peer destination = findPeer(destinations, numDestinations, address, portNum);
+		if (destination == null) {
+			destination = destinations[numDestinations % MAX_NUM_PEERS];
+			destination.reset(address, portNum);
+			numDestinations++;
+		}
+
+		sendBuffer.clear();
+		int frameLength = encode(sendBuffer, message, length, destination.sequence, System.nanoTime(), flags);
+		if (frameLength > 0) {
+			sendSequence = destination.sequence;
+			destination.sequence++;
+		}
+
+		return(frameLength);
+	}
+
+	/**
+	 * getSendBuffer
+	 *
+	 * Returns the array the last frame was encoded into
+	 *
+	 * @param  None
+	 *
+	 * @return byte[]  The encoded frame, starting at index 0
+	 */
+	public byte[] getSendBuffer() {
+		return(sendBuffer.array());
+	}
+
+	/**
+	 * getSendSequence
+	 *
+	 * Returns the sequence number of the last frame encoded by frame
+	 *
+	 * @param  None
+	 *
+	 * @return int The sequence number
+	 */
+	public int getSendSequence() {
+		return(sendSequence);
+	}
+
+	/**
+	 * unframe
+	 *
+	 * Checks the frame in the given packet and replaces it with the message it
+	 * holds. The sequence number is compared with the last one from the same
+	 * sender to count lost and late frames.
+	 *
+	 * @param packet   The received packet holding a frame
+	 *
+	 * @return boolean True if the packet now holds the message, false if the frame was rejected
+	 */
+	public synchronized boolean unframe(DatagramPacket packet) {
+		ByteBuffer in = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+
+		// Read before decoding overwrites the header
+		int sequence = (in.limit() < HEADER_SIZE) ? 0 : getSequence(in);
+		int length = decode(in, packet.getData());
+		if (length < 0) {
+			numFramesRejected++;
+			return(false);
+		}
+
+		packet.setLength(length);
+		numFramesReceived++;
+
+		Peer source = findPeer(sources, numSources, packet.getAddress(), packet.getPort());
+		if (source == null) {
+			source = sources[numSources % MAX_NUM_PEERS];
+			source.reset(packet.getAddress(), packet.getPort());
+			source.sequence = sequence + 1;
+			numSources++;
+			return(true);
+		}
+
+		int gap = sequence - source.sequence;
+		if (gap >= 0) {
+			// Frames between the expected one and this one are missing
+			numFramesLost += gap;
+			source.sequence = sequence + 1;
+		} else {
+			// A frame that was counted as lost has turned up late
+			numFramesLate++;
+			numFramesLost = Math.max(numFramesLost - 1, 0);
+		}
+
+		return(true);
+	}
+
+	/**
+	 * findPeer
+	 *
+	 * Static
+	 *
+	 * Returns the peer with the given address and port
+	 *
+	 * @param peers    Peers to look through
+	 * @param numPeers Number of peers that have been used
+	 * @param address  Address of the peer
+	 * @param portNum  Port of the peer
+	 *
+	 * @return Peer    The peer, or null if there is none
+	 */
+	private static Peer findPeer(Peer[] peers, int numPeers, InetAddress address, int portNum) {
+		for (int i = 0; i < Math.min(numPeers, MAX_NUM_PEERS); i++) {
+			if ((peers[i].portNum == portNum) && Objects.equals(peers[i].address, address)) {
+				return(peers[i]);
+			}
+		}
+
+		return(null);
+	}
+
+	/**
+	 * getNumFramesReceived
+	 *
+	 * Returns the number of valid frames received
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of frames
+	 */
+	public synchronized long getNumFramesReceived() {
+		return(numFramesReceived);
+	}
+
+	/**
+	 * getNumFramesLost
+	 *
+	 * Returns the number of frames that were skipped in the sequence numbers
+	 * from a sender and have not turned up since
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of frames
+	 */
+	public synchronized long getNumFramesLost() {
+		return(numFramesLost);
+	}
+
+	/**
+	 * getNumFramesLate
+	 *
+	 * Returns the number of frames that arrived after a frame sent later
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of frames
+	 */
+	public synchronized long getNumFramesLate() {
+		return(numFramesLate);
+	}
+
+	/**
+	 * getNumFramesRejected
+	 *
+	 * Returns the number of frames with an unknown version or mode, or the
+	 * wrong length
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of frames
+	 */
+	public synchronized long getNumFramesRejected() {
+		return(numFramesRejected);
+	}
+
+	/**
+	 *
+	 * A sender or destination and the next sequence number expected from or
+	 * sent to it
+	 *
+	 */
+	private static class Peer {
+		InetAddress address;
+		int portNum;
+		int sequence;
+
+		/**
+		 * reset
+		 *
+		 * Starts using this peer for the given address and port
+		 *
+		 * @param address  Address of the peer
+		 * @param portNum  Port of the peer
+		 *
+		 * @return None
+		 */
+		void reset(InetAddress address, int portNum) {
+			this.address = address;
+			this.portNum = portNum;
+			this.sequence = 0;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class FrameCodecTests {
+    // Bytes a thread may allocate while encoding and decoding every measured frame
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    private static final byte[] DIRECTION_MESSAGE = {UtilityInformation.ELEVATOR_DIRECTION_MODE, 12, 3,
+                                                     (byte) UtilityInformation.ElevatorDirection.UP.ordinal(),
+                                                     UtilityInformation.END_OF_MESSAGE};
+
+    /**
+     * testRoundTrip
+     *
+     * Tests that a message is encoded with its header and fixed payload and
+     * decoded back to the same message, even when sent with extra bytes.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+
+        // Relayed messages are sent with the rest of the receive buffer
+        byte[] padded = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+        System.arraycopy(DIRECTION_MESSAGE, 0, padded, 0, DIRECTION_MESSAGE.length);
+
+        int frameLength = FrameCodec.encode(buffer, padded, padded.length, 7, 123456789L);
+        assertEquals(FrameCodec.HEADER_SIZE + 3, frameLength);
+        assertEquals(frameLength, buffer.position());
+
+        buffer.flip();
+        assertTrue(FrameCodec.isFrame(buffer.array(), buffer.limit()));
+        assertEquals(7, FrameCodec.getSequence(buffer));
+        assertEquals(123456789L, FrameCodec.getTimestamp(buffer));
+
+        byte[] message = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+        assertEquals(DIRECTION_MESSAGE.length, FrameCodec.decode(buffer, message));
+        for (int i = 0; i < DIRECTION_MESSAGE.length; i++) {
+            assertEquals(DIRECTION_MESSAGE[i], message[i]);
+        }
+
+        assertFalse(FrameCodec.isFrame(DIRECTION_MESSAGE, DIRECTION_MESSAGE.length));
+    }
+
+    /**
+     * testInvalidFrames
+     *
+     * Tests that frames with the wrong version, an unknown mode or the wrong
+     * payload length are rejected, as are messages too short for their mode.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testInvalidFrames() {
+        ByteBuffer buffer = ByteBuffer.allocate(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+        byte[] message = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+
+        byte[] shortMessage = {UtilityInformation.FLOOR_SENSOR_MODE, UtilityInformation.END_OF_MESSAGE};
+        assertEquals(-1, FrameCodec.encode(buffer, shortMessage, shortMessage.length, 0, 0));
+
+        FrameCodec.encode(buffer, DIRECTION_MESSAGE, DIRECTION_MESSAGE.length, 0, 0);
+        buffer.flip();
+
+        buffer.put(FrameCodec.VERSION_IND, (byte) (FrameCodec.VERSION + 1));
+        assertEquals(-1, FrameCodec.decode(buffer, message));
+        buffer.put(FrameCodec.VERSION_IND, FrameCodec.VERSION);
+
+        buffer.put(FrameCodec.MODE_IND, (byte) 100);
+        assertEquals(-1, FrameCodec.decode(buffer, message));
+        buffer.put(FrameCodec.MODE_IND, UtilityInformation.ELEVATOR_DIRECTION_MODE);
+
+        buffer.putShort(FrameCodec.LENGTH_IND, (short) 2);
+        assertEquals(-1, FrameCodec.decode(buffer, message));
+        buffer.putShort(FrameCodec.LENGTH_IND, (short) 3);
+
+        buffer.limit(FrameCodec.HEADER_SIZE + 2);
+        assertEquals(-1, FrameCodec.decode(buffer, message));
+    }
+
+    /**
+     * testLostAndLateFrames
+     *
+     * Tests that gaps in the sequence numbers from a sender are counted as
+     * lost, and that a late frame is counted as late instead of lost.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testLostAndLateFrames() {
+        FrameCodec codec = new FrameCodec(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+        InetAddress address = InetAddress.getLoopbackAddress();
+
+        for (int sequence : new int[] {0, 1, 3, 4, 2, 6}) {
+            assertTrue(codec.unframe(createFrame(sequence, address, 5000)));
+        }
+
+        // A second sender has its own sequence numbers
+        assertTrue(codec.unframe(createFrame(40, address, 5001)));
+        assertTrue(codec.unframe(createFrame(41, address, 5001)));
+
+        DatagramPacket corrupt = createFrame(7, address, 5000);
+        corrupt.getData()[FrameCodec.VERSION_IND] = 0;
+        assertFalse(codec.unframe(corrupt));
+
+        assertEquals(8, codec.getNumFramesReceived());
+        assertEquals(1, codec.getNumFramesLost());
+        assertEquals(1, codec.getNumFramesLate());
+        assertEquals(1, codec.getNumFramesRejected());
+    }
+
+    /**
+     * testEncodeDecodeDoesNotAllocate
+     *
+     * Tests that encoding and decoding a million frames allocates nothing.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testEncodeDecodeDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+        byte[] message = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+
+        // Warm up so the measured loop is compiled
+        long total = 0;
+        for (int i = 0; i < 100000; i++) {
+            total += encodeAndDecode(buffer, message, i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < 1000000; i++) {
+            total += encodeAndDecode(buffer, message, i);
+        }
+
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue(allocated < MAX_ALLOCATED_BYTES, "Encoding and decoding allocated " + allocated + " bytes");
+        assertEquals(1100000L * DIRECTION_MESSAGE.length, total);
+    }
+
+    /**
+     * testFramedSends
+     *
+     * Tests that a ServerPattern sending frames is understood by one
+     * receiving them, including a multi-message frame.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testFramedSends() throws IOException {
+        ServerPattern sender = new ServerPattern(TestUtilities.findFreePort(), "FrameSender") {};
+        int receiverPort = TestUtilities.findFreePort();
+        ServerPattern receiver = new ServerPattern(receiverPort, "FrameReceiver") {};
+
+        try {
+            sender.setFramedSends(true);
+
+            MessageBatcher batcher = new MessageBatcher(sender, UtilityInformation.MAX_BYTE_ARRAY_SIZE - FrameCodec.HEADER_SIZE, true);
+            byte[] sensor = {UtilityInformation.FLOOR_SENSOR_MODE, (byte) 200, 1, UtilityInformation.END_OF_MESSAGE};
+
+            batcher.add(DIRECTION_MESSAGE, DIRECTION_MESSAGE.length, InetAddress.getLoopbackAddress(), receiverPort);
+            batcher.add(sensor, sensor.length, InetAddress.getLoopbackAddress(), receiverPort);
+            batcher.flush();
+
+            byte[] teardown = {UtilityInformation.TEARDOWN_MODE, UtilityInformation.END_OF_MESSAGE};
+            batcher.add(teardown, teardown.length, InetAddress.getLoopbackAddress(), receiverPort);
+            batcher.flush();
+
+            for (byte[] expected : new byte[][] {DIRECTION_MESSAGE, sensor, teardown}) {
+                DatagramPacket request = receiver.getNextRequest();
+                assertEquals(expected.length, request.getLength());
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], request.getData()[i]);
+                }
+                receiver.releaseRequest(request);
+            }
+
+            assertEquals(2, receiver.getFrameCodec().getNumFramesReceived());
+            assertEquals(0, receiver.getFrameCodec().getNumFramesLost());
+        } finally {
+            sender.teardown();
+            receiver.teardown();
+        }
+    }
+
+    /**
+     * encodeAndDecode
+     *
+     * Encodes the direction message with the given sequence number into the
+     * given buffer and decodes it into the given array
+     *
+     * @param buffer   Buffer to encode into
+     * @param message  Array to decode into
+     * @param sequence Sequence number of the frame
+     *
+     * @return int Length of the decoded message
+     */
+    private int encodeAndDecode(ByteBuffer buffer, byte[] message, int sequence) {
+        buffer.clear();
+        FrameCodec.encode(buffer, DIRECTION_MESSAGE, DIRECTION_MESSAGE.length, sequence, sequence);
+        buffer.flip();
+
+        return(FrameCodec.decode(buffer, message));
+    }
+
+    /**
+     * createFrame
+     *
+     * Returns a packet holding a direction frame with the given sequence
+     * number, as if received from the given address and port
+     *
+     * @param sequence Sequence number of the frame
+     * @param address  Address of the sender
+     * @param portNum  Port of the sender
+     *
+     * @return DatagramPacket  The received frame
+     */
+    private DatagramPacket createFrame(int sequence, InetAddress address, int portNum) {
+        ByteBuffer buffer = ByteBuffer.allocate(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+        int length = FrameCodec.encode(buffer, DIRECTION_MESSAGE, DIRECTION_MESSAGE.length, sequence, 0);
+
+        DatagramPacket packet = new DatagramPacket(buffer.array(), buffer.capacity());
+        packet.setLength(length);
+        packet.setAddress(address);
+        packet.setPort(portNum);
+
+        return(packet);
+    }
+}
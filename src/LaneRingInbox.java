@@ -0,0 +1,380 @@
+import java.net.DatagramPacket;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Lock-free SignalInbox with one bounded ring (lane) per priority class.
+ *
+ * Producers claim slots in a lane with a compare-and-set on the lane's tail,
+ * so adding a signal never takes a lock. The single consumer drains the lanes
+ * in the same order that the PriorityQueueInbox would hand out signals, and
+ * signals of the same priority come out in the order they arrived.
+ *
+ * Threads only block when they actually have to wait, and are only woken up
+ * when the other side has marked itself as waiting. With BLOCKING the consumer
+ * parks as soon as the inbox is empty, with PARKING it spins for a short time
+ * first, and with SPINNING it never blocks. Waiting for a signal does not
+ * allocate.
+ *
+ */
+public class LaneRingInbox implements SignalInbox {
+	// Lanes in the order that they are drained
+	private MpscRing<DatagramPacket>[] lanes;
+
+	// Index of the lane used for each message mode
+	private int[] laneForMode;
+
+	private WaitStrategy waitStrategy;
+
+	// Used by producers waiting on a full lane with the BLOCKING wait strategy
+	private ReentrantLock lock;
+	private Condition notFull;
+
+	// Set by a thread before it starts waiting
+	private volatile boolean consumerWaiting;
+	private volatile Thread consumerThread;
+	private AtomicInteger producersWaiting;
+
+	// Time that producers sleep for between attempts when PARKING on a full lane
+	private final long PRODUCER_PARK_NANOS = 10000;
+	
+	// Number of times the PARKING consumer spins before it parks
+	private final int CONSUMER_SPIN_TRIES = 100;
+
+	/**
+	 * LaneRingInbox
+	 *
+	 * Constructor
+	 *
+	 * Create a new LaneRingInbox with one lane for each distinct priority in
+	 * the given map. Each lane can hold at least the given number of signals.
+	 *
+	 * @param messagePriorities    Map of message mode to priority
+	 * @param laneCapacity Minimum number of signals each lane can hold
+	 * @param waitStrategy How threads wait when the inbox is empty or full
+	 *
+	 * @return None
+	 */
+	public LaneRingInbox(Map<Byte, Integer> messagePriorities, int laneCapacity, WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+
+		// The PriorityQueueInbox hands out the lowest priority value first,
+		// so the lanes are drained in ascending priority value
+		TreeSet<Integer> priorities = new TreeSet<Integer>(messagePriorities.values());
+		Integer[] orderedPriorities = priorities.toArray(new Integer[0]);
+
+		lanes = createLanes(orderedPriorities.length, laneCapacity);
+
+		// Modes without a priority share the last lane
+		laneForMode = new int[256];
+		for (int i = 0; i < laneForMode.length; i++) {
+			laneForMode[i] = lanes.length - 1;
+		}
+
+		for (Map.Entry<Byte, Integer> entry : messagePriorities.entrySet()) {
+			for (int i = 0; i < orderedPriorities.length; i++) {
+				if (orderedPriorities[i].equals(entry.getValue())) {
+					laneForMode[entry.getKey() & 0xFF] = i;
+				}
+			}
+		}
+
+		lock = new ReentrantLock();
+		notFull = lock.newCondition();
+
+		consumerWaiting = false;
+		consumerThread = null;
+		producersWaiting = new AtomicInteger(0);
+	}
+
+	/**
+	 * put
+	 *
+	 * Add the given signal to the lane for its mode. Waits using the
+	 * configured wait strategy while that lane is full.
+	 *
+	 * @param signal   DatagramPacket containing the received signal
+	 *
+	 * @return None
+	 */
+	@Override
+	public void put(DatagramPacket signal) {
+		MpscRing<DatagramPacket> lane = lanes[laneForMode[signal.getData()[UtilityInformation.MODE_BYTE_IND] & 0xFF]];
+
+		if (!lane.offer(signal)) {
+			waitUntilAdded(lane, signal);
+		}
+
+		// Only wake the consumer if it said that it is waiting
+		if (consumerWaiting) {
+			wakeConsumer();
+		}
+	}
+
+	/**
+	 * offer
+	 *
+	 * Add the given signal to the lane for its mode if that lane is not full.
+	 *
+	 * @param signal   DatagramPacket containing the received signal
+	 *
+	 * @return boolean True if the signal was added, false if its lane is full
+	 */
+	@Override
+	public boolean offer(DatagramPacket signal) {
+		MpscRing<DatagramPacket> lane = lanes[laneForMode[signal.getData()[UtilityInformation.MODE_BYTE_IND] & 0xFF]];
+
+		if (!lane.offer(signal)) {
+			return(false);
+		}
+
+		if (consumerWaiting) {
+			wakeConsumer();
+		}
+
+		return(true);
+	}
+
+	/**
+	 * take
+	 *
+	 * Removes and returns the next signal. Must only be called by one thread.
+	 * Waits using the configured wait strategy while the inbox is empty.
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramPacket containing the next signal
+	 */
+	@Override
+	public DatagramPacket take() {
+		DatagramPacket signal = poll();
+
+		while (signal == null) {
+			waitForSignal();
+			signal = poll();
+		}
+
+		// Only wake producers if one of them is waiting on a full lane
+		if ((producersWaiting.get() > 0) && (waitStrategy == WaitStrategy.BLOCKING)) {
+			lock.lock();
+			try {
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		return(signal);
+	}
+
+	/**
+	 * size
+	 *
+	 * Returns the number of signals currently in all lanes.
+	 *
+	 * @param  None
+	 *
+	 * @return int The number of queued signals
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+
+		for (MpscRing<DatagramPacket> lane : lanes) {
+			size += lane.size();
+		}
+
+		return(size);
+	}
+
+	/**
+	 * capacity
+	 *
+	 * Returns the number of signals all lanes can hold together.
+	 *
+	 * @param  None
+	 *
+	 * @return int The capacity of the inbox
+	 */
+	@Override
+	public int capacity() {
+		int capacity = 0;
+
+		for (MpscRing<DatagramPacket> lane : lanes) {
+			capacity += lane.capacity();
+		}
+
+		return(capacity);
+	}
+
+	/**
+	 * createLanes
+	 *
+	 * Creates the given number of lanes with the given capacity
+	 *
+	 * @param numLanes Number of lanes to create
+	 * @param laneCapacity Minimum number of signals each lane can hold
+	 *
+	 * @return MpscRing<DatagramPacket>[] The created lanes
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static MpscRing<DatagramPacket>[] createLanes(int numLanes, int laneCapacity) {
+		MpscRing<DatagramPacket>[] lanes = new MpscRing[numLanes];
+
+		for (int i = 0; i < numLanes; i++) {
+			lanes[i] = new MpscRing<DatagramPacket>(laneCapacity);
+		}
+
+		return(lanes);
+	}
+
+	/**
+	 * poll
+	 *
+	 * Removes and returns the first signal in the first non-empty lane.
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramPacket  The next signal, or null if all lanes are empty
+	 */
+	private DatagramPacket poll() {
+		DatagramPacket signal;
+
+		for (MpscRing<DatagramPacket> lane : lanes) {
+			signal = lane.poll();
+
+			if (signal != null) {
+				return(signal);
+			}
+		}
+
+		return(null);
+	}
+
+	/**
+	 * isEmpty
+	 *
+	 * Returns whether or not every lane is empty
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if there are no signals in the inbox
+	 */
+	private boolean isEmpty() {
+		for (MpscRing<DatagramPacket> lane : lanes) {
+			if (!lane.isEmpty()) {
+				return(false);
+			}
+		}
+
+		return(true);
+	}
+
+	/**
+	 * waitForSignal
+	 *
+	 * Waits until there may be a signal in the inbox.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void waitForSignal() {
+		switch (waitStrategy) {
+		case PARKING:
+			// Spin for a short time in case a signal is about to arrive
+			for (int i = 0; i < CONSUMER_SPIN_TRIES; i++) {
+				if (!isEmpty()) {
+					return;
+				}
+				Thread.onSpinWait();
+			}
+			park();
+			break;
+		case BLOCKING:
+			park();
+			break;
+		case SPINNING:
+			Thread.onSpinWait();
+			break;
+		}
+	}
+	
+	/**
+	 * park
+	 * 
+	 * Marks the consumer as waiting and parks it if the inbox is still empty.
+	 * Parking does not allocate, unlike waiting on a Condition.
+	 * 
+	 * @param  None
+	 * 
+	 * @return None
+	 */
+	private void park() {
+		consumerThread = Thread.currentThread();
+		consumerWaiting = true;
+
+		if (isEmpty()) {
+			LockSupport.park(this);
+		}
+
+		consumerWaiting = false;
+	}
+
+	/**
+	 * wakeConsumer
+	 *
+	 * Wakes up the consumer thread waiting in take.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void wakeConsumer() {
+		LockSupport.unpark(consumerThread);
+	}
+
+	/**
+	 * waitUntilAdded
+	 *
+	 * Keeps trying to add the given signal to the given full lane,
+	 * waiting between attempts.
+	 *
+	 * @param lane The lane to add the signal to
+	 * @param signal   The signal to add
+	 *
+	 * @return None
+	 */
+	private void waitUntilAdded(MpscRing<DatagramPacket> lane, DatagramPacket signal) {
+		producersWaiting.incrementAndGet();
+
+		try {
+			while (!lane.offer(signal)) {
+				if (waitStrategy == WaitStrategy.BLOCKING) {
+					lock.lock();
+					try {
+						if (lane.isFull()) {
+							notFull.await();
+						}
+					} catch (InterruptedException e) {
+						System.out.println("Error waiting in put method in LaneRingInbox.");
+						e.printStackTrace();
+					} finally {
+						lock.unlock();
+					}
+				} else if (waitStrategy == WaitStrategy.PARKING) {
+					LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+				} else {
+					Thread.onSpinWait();
+				}
+			}
+		} finally {
+			producersWaiting.decrementAndGet();
+		}
+	}
+}
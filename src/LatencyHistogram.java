@@ -0,0 +1,280 @@
+/**
+ *
+ * Fixed-size histogram of times in nanoseconds, laid out like an
+ * HdrHistogram. Values are counted in buckets that double in width, each
+ * split into enough sub-buckets that a value is known to within the given
+ * number of significant decimal digits. Every count array is made in the
+ * constructor, so recording a value never allocates and the memory used does
+ * not grow however long the system runs.
+ *
+ * Values above the highest trackable value are counted as that value, but
+ * the exact maximum is still kept.
+ *
+ */
+public class LatencyHistogram {
+	// Highest value that is counted in its own bucket
+	private final long highestTrackableValue;
+
+	// Sub-buckets in each bucket, and the powers of two they are made of
+	private final int subBucketHalfCountMagnitude;
+	private final int subBucketHalfCount;
+	private final long subBucketMask;
+
+	private final long counts[];
+
+	private long totalCount;
+	private long totalValue;
+	private long minValue;
+	private long maxValue;
+
+	/**
+	 * LatencyHistogram
+	 *
+	 * Constructor
+	 *
+	 * Create a new empty histogram for values from 0 up to the given highest
+	 * value, kept to the given number of significant digits.
+	 *
+	 * @param highestTrackableValue    Highest value to count exactly (at least 2)
+	 * @param significantDigits    Significant decimal digits to keep (1 to 5)
+	 *
+	 * @return None
+	 */
+	public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+		if ((highestTrackableValue < 2) || (significantDigits < 1) || (significantDigits > 5)) {
+			throw new IllegalArgumentException("Invalid histogram range");
+		}
+
+		this.highestTrackableValue = highestTrackableValue;
+
+		// Enough sub-buckets that one step is under 1 in 10^digits of the value
+		long largestSingleUnitValue = 2 * (long) Math.pow(10, significantDigits);
+		int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitValue - 1);
+
+		subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+		subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+		subBucketMask = (1L << subBucketCountMagnitude) - 1;
+
+		counts = new long[getCountsIndex(highestTrackableValue) + 1];
+
+		reset();
+	}
+
+	/**
+	 * getCountsIndex
+	 *
+	 * Returns the index in counts of the sub-bucket holding the given value
+	 *
+	 * @param value    Value from 0 to the highest trackable value
+	 *
+	 * @return int Index into counts
+	 */
+	private int getCountsIndex(long value) {
+		int bucketIndex = (63 - Long.numberOfLeadingZeros(value | subBucketMask)) - subBucketHalfCountMagnitude;
+		int subBucketIndex = (int) (value >>> bucketIndex);
+
+		return((bucketIndex << subBucketHalfCountMagnitude) + subBucketIndex);
+	}
+
+	/**
+	 * getLowestValueAt
+	 *
+	 * Returns the lowest value counted in the sub-bucket at the given index
+	 *
+	 * @param index    Index into counts
+	 *
+	 * @return long    Lowest value in that sub-bucket
+	 */
+	private long getLowestValueAt(int index) {
+		int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+		int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+
+		if (bucketIndex < 0) {
+			subBucketIndex -= subBucketHalfCount;
+			bucketIndex = 0;
+		}
+
+		return(((long) subBucketIndex) << bucketIndex);
+	}
+
+	/**
+	 * getHighestValueAt
+	 *
+	 * Returns the highest value counted in the sub-bucket at the given index
+	 *
+	 * @param index    Index into counts
+	 *
+	 * @return long    Highest value in that sub-bucket
+	 */
+	private long getHighestValueAt(int index) {
+		int bucketIndex = Math.max((index >> subBucketHalfCountMagnitude) - 1, 0);
+
+		return(getLowestValueAt(index) + (1L << bucketIndex) - 1);
+	}
+
+	/**
+	 * record
+	 *
+	 * Counts one value. Negative values are counted as 0.
+	 *
+	 * @param value    Value to count
+	 *
+	 * @return None
+	 */
+	public synchronized void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+
+		counts[getCountsIndex(Math.min(value, highestTrackableValue))]++;
+
+		totalCount++;
+		totalValue += value;
+		minValue = Math.min(minValue, value);
+		maxValue = Math.max(maxValue, value);
+	}
+
+	/**
+	 * reset
+	 *
+	 * Clears every counted value.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 0;
+		}
+
+		totalCount = 0;
+		totalValue = 0;
+		minValue = Long.MAX_VALUE;
+		maxValue = 0;
+	}
+
+	/**
+	 * getValueAtPercentile
+	 *
+	 * Returns a value that the given percentage of counted values are at or
+	 * below, to within the histogram's significant digits.
+	 *
+	 * @param percentile   Percentage from 0 to 100, e.g. 99.9
+	 *
+	 * @return long    Value at the percentile, or 0 if nothing was counted
+	 */
+	public synchronized long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return(0);
+		}
+
+		double fraction = Math.min(Math.max(percentile, 0.0), 100.0) / 100.0;
+		long countAtPercentile = Math.max((long) Math.ceil(fraction * totalCount), 1);
+		long countSoFar = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			countSoFar += counts[i];
+
+			if (countSoFar >= countAtPercentile) {
+				return(Math.min(getHighestValueAt(i), maxValue));
+			}
+		}
+
+		return(maxValue);
+	}
+
+	/**
+	 * getTotalCount
+	 *
+	 * Returns the number of counted values
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of values
+	 */
+	public synchronized long getTotalCount() {
+		return(totalCount);
+	}
+
+	/**
+	 * getTotal
+	 *
+	 * Returns the sum of every counted value
+	 *
+	 * @param  None
+	 *
+	 * @return long    Sum of the values
+	 */
+	public synchronized long getTotal() {
+		return(totalValue);
+	}
+
+	/**
+	 * getMean
+	 *
+	 * Returns the average counted value
+	 *
+	 * @param  None
+	 *
+	 * @return long    Average value, or 0 if nothing was counted
+	 */
+	public synchronized long getMean() {
+		if (totalCount == 0) {
+			return(0);
+		}
+
+		return(totalValue / totalCount);
+	}
+
+	/**
+	 * getMin
+	 *
+	 * Returns the smallest counted value
+	 *
+	 * @param  None
+	 *
+	 * @return long    Smallest value, or 0 if nothing was counted
+	 */
+	public synchronized long getMin() {
+		if (totalCount == 0) {
+			return(0);
+		}
+
+		return(minValue);
+	}
+
+	/**
+	 * getMax
+	 *
+	 * Returns the largest counted value
+	 *
+	 * @param  None
+	 *
+	 * @return long    Largest value, or 0 if nothing was counted
+	 */
+	public synchronized long getMax() {
+		return(maxValue);
+	}
+
+	/**
+	 * toString
+	 *
+	 * Overridden
+	 *
+	 * Returns a string with the count, percentiles and maximum
+	 *
+	 * @param  None
+	 *
+	 * @return String  Describing the counted values
+	 */
+	@Override
+	public synchronized String toString() {
+		return(String.format("count %d, p50 %d ns, p99 %d ns, p999 %d ns, max %d ns",
+		                     totalCount,
+		                     getValueAtPercentile(50),
+		                     getValueAtPercentile(99),
+		                     getValueAtPercentile(99.9),
+		                     getMax()));
+	}
+}
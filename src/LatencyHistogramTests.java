@@ -0,0 +1,149 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTests {
+    // Bytes a thread may allocate while recording every measured sample
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    /**
+     * testPercentiles
+     *
+     * Tests that the percentiles of a uniform spread of values are within
+     * the histogram's precision of the exact percentiles.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS, 2);
+
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(100000, histogram.getTotalCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(100000000, histogram.getMax());
+        assertEquals(50000500, histogram.getMean());
+
+        assertWithin(50000000, histogram.getValueAtPercentile(50));
+        assertWithin(99000000, histogram.getValueAtPercentile(99));
+        assertWithin(99900000, histogram.getValueAtPercentile(99.9));
+        assertEquals(100000000, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * testSmallAndLargeValues
+     *
+     * Tests that small values are counted exactly and that values above the
+     * highest trackable value still give the exact maximum.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSmallAndLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram(1000000, 2);
+
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(5000000);
+
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getValueAtPercentile(10));
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(5000000, histogram.getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    /**
+     * testMessageTimings
+     *
+     * Tests that MessageTimings records the handler time and the time between
+     * arrivals of each mode, and ignores unknown modes.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testMessageTimings() {
+        MessageTimings timings = new MessageTimings();
+
+        timings.record(UtilityInformation.FLOOR_SENSOR_MODE, 1000000, 1000100);
+        timings.record(UtilityInformation.FLOOR_SENSOR_MODE, 6000000, 6000100);
+        timings.record(UtilityInformation.FLOOR_REQUEST_MODE, 7000000, 7000050);
+        timings.record((byte) -1, 0, 10);
+        timings.record((byte) 100, 0, 10);
+
+        assertEquals(2, timings.getDurations(UtilityInformation.FLOOR_SENSOR_MODE).getTotalCount());
+        assertEquals(100, timings.getDurations(UtilityInformation.FLOOR_SENSOR_MODE).getMax());
+        assertEquals(1, timings.getInterArrivals(UtilityInformation.FLOOR_SENSOR_MODE).getTotalCount());
+        assertEquals(5000000, timings.getInterArrivals(UtilityInformation.FLOOR_SENSOR_MODE).getMin());
+
+        assertEquals(1, timings.getDurations(UtilityInformation.FLOOR_REQUEST_MODE).getTotalCount());
+        assertEquals(0, timings.getInterArrivals(UtilityInformation.FLOOR_REQUEST_MODE).getTotalCount());
+    }
+
+    /**
+     * testRecordDoesNotAllocate
+     *
+     * Tests that recording a million samples allocates nothing, so a long
+     * run uses constant memory.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testRecordDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MessageTimings timings = new MessageTimings();
+        Random rand = new Random(42);
+
+        // Warm up so the measured loop is compiled
+        long time = 0;
+        for (int i = 0; i < 100000; i++) {
+            time += rand.nextInt(1000000);
+            timings.record((byte) (i % 13), time, time + rand.nextInt(100000));
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < 1000000; i++) {
+            time += 1000 + (i % 1000000);
+            timings.record((byte) (i % 13), time, time + (i % 100000));
+        }
+
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue(allocated < MAX_ALLOCATED_BYTES, "Recording allocated " + allocated + " bytes");
+        assertEquals(84615, timings.getDurations(UtilityInformation.ALL_REQUESTS_FINISHED_MODE).getTotalCount());
+    }
+
+    /**
+     * assertWithin
+     *
+     * Asserts that the given value is within 1% of the expected value.
+     *
+     * @param expected The exact value
+     * @param actual   The value from the histogram
+     *
+     * @return  void
+     */
+    private void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= (expected / 100), "Expected about " + expected + " but was " + actual);
+    }
+}
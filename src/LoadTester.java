@@ -0,0 +1,557 @@
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * Finds the highest rate of floor requests the Scheduler can keep up with.
+ * A TestHost on the Floor port sends floor requests to a Scheduler in this
+ * process, and another on the Elevator port takes what the Scheduler sends.
+ * Each step sends requests at a fixed rate for a while and then waits for
+ * the Scheduler to handle what it received, and each step is faster than
+ * the one before.
+ *
+ * The requests are sent open loop: each one has a time it is meant to be
+ * sent at, whether or not the Scheduler has handled the ones before it.
+ * Latency is measured from that time to when the Scheduler finishes
+ * handling the request, so time a request spends waiting to be sent
+ * behind a slow one is counted instead of hidden (coordinated omission).
+ * The time is carried in bytes after END_OF_MESSAGE, which the Scheduler
+ * does not read.
+ *
+ * Requests the Scheduler never handled were dropped, mostly by the OS
+ * while the receiving thread waited for room in the full inbox. The knee
+ * is the first step that drops requests, handles fewer than the share of
+ * them set in UtilityInformation each second, or has a p99 latency more
+ * than the set factor above the lowest of the slower steps.
+ *
+ */
+public class LoadTester {
+	// Length of a floor request, and where the time it was meant to be sent
+	// is carried after it
+	private static final int MESSAGE_LENGTH = 5;
+	private static final int TAG_IND = MESSAGE_LENGTH;
+	private static final int TAGGED_LENGTH = MESSAGE_LENGTH + Long.BYTES;
+
+	// Tag of the message that stops the handling thread after a step
+	private static final long STOP_TAG = -1;
+
+	// Seed of the floor requests sent in every step
+	private static final long SEED = 1;
+
+	// Longest time to wait for the handling thread to stop
+	private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 *
+	 * What happened in one step of the load test
+	 *
+	 */
+	public static class Step {
+		private final double offeredRate;
+		private final long numSent;
+		private final long numHandled;
+		private final long durationNanos;
+		private final LatencyHistogram latency;
+		private final int maxQueueDepth;
+		private final double meanQueueDepth;
+
+		/**
+		 * Step
+		 *
+		 * Constructor
+		 *
+		 * Create a new Step with the given results
+		 *
+		 * @param offeredRate  Requests sent each second
+		 * @param numSent  Requests sent
+		 * @param numHandled   Requests the Scheduler handled
+		 * @param durationNanos    Time from the first request being due to the
+		 *                         last being handled or due
+		 * @param latency  Time from each request being due to it being handled
+		 * @param maxQueueDepth    Most messages seen waiting in the inbox
+		 * @param meanQueueDepth   Average messages seen waiting in the inbox
+		 *
+		 * @return None
+		 */
+		public Step(double offeredRate, long numSent, long numHandled, long durationNanos,
+		            LatencyHistogram latency, int maxQueueDepth, double meanQueueDepth) {
+			this.offeredRate = offeredRate;
+			this.numSent = numSent;
+			this.numHandled = numHandled;
+			this.durationNanos = durationNanos;
+			this.latency = latency;
+			this.maxQueueDepth = maxQueueDepth;
+			this.meanQueueDepth = meanQueueDepth;
+		}
+
+		public double getOfferedRate() {
+			return(offeredRate);
+		}
+
+		public long getNumSent() {
+			return(numSent);
+		}
+
+		public long getNumHandled() {
+			return(numHandled);
+		}
+
+		public long getNumDropped() {
+			return(numSent - numHandled);
+		}
+
+		public LatencyHistogram getLatency() {
+			return(latency);
+		}
+
+		public int getMaxQueueDepth() {
+			return(maxQueueDepth);
+		}
+
+		public double getMeanQueueDepth() {
+			return(meanQueueDepth);
+		}
+
+		/**
+		 * getThroughput
+		 *
+		 * @param  None
+		 *
+		 * @return double  Requests handled each second
+		 */
+		public double getThroughput() {
+			if (durationNanos <= 0) {
+				return(0);
+			}
+
+			return(numHandled * 1e9 / durationNanos);
+		}
+
+		/**
+		 * isSustainable
+		 *
+		 * Returns whether the Scheduler kept up with this step: nothing was
+		 * dropped, the requests were handled nearly as fast as they were sent
+		 * and the p99 latency stayed near the given one.
+		 *
+		 * @param baselineP99  p99 latency in ns at a rate that is kept up with
+		 *
+		 * @return boolean True if the Scheduler kept up
+		 */
+		public boolean isSustainable(long baselineP99) {
+			return((getNumDropped() == 0) &&
+			       (getThroughput() >= offeredRate * UtilityInformation.LOAD_TEST_KNEE_THROUGHPUT) &&
+			       (latency.getValueAtPercentile(99) <= baselineP99 * UtilityInformation.LOAD_TEST_KNEE_LATENCY_FACTOR));
+		}
+
+		/**
+		 * toString
+		 *
+		 * Overridden
+		 *
+		 * @param  None
+		 *
+		 * @return String  One line of the report for this step
+		 */
+		@Override
+		public String toString() {
+			return(String.format("%10.0f %10.0f %8d %8d %8d %10d %10d %10d %6d %8.1f",
+			                     offeredRate,
+			                     getThroughput(),
+			                     numSent,
+			                     numHandled,
+			                     getNumDropped(),
+			                     latency.getValueAtPercentile(50) / 1000,
+			                     latency.getValueAtPercentile(99) / 1000,
+			                     latency.getMax() / 1000,
+			                     maxQueueDepth,
+			                     meanQueueDepth));
+		}
+	}
+
+	private DispatchStrategy.Type strategyType;
+	private byte numElevators;
+	private int numFloors;
+	private long stepMillis;
+	private OverloadControl.Policy overloadPolicy;
+
+	// Stand in for the Floor and Elevator subsystems
+	private TestHost floorHost;
+	private TestHost elevatorHost;
+
+	private InetAddress schedulerAddress;
+
+	/**
+	 * LoadTester
+	 *
+	 * Constructor
+	 *
+	 * Create a new LoadTester for a building of the given size. Binds the
+	 * Floor and Elevator ports until teardown.
+	 *
+	 * @param strategyType Dispatch strategy the Scheduler uses
+	 * @param numFloors    Number of floors in the building
+	 * @param numElevators Number of elevators in the building
+	 * @param stepMillis   How long each step sends requests for
+	 *
+	 * @return None
+	 */
+	public LoadTester(DispatchStrategy.Type strategyType, int numFloors, int numElevators, long stepMillis) {
+		this.strategyType = strategyType;
+		this.numFloors = numFloors;
+		this.numElevators = (byte) numElevators;
+		this.stepMillis = stepMillis;
+		overloadPolicy = UtilityInformation.DEFAULT_OVERLOAD_POLICY;
+
+		floorHost = new TestHost(Integer.MAX_VALUE, UtilityInformation.FLOOR_PORT_NUM, UtilityInformation.SCHEDULER_PORT_NUM);
+		elevatorHost = new TestHost(Integer.MAX_VALUE, UtilityInformation.ELEVATOR_PORT_NUM, UtilityInformation.SCHEDULER_PORT_NUM);
+
+		// Take everything the Scheduler sends without answering it
+		for (TestHost host : new TestHost[] {floorHost, elevatorHost}) {
+			host.setVerbose(false);
+			host.disableResponse();
+
+			Thread thread = new Thread(host, "Load test host " + host.getPortNum());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		schedulerAddress = floorHost.getAddress();
+	}
+
+	/**
+	 * setOverloadPolicy
+	 *
+	 * Sets what the Scheduler of each later step does with requests
+	 * received while its inbox is full.
+	 *
+	 * @param policy   The overload policy
+	 *
+	 * @return None
+	 */
+	public void setOverloadPolicy(OverloadControl.Policy policy) {
+		overloadPolicy = policy;
+	}
+
+	/**
+	 * runStep
+	 *
+	 * Sends floor requests to a new Scheduler at the given rate for the
+	 * length of a step, then waits until the Scheduler has handled every
+	 * request or handles none for the drain time.
+	 *
+	 * @param offeredRate  Requests to send each second
+	 *
+	 * @return Step    What happened in the step
+	 */
+	public Step runStep(double offeredRate) {
+		final Scheduler scheduler = new Scheduler(strategyType);
+		scheduler.setNumElevators(numElevators);
+		scheduler.setNumFloors(numFloors);
+		scheduler.setOverloadPolicy(overloadPolicy);
+
+		final LatencyHistogram latency = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+		                                                      UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+		final AtomicLong numHandled = new AtomicLong();
+		final AtomicLong lastHandledTime = new AtomicLong();
+
+		// Handle requests like runSheduler, noting when each was finished
+		Thread handler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					DatagramPacket request = scheduler.getNextRequest();
+					long dueTime = readTag(request);
+
+					if (dueTime == STOP_TAG) {
+						scheduler.releaseRequest(request);
+						return;
+					}
+
+					scheduler.handleMessage(request);
+					scheduler.releaseRequest(request);
+
+					long finishTime = System.nanoTime();
+					latency.record(Math.max(0, finishTime - dueTime));
+					lastHandledTime.set(finishTime);
+					numHandled.incrementAndGet();
+				}
+			}
+		}, "Load test scheduler");
+		handler.setDaemon(true);
+		handler.start();
+
+		// Only where the passengers go is used, as the rate sets the times
+		TrafficGenerator traffic = new TrafficGenerator(TrafficGenerator.Profile.INTER_FLOOR, numFloors, offeredRate * 60, SEED);
+		long numToSend = Math.max(1, (long) (offeredRate * stepMillis / 1000));
+		double intervalNanos = 1e9 / offeredRate;
+		byte[] message = new byte[TAGGED_LENGTH];
+
+		long maxQueueDepth = 0;
+		long totalQueueDepth = 0;
+
+		long startTime = System.nanoTime();
+		long dueTime = startTime;
+
+		for (long i = 0; i < numToSend; i++) {
+			dueTime = startTime + (long) (i * intervalNanos);
+
+			// Wait for the time the request is due, but never for the Scheduler
+			long now = System.nanoTime();
+			while (now < dueTime) {
+				LockSupport.parkNanos(dueTime - now);
+				now = System.nanoTime();
+			}
+
+			traffic.next();
+			message[UtilityInformation.MODE_BYTE_IND] = UtilityInformation.FLOOR_REQUEST_MODE;
+			message[1] = (byte) traffic.getStartFloor();
+			message[2] = (byte) traffic.getDirection().ordinal();
+			message[3] = (byte) traffic.getFinalFloor();
+			message[4] = UtilityInformation.END_OF_MESSAGE;
+			writeTag(message, dueTime);
+
+			floorHost.sendPacket(message, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+
+			int queueDepth = scheduler.getQueueDepth();
+			maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+			totalQueueDepth += queueDepth;
+		}
+
+		// Wait for the Scheduler to catch up, or to stop handling requests
+		long lastCount = -1;
+		long lastProgressTime = System.nanoTime();
+		while ((numHandled.get() < numToSend) &&
+		       ((System.nanoTime() - lastProgressTime) < UtilityInformation.LOAD_TEST_DRAIN_MILLIS * 1000000L)) {
+			if (numHandled.get() != lastCount) {
+				lastCount = numHandled.get();
+				lastProgressTime = System.nanoTime();
+			}
+
+			LockSupport.parkNanos(1000000L);
+		}
+
+		stopHandler(handler);
+		scheduler.socketTearDown();
+
+		long endTime = Math.max(lastHandledTime.get(), dueTime);
+
+		return(new Step(offeredRate,
+		                numToSend,
+		                numHandled.get(),
+		                endTime - startTime,
+		                latency,
+		                (int) maxQueueDepth,
+		                (double) totalQueueDepth / numToSend));
+	}
+
+	/**
+	 * run
+	 *
+	 * Runs steps from the start rate, multiplying the rate by the given
+	 * factor each step, until the maximum rate or until two steps in a row
+	 * are past the knee. Prints each step as it finishes.
+	 *
+	 * @param startRate    Requests sent each second in the first step
+	 * @param maxRate  Most requests sent each second in a step
+	 * @param rateFactor   How much faster each step is than the one before
+	 *
+	 * @return List<Step>  Every step run
+	 */
+	public List<Step> run(double startRate, double maxRate, double rateFactor) {
+		List<Step> steps = new ArrayList<Step>();
+		int numPastKnee = 0;
+
+		System.out.println(String.format("%10s %10s %8s %8s %8s %10s %10s %10s %6s %8s",
+		                                 "offered/s", "handled/s", "sent", "handled", "dropped",
+		                                 "p50 us", "p99 us", "max us", "max q", "mean q"));
+
+		for (double rate = startRate; (rate <= maxRate) && (numPastKnee < 2); rate *= rateFactor) {
+			Step step = runStep(rate);
+			steps.add(step);
+			System.out.println(step);
+
+			if (findKnee(steps) >= 0) {
+				numPastKnee++;
+			}
+		}
+
+		return(steps);
+	}
+
+	/**
+	 * findKnee
+	 *
+	 * Static
+	 *
+	 * Finds the first step the Scheduler did not keep up with. Its latency
+	 * is judged against the lowest p99 of the slower steps before it, as
+	 * the first steps also warm up the JIT.
+	 *
+	 * @param steps    Steps in the order they were run
+	 *
+	 * @return int Index of the knee, or -1 if every step was kept up with
+	 */
+	public static int findKnee(List<Step> steps) {
+		long baselineP99 = Long.MAX_VALUE;
+
+		for (int i = 0; i < steps.size(); i++) {
+			Step step = steps.get(i);
+			long p99 = step.getLatency().getValueAtPercentile(99);
+
+			if (!step.isSustainable(Math.min(baselineP99, p99))) {
+				return(i);
+			}
+
+			baselineP99 = Math.min(baselineP99, p99);
+		}
+
+		return(-1);
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Closes the Floor and Elevator ports
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void teardown() {
+		floorHost.teardown();
+		elevatorHost.teardown();
+	}
+
+	/**
+	 * stopHandler
+	 *
+	 * Sends the stop message to the Scheduler and waits for the handling
+	 * thread to finish.
+	 *
+	 * @param handler  The handling thread
+	 *
+	 * @return void
+	 */
+	private void stopHandler(Thread handler) {
+		byte[] stop = new byte[TAGGED_LENGTH];
+		stop[UtilityInformation.MODE_BYTE_IND] = UtilityInformation.FLOOR_REQUEST_MODE;
+		stop[MESSAGE_LENGTH - 1] = UtilityInformation.END_OF_MESSAGE;
+		writeTag(stop, STOP_TAG);
+
+		floorHost.sendPacket(stop, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+
+		try {
+			handler.join(STOP_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (handler.isAlive()) {
+			System.out.println("Error: Load test Scheduler did not stop");
+		}
+	}
+
+	/**
+	 * writeTag
+	 *
+	 * Static
+	 *
+	 * Writes the given time after the end of the floor request
+	 *
+	 * @param message  The floor request with room for the tag
+	 * @param tag  Time the request is due in ns, or STOP_TAG
+	 *
+	 * @return void
+	 */
+	private static void writeTag(byte[] message, long tag) {
+		for (int i = 0; i < Long.BYTES; i++) {
+			message[TAG_IND + i] = (byte) (tag >>> (8 * (Long.BYTES - 1 - i)));
+		}
+	}
+
+	/**
+	 * readTag
+	 *
+	 * Static
+	 *
+	 * Reads the time written after the end of the received floor request
+	 *
+	 * @param packet   The received floor request
+	 *
+	 * @return long    Time the request was due in ns, or STOP_TAG
+	 */
+	private static long readTag(DatagramPacket packet) {
+		byte[] data = packet.getData();
+		long tag = 0;
+
+		if (packet.getLength() < TAGGED_LENGTH) {
+			return(STOP_TAG);
+		}
+
+		for (int i = 0; i < Long.BYTES; i++) {
+			tag = (tag << 8) | Byte.toUnsignedLong(data[TAG_IND + i]);
+		}
+
+		return(tag);
+	}
+
+	/**
+	 * main
+	 *
+	 * Main method
+	 *
+	 * Runs the load test and prints the fastest rate the Scheduler kept up
+	 * with. The start rate, the maximum rate, the length of each step in
+	 * milliseconds and the Scheduler's overload policy can be given as
+	 * arguments.
+	 *
+	 * @param args
+	 *
+	 * @return None
+	 */
+	public static void main(String[] args) {
+		double startRate = UtilityInformation.LOAD_TEST_START_RATE;
+		double maxRate = UtilityInformation.LOAD_TEST_MAX_RATE;
+		long stepMillis = UtilityInformation.LOAD_TEST_STEP_MILLIS;
+
+		if (args.length > 0) {
+			startRate = Double.parseDouble(args[0]);
+		}
+		if (args.length > 1) {
+			maxRate = Double.parseDouble(args[1]);
+		}
+		if (args.length > 2) {
+			stepMillis = Long.parseLong(args[2]);
+		}
+
+		OverloadControl.Policy overloadPolicy = UtilityInformation.DEFAULT_OVERLOAD_POLICY;
+		if (args.length > 3) {
+			overloadPolicy = OverloadControl.Policy.valueOf(args[3].toUpperCase());
+		}
+
+		LoadTester tester = new LoadTester(UtilityInformation.DEFAULT_DISPATCH_STRATEGY,
+		                                   UtilityInformation.DEFAULT_NUM_FLOORS,
+		                                   UtilityInformation.DEFAULT_NUM_ELEVATORS,
+		                                   stepMillis);
+		tester.setOverloadPolicy(overloadPolicy);
+
+		List<Step> steps = tester.run(startRate, maxRate, UtilityInformation.LOAD_TEST_RATE_FACTOR);
+		tester.teardown();
+
+		int knee = findKnee(steps);
+		if (knee < 0) {
+			System.out.println(String.format("Kept up with every rate up to %.0f requests/s", steps.get(steps.size() - 1).getOfferedRate()));
+		} else if (knee == 0) {
+			System.out.println(String.format("Did not keep up with the first rate of %.0f requests/s", startRate));
+		} else {
+			System.out.println(String.format("Highest sustainable rate %.0f requests/s, knee at %.0f requests/s",
+			                                 steps.get(knee - 1).getOfferedRate(),
+			                                 steps.get(knee).getOfferedRate()));
+		}
+	}
+}
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LoadTesterTests {
+    /**
+     * testSlowStepKeptUp
+     *
+     * Tests that a Scheduler sent requests at a slow rate handles every one
+     * of them at that rate, with a latency recorded for each.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSlowStepKeptUp() {
+        LoadTester tester = new LoadTester(DispatchStrategy.Type.DEFAULT,
+                                           UtilityInformation.DEFAULT_NUM_FLOORS,
+                                           UtilityInformation.DEFAULT_NUM_ELEVATORS,
+                                           1000);
+
+        try {
+            LoadTester.Step step = tester.runStep(200);
+
+            assertEquals(200, step.getNumSent());
+            assertEquals(200, step.getNumHandled());
+            assertEquals(0, step.getNumDropped());
+            assertEquals(200, step.getLatency().getTotalCount());
+            assertEquals(200, step.getThroughput(), 20);
+            assertTrue(step.getMaxQueueDepth() <= 100);
+        } finally {
+            tester.teardown();
+        }
+    }
+
+    /**
+     * testFindKnee
+     *
+     * Tests that the knee is the first step that drops requests, falls
+     * behind, or has a p99 latency far above the best of the slower steps.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testFindKnee() {
+        List<LoadTester.Step> steps = new ArrayList<LoadTester.Step>();
+
+        // A slow first step, while the JIT warms up
+        steps.add(createStep(100, 100, 5000000));
+        steps.add(createStep(200, 200, 100000));
+        steps.add(createStep(400, 400, 900000));
+        assertEquals(-1, LoadTester.findKnee(steps));
+
+        steps.add(createStep(800, 800, 2000000));
+        assertEquals(3, LoadTester.findKnee(steps));
+
+        steps.set(3, createStep(800, 799, 100000));
+        assertEquals(3, LoadTester.findKnee(steps));
+
+        steps.set(3, createStep(800, 700, 100000));
+        assertEquals(3, LoadTester.findKnee(steps));
+
+        steps.set(3, createStep(800, 800, 100000));
+        assertEquals(-1, LoadTester.findKnee(steps));
+    }
+
+    /**
+     * createStep
+     *
+     * Creates a one second step where every handled request took the given
+     * time, and the rest were dropped or handled after the step.
+     *
+     * @param offeredRate  Requests sent each second
+     * @param numHandled   Requests handled
+     * @param latencyNanos Time each request took
+     *
+     * @return LoadTester.Step  The step
+     */
+    private LoadTester.Step createStep(int offeredRate, int numHandled, long latencyNanos) {
+        LatencyHistogram latency = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+                                                        UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+        for (int i = 0; i < numHandled; i++) {
+            latency.record(latencyNanos);
+        }
+
+        return(new LoadTester.Step(offeredRate, offeredRate, numHandled, 1000000000L, latency, 0, 0));
+    }
+}
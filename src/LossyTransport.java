@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Random;
+
+/**
+ *
+ * SignalTransport used for testing that drops a fraction of the datagrams
+ * sent through it and passes the rest to another transport. Receiving is
+ * left to the other transport. Datagrams are dropped using a seeded random
+ * number generator so a test loses the same datagrams every time it runs
+ * in the same order.
+ *
+ */
+public class LossyTransport implements SignalTransport {
+	private SignalTransport transport;
+
+	private double lossRate;
+	private Random random;
+
+	private long numSent;
+	private long numDropped;
+
+	/**
+	 * LossyTransport
+	 *
+	 * Constructor
+	 *
+	 * Create a new LossyTransport that drops the given fraction of the
+	 * datagrams sent through it.
+	 *
+	 * @param transport    Transport to send the datagrams that are not dropped with
+	 * @param lossRate Fraction of datagrams to drop, from 0 to 1
+	 * @param seed Seed for choosing the datagrams to drop
+	 *
+	 * @return None
+	 */
+	public LossyTransport(SignalTransport transport, double lossRate, long seed) {
+		this.transport = transport;
+		this.lossRate = lossRate;
+
+		random = new Random(seed);
+		numSent = 0;
+		numDropped = 0;
+	}
+
+	/**
+	 * start
+	 *
+	 * Overridden
+	 *
+	 * Starts the wrapped transport.
+	 *
+	 * @param controller   The ServerPattern that receives the datagrams
+	 *
+	 * @return None
+	 */
+	@Override
+	public void start(ServerPattern controller) {
+		transport.start(controller);
+	}
+
+	/**
+	 * send
+	 *
+	 * Overridden
+	 *
+	 * Drops the datagram or sends it with the wrapped transport.
+	 *
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @throws IOException If the datagram could not be sent
+	 *
+	 * @return None
+	 */
+	@Override
+	public void send(byte[] data, int length, InetAddress address, int portNum) throws IOException {
+		synchronized (this) {
+			numSent++;
+			if (random.nextDouble() < lossRate) {
+				numDropped++;
+				return;
+			}
+		}
+
+		transport.send(data, length, address, portNum);
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Overridden
+	 *
+	 * Tears down the wrapped transport.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void teardown() {
+		transport.teardown();
+	}
+
+	/**
+	 * getNumSent
+	 *
+	 * Returns the number of datagrams passed to send, dropped or not
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of datagrams
+	 */
+	public synchronized long getNumSent() {
+		return(numSent);
+	}
+
+	/**
+	 * getNumDropped
+	 *
+	 * Returns the number of datagrams dropped
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of dropped datagrams
+	 */
+	public synchronized long getNumDropped() {
+		return(numDropped);
+	}
+}
@@ -0,0 +1,387 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ * Collects the messages a ServerPattern sends while handling one received
+ * message and sends them together when flushed.
+ *
+ * Messages are grouped by destination. All of the messages for one
+ * destination are packed into a single multi-message frame, so the
+ * destination gets them in one datagram. A frame is laid out as:
+ *
+ *     MULTI_MESSAGE_MODE, number of messages,
+ *     length of message 1, message 1, ..., length of message n, message n,
+ *     END_OF_MESSAGE
+ *
+ * A destination with only one message is sent that message on its own,
+ * exactly as if it had not been batched. Messages that do not fit into a
+ * frame are sent straight away, after anything already queued for the same
+ * destination, so messages to one destination always arrive in order.
+ *
+ */
+public class MessageBatcher {
+	// Called with each message in a multi-message frame, in place
+	public interface MessageVisitor {
+		void visit(byte[] frame, int offset, int length);
+	}
+
+	// Sends the datagrams
+	private ServerPattern sender;
+
+	// Frames being built, one for each destination in the order they were first used
+	private ArrayList<Frame> frames;
+	private int numFramesInUse;
+
+	private boolean multiMessageFrames;
+	private int maxFrameSize;
+
+	// Counts of what has been sent through this batcher
+	private long numMessagesSent;
+	private long numDatagramsSent;
+
+	// Bytes in a frame before the first message and after the last message
+	private static final int FRAME_HEADER_SIZE = 2;
+	private static final int FRAME_TRAILER_SIZE = 1;
+
+	// Index of the number of messages in a frame
+	private static final int NUM_MESSAGES_IND = 1;
+
+	/**
+	 * MessageBatcher
+	 *
+	 * Constructor
+	 *
+	 * Create a new MessageBatcher that sends through the given ServerPattern.
+	 *
+	 * @param sender   The ServerPattern to send the messages with
+	 * @param maxFrameSize Largest datagram the destinations can receive
+	 * @param multiMessageFrames   True if the destinations can unpack multi-message
+	 *                             frames, false to send each message straight away
+	 *
+	 * @return None
+	 */
+	public MessageBatcher(ServerPattern sender, int maxFrameSize, boolean multiMessageFrames) {
+		this.sender = sender;
+		this.maxFrameSize = maxFrameSize;
+		this.multiMessageFrames = multiMessageFrames;
+
+		frames = new ArrayList<Frame>();
+		numFramesInUse = 0;
+
+		numMessagesSent = 0;
+		numDatagramsSent = 0;
+	}
+
+	/**
+	 * add
+	 *
+	 * Queues the first length bytes of the given message for the given
+	 * destination. The message is copied, so the caller may reuse it.
+	 *
+	 * @param message  The message to send
+	 * @param length   Number of bytes of the message to send
+	 * @param address  Address to send the message to
+	 * @param portNum  Port to send the message to
+	 *
+	 * @throws IOException If a message had to be sent straight away and could not be
+	 *
+	 * @return None
+	 */
+	public void add(byte[] message, int length, InetAddress address, int portNum) throws IOException {
+		if (!multiMessageFrames) {
+			send(message, length, address, portNum, 1);
+			return;
+		}
+
+		Frame frame = getFrame(address, portNum);
+
+		// Messages longer than the length byte allows, or that can never share
+		// a frame, go on their own after what is already queued
+		if ((length > 0xFF) || (length + 1 > maxFrameSize - FRAME_HEADER_SIZE - FRAME_TRAILER_SIZE)) {
+			sendFrame(frame);
+			send(message, length, address, portNum, 1);
+			return;
+		}
+
+		if (!frame.hasRoomFor(length)) {
+			sendFrame(frame);
+		}
+
+		frame.add(message, length);
+	}
+
+	/**
+	 * flush
+	 *
+	 * Sends everything that has been queued, one datagram per destination.
+	 *
+	 * @param  None
+	 *
+	 * @throws IOException If a datagram could not be sent
+	 *
+	 * @return None
+	 */
+	public void flush() throws IOException {
+		for (int i = 0; i < numFramesInUse; i++) {
+			sendFrame(frames.get(i));
+		}
+
+		numFramesInUse = 0;
+	}
+
+	/**
+	 * getNumMessagesSent
+	 *
+	 * Returns the number of messages that have been sent
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of messages sent
+	 */
+	public long getNumMessagesSent() {
+		return(numMessagesSent);
+	}
+
+	/**
+	 * getNumDatagramsSent
+	 *
+	 * Returns the number of datagrams used to send the messages
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of datagrams sent
+	 */
+	public long getNumDatagramsSent() {
+		return(numDatagramsSent);
+	}
+
+	/**
+	 * getFrame
+	 *
+	 * Returns the frame being built for the given destination,
+	 * reusing a frame from an earlier flush if there is one.
+	 *
+	 * @param address  Address of the destination
+	 * @param portNum  Port of the destination
+	 *
+	 * @return Frame   The frame for the destination
+	 */
+	private Frame getFrame(InetAddress address, int portNum) {
+		for (int i = 0; i < numFramesInUse; i++) {
+			Frame frame = frames.get(i);
+
+			if ((frame.portNum == portNum) && frame.address.equals(address)) {
+				return(frame);
+			}
+		}
+
+		if (numFramesInUse == frames.size()) {
+			frames.add(new Frame(maxFrameSize));
+		}
+
+		Frame frame = frames.get(numFramesInUse);
+		frame.reset(address, portNum);
+		numFramesInUse++;
+
+		return(frame);
+	}
+
+	/**
+	 * sendFrame
+	 *
+	 * Sends the messages in the given frame and empties it. A single
+	 * message is sent on its own rather than in a frame, after moving it
+	 * to the start of the frame so it can be sent without a copy.
+	 *
+	 * @param frame    The frame to send
+	 *
+	 * @throws IOException If the datagram could not be sent
+	 *
+	 * @return None
+	 */
+	private void sendFrame(Frame frame) throws IOException {
+		if (frame.numMessages == 1) {
+			int messageLength = frame.length - FRAME_HEADER_SIZE - 1;
+
+			System.arraycopy(frame.data, FRAME_HEADER_SIZE + 1, frame.data, 0, messageLength);
+			send(frame.data, messageLength, frame.address, frame.portNum, 1);
+		} else if (frame.numMessages > 1) {
+			frame.data[NUM_MESSAGES_IND] = (byte) frame.numMessages;
+			frame.data[frame.length] = UtilityInformation.END_OF_MESSAGE;
+
+			send(frame.data, frame.length + FRAME_TRAILER_SIZE, frame.address, frame.portNum, frame.numMessages);
+		}
+
+		frame.reset(frame.address, frame.portNum);
+	}
+
+	/**
+	 * send
+	 *
+	 * Sends the first length bytes of the given data as one datagram.
+	 *
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 * @param numMessages  Number of messages in the datagram
+	 *
+	 * @throws IOException If the datagram could not be sent
+	 *
+	 * @return None
+	 */
+	private void send(byte[] data, int length, InetAddress address, int portNum, int numMessages) throws IOException {
+		sender.transmit(data, length, address, portNum);
+
+		numMessagesSent += numMessages;
+		numDatagramsSent++;
+	}
+
+	/**
+	 * unpack
+	 *
+	 * Static
+	 *
+	 * Returns a copy of each message in the given multi-message frame.
+	 *
+	 * @param frame    The received frame
+	 * @param length   Number of bytes received
+	 *
+	 * @return ArrayList<byte[]>   The messages in the frame, stopping at the
+	 *                             first message that runs past the end of the frame
+	 */
+	public static ArrayList<byte[]> unpack(byte[] frame, int length) {
+		ArrayList<byte[]> messages = new ArrayList<byte[]>();
+
+		forEachMessage(frame, length, (data, offset, messageLength) -> messages.add(Arrays.copyOfRange(data, offset, offset + messageLength)));
+
+		return(messages);
+	}
+
+	/**
+	 * forEachMessage
+	 *
+	 * Static
+	 *
+	 * Passes where each message in the given multi-message frame starts and
+	 * how long it is to the given visitor, without copying the messages.
+	 *
+	 * @param frame    The received frame
+	 * @param length   Number of bytes received
+	 * @param visitor  Called with each message, in order
+	 *
+	 * @return int Number of messages visited, stopping at the first message
+	 *             that runs past the end of the frame
+	 */
+	public static int forEachMessage(byte[] frame, int length, MessageVisitor visitor) {
+		int numVisited = 0;
+
+		int numMessages = frame[NUM_MESSAGES_IND] & 0xFF;
+		int offset = FRAME_HEADER_SIZE;
+
+		for (int i = 0; i < numMessages; i++) {
+			if (offset >= length) {
+				break;
+			}
+
+			int messageLength = frame[offset] & 0xFF;
+			offset++;
+
+			if (offset + messageLength > length) {
+				System.out.println("Error in MessageBatcher: Multi-message frame is truncated.");
+				break;
+			}
+
+			visitor.visit(frame, offset, messageLength);
+			offset += messageLength;
+			numVisited++;
+		}
+
+		return(numVisited);
+	}
+
+	/**
+	 *
+	 * A multi-message frame being built for one destination
+	 *
+	 */
+	private static class Frame {
+		InetAddress address;
+		int portNum;
+
+		byte[] data;
+
+		// Bytes used so far, not counting the trailer
+		int length;
+		int numMessages;
+
+		/**
+		 * Frame
+		 *
+		 * Constructor
+		 *
+		 * Create a new empty frame of the given size
+		 *
+		 * @param maxFrameSize Largest size of the frame
+		 *
+		 * @return None
+		 */
+		Frame(int maxFrameSize) {
+			data = new byte[maxFrameSize];
+		}
+
+		/**
+		 * reset
+		 *
+		 * Empties the frame and sets its destination. The mode is written
+		 * again because a lone message is sent from the start of the frame.
+		 *
+		 * @param address  Address of the destination
+		 * @param portNum  Port of the destination
+		 *
+		 * @return None
+		 */
+		void reset(InetAddress address, int portNum) {
+			this.address = address;
+			this.portNum = portNum;
+
+			data[UtilityInformation.MODE_BYTE_IND] = UtilityInformation.MULTI_MESSAGE_MODE;
+			length = FRAME_HEADER_SIZE;
+			numMessages = 0;
+		}
+
+		/**
+		 * hasRoomFor
+		 *
+		 * Returns whether a message of the given length fits in the frame
+		 *
+		 * @param messageLength    Length of the message
+		 *
+		 * @return boolean True if the message fits
+		 */
+		boolean hasRoomFor(int messageLength) {
+			return((length + 1 + messageLength + FRAME_TRAILER_SIZE <= data.length) && (numMessages < 0xFF));
+		}
+
+		/**
+		 * add
+		 *
+		 * Adds the first length bytes of the given message to the frame
+		 *
+		 * @param message  The message to add
+		 * @param messageLength    Number of bytes to add
+		 *
+		 * @return None
+		 */
+		void add(byte[] message, int messageLength) {
+			data[length] = (byte) messageLength;
+			System.arraycopy(message, 0, data, length + 1, messageLength);
+
+			length += 1 + messageLength;
+			numMessages++;
+		}
+	}
+}
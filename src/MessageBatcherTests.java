@@ -0,0 +1,209 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MessageBatcherTests {
+    private ServerPattern sender;
+    private ServerPattern receiver;
+    private int receiverPort;
+
+    private InetAddress address;
+
+    /**
+     * setUp
+     *
+     * Creates the ServerPatterns that send and receive the batches
+     *
+     * @throws Exception
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        address = InetAddress.getLoopbackAddress();
+
+        sender = new ServerPattern(TestUtilities.findFreePort(), "BatchSender") {};
+
+        receiverPort = TestUtilities.findFreePort();
+        receiver = new ServerPattern(receiverPort, "BatchReceiver") {};
+    }
+
+    /**
+     * tearDown
+     *
+     * Tears down the ServerPatterns
+     *
+     * @throws Exception
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        sender.teardown();
+        receiver.teardown();
+    }
+
+    /**
+     * testOneDatagramPerDestination
+     *
+     * Tests that the messages for each destination are sent in one datagram,
+     * that a lone message is sent on its own, and that the receiver splits
+     * the frame back into the original messages.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testOneDatagramPerDestination() throws IOException {
+        MessageBatcher batcher = new MessageBatcher(sender, UtilityInformation.MAX_BYTE_ARRAY_SIZE, true);
+
+        DatagramSocket plainSocket = new DatagramSocket();
+        plainSocket.setSoTimeout(2000);
+
+        byte[][] messages = {{UtilityInformation.FLOOR_SENSOR_MODE, 1, 0, UtilityInformation.END_OF_MESSAGE},
+                             {UtilityInformation.FLOOR_SENSOR_MODE, 2, 0, UtilityInformation.END_OF_MESSAGE},
+                             {UtilityInformation.FLOOR_SENSOR_MODE, 3, 0, UtilityInformation.END_OF_MESSAGE}};
+        byte[] lone = {UtilityInformation.ELEVATOR_DIRECTION_MODE, 4, 0, 1, UtilityInformation.END_OF_MESSAGE};
+
+        batcher.add(messages[0], messages[0].length, address, receiverPort);
+        batcher.add(lone, lone.length, address, plainSocket.getLocalPort());
+        batcher.add(messages[1], messages[1].length, address, receiverPort);
+        batcher.add(messages[2], messages[2].length, address, receiverPort);
+
+        assertEquals(0, batcher.getNumDatagramsSent());
+        batcher.flush();
+
+        assertEquals(4, batcher.getNumMessagesSent());
+        assertEquals(2, batcher.getNumDatagramsSent());
+
+        // The lone message is sent without a frame around it
+        byte[] buffer = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+        DatagramPacket plainPacket = new DatagramPacket(buffer, buffer.length);
+        plainSocket.receive(plainPacket);
+        assertEquals(lone.length, plainPacket.getLength());
+        assertEquals(UtilityInformation.ELEVATOR_DIRECTION_MODE, buffer[0]);
+        plainSocket.close();
+
+        for (byte[] message : messages) {
+            DatagramPacket request = receiver.getNextRequest();
+            assertEquals(message.length, request.getLength());
+            for (int i = 0; i < message.length; i++) {
+                assertEquals(message[i], request.getData()[i]);
+            }
+            receiver.releaseRequest(request);
+        }
+    }
+
+    /**
+     * testFullFrameIsSentEarly
+     *
+     * Tests that messages that do not fit in one frame are split over
+     * several frames and still arrive in order.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testFullFrameIsSentEarly() throws IOException {
+        MessageBatcher batcher = new MessageBatcher(sender, UtilityInformation.MAX_BYTE_ARRAY_SIZE, true);
+        int numMessages = 40;
+
+        for (int i = 0; i < numMessages; i++) {
+            byte[] message = {UtilityInformation.FLOOR_REQUEST_MODE, (byte) i, 0, 0, UtilityInformation.END_OF_MESSAGE};
+            batcher.add(message, message.length, address, receiverPort);
+        }
+        batcher.flush();
+
+        // 6 bytes per message and 3 bytes of framing in a 100 byte frame
+        assertEquals(3, batcher.getNumDatagramsSent());
+
+        for (int i = 0; i < numMessages; i++) {
+            DatagramPacket request = receiver.getNextRequest();
+            assertEquals((byte) i, request.getData()[1]);
+            receiver.releaseRequest(request);
+        }
+    }
+
+    /**
+     * testFrameReusedAfterLoneMessage
+     *
+     * Tests that a frame whose lone message was sent from the start of
+     * the frame still sends a multi-message frame on the next flush.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testFrameReusedAfterLoneMessage() throws IOException {
+        MessageBatcher batcher = new MessageBatcher(sender, UtilityInformation.MAX_BYTE_ARRAY_SIZE, true);
+
+        byte[] lone = {UtilityInformation.ELEVATOR_DIRECTION_MODE, 4, 0, 1, UtilityInformation.END_OF_MESSAGE};
+        batcher.add(lone, lone.length, address, receiverPort);
+        batcher.flush();
+
+        byte[][] messages = {{UtilityInformation.FLOOR_SENSOR_MODE, 1, 0, UtilityInformation.END_OF_MESSAGE},
+                             {UtilityInformation.FLOOR_SENSOR_MODE, 2, 0, UtilityInformation.END_OF_MESSAGE}};
+        for (byte[] message : messages) {
+            batcher.add(message, message.length, address, receiverPort);
+        }
+        batcher.flush();
+
+        assertEquals(2, batcher.getNumDatagramsSent());
+
+        DatagramPacket request = receiver.getNextRequest();
+        assertEquals(lone.length, request.getLength());
+        assertEquals(UtilityInformation.ELEVATOR_DIRECTION_MODE, request.getData()[0]);
+        receiver.releaseRequest(request);
+
+        for (byte[] message : messages) {
+            request = receiver.getNextRequest();
+            assertEquals(message.length, request.getLength());
+            assertEquals(message[1], request.getData()[1]);
+            receiver.releaseRequest(request);
+        }
+    }
+
+    /**
+     * testUnpackTruncatedFrame
+     *
+     * Tests that unpacking stops at a message that runs past the
+     * end of the received bytes.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testUnpackTruncatedFrame() {
+        byte[] frame = {UtilityInformation.MULTI_MESSAGE_MODE, 2,
+                        2, UtilityInformation.TEARDOWN_MODE, UtilityInformation.END_OF_MESSAGE,
+                        4, UtilityInformation.FLOOR_SENSOR_MODE, 1};
+
+        ArrayList<byte[]> messages = MessageBatcher.unpack(frame, frame.length);
+
+        assertEquals(1, messages.size());
+        assertArrayEquals(new byte[] {UtilityInformation.TEARDOWN_MODE, UtilityInformation.END_OF_MESSAGE}, messages.get(0));
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.PrintWriter;
+
+/**
+ *
+ * Timing information for the messages a subsystem handles. For every message
+ * mode it keeps a histogram of how long the handler took and one of the time
+ * between messages of that mode arriving. Together they give the worst case
+ * execution time and the shortest period of every handler, which are what a
+ * rate-monotonic analysis needs.
+ *
+ * The histograms are a fixed size, so recording never allocates and a run of
+ * any length uses the same memory.
+ *
+ */
+public class MessageTimings {
+	// Number of message modes, one more than the highest mode
+	private static final int NUM_MODES = UtilityInformation.MULTI_MESSAGE_MODE + 1;
+
+	private static final String[] MODE_NAMES = {"CONFIG_MODE",
+	                                            "FLOOR_SENSOR_MODE",
+	                                            "FLOOR_REQUEST_MODE",
+	                                            "ELEVATOR_BUTTON_HIT_MODE",
+	                                            "ELEVATOR_DIRECTION_MODE",
+	                                            "ELEVATOR_DOOR_MODE",
+	                                            "SEND_DESTINATION_TO_ELEVATOR_MODE",
+	                                            "TEARDOWN_MODE",
+	                                            "CONFIG_CONFIRM_MODE",
+	                                            "ERROR_MESSAGE_MODE",
+	                                            "FIX_ERROR_MODE",
+	                                            "FIX_DOOR_MODE",
+	                                            "ALL_REQUESTS_FINISHED_MODE",
+	                                            "MULTI_MESSAGE_MODE"};
+
+	private LatencyHistogram durations[];
+	private LatencyHistogram interArrivals[];
+
+	// Time the last message of each mode arrived, or -1 for none yet
+	private long lastArrivalTimes[];
+
+	// Number of messages of each mode, and the time, when the metrics were
+	// last written, for the rate since then
+	private long lastWrittenCounts[];
+	private long lastWrittenTime;
+
+	/**
+	 * MessageTimings
+	 *
+	 * Constructor
+	 *
+	 * Create new empty timings for every message mode.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public MessageTimings() {
+		durations = new LatencyHistogram[NUM_MODES];
+		interArrivals = new LatencyHistogram[NUM_MODES];
+		lastArrivalTimes = new long[NUM_MODES];
+		lastWrittenCounts = new long[NUM_MODES];
+		lastWrittenTime = System.nanoTime();
+
+		for (int i = 0; i < NUM_MODES; i++) {
+			durations[i] = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+			                                    UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+			interArrivals[i] = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+			                                        UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+			lastArrivalTimes[i] = -1;
+		}
+	}
+
+	/**
+	 * record
+	 *
+	 * Records the handling of one message of the given mode. Messages of an
+	 * unknown mode are not recorded.
+	 *
+	 * @param mode The mode of the message handled
+	 * @param startTime    Time the message arrived, in nanoseconds
+	 * @param finishTime   Time the handler finished, in nanoseconds
+	 *
+	 * @return None
+	 */
+	public void record(byte mode, long startTime, long finishTime) {
+		if ((mode < 0) || (mode >= NUM_MODES)) {
+			return;
+		}
+
+		durations[mode].record(finishTime - startTime);
+
+		synchronized (lastArrivalTimes) {
+			if (lastArrivalTimes[mode] != -1) {
+				interArrivals[mode].record(startTime - lastArrivalTimes[mode]);
+			}
+
+			lastArrivalTimes[mode] = startTime;
+		}
+	}
+
+	/**
+	 * getDurations
+	 *
+	 * Returns the histogram of handler times for the given mode
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return LatencyHistogram    Handler times in nanoseconds
+	 */
+	public LatencyHistogram getDurations(byte mode) {
+		return(durations[mode]);
+	}
+
+	/**
+	 * getInterArrivals
+	 *
+	 * Returns the histogram of times between messages of the given mode
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return LatencyHistogram    Times between arrivals in nanoseconds
+	 */
+	public LatencyHistogram getInterArrivals(byte mode) {
+		return(interArrivals[mode]);
+	}
+
+	/**
+	 * getModeName
+	 *
+	 * Static
+	 *
+	 * Returns the name of the given message mode
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return String  Name of the mode, e.g. FLOOR_SENSOR_MODE
+	 */
+	public static String getModeName(int mode) {
+		if ((mode < 0) || (mode >= NUM_MODES)) {
+			return("UNKNOWN_MODE");
+		}
+
+		return(MODE_NAMES[mode]);
+	}
+
+	/**
+	 * getNumModes
+	 *
+	 * Static
+	 *
+	 * Returns the number of message modes that are recorded
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of modes
+	 */
+	public static int getNumModes() {
+		return(NUM_MODES);
+	}
+
+	/**
+	 * reset
+	 *
+	 * Clears every recorded time.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void reset() {
+		synchronized (lastArrivalTimes) {
+			for (int i = 0; i < NUM_MODES; i++) {
+				durations[i].reset();
+				interArrivals[i].reset();
+				lastArrivalTimes[i] = -1;
+			}
+		}
+	}
+
+	/**
+	 * printDurations
+	 *
+	 * Prints the handler times of every mode that was handled, in
+	 * nanoseconds.
+	 *
+	 * @param writer   Where to print the times
+	 *
+	 * @return None
+	 */
+	public void printDurations(PrintWriter writer) {
+		writer.println("MODE COUNT P50 P99 P999 MAX MEAN");
+
+		for (byte i = 0; i < NUM_MODES; i++) {
+			LatencyHistogram histogram = durations[i];
+
+			if (histogram.getTotalCount() != 0) {
+				writer.println(String.format("%s %d %d %d %d %d %d",
+				                             MODE_NAMES[i],
+				                             histogram.getTotalCount(),
+				                             histogram.getValueAtPercentile(50),
+				                             histogram.getValueAtPercentile(99),
+				                             histogram.getValueAtPercentile(99.9),
+				                             histogram.getMax(),
+				                             histogram.getMean()));
+			}
+		}
+
+		writer.println("");
+	}
+
+	/**
+	 * printInterArrivals
+	 *
+	 * Prints the times between arrivals of every mode that arrived more than
+	 * once, in nanoseconds. MIN is the shortest period of the mode.
+	 *
+	 * @param writer   Where to print the times
+	 *
+	 * @return None
+	 */
+	public void printInterArrivals(PrintWriter writer) {
+		writer.println("MODE COUNT MIN P50 P99 MAX MEAN");
+
+		for (byte i = 0; i < NUM_MODES; i++) {
+			LatencyHistogram histogram = interArrivals[i];
+
+			if (histogram.getTotalCount() != 0) {
+				writer.println(String.format("%s %d %d %d %d %d %d",
+				                             MODE_NAMES[i],
+				                             histogram.getTotalCount(),
+				                             histogram.getMin(),
+				                             histogram.getValueAtPercentile(50),
+				                             histogram.getValueAtPercentile(99),
+				                             histogram.getMax(),
+				                             histogram.getMean()));
+			}
+		}
+
+		writer.println("");
+	}
+
+	/**
+	 * writeMetrics
+	 *
+	 * Writes the number of messages, the rate since the metrics were last
+	 * written and the handler time percentiles of every mode that was handled,
+	 * in the Prometheus text format.
+	 *
+	 * @param writer   Where to write the metrics
+	 * @param subsystem    Name of the subsystem the timings are for
+	 *
+	 * @return None
+	 */
+	public synchronized void writeMetrics(PrintWriter writer, String subsystem) {
+		long now = System.nanoTime();
+		double seconds = Math.max(now - lastWrittenTime, 1) / 1e9;
+
+		long counts[] = new long[NUM_MODES];
+		for (byte i = 0; i < NUM_MODES; i++) {
+			counts[i] = durations[i].getTotalCount();
+		}
+
+		MetricsServer.writeType(writer, "ecs_messages_total", "counter", "Messages handled");
+		for (byte i = 0; i < NUM_MODES; i++) {
+			if (counts[i] != 0) {
+				writer.println("ecs_messages_total" + MetricsServer.labels("subsystem", subsystem, "mode", MODE_NAMES[i]) + " " + counts[i]);
+			}
+		}
+
+		MetricsServer.writeType(writer, "ecs_message_rate", "gauge", "Messages handled per second since the metrics were last read");
+		for (byte i = 0; i < NUM_MODES; i++) {
+			if (counts[i] != 0) {
+				writer.println("ecs_message_rate" + MetricsServer.labels("subsystem", subsystem, "mode", MODE_NAMES[i]) + " " +
+				               String.format("%.3f", (counts[i] - lastWrittenCounts[i]) / seconds));
+			}
+		}
+
+		MetricsServer.writeType(writer, "ecs_handler_nanos", "summary", "Time taken to handle a message");
+		for (byte i = 0; i < NUM_MODES; i++) {
+			if (counts[i] != 0) {
+				MetricsServer.writeSummary(writer, "ecs_handler_nanos", MetricsServer.labels("subsystem", subsystem, "mode", MODE_NAMES[i]), durations[i]);
+			}
+		}
+
+		MetricsServer.writeType(writer, "ecs_handler_max_nanos", "gauge", "Longest time taken to handle a message");
+		for (byte i = 0; i < NUM_MODES; i++) {
+			if (counts[i] != 0) {
+				writer.println("ecs_handler_max_nanos" + MetricsServer.labels("subsystem", subsystem, "mode", MODE_NAMES[i]) + " " + durations[i].getMax());
+			}
+		}
+
+		lastWrittenCounts = counts;
+		lastWrittenTime = now;
+	}
+}
@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ *
+ * Small HTTP server that publishes the live metrics of a ServerPattern at
+ * http://localhost:<port>/metrics in the Prometheus text format, so the
+ * queue depth, message rates and handler times can be watched while the
+ * system runs. It only listens on the loopback address and handles one
+ * request at a time on its own thread.
+ *
+ */
+public class MetricsServer {
+	private HttpServer httpServer;
+	private ExecutorService executor;
+
+	/**
+	 * MetricsServer
+	 *
+	 * Constructor
+	 *
+	 * Create a new MetricsServer for the given ServerPattern on the given
+	 * local port and start it.
+	 *
+	 * @param source   The ServerPattern whose metrics are published
+	 * @param portNum  Port number to listen on
+	 *
+	 * @throws IOException If the port could not be used
+	 *
+	 * @return None
+	 */
+	public MetricsServer(final ServerPattern source, int portNum) throws IOException {
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), portNum), 0);
+
+		httpServer.createContext("/metrics", (HttpExchange exchange) -> {
+			try {
+				StringWriter text = new StringWriter();
+				PrintWriter writer = new PrintWriter(text);
+
+				source.writeMetrics(writer);
+				writer.flush();
+
+				byte[] response = text.toString().getBytes(StandardCharsets.UTF_8);
+
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, response.length);
+
+				OutputStream body = exchange.getResponseBody();
+				body.write(response);
+				body.close();
+			} finally {
+				exchange.close();
+			}
+		});
+
+		executor = Executors.newSingleThreadExecutor((Runnable r) -> {
+			Thread thread = new Thread(r, "MetricsServer");
+			thread.setDaemon(true);
+			return(thread);
+		});
+
+		httpServer.setExecutor(executor);
+		httpServer.start();
+	}
+
+	/**
+	 * getPort
+	 *
+	 * Returns the port the server is listening on
+	 *
+	 * @param  None
+	 *
+	 * @return int Port number
+	 */
+	public int getPort() {
+		return(httpServer.getAddress().getPort());
+	}
+
+	/**
+	 * stop
+	 *
+	 * Stops the server.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void stop() {
+		httpServer.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * labels
+	 *
+	 * Static
+	 *
+	 * Returns the given label names and values in the Prometheus format,
+	 * e.g. {subsystem="Scheduler",mode="FLOOR_SENSOR_MODE"}
+	 *
+	 * @param namesAndValues   Label names each followed by its value
+	 *
+	 * @return String  The labels
+	 */
+	public static String labels(String... namesAndValues) {
+		StringBuilder labels = new StringBuilder("{");
+
+		for (int i = 0; (i + 1) < namesAndValues.length; i += 2) {
+			if (i != 0) {
+				labels.append(',');
+			}
+
+			labels.append(namesAndValues[i]).append("=\"").append(namesAndValues[i + 1]).append('"');
+		}
+
+		return(labels.append('}').toString());
+	}
+
+	/**
+	 * writeType
+	 *
+	 * Static
+	 *
+	 * Writes the help and type lines that come before a metric.
+	 *
+	 * @param writer   Where to write the lines
+	 * @param name Name of the metric
+	 * @param type Prometheus type of the metric, e.g. gauge
+	 * @param help Description of the metric
+	 *
+	 * @return None
+	 */
+	public static void writeType(PrintWriter writer, String name, String type, String help) {
+		writer.println("# HELP " + name + " " + help);
+		writer.println("# TYPE " + name + " " + type);
+	}
+
+	/**
+	 * writeSummary
+	 *
+	 * Static
+	 *
+	 * Writes the p50, p99 and p999 of the given histogram, with its count
+	 * and sum, as a Prometheus summary. The help and type lines must already
+	 * have been written.
+	 *
+	 * @param writer   Where to write the summary
+	 * @param name Name of the metric
+	 * @param labels   Labels from labels(), without the quantile
+	 * @param histogram    The histogram to summarise
+	 *
+	 * @return None
+	 */
+	public static void writeSummary(PrintWriter writer, String name, String labels, LatencyHistogram histogram) {
+		String prefix = labels.substring(0, labels.length() - 1);
+		if (prefix.length() > 1) {
+			prefix += ",";
+		}
+
+		writer.println(name + prefix + "quantile=\"0.5\"} " + histogram.getValueAtPercentile(50));
+		writer.println(name + prefix + "quantile=\"0.99\"} " + histogram.getValueAtPercentile(99));
+		writer.println(name + prefix + "quantile=\"0.999\"} " + histogram.getValueAtPercentile(99.9));
+		writer.println(name + "_sum" + labels + " " + histogram.getTotal());
+		writer.println(name + "_count" + labels + " " + histogram.getTotalCount());
+	}
+}
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsServerTests {
+
+    /**
+     * fetchMetrics
+     *
+     * Reads the metrics from the given server
+     *
+     * @param server   The metrics server
+     *
+     * @return String  The metrics text
+     *
+     * @throws IOException
+     */
+    private String fetchMetrics(MetricsServer server) throws IOException {
+        URL url = new URL("http://localhost:" + server.getPort() + "/metrics");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+        assertEquals(200, connection.getResponseCode());
+
+        InputStream body = connection.getInputStream();
+        String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        body.close();
+        connection.disconnect();
+
+        return(text);
+    }
+
+    /**
+     * testSchedulerMetrics
+     *
+     * Tests that the metrics of a Scheduler that has delivered every passenger
+     * of a short trace show the messages handled, the active requests of each
+     * elevator and the wait and ride times.
+     *
+     * @param   None
+     *
+     * @return  void
+     *
+     * @throws IOException
+     */
+    @Test
+    void testSchedulerMetrics() throws IOException {
+        ElevatorSimulator simulator = new ElevatorSimulator(UtilityInformation.DEFAULT_NUM_FLOORS, 2, DispatchStrategy.Type.DEFAULT);
+
+        ArrayList<int[]> trace = new ArrayList<int[]>();
+        trace.add(new int[] {0, 0, 3, UtilityInformation.ElevatorDirection.UP.ordinal()});
+        trace.add(new int[] {1000, 5, 1, UtilityInformation.ElevatorDirection.DOWN.ordinal()});
+        trace.add(new int[] {2000, 2, 8, UtilityInformation.ElevatorDirection.UP.ordinal()});
+        simulator.run(trace);
+
+        MetricsServer server = new MetricsServer(simulator.getScheduler(), 0);
+        try {
+            String metrics = fetchMetrics(server);
+
+            assertTrue(metrics.contains("ecs_queue_depth{subsystem=\"Scheduler\"} 0"));
+            assertTrue(metrics.contains("ecs_messages_total{subsystem=\"Scheduler\",mode=\"FLOOR_REQUEST_MODE\"} 3"));
+            assertTrue(metrics.contains("ecs_handler_nanos{subsystem=\"Scheduler\",mode=\"FLOOR_SENSOR_MODE\",quantile=\"0.99\"}"));
+            assertTrue(metrics.contains("ecs_active_requests{subsystem=\"Scheduler\",elevator=\"0\"} 0"));
+            assertTrue(metrics.contains("ecs_active_requests{subsystem=\"Scheduler\",elevator=\"1\"} 0"));
+            assertTrue(metrics.contains("ecs_wait_nanos_count{subsystem=\"Scheduler\"} 3"));
+            assertTrue(metrics.contains("ecs_ride_nanos_count{subsystem=\"Scheduler\"} 3"));
+            assertTrue(metrics.contains("ecs_wait_average_nanos{subsystem=\"Scheduler\"}"));
+            assertTrue(metrics.contains("ecs_dispatch_decision_nanos_count{subsystem=\"Scheduler\"} 3"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * testLabels
+     *
+     * Tests the format of metric labels.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testLabels() {
+        assertEquals("{}", MetricsServer.labels());
+        assertEquals("{subsystem=\"Scheduler\",mode=\"CONFIG_MODE\"}", MetricsServer.labels("subsystem", "Scheduler", "mode", "CONFIG_MODE"));
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * Bounded lock-free multi-producer/single-consumer ring buffer.
+ *
+ * Each slot has a sequence number. A producer may write to a slot once its
+ * sequence equals the producer's claimed position, and the consumer may read
+ * it once the sequence is one past that position. Adding and removing
+ * elements does not allocate.
+ *
+ * @param <E>  Type of element held in the ring
+ *
+ */
+public class MpscRing<E> {
+	private Object[] slots;
+	private AtomicLongArray sequences;
+	private int mask;
+
+	private AtomicLong tail;
+	private AtomicLong head;
+
+	/**
+	 * MpscRing
+	 *
+	 * Constructor
+	 *
+	 * Create a new MpscRing that can hold at least the given number of elements.
+	 * The capacity is rounded up to a power of two.
+	 *
+	 * @param minCapacity  Minimum number of elements in the ring
+	 *
+	 * @return None
+	 */
+	public MpscRing(int minCapacity) {
+		int capacity = 1;
+		while (capacity < minCapacity) {
+			capacity <<= 1;
+		}
+
+		slots = new Object[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+
+		mask = capacity - 1;
+		tail = new AtomicLong(0);
+		head = new AtomicLong(0);
+	}
+
+	/**
+	 * offer
+	 *
+	 * Adds the given element to the ring if there is room.
+	 * May be called by any number of threads.
+	 *
+	 * @param element  The element to add
+	 *
+	 * @return boolean True if the element was added, false if the ring is full
+	 */
+	public boolean offer(E element) {
+		long pos = tail.get();
+
+		while (true) {
+			int index = (int) (pos & mask);
+			long diff = sequences.get(index) - pos;
+
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					slots[index] = element;
+					sequences.set(index, pos + 1);
+					return(true);
+				}
+				pos = tail.get();
+			} else if (diff < 0) {
+				return(false);
+			} else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * poll
+	 *
+	 * Removes and returns the oldest element in the ring.
+	 * Must only be called by one thread.
+	 *
+	 * @param  None
+	 *
+	 * @return E   The oldest element, or null if the ring is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long pos = head.get();
+		int index = (int) (pos & mask);
+
+		if (sequences.get(index) != pos + 1) {
+			return(null);
+		}
+
+		E element = (E) slots[index];
+		slots[index] = null;
+
+		sequences.set(index, pos + slots.length);
+		head.lazySet(pos + 1);
+
+		return(element);
+	}
+
+	/**
+	 * isEmpty
+	 *
+	 * Returns whether the next slot for the consumer has not been published
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if the ring is empty
+	 */
+	public boolean isEmpty() {
+		long pos = head.get();
+
+		return(sequences.get((int) (pos & mask)) != pos + 1);
+	}
+
+	/**
+	 * isFull
+	 *
+	 * Returns whether the next slot for a producer is still in use
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if the ring is full
+	 */
+	public boolean isFull() {
+		long pos = tail.get();
+
+		return(sequences.get((int) (pos & mask)) < pos);
+	}
+
+	/**
+	 * size
+	 *
+	 * Returns the approximate number of elements in the ring
+	 *
+	 * @param  None
+	 *
+	 * @return int The number of elements in the ring
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+
+		return((int) Math.max(0, Math.min(size, slots.length)));
+	}
+
+	/**
+	 * capacity
+	 *
+	 * Returns the number of elements the ring can hold
+	 *
+	 * @param  None
+	 *
+	 * @return int The capacity of the ring
+	 */
+	public int capacity() {
+		return(slots.length);
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ * Nearest-car dispatching. Each usable elevator gets a figure of suitability
+ * based on its distance from the request and whether it is already heading
+ * towards the request, and the most suitable elevator is chosen:
+ *
+ *     Moving towards the request in the requested direction:   N + 2 - d
+ *     Moving towards the request in the other direction:       N + 1 - d
+ *     Not moving:                                              N + 1 - d
+ *     Moving away from the request:                            1
+ *
+ * where N is the largest possible distance and d is the distance to the request.
+ *
+ */
+public class NearestCarDispatchStrategy implements DispatchStrategy {
+
+	/**
+	 * chooseElevator
+	 *
+	 * Overridden
+	 *
+	 * Returns the usable elevator with the highest figure of suitability.
+	 * Ties go to the elevator with fewer active requests.
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param request  The new request
+	 *
+	 * @return byte    Number of the chosen elevator, or -1 if no elevator is usable
+	 */
+	@Override
+	public byte chooseElevator(SchedulerAlgorithm algorithm, Request request) {
+		byte chosenElevator = -1;
+
+		int bestSuitability = -1;
+		int bestQueue = -1;
+
+		for (byte i = 0; i < algorithm.getNumberOfElevators(); i++) {
+			if (algorithm.isUsable(i)) {
+				int suitability = getSuitability(algorithm, i, request);
+				int queue = algorithm.howManyMoreActiveRequests(i);
+
+				if ((suitability > bestSuitability) ||
+				    ((suitability == bestSuitability) && (queue < bestQueue))) {
+					chosenElevator = i;
+					bestSuitability = suitability;
+					bestQueue = queue;
+				}
+			}
+		}
+
+		return(chosenElevator);
+	}
+
+	/**
+	 * getSuitability
+	 *
+	 * Returns the figure of suitability of the given elevator for the request
+	 *
+	 * @param algorithm    The SchedulerAlgorithm holding the state of every elevator
+	 * @param elevatorNum  The number of the elevator
+	 * @param request  The new request
+	 *
+	 * @return int The figure of suitability, higher is better
+	 */
+	private int getSuitability(SchedulerAlgorithm algorithm, byte elevatorNum, Request request) {
+		int maxDistance = algorithm.getNumberOfFloors() - 1;
+
+		int currFloor = algorithm.getCurrentFloor(elevatorNum);
+		int sourceFloor = request.getSourceFloor();
+		int distance = Math.abs(sourceFloor - currFloor);
+
+		UtilityInformation.ElevatorDirection dir = algorithm.getDirection(elevatorNum);
+
+		if (dir == UtilityInformation.ElevatorDirection.STATIONARY) {
+			return(maxDistance + 1 - distance);
+		}
+
+		boolean movingTowards = ((dir == UtilityInformation.ElevatorDirection.UP) && (sourceFloor >= currFloor)) ||
+		                        ((dir == UtilityInformation.ElevatorDirection.DOWN) && (sourceFloor <= currFloor));
+
+		if (!movingTowards) {
+			return(1);
+		}
+
+		if (dir == request.getRequestDirection()) {
+			return(maxDistance + 2 - distance);
+		}
+
+		return(maxDistance + 1 - distance);
+	}
+
+	/**
+	 * getType
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return Type    NEAREST_CAR
+	 */
+	@Override
+	public Type getType() {
+		return(Type.NEAREST_CAR);
+	}
+}
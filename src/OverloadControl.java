@@ -0,0 +1,649 @@
+import java.io.PrintWriter;
+import java.net.DatagramPacket;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Decides what happens to a received signal when the ServerPattern's inbox
+ * is full, instead of always making the receiving thread wait while the OS
+ * drops whatever arrives. The policies are:
+ *     BLOCK     Wait for room, as the inbox does on its own
+ *     SHED      Drop the signals in SHED_ORDER as the inbox fills. Each
+ *               of them is only taken while the inbox holds fewer signals
+ *               than its threshold, and the thresholds rise through
+ *               SHED_ORDER from OVERLOAD_SHED_START of the inbox to just
+ *               under full, so hall calls (FLOOR_REQUEST_MODE) are
+ *               dropped first
+ *     COALESCE  Once the inbox holds OVERLOAD_COALESCE_START of its
+ *               signals, drop a floor request while the same request
+ *               (floor, direction and destination) is still waiting to be
+ *               handled, as handling it again would not change any
+ *               elevator's stops. Below that every request is delivered
+ *     OVERFLOW  Copy signals that do not fit into an overflow buffer, which
+ *               is moved into the inbox as it empties, and only wait once
+ *               the overflow buffer is full too
+ *
+ * A signal fits in the inbox while the lane for its mode has room, so the
+ * receiving thread is only counted as waiting when that lane is full. The
+ * SHED and COALESCE thresholds are shares of the number of signals the
+ * ServerPattern expects to queue in total, since the lanes of a lane ring
+ * inbox together hold far more than that.
+ *
+ * Safety-critical signals (errors, fixes, door and direction commands,
+ * configuration and teardown) are never dropped by any policy, and wait
+ * for room as with BLOCK. Neither are floor sensor messages, as nothing
+ * sends them again and the elevator would never be told to stop, nor
+ * button presses in an elevator, as the passenger's destination would be
+ * lost. Every signal dropped, coalesced or overflowed is
+ * counted, and the first time each happens a warning is logged.
+ *
+ * Any number of threads may put signals, but only the thread handling them
+ * may take them.
+ *
+ */
+public class OverloadControl {
+
+	// What to do with a received signal when the inbox is full
+	public enum Policy {
+		BLOCK, SHED, COALESCE, OVERFLOW
+	}
+
+	// Modes that are never dropped
+	private static final byte[] PROTECTED_MODES = {UtilityInformation.CONFIG_MODE,
+	                                               UtilityInformation.ELEVATOR_DOOR_MODE,
+	                                               UtilityInformation.ELEVATOR_DIRECTION_MODE,
+	                                               UtilityInformation.TEARDOWN_MODE,
+	                                               UtilityInformation.CONFIG_CONFIRM_MODE,
+	                                               UtilityInformation.ERROR_MESSAGE_MODE,
+	                                               UtilityInformation.FIX_ERROR_MODE,
+	                                               UtilityInformation.FIX_DOOR_MODE,
+	                                               UtilityInformation.ALL_REQUESTS_FINISHED_MODE,
+	                                               UtilityInformation.FLOOR_SENSOR_MODE,
+	                                               UtilityInformation.ELEVATOR_BUTTON_HIT_MODE};
+
+	// Modes SHED may drop, in the order they start being dropped
+	private static final byte[] SHED_ORDER = {UtilityInformation.FLOOR_REQUEST_MODE,
+	                                          UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE};
+
+	// Threshold of a mode that is never shed
+	private static final int NEVER_SHED = Integer.MAX_VALUE;
+
+	// Bytes of a floor request read to tell whether it is a duplicate
+	private static final int FLOOR_IND = 1;
+	private static final int DIRECTION_IND = 2;
+	private static final int DESTINATION_IND = 3;
+	private static final int NUM_DIRECTIONS = UtilityInformation.ElevatorDirection.values().length;
+
+	private SignalInbox inbox;
+	private volatile Policy policy;
+
+	// Where leased packets are returned when dropped (null if not pooled)
+	private PacketPool packetPool;
+
+	// Name logged with warnings
+	private String name;
+
+	// Inbox depth at which each mode starts being shed
+	private int[] shedThresholds;
+
+	// Inbox depth at which duplicate floor requests start being dropped
+	private int coalesceThreshold;
+
+	// Floor requests waiting in the inbox by floor, direction and
+	// destination. Only made once a floor request is received with COALESCE
+	private volatile AtomicIntegerArray queuedFloorRequests;
+
+	// Signals that did not fit in the inbox, oldest first
+	private ArrayDeque<DatagramPacket> overflow;
+	private volatile int overflowDepth;
+	private int overflowSize;
+	private ReentrantLock overflowLock;
+	private Condition overflowNotFull;
+
+	// Counts of what each policy did
+	private AtomicLongArray numShed;
+	private AtomicLong numCoalesced;
+	private AtomicLong numOverflowed;
+	private AtomicLong numWaited;
+	private volatile int maxOverflowDepth;
+
+	// Set once the warning for each has been logged
+	private AtomicBoolean shedWarned;
+	private AtomicBoolean coalesceWarned;
+	private AtomicBoolean overflowWarned;
+	private AtomicBoolean waitWarned;
+
+	/**
+	 * OverloadControl
+	 *
+	 * Constructor
+	 *
+	 * Create a new OverloadControl in front of the given inbox.
+	 *
+	 * @param inbox    Inbox the signals are queued in
+	 * @param maxNumSignals    Number of signals the SHED and COALESCE thresholds
+	 *                         are a share of
+	 * @param policy   What to do with signals that arrive when the inbox is full
+	 * @param packetPool   Pool the received packets are leased from, or null
+	 * @param name Name of the ServerPattern, used in warnings
+	 *
+	 * @return None
+	 */
+	public OverloadControl(SignalInbox inbox,
+	                       int maxNumSignals,
+	                       Policy policy,
+	                       PacketPool packetPool,
+	                       String name) {
+		this.inbox = inbox;
+		this.policy = policy;
+		this.packetPool = packetPool;
+		this.name = name;
+
+		shedThresholds = createShedThresholds(maxNumSignals);
+		coalesceThreshold = (int) (maxNumSignals * UtilityInformation.OVERLOAD_COALESCE_START);
+		queuedFloorRequests = null;
+
+		overflow = new ArrayDeque<DatagramPacket>();
+		overflowDepth = 0;
+		overflowSize = UtilityInformation.OVERLOAD_OVERFLOW_SIZE;
+		overflowLock = new ReentrantLock();
+		overflowNotFull = overflowLock.newCondition();
+
+		numShed = new AtomicLongArray(256);
+		numCoalesced = new AtomicLong();
+		numOverflowed = new AtomicLong();
+		numWaited = new AtomicLong();
+		maxOverflowDepth = 0;
+
+		shedWarned = new AtomicBoolean(false);
+		coalesceWarned = new AtomicBoolean(false);
+		overflowWarned = new AtomicBoolean(false);
+		waitWarned = new AtomicBoolean(false);
+	}
+
+	/**
+	 * isProtected
+	 *
+	 * Static
+	 *
+	 * Returns whether signals of the given mode are never dropped
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return boolean True if the mode is never dropped
+	 */
+	public static boolean isProtected(byte mode) {
+		for (byte protectedMode : PROTECTED_MODES) {
+			if (mode == protectedMode) {
+				return(true);
+			}
+		}
+
+		return(false);
+	}
+
+	/**
+	 * put
+	 *
+	 * Adds the given signal to the inbox, unless the policy drops it or
+	 * moves it to the overflow buffer. Waits if the inbox is full and the
+	 * signal can not be dropped or overflowed.
+	 *
+	 * @param signal   DatagramPacket containing the received signal
+	 *
+	 * @return None
+	 */
+	public void put(DatagramPacket signal) {
+		byte mode = signal.getData()[UtilityInformation.MODE_BYTE_IND];
+
+		switch (policy) {
+		case SHED:
+			if (shed(signal, mode)) {
+				return;
+			}
+			break;
+		case COALESCE:
+			if (coalesce(signal, mode)) {
+				return;
+			}
+			break;
+		case OVERFLOW:
+			if (addToOverflow(signal)) {
+				return;
+			}
+			break;
+		default:
+			break;
+		}
+
+		// Only counted when the signal's lane is actually full
+		if (!inbox.offer(signal)) {
+			numWaited.incrementAndGet();
+			warnOnce(waitWarned, "Inbox full, receiving thread is waiting for room");
+
+			inbox.put(signal);
+		}
+	}
+
+	/**
+	 * take
+	 *
+	 * Removes and returns the next signal from the inbox, then moves any
+	 * signals in the overflow buffer that now fit into the inbox. Must only
+	 * be called by one thread. Waits until the inbox is not empty.
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramPacket containing the next signal
+	 */
+	public DatagramPacket take() {
+		DatagramPacket signal = inbox.take();
+
+		AtomicIntegerArray queued = queuedFloorRequests;
+		if ((queued != null) && (signal.getData()[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.FLOOR_REQUEST_MODE)) {
+			// Never below zero, as requests put with another policy were not counted
+			queued.getAndUpdate(floorRequestKey(signal), count -> Math.max(count - 1, 0));
+		}
+
+		if (overflowDepth > 0) {
+			overflowLock.lock();
+			try {
+				drainOverflow();
+			} finally {
+				overflowLock.unlock();
+			}
+		}
+
+		return(signal);
+	}
+
+	/**
+	 * setPolicy
+	 *
+	 * Changes what is done with signals that arrive when the inbox is full.
+	 * Signals already in the overflow buffer are still moved to the inbox.
+	 *
+	 * @param newPolicy    The new policy
+	 *
+	 * @return None
+	 */
+	public void setPolicy(Policy newPolicy) {
+		policy = newPolicy;
+	}
+
+	public Policy getPolicy() {
+		return(policy);
+	}
+
+	/**
+	 * getOverflowDepth
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of signals waiting in the overflow buffer
+	 */
+	public int getOverflowDepth() {
+		return(overflowDepth);
+	}
+
+	/**
+	 * getMaxOverflowDepth
+	 *
+	 * @param  None
+	 *
+	 * @return int Most signals that have been in the overflow buffer at once
+	 */
+	public int getMaxOverflowDepth() {
+		return(maxOverflowDepth);
+	}
+
+	/**
+	 * getNumShed
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return long    Number of signals of the given mode dropped by SHED
+	 */
+	public long getNumShed(byte mode) {
+		return(numShed.get(mode & 0xFF));
+	}
+
+	/**
+	 * getNumShed
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of signals of every mode dropped by SHED
+	 */
+	public long getNumShed() {
+		long total = 0;
+
+		for (int i = 0; i < numShed.length(); i++) {
+			total += numShed.get(i);
+		}
+
+		return(total);
+	}
+
+	/**
+	 * getNumCoalesced
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of duplicate floor requests dropped by COALESCE
+	 */
+	public long getNumCoalesced() {
+		return(numCoalesced.get());
+	}
+
+	/**
+	 * getNumOverflowed
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of signals put in the overflow buffer
+	 */
+	public long getNumOverflowed() {
+		return(numOverflowed.get());
+	}
+
+	/**
+	 * getNumWaited
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of signals that arrived with the inbox full and
+	 *                 had to wait for room
+	 */
+	public long getNumWaited() {
+		return(numWaited.get());
+	}
+
+	/**
+	 * getShedThreshold
+	 *
+	 * @param mode The message mode
+	 *
+	 * @return int Inbox depth at which SHED starts dropping the mode, or
+	 *             Integer.MAX_VALUE if it is never dropped
+	 */
+	public int getShedThreshold(byte mode) {
+		return(shedThresholds[mode & 0xFF]);
+	}
+
+	/**
+	 * getCoalesceThreshold
+	 *
+	 * @param  None
+	 *
+	 * @return int Inbox depth at which COALESCE starts dropping duplicate
+	 *             floor requests
+	 */
+	public int getCoalesceThreshold() {
+		return(coalesceThreshold);
+	}
+
+	/**
+	 * writeMetrics
+	 *
+	 * Writes the counts of signals shed, coalesced, overflowed and waited
+	 * for, and the depth of the overflow buffer, in the Prometheus text
+	 * format.
+	 *
+	 * @param writer   Where to write the metrics
+	 * @param subsystem    Name of the subsystem the counts are for
+	 *
+	 * @return None
+	 */
+	public void writeMetrics(PrintWriter writer, String subsystem) {
+		String labels = MetricsServer.labels("subsystem", subsystem);
+
+		MetricsServer.writeType(writer, "ecs_inbox_shed_total", "counter", "Signals dropped because the inbox was too full for their priority");
+		for (int i = 0; i < numShed.length(); i++) {
+			long count = numShed.get(i);
+
+			if (count != 0) {
+				writer.println("ecs_inbox_shed_total" + MetricsServer.labels("subsystem", subsystem, "mode", MessageTimings.getModeName(i)) + " " + count);
+			}
+		}
+
+		MetricsServer.writeType(writer, "ecs_inbox_coalesced_total", "counter", "Floor requests dropped because the same request was waiting");
+		writer.println("ecs_inbox_coalesced_total" + labels + " " + numCoalesced.get());
+		MetricsServer.writeType(writer, "ecs_inbox_overflowed_total", "counter", "Signals put in the overflow buffer because the inbox was full");
+		writer.println("ecs_inbox_overflowed_total" + labels + " " + numOverflowed.get());
+		MetricsServer.writeType(writer, "ecs_inbox_overflow_depth", "gauge", "Signals waiting in the overflow buffer");
+		writer.println("ecs_inbox_overflow_depth" + labels + " " + overflowDepth);
+		MetricsServer.writeType(writer, "ecs_inbox_full_waits_total", "counter", "Signals that arrived with the inbox full and waited for room");
+		writer.println("ecs_inbox_full_waits_total" + labels + " " + numWaited.get());
+	}
+
+	/**
+	 * createShedThresholds
+	 *
+	 * Static
+	 *
+	 * Works out the inbox depth each mode is shed at. The modes in
+	 * SHED_ORDER are spread evenly from OVERLOAD_SHED_START of the inbox,
+	 * for the first, to just under full, for the last.
+	 *
+	 * @param maxNumSignals    Number of signals the inbox is full at
+	 *
+	 * @return int[]   Threshold of each mode
+	 */
+	private static int[] createShedThresholds(int maxNumSignals) {
+		int[] thresholds = new int[256];
+		Arrays.fill(thresholds, NEVER_SHED);
+
+		int start = (int) (maxNumSignals * UtilityInformation.OVERLOAD_SHED_START);
+
+		for (int rank = 0; rank < SHED_ORDER.length; rank++) {
+			thresholds[SHED_ORDER[rank] & 0xFF] = start + ((maxNumSignals - start) * rank / SHED_ORDER.length);
+		}
+
+		return(thresholds);
+	}
+
+	/**
+	 * shed
+	 *
+	 * Drops the given signal if the inbox is at or above its mode's threshold
+	 *
+	 * @param signal   The received signal
+	 * @param mode The mode of the signal
+	 *
+	 * @return boolean True if the signal was dropped
+	 */
+	private boolean shed(DatagramPacket signal, byte mode) {
+		int threshold = shedThresholds[mode & 0xFF];
+
+		if ((threshold == NEVER_SHED) || (inbox.size() < threshold)) {
+			return(false);
+		}
+
+		numShed.incrementAndGet(mode & 0xFF);
+		warnOnce(shedWarned, "Inbox overloaded, shedding low priority signals such as " + MessageTimings.getModeName(mode));
+		release(signal);
+
+		return(true);
+	}
+
+	/**
+	 * coalesce
+	 *
+	 * Drops the given signal if the inbox is at or above the coalesce
+	 * threshold and it is a floor request the same as one waiting in the
+	 * inbox, otherwise counts it as waiting. Requests are counted below the
+	 * threshold too, so duplicates of them are found once the inbox fills.
+	 *
+	 * @param signal   The received signal
+	 * @param mode The mode of the signal
+	 *
+	 * @return boolean True if the signal was dropped
+	 */
+	private boolean coalesce(DatagramPacket signal, byte mode) {
+		if ((mode != UtilityInformation.FLOOR_REQUEST_MODE) || (signal.getLength() <= DESTINATION_IND)) {
+			return(false);
+		}
+
+		AtomicIntegerArray queued = queuedFloorRequests;
+		if (queued == null) {
+			queued = new AtomicIntegerArray(256 * NUM_DIRECTIONS * 256);
+			queuedFloorRequests = queued;
+		}
+
+		int key = floorRequestKey(signal);
+
+		if ((inbox.size() >= coalesceThreshold) && (queued.get(key) > 0)) {
+			numCoalesced.incrementAndGet();
+			warnOnce(coalesceWarned, "Inbox overloaded, dropping floor requests that are already waiting");
+			release(signal);
+
+			return(true);
+		}
+
+		// Counted before it is added so taking it never goes below zero
+		queued.incrementAndGet(key);
+		return(false);
+	}
+
+	/**
+	 * addToOverflow
+	 *
+	 * Adds the given signal to the inbox if there is room for it and no
+	 * older signals are in the overflow buffer, so they stay in order, and
+	 * otherwise puts it in the overflow buffer. Waits while the overflow
+	 * buffer is full.
+	 *
+	 * @param signal   The received signal
+	 *
+	 * @return boolean True, as the signal is always added to the inbox or
+	 *                 the overflow buffer
+	 */
+	private boolean addToOverflow(DatagramPacket signal) {
+		overflowLock.lock();
+		try {
+			if (overflow.isEmpty() && inbox.offer(signal)) {
+				return(true);
+			}
+
+			while (overflow.size() >= overflowSize) {
+				numWaited.incrementAndGet();
+				warnOnce(waitWarned, "Inbox and overflow buffer full, receiving thread is waiting for room");
+				overflowNotFull.awaitUninterruptibly();
+			}
+
+			overflow.addLast(copy(signal));
+			overflowDepth = overflow.size();
+			maxOverflowDepth = Math.max(maxOverflowDepth, overflowDepth);
+			numOverflowed.incrementAndGet();
+			warnOnce(overflowWarned, "Inbox full, growing into the overflow buffer");
+
+			// The handling thread may have made room since the inbox was checked
+			drainOverflow();
+		} finally {
+			overflowLock.unlock();
+		}
+
+		return(true);
+	}
+
+	/**
+	 * drainOverflow
+	 *
+	 * Moves signals from the overflow buffer into the inbox, oldest first,
+	 * until the oldest does not fit. Must be called holding the overflow lock.
+	 *
+	 * @param  None
+	 *
+	 * @return void
+	 */
+	private void drainOverflow() {
+		boolean moved = false;
+
+		while (!overflow.isEmpty() && inbox.offer(overflow.peekFirst())) {
+			overflow.pollFirst();
+			moved = true;
+		}
+
+		if (moved) {
+			overflowDepth = overflow.size();
+			overflowNotFull.signalAll();
+		}
+	}
+
+	/**
+	 * copy
+	 *
+	 * Returns a packet holding the given signal that is not leased from the
+	 * pool, so the pool is not used up by signals in the overflow buffer.
+	 *
+	 * @param signal   The received signal
+	 *
+	 * @return DatagramPacket  The signal, or a copy of it if it was leased
+	 */
+	private DatagramPacket copy(DatagramPacket signal) {
+		if (packetPool == null) {
+			return(signal);
+		}
+
+		byte[] data = Arrays.copyOf(signal.getData(), signal.getLength());
+		DatagramPacket copy = new DatagramPacket(data, data.length, signal.getSocketAddress());
+		packetPool.release(signal);
+
+		return(copy);
+	}
+
+	/**
+	 * release
+	 *
+	 * Returns a dropped signal to the pool it was leased from
+	 *
+	 * @param signal   The dropped signal
+	 *
+	 * @return void
+	 */
+	private void release(DatagramPacket signal) {
+		if (packetPool != null) {
+			packetPool.release(signal);
+		}
+	}
+
+	/**
+	 * warnOnce
+	 *
+	 * Logs the given warning if the given flag has not been set yet
+	 *
+	 * @param warned   Set once the warning is logged
+	 * @param message  The warning
+	 *
+	 * @return void
+	 */
+	private void warnOnce(AtomicBoolean warned, String message) {
+		if (!warned.get() && warned.compareAndSet(false, true)) {
+			AsyncLog.log(AsyncLog.Level.WARN, name, message + " (counted in the metrics from now on)");
+		}
+	}
+
+	/**
+	 * floorRequestKey
+	 *
+	 * Static
+	 *
+	 * @param signal   A floor request
+	 *
+	 * @return int Index of the request's floor, direction and destination
+	 */
+	private static int floorRequestKey(DatagramPacket signal) {
+		byte[] data = signal.getData();
+		int direction = Math.min(Byte.toUnsignedInt(data[DIRECTION_IND]), NUM_DIRECTIONS - 1);
+
+		return((((Byte.toUnsignedInt(data[FLOOR_IND]) * NUM_DIRECTIONS) + direction) * 256) + Byte.toUnsignedInt(data[DESTINATION_IND]));
+	}
+}
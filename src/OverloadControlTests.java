@@ -0,0 +1,337 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.DatagramPacket;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OverloadControlTests {
+    // Signals the inbox is full at
+    private static final int MAX_NUM_SIGNALS = 100;
+
+    private Map<Byte, Integer> priorities;
+    private SignalInbox inbox;
+
+    /**
+     * setUp
+     *
+     * Creates the inbox the signals are put in
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @BeforeEach
+    void setUp() {
+        priorities = ServerPattern.createMessagePriorities();
+        inbox = ServerPattern.createInbox(SignalInbox.Type.LANE_RING, SignalInbox.WaitStrategy.BLOCKING, priorities, MAX_NUM_SIGNALS);
+    }
+
+    /**
+     * createPacket
+     *
+     * Creates a packet with the given mode and bytes after it
+     *
+     * @param mode  Mode of the packet
+     * @param first     Byte 1 of the packet
+     * @param second    Byte 2 of the packet
+     * @param third     Byte 3 of the packet
+     *
+     * @return  DatagramPacket  The created packet
+     */
+    private DatagramPacket createPacket(byte mode, int first, int second, int third) {
+        byte[] data = {mode, (byte) first, (byte) second, (byte) third, UtilityInformation.END_OF_MESSAGE};
+
+        return(new DatagramPacket(data, data.length));
+    }
+
+    /**
+     * testShedHallCallsFirst
+     *
+     * Tests that as the inbox fills, floor requests are shed before
+     * destinations sent to an elevator, and that floor sensor, error and
+     * door fix messages are never shed even once the inbox is full.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testShedHallCallsFirst() {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.SHED, null, "Test");
+
+        int requestThreshold = control.getShedThreshold(UtilityInformation.FLOOR_REQUEST_MODE);
+        int destinationThreshold = control.getShedThreshold(UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE);
+        assertTrue(requestThreshold < destinationThreshold);
+        assertTrue(destinationThreshold < MAX_NUM_SIGNALS);
+        assertEquals(Integer.MAX_VALUE, control.getShedThreshold(UtilityInformation.FLOOR_SENSOR_MODE));
+        assertEquals(Integer.MAX_VALUE, control.getShedThreshold(UtilityInformation.ERROR_MESSAGE_MODE));
+        assertEquals(Integer.MAX_VALUE, control.getShedThreshold(UtilityInformation.FIX_DOOR_MODE));
+
+        for (int i = 0; i < requestThreshold; i++) {
+            control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, i, 0, 0));
+        }
+
+        // Past the floor request threshold only
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 1, 1, 5));
+        control.put(createPacket(UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE, 5, 0, 0));
+        assertEquals(requestThreshold + 1, inbox.size());
+        assertEquals(1, control.getNumShed(UtilityInformation.FLOOR_REQUEST_MODE));
+        assertEquals(0, control.getNumShed(UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE));
+
+        while (inbox.size() < MAX_NUM_SIGNALS) {
+            control.put(createPacket(UtilityInformation.ERROR_MESSAGE_MODE, 0, 0, 0));
+        }
+
+        // Full, so only the messages that are never shed get in
+        control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 0, 0, 0));
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 1, 1, 5));
+        control.put(createPacket(UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE, 5, 0, 0));
+        control.put(createPacket(UtilityInformation.ERROR_MESSAGE_MODE, 0, 0, 0));
+        control.put(createPacket(UtilityInformation.FIX_DOOR_MODE, 0, 0, 0));
+
+        assertEquals(MAX_NUM_SIGNALS + 3, inbox.size());
+        assertEquals(2, control.getNumShed(UtilityInformation.FLOOR_REQUEST_MODE));
+        assertEquals(1, control.getNumShed(UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE));
+        assertEquals(0, control.getNumShed(UtilityInformation.FLOOR_SENSOR_MODE));
+        assertEquals(0, control.getNumShed(UtilityInformation.ERROR_MESSAGE_MODE));
+        assertEquals(3, control.getNumShed());
+    }
+
+    /**
+     * testShedKeepsButtonPresses
+     *
+     * Tests that a button pressed in an elevator is never shed, even while
+     * floor requests are being shed, as the passenger's destination would
+     * be lost.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testShedKeepsButtonPresses() {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.SHED, null, "Test");
+
+        assertTrue(OverloadControl.isProtected(UtilityInformation.ELEVATOR_BUTTON_HIT_MODE));
+
+        while (inbox.size() < control.getShedThreshold(UtilityInformation.FLOOR_REQUEST_MODE)) {
+            control.put(createPacket(UtilityInformation.ERROR_MESSAGE_MODE, 0, 0, 0));
+        }
+
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 1, 1, 5));
+        control.put(createPacket(UtilityInformation.ELEVATOR_BUTTON_HIT_MODE, 5, 0, 0));
+
+        assertEquals(1, control.getNumShed(UtilityInformation.FLOOR_REQUEST_MODE));
+        assertEquals(0, control.getNumShed(UtilityInformation.ELEVATOR_BUTTON_HIT_MODE));
+        assertEquals(control.getShedThreshold(UtilityInformation.FLOOR_REQUEST_MODE) + 1, inbox.size());
+    }
+
+    /**
+     * testShedKeepsDirectionCommands
+     *
+     * Tests that an elevator is still told which way to move when the
+     * inbox is full, as dropping it would leave the elevator stopped or
+     * moving past its floor.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testShedKeepsDirectionCommands() {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.SHED, null, "Test");
+
+        assertTrue(OverloadControl.isProtected(UtilityInformation.ELEVATOR_DIRECTION_MODE));
+        assertEquals(Integer.MAX_VALUE, control.getShedThreshold(UtilityInformation.ELEVATOR_DIRECTION_MODE));
+
+        while (inbox.size() < MAX_NUM_SIGNALS) {
+            control.put(createPacket(UtilityInformation.ERROR_MESSAGE_MODE, 0, 0, 0));
+        }
+
+        control.put(createPacket(UtilityInformation.ELEVATOR_DIRECTION_MODE, 0, UtilityInformation.ElevatorDirection.UP.ordinal(), 0));
+
+        assertEquals(MAX_NUM_SIGNALS + 1, inbox.size());
+        assertEquals(0, control.getNumShed(UtilityInformation.ELEVATOR_DIRECTION_MODE));
+        assertEquals(0, control.getNumShed());
+    }
+
+    /**
+     * testCoalesceDuplicateFloorRequests
+     *
+     * Tests that once the inbox is past the coalesce threshold, a floor
+     * request is dropped while the same request is waiting, and let in
+     * again once it has been taken.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testCoalesceDuplicateFloorRequests() {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.COALESCE, null, "Test");
+        int threshold = control.getCoalesceThreshold();
+        int up = UtilityInformation.ElevatorDirection.UP.ordinal();
+        int down = UtilityInformation.ElevatorDirection.DOWN.ordinal();
+
+        // Put below the threshold, so still counted as waiting
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 7));
+        while (inbox.size() < threshold) {
+            control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 0, 0, 0));
+        }
+
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 7));
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 8));
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 7, down, 3));
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 7));
+        control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 3, 0, 0));
+        control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 3, 0, 0));
+
+        assertEquals(threshold + 4, inbox.size());
+        assertEquals(2, control.getNumCoalesced());
+
+        // Once taken, the same request is handled again
+        DatagramPacket taken = control.take();
+        while (taken.getData()[UtilityInformation.MODE_BYTE_IND] != UtilityInformation.FLOOR_REQUEST_MODE) {
+            taken = control.take();
+        }
+        assertEquals(3, taken.getData()[1]);
+        assertEquals(7, taken.getData()[3]);
+
+        while (inbox.size() < threshold) {
+            control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 0, 0, 0));
+        }
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 7));
+        assertEquals(2, control.getNumCoalesced());
+    }
+
+    /**
+     * testCoalesceOnlyUnderLoad
+     *
+     * Tests that duplicate floor requests are all delivered while the inbox
+     * is below the coalesce threshold.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testCoalesceOnlyUnderLoad() {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.COALESCE, null, "Test");
+        int threshold = control.getCoalesceThreshold();
+        int up = UtilityInformation.ElevatorDirection.UP.ordinal();
+
+        assertTrue(threshold > 1);
+        assertTrue(threshold < MAX_NUM_SIGNALS);
+
+        for (int i = 0; i < threshold; i++) {
+            control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 7));
+        }
+
+        assertEquals(threshold, inbox.size());
+        assertEquals(0, control.getNumCoalesced());
+
+        // At the threshold the same request is dropped
+        control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 3, up, 7));
+        assertEquals(threshold, inbox.size());
+        assertEquals(1, control.getNumCoalesced());
+    }
+
+    /**
+     * testOverflowKeepsEverySignal
+     *
+     * Tests that signals that do not fit in the inbox go into the overflow
+     * buffer without waiting, and are all taken in the order they arrived.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testOverflowKeepsEverySignal() {
+        final int numSignals = MAX_NUM_SIGNALS * 3;
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.OVERFLOW, null, "Test");
+
+        for (int i = 0; i < numSignals; i++) {
+            control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, i, i >> 8, 0));
+        }
+
+        // Signals only overflow once the floor request lane is full
+        int numQueued = inbox.size();
+        assertTrue(numQueued >= MAX_NUM_SIGNALS);
+        assertEquals(numSignals - numQueued, control.getOverflowDepth());
+        assertEquals(numSignals - numQueued, control.getNumOverflowed());
+        assertEquals(numSignals - numQueued, control.getMaxOverflowDepth());
+
+        for (int i = 0; i < numSignals; i++) {
+            byte[] data = control.take().getData();
+            assertEquals(i, Byte.toUnsignedInt(data[1]) + (data[2] << 8));
+        }
+
+        assertEquals(0, inbox.size());
+        assertEquals(0, control.getOverflowDepth());
+        assertEquals(0, control.getNumWaited());
+    }
+
+    /**
+     * testNoWaitWhileLanesHaveRoom
+     *
+     * Tests that more signals than the ServerPattern expects to queue in
+     * total are taken in without waiting, as long as they are spread across
+     * lanes that each have room.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testNoWaitWhileLanesHaveRoom() {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.BLOCK, null, "Test");
+
+        for (int i = 0; i < MAX_NUM_SIGNALS; i++) {
+            control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, i, 0, 0));
+            control.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, i, 0, 0));
+        }
+
+        assertEquals(MAX_NUM_SIGNALS * 2, inbox.size());
+        assertEquals(0, control.getNumWaited());
+    }
+
+    /**
+     * testWaitCountedWhenLaneFull
+     *
+     * Tests that the receiving thread is counted as waiting exactly once
+     * when the lane for its signal is full, and that the signal is queued
+     * once a signal is taken.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testWaitCountedWhenLaneFull() throws InterruptedException {
+        OverloadControl control = new OverloadControl(inbox, MAX_NUM_SIGNALS, OverloadControl.Policy.BLOCK, null, "Test");
+
+        int numQueued = 0;
+        while (inbox.offer(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, numQueued, 0, 0))) {
+            numQueued++;
+        }
+        assertEquals(0, control.getNumWaited());
+
+        Thread receiver = new Thread(() -> control.put(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, 0, 0, 0)));
+        receiver.setDaemon(true);
+        receiver.start();
+
+        while (control.getNumWaited() == 0) {
+            Thread.sleep(1);
+        }
+        control.take();
+        receiver.join(5000);
+
+        assertTrue(!receiver.isAlive());
+        assertEquals(1, control.getNumWaited());
+        assertEquals(numQueued, inbox.size());
+    }
+}
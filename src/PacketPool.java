@@ -0,0 +1,175 @@
+import java.net.DatagramPacket;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * Fixed set of DatagramPackets that are reused for receiving messages.
+ *
+ * The receiver thread leases a packet, receives into it and hands it to the
+ * inbox. The thread that handles the message returns the lease with release
+ * once it has finished with the packet and its data. Leasing and releasing
+ * do not allocate. Only one thread may lease packets, but any thread may
+ * release them.
+ *
+ * A receiver that finds every packet leased waits for one to be released,
+ * so the pool should hold every packet that can be queued or handled at
+ * once. Each time it runs out is counted, and a warning is logged the
+ * first time.
+ *
+ */
+public class PacketPool {
+	// Packets that are not currently leased
+	private MpscRing<DatagramPacket> freePackets;
+
+	// The buffer that belongs to each pooled packet
+	private IdentityHashMap<DatagramPacket, byte[]> buffers;
+
+	// Name logged with the warning
+	private String name;
+
+	// Times the leasing thread found every packet leased. Only written by
+	// the leasing thread
+	private volatile long numExhausted;
+	private AtomicBoolean exhaustedWarned;
+	
+	// Time to wait between attempts when every packet is leased
+	private final long ACQUIRE_PARK_NANOS = 50000;
+
+	/**
+	 * PacketPool
+	 *
+	 * Constructor
+	 *
+	 * Create a new PacketPool holding the given number of packets,
+	 * each with a buffer of the given size.
+	 *
+	 * @param numPackets   Number of packets in the pool
+	 * @param bufferSize   Size of the buffer of each packet
+	 *
+	 * @return None
+	 */
+	public PacketPool(int numPackets, int bufferSize) {
+		this(numPackets, bufferSize, "PacketPool");
+	}
+
+	/**
+	 * PacketPool
+	 *
+	 * Constructor
+	 *
+	 * Create a new PacketPool holding the given number of packets, each
+	 * with a buffer of the given size, that names the given subsystem when
+	 * it warns that it has run out.
+	 *
+	 * @param numPackets   Number of packets in the pool
+	 * @param bufferSize   Size of the buffer of each packet
+	 * @param name Name of the subsystem receiving into the pool
+	 *
+	 * @return None
+	 */
+	public PacketPool(int numPackets, int bufferSize, String name) {
+		this.name = name;
+		numExhausted = 0;
+		exhaustedWarned = new AtomicBoolean(false);
+
+		freePackets = new MpscRing<DatagramPacket>(numPackets);
+		buffers = new IdentityHashMap<DatagramPacket, byte[]>(numPackets);
+
+		for (int i = 0; i < numPackets; i++) {
+			byte[] buffer = new byte[bufferSize];
+			DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+
+			buffers.put(packet, buffer);
+			freePackets.offer(packet);
+		}
+	}
+
+	/**
+	 * acquire
+	 *
+	 * Leases a packet from the pool. Waits until a packet is released
+	 * if every packet is currently leased. Must only be called by one thread.
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramPacket  The leased packet
+	 */
+	public DatagramPacket acquire() {
+		DatagramPacket packet = freePackets.poll();
+
+		if (packet == null) {
+			numExhausted++;
+
+			if (exhaustedWarned.compareAndSet(false, true)) {
+				AsyncLog.log(AsyncLog.Level.WARN, name, "Packet pool exhausted, receiving thread is waiting for a packet to be released (counted in the metrics from now on)");
+			}
+		}
+
+		while (packet == null) {
+			LockSupport.parkNanos(this, ACQUIRE_PARK_NANOS);
+			packet = freePackets.poll();
+		}
+
+		return(packet);
+	}
+
+	/**
+	 * release
+	 *
+	 * Returns a leased packet to the pool. The packet's buffer and length
+	 * are reset. Packets that do not belong to this pool are ignored.
+	 *
+	 * @param packet   The packet to return
+	 *
+	 * @return boolean True if the packet belonged to this pool
+	 */
+	public boolean release(DatagramPacket packet) {
+		byte[] buffer = buffers.get(packet);
+
+		if (buffer == null) {
+			return(false);
+		}
+
+		packet.setData(buffer);
+		freePackets.offer(packet);
+
+		return(true);
+	}
+
+	/**
+	 * getNumFree
+	 *
+	 * Returns the number of packets that are not leased.
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of free packets
+	 */
+	public int getNumFree() {
+		return(freePackets.size());
+	}
+
+	/**
+	 * getNumExhausted
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of times a packet was wanted with every packet leased
+	 */
+	public long getNumExhausted() {
+		return(numExhausted);
+	}
+
+	/**
+	 * capacity
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of packets in the pool
+	 */
+	public int capacity() {
+		return(buffers.size());
+	}
+}
@@ -0,0 +1,266 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.Test;
+
+class PacketPoolTests {
+    // Bytes a thread may allocate while handling every measured packet
+    private final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    /**
+     * testReleaseRestoresBuffer
+     *
+     * Tests that released packets get their own buffer back and that
+     * packets from outside the pool are not added to it.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testReleaseRestoresBuffer() {
+        PacketPool pool = new PacketPool(2, 10);
+        assertEquals(2, pool.getNumFree());
+
+        DatagramPacket packet = pool.acquire();
+        byte[] buffer = packet.getData();
+        assertEquals(1, pool.getNumFree());
+
+        packet.setData(new byte[3]);
+        assertTrue(pool.release(packet));
+        assertEquals(2, pool.getNumFree());
+        assertSame(buffer, packet.getData());
+        assertEquals(10, packet.getLength());
+
+        assertFalse(pool.release(new DatagramPacket(new byte[10], 10)));
+        assertEquals(2, pool.getNumFree());
+    }
+
+    /**
+     * testExhaustionCounted
+     *
+     * Tests that acquiring with every packet leased waits for one to be
+     * released, and is counted.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testExhaustionCounted() throws InterruptedException {
+        final PacketPool pool = new PacketPool(1, 10, "Test");
+        assertEquals(1, pool.capacity());
+
+        final DatagramPacket leased = pool.acquire();
+        assertEquals(0, pool.getNumExhausted());
+
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                pool.release(leased);
+            }
+        });
+        releaser.start();
+
+        assertSame(leased, pool.acquire());
+        assertEquals(1, pool.getNumExhausted());
+
+        releaser.join();
+    }
+
+    /**
+     * testSteadyStateReceiveDoesNotAllocate
+     *
+     * Tests that once warmed up, neither the receiver thread nor the thread
+     * handling the requests allocates while messages are being received.
+     *
+     * @throws Exception
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSteadyStateReceiveDoesNotAllocate() throws Exception {
+        final int numWarmupPackets = 5000;
+        final int numMeasuredPackets = 10000;
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        DatagramSocket portFinder = new DatagramSocket();
+        final int portNum = portFinder.getLocalPort();
+        portFinder.close();
+
+        ServerPattern server = new ServerPattern(portNum,
+                                                 "AllocationTest",
+                                                 SignalInbox.Type.LANE_RING,
+                                                 SignalInbox.WaitStrategy.BLOCKING,
+                                                 true,
+                                                 SignalTransport.Type.SOCKET) {};
+
+        // The sender waits for each message to be handled before sending the next
+        final Semaphore handled = new Semaphore(1);
+        final DatagramSocket sendSocket = new DatagramSocket();
+        final int totalPackets = numWarmupPackets + numMeasuredPackets;
+
+        Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    byte[] data = {UtilityInformation.FLOOR_SENSOR_MODE, 1, 2, UtilityInformation.END_OF_MESSAGE};
+                    DatagramPacket sendPacket = new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), portNum);
+
+                    for (int i = 0; i < totalPackets; i++) {
+                        handled.acquire();
+                        sendSocket.send(sendPacket);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        sender.start();
+
+        Thread receiverThread = null;
+        long receiverStart = 0;
+        long consumerStart = 0;
+        long consumerId = Thread.currentThread().getId();
+
+        for (int i = 0; i < totalPackets; i++) {
+            if (i == numWarmupPackets) {
+                receiverThread = TestUtilities.findThread("AllocationTest receiver");
+                assertNotNull(receiverThread);
+
+                receiverStart = threadBean.getThreadAllocatedBytes(receiverThread.getId());
+                consumerStart = threadBean.getThreadAllocatedBytes(consumerId);
+            }
+
+            DatagramPacket request = server.getNextRequest();
+            assertEquals(UtilityInformation.FLOOR_SENSOR_MODE, request.getData()[UtilityInformation.MODE_BYTE_IND]);
+            server.releaseRequest(request);
+
+            handled.release();
+        }
+
+        long consumerAllocated = threadBean.getThreadAllocatedBytes(consumerId) - consumerStart;
+        long receiverAllocated = threadBean.getThreadAllocatedBytes(receiverThread.getId()) - receiverStart;
+
+        sender.join();
+        sendSocket.close();
+        server.teardown();
+
+        assertTrue(consumerAllocated < MAX_ALLOCATED_BYTES, "Consumer allocated " + consumerAllocated + " bytes");
+        assertTrue(receiverAllocated < MAX_ALLOCATED_BYTES, "Receiver allocated " + receiverAllocated + " bytes");
+    }
+
+    /**
+     * testFramedReceiveDoesNotAllocate
+     *
+     * Tests that once warmed up, the receiver thread does not allocate
+     * while splitting multi-message frames into leased packets, and the
+     * thread handling the messages does not allocate either.
+     *
+     * @throws Exception
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testFramedReceiveDoesNotAllocate() throws Exception {
+        final int numWarmupFrames = 5000;
+        final int numMeasuredFrames = 10000;
+        final int numMessagesPerFrame = 3;
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        DatagramSocket portFinder = new DatagramSocket();
+        final int portNum = portFinder.getLocalPort();
+        portFinder.close();
+
+        ServerPattern server = new ServerPattern(portNum,
+                                                 "FramedAllocationTest",
+                                                 SignalInbox.Type.LANE_RING,
+                                                 SignalInbox.WaitStrategy.BLOCKING,
+                                                 true,
+                                                 SignalTransport.Type.SOCKET) {};
+
+        // The sender waits for each frame to be handled before sending the next
+        final Semaphore handled = new Semaphore(1);
+        final DatagramSocket sendSocket = new DatagramSocket();
+        final int totalFrames = numWarmupFrames + numMeasuredFrames;
+
+        Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    byte[] data = {UtilityInformation.MULTI_MESSAGE_MODE, numMessagesPerFrame,
+                                   4, UtilityInformation.FLOOR_SENSOR_MODE, 1, 2, UtilityInformation.END_OF_MESSAGE,
+                                   4, UtilityInformation.FLOOR_SENSOR_MODE, 3, 4, UtilityInformation.END_OF_MESSAGE,
+                                   4, UtilityInformation.FLOOR_SENSOR_MODE, 5, 6, UtilityInformation.END_OF_MESSAGE,
+                                   UtilityInformation.END_OF_MESSAGE};
+                    DatagramPacket sendPacket = new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), portNum);
+
+                    for (int i = 0; i < totalFrames; i++) {
+                        handled.acquire();
+                        sendSocket.send(sendPacket);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        sender.start();
+
+        Thread receiverThread = null;
+        long receiverStart = 0;
+        long consumerStart = 0;
+        long consumerId = Thread.currentThread().getId();
+
+        for (int i = 0; i < totalFrames; i++) {
+            if (i == numWarmupFrames) {
+                receiverThread = TestUtilities.findThread("FramedAllocationTest receiver");
+                assertNotNull(receiverThread);
+
+                receiverStart = threadBean.getThreadAllocatedBytes(receiverThread.getId());
+                consumerStart = threadBean.getThreadAllocatedBytes(consumerId);
+            }
+
+            for (int j = 0; j < numMessagesPerFrame; j++) {
+                DatagramPacket request = server.getNextRequest();
+                assertEquals(UtilityInformation.FLOOR_SENSOR_MODE, request.getData()[UtilityInformation.MODE_BYTE_IND]);
+                assertEquals((2 * j) + 1, request.getData()[1]);
+                assertEquals(4, request.getLength());
+                server.releaseRequest(request);
+            }
+
+            handled.release();
+        }
+
+        long consumerAllocated = threadBean.getThreadAllocatedBytes(consumerId) - consumerStart;
+        long receiverAllocated = threadBean.getThreadAllocatedBytes(receiverThread.getId()) - receiverStart;
+
+        sender.join();
+        sendSocket.close();
+        server.teardown();
+
+        assertTrue(consumerAllocated < MAX_ALLOCATED_BYTES, "Consumer allocated " + consumerAllocated + " bytes");
+        assertTrue(receiverAllocated < MAX_ALLOCATED_BYTES, "Receiver allocated " + receiverAllocated + " bytes");
+    }
+}
@@ -0,0 +1,180 @@
+import java.net.DatagramPacket;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ *
+ * SignalInbox backed by a PriorityQueue that is guarded by the object monitor.
+ * This is the original ServerPattern queue.
+ *
+ */
+public class PriorityQueueInbox implements SignalInbox {
+	private PriorityQueue<DatagramPacket> receivedSignals;
+
+	private boolean receivedSignalsEmpty;
+
+	private final int maxNumSignals;
+
+	/**
+	 * PriorityQueueInbox
+	 *
+	 * Constructor
+	 *
+	 * Create a new PriorityQueueInbox that orders signals using the given
+	 * priorities and holds at most the given number of signals.
+	 *
+	 * @param messagePriorities    Map of message mode to priority
+	 * @param maxNumSignals    Maximum number of signals held at once
+	 *
+	 * @return None
+	 */
+	public PriorityQueueInbox(final Map<Byte, Integer> messagePriorities, int maxNumSignals) {
+		this.maxNumSignals = maxNumSignals;
+
+		receivedSignals = new PriorityQueue<DatagramPacket>(maxNumSignals, new Comparator<DatagramPacket>() {
+
+			@Override
+			public int compare(DatagramPacket packet1, DatagramPacket packet2) {
+				byte messageType1 = packet1.getData()[UtilityInformation.MODE_BYTE_IND];
+				byte messageType2 = packet2.getData()[UtilityInformation.MODE_BYTE_IND];
+
+				int priority1 = messagePriorities.get(messageType1);
+				int priority2 = messagePriorities.get(messageType2);
+
+				if (priority1 < priority2) {
+					return(-1);
+				} else if (priority1 > priority2) {
+					return(1);
+				} else {
+					return(0);
+				}
+			}
+
+		});
+
+		receivedSignalsEmpty = true;
+	}
+
+	/**
+	 * put
+	 *
+	 * Synchronized
+	 *
+	 * Add a new signal to the list of received signals. Waits until
+	 * the list of received signals is not full before adding the received
+	 * signal.
+	 *
+	 * @param newSignal    DatagramPacket containing the received signal
+	 *
+	 * @return None
+	 */
+	@Override
+	public synchronized void put(DatagramPacket newSignal) {
+		// Wait while queue is not full
+		while (receivedSignals.size() >= maxNumSignals) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				System.out.println("Error waiting in synchronized put method in PriorityQueueInbox.");
+				e.printStackTrace();
+			}
+		}
+
+		receivedSignals.add(newSignal);
+
+		receivedSignalsEmpty = false;
+		notifyAll();
+	}
+
+	/**
+	 * offer
+	 *
+	 * Synchronized
+	 *
+	 * Add a new signal to the list of received signals if the list is
+	 * not full.
+	 *
+	 * @param newSignal    DatagramPacket containing the received signal
+	 *
+	 * @return boolean True if the signal was added, false if the list is full
+	 */
+	@Override
+	public synchronized boolean offer(DatagramPacket newSignal) {
+		if (receivedSignals.size() >= maxNumSignals) {
+			return(false);
+		}
+
+		receivedSignals.add(newSignal);
+
+		receivedSignalsEmpty = false;
+		notifyAll();
+
+		return(true);
+	}
+
+	/**
+	 * take
+	 *
+	 * Synchronized
+	 *
+	 * Returns the next request in the list of requests and removes
+	 * it from the list.
+	 * Waits until the list of requests is not empty.
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramPacket containing the next received signal
+	 */
+	@Override
+	public synchronized DatagramPacket take() {
+		// Wait while queue is empty
+		while (receivedSignalsEmpty) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				System.out.println("Error waiting in synchronized take method in PriorityQueueInbox.");
+				e.printStackTrace();
+			}
+		}
+
+		DatagramPacket toReturn = receivedSignals.poll();
+
+		if (receivedSignals.size() == 0) {
+			receivedSignalsEmpty = true;
+		}
+		notifyAll();
+
+		return (toReturn);
+	}
+
+	/**
+	 * size
+	 *
+	 * Synchronized
+	 *
+	 * Returns the number of signals currently in the queue.
+	 *
+	 * @param  None
+	 *
+	 * @return int The number of queued signals
+	 */
+	@Override
+	public synchronized int size() {
+		return(receivedSignals.size());
+	}
+
+	/**
+	 * capacity
+	 *
+	 * Returns the number of signals the queue can hold.
+	 *
+	 * @param  None
+	 *
+	 * @return int The capacity of the queue
+	 */
+	@Override
+	public int capacity() {
+		return(maxNumSignals);
+	}
+}
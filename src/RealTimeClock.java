@@ -0,0 +1,17 @@
+/**
+ *
+ * Clock that runs in real time.
+ *
+ */
+public class RealTimeClock extends SimulationClock {
+
+	@Override
+	public long nanoTime() {
+		return(System.nanoTime());
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		Thread.sleep(millis);
+	}
+}
@@ -0,0 +1,665 @@
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Acknowledgements and retransmission for the frames a ServerPattern sends
+ * with FrameCodec.FLAG_RELIABLE.
+ *
+ * Every reliable frame is kept in a window for its destination until it is
+ * acknowledged. A retransmit thread sends it again each time its timeout
+ * passes, doubling the timeout each time, and gives up after
+ * UtilityInformation.RELIABLE_MAX_RETRANSMITS. The timeout for each
+ * destination is worked out from the measured round trip times as in
+ * RFC 6298. A frame's timestamp is updated every time it is sent and echoed
+ * in the acknowledgement, so every acknowledgement gives a round trip time
+ * even for a frame that was sent more than once.
+ *
+ * Every reliable frame received is acknowledged with the cumulative
+ * acknowledgement and a bitmap of the frames received after it, so one
+ * acknowledgement can cover frames whose own acknowledgements were lost.
+ * Frames already received are acknowledged again but not delivered twice.
+ *
+ * Frames are delivered in the order they arrive, not reordered.
+ *
+ */
+public class ReliableDelivery {
+	// Most senders and destinations that frames are tracked for
+	private static final int MAX_NUM_PEERS = 16;
+
+	// Number of frames that can be waiting for an acknowledgement to one
+	// destination. The receive bitmap is a long, so at most 64.
+	private static final int WINDOW_SIZE = UtilityInformation.RELIABLE_WINDOW_SIZE;
+
+	// A sequence number this far behind the ones received is from a sender
+	// that has restarted
+	private static final int RESTART_DISTANCE = 2 * WINDOW_SIZE;
+
+	private static final long NANOS_PER_MILLI = 1000000;
+
+	private SignalTransport transport;
+	private String name;
+
+	// Frames sent to each destination and received from each sender
+	private SendWindow sendWindows[];
+	private ReceiveWindow receiveWindows[];
+	private volatile int numSendWindows;
+	private int numReceiveWindows;
+
+	// Buffer acknowledgements are encoded into
+	private ByteBuffer ackBuffer;
+
+	private Thread retransmitThread;
+	private volatile boolean run;
+
+	private AtomicLong numRetransmits;
+	private AtomicLong numDuplicates;
+	private AtomicLong numGivenUp;
+
+	/**
+	 * ReliableDelivery
+	 *
+	 * Constructor
+	 *
+	 * Create a new ReliableDelivery that sends acknowledgements and
+	 * retransmissions with the given transport.
+	 *
+	 * @param transport    Transport to send with
+	 * @param name Name of the ServerPattern using this
+	 *
+	 * @return None
+	 */
+	public ReliableDelivery(SignalTransport transport, String name) {
+		this.transport = transport;
+		this.name = name;
+
+		sendWindows = new SendWindow[MAX_NUM_PEERS];
+		receiveWindows = new ReceiveWindow[MAX_NUM_PEERS];
+		numSendWindows = 0;
+		numReceiveWindows = 0;
+
+		ackBuffer = ByteBuffer.allocate(FrameCodec.ACK_SIZE);
+
+		run = true;
+		retransmitThread = null;
+
+		numRetransmits = new AtomicLong();
+		numDuplicates = new AtomicLong();
+		numGivenUp = new AtomicLong();
+	}
+
+	/**
+	 * sent
+	 *
+	 * Keeps a copy of the given reliable frame until it is acknowledged. Must
+	 * be called before the frame is sent, and by one thread at a time. If the
+	 * window for the destination is full, waits for the oldest frame to be
+	 * acknowledged or given up on.
+	 *
+	 * @param frame    The encoded frame
+	 * @param length   Number of bytes of the frame
+	 * @param sequence Sequence number of the frame
+	 * @param address  Address the frame is sent to
+	 * @param portNum  Port the frame is sent to
+	 *
+	 * @return None
+	 */
+	public void sent(byte[] frame, int length, int sequence, InetAddress address, int portNum) {
+		SendWindow window = findSendWindow(address, portNum);
+		if (window == null) {
+			synchronized (this) {
+				window = new SendWindow(address, portNum);
+				sendWindows[numSendWindows % MAX_NUM_PEERS] = window;
+				numSendWindows++;
+			}
+		}
+
+		startRetransmitThread();
+
+		window.lock.lock();
+		try {
+			int slot = sequence & (WINDOW_SIZE - 1);
+
+			// The retransmit thread frees the slot once the frame is
+			// acknowledged or given up on
+			while (window.unacked[slot] && run) {
+				try {
+					window.slotFreed.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+
+			System.arraycopy(frame, 0, window.frames[slot], 0, length);
+			window.lengths[slot] = length;
+			window.sequences[slot] = sequence;
+			window.sentTimes[slot] = System.nanoTime();
+			window.numSends[slot] = 1;
+			window.unacked[slot] = true;
+		} finally {
+			window.lock.unlock();
+		}
+	}
+
+	/**
+	 * accept
+	 *
+	 * Handles the reliability part of a received frame. Acknowledgements are
+	 * used up here, reliable frames are acknowledged, and frames that were
+	 * already received are counted as duplicates.
+	 *
+	 * @param packet   The received packet holding a frame
+	 *
+	 * @return boolean True if the frame should be delivered, false if it was
+	 *                 an acknowledgement or a duplicate
+	 */
+	public boolean accept(DatagramPacket packet) {
+		ByteBuffer in = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+		if (in.limit() < FrameCodec.HEADER_SIZE) {
+			return(true);
+		}
+
+		byte flags = FrameCodec.getFlags(in);
+
+		if ((flags & FrameCodec.FLAG_ACK) != 0) {
+			if (in.limit() >= FrameCodec.ACK_SIZE) {
+				ackReceived(in, packet.getAddress(), packet.getPort());
+			}
+			return(false);
+		}
+
+		if ((flags & FrameCodec.FLAG_RELIABLE) == 0) {
+			return(true);
+		}
+
+		int sequence = FrameCodec.getSequence(in);
+		long timestamp = FrameCodec.getTimestamp(in);
+
+		ReceiveWindow window = findReceiveWindow(packet.getAddress(), packet.getPort());
+		if (window == null) {
+			window = new ReceiveWindow(packet.getAddress(), packet.getPort());
+			receiveWindows[numReceiveWindows % MAX_NUM_PEERS] = window;
+			numReceiveWindows++;
+		}
+
+		boolean isNew = window.record(sequence);
+		if (!isNew) {
+			numDuplicates.incrementAndGet();
+		}
+
+		// Acknowledge duplicates too, in case the first acknowledgement was lost
+		synchronized (ackBuffer) {
+			ackBuffer.clear();
+			int length = FrameCodec.encodeAck(ackBuffer, sequence, timestamp, window.cumulative, window.received);
+
+			try {
+				transport.send(ackBuffer.array(), length, packet.getAddress(), packet.getPort());
+			} catch (IOException e) {
+				if (run) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		return(isNew);
+	}
+
+	/**
+	 * ackReceived
+	 *
+	 * Marks every frame covered by the given acknowledgement as acknowledged
+	 * and updates the round trip time of its sender.
+	 *
+	 * @param in   Buffer holding the acknowledgement
+	 * @param address  Address the acknowledgement came from
+	 * @param portNum  Port the acknowledgement came from
+	 *
+	 * @return None
+	 */
+	private void ackReceived(ByteBuffer in, InetAddress address, int portNum) {
+		SendWindow window = findSendWindow(address, portNum);
+		if (window == null) {
+			return;
+		}
+
+		int cumulative = in.getInt(FrameCodec.ACK_CUMULATIVE_IND);
+		long bitmap = in.getLong(FrameCodec.ACK_BITMAP_IND);
+
+		window.lock.lock();
+		try {
+			window.updateTimeout(System.nanoTime() - FrameCodec.getTimestamp(in));
+
+			for (int slot = 0; slot < WINDOW_SIZE; slot++) {
+				if (window.unacked[slot]) {
+					int offset = window.sequences[slot] - cumulative;
+
+					if ((offset < 0) || ((offset < Long.SIZE) && ((bitmap & (1L << offset)) != 0))) {
+						window.unacked[slot] = false;
+					}
+				}
+			}
+
+			window.slotFreed.signalAll();
+		} finally {
+			window.lock.unlock();
+		}
+	}
+
+	/**
+	 * retransmit
+	 *
+	 * Sends again every frame whose timeout has passed, and gives up on
+	 * frames that have been sent too many times. Runs on the retransmit
+	 * thread until stop is called.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void retransmit() {
+		while (run) {
+			long now = System.nanoTime();
+
+			for (int i = 0; i < Math.min(numSendWindows, MAX_NUM_PEERS); i++) {
+				SendWindow window = sendWindows[i];
+
+				window.lock.lock();
+				try {
+					for (int slot = 0; slot < WINDOW_SIZE; slot++) {
+						if (!window.unacked[slot]) {
+							continue;
+						}
+
+						// Back off exponentially for each time the frame was sent
+						long timeout = Math.min(window.timeout << Math.min(window.numSends[slot] - 1, 16),
+						                        UtilityInformation.RELIABLE_MAX_TIMEOUT * NANOS_PER_MILLI);
+						if ((now - window.sentTimes[slot]) < timeout) {
+							continue;
+						}
+
+						if (window.numSends[slot] > UtilityInformation.RELIABLE_MAX_RETRANSMITS) {
+							window.giveUp(slot);
+							numGivenUp.incrementAndGet();
+							continue;
+						}
+
+						window.resend(slot, now);
+						numRetransmits.incrementAndGet();
+
+						try {
+							transport.send(window.frames[slot], window.lengths[slot], window.address, window.portNum);
+						} catch (IOException e) {
+							if (run) {
+								e.printStackTrace();
+							}
+						}
+					}
+				} finally {
+					window.lock.unlock();
+				}
+			}
+
+			try {
+				Thread.sleep(UtilityInformation.RELIABLE_TICK);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * startRetransmitThread
+	 *
+	 * Starts the retransmit thread if it is not already running.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private synchronized void startRetransmitThread() {
+		if ((retransmitThread != null) || !run) {
+			return;
+		}
+
+		retransmitThread = new Thread(this::retransmit, name + " retransmit");
+		retransmitThread.setDaemon(true);
+		retransmitThread.start();
+	}
+
+	/**
+	 * stop
+	 *
+	 * Stops retransmitting and wakes any sender waiting for room in a window.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void stop() {
+		run = false;
+
+		for (int i = 0; i < Math.min(numSendWindows, MAX_NUM_PEERS); i++) {
+			SendWindow window = sendWindows[i];
+			window.lock.lock();
+			try {
+				window.slotFreed.signalAll();
+			} finally {
+				window.lock.unlock();
+			}
+		}
+
+		Thread thread = retransmitThread;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * findSendWindow
+	 *
+	 * Returns the window of frames sent to the given destination
+	 *
+	 * @param address  Address of the destination
+	 * @param portNum  Port of the destination
+	 *
+	 * @return SendWindow  The window, or null if nothing was sent there
+	 */
+	private SendWindow findSendWindow(InetAddress address, int portNum) {
+		for (int i = 0; i < Math.min(numSendWindows, MAX_NUM_PEERS); i++) {
+			SendWindow window = sendWindows[i];
+			if ((window.portNum == portNum) && Objects.equals(window.address, address)) {
+				return(window);
+			}
+		}
+
+		return(null);
+	}
+
+	/**
+	 * findReceiveWindow
+	 *
+	 * Returns the window of frames received from the given sender
+	 *
+	 * @param address  Address of the sender
+	 * @param portNum  Port of the sender
+	 *
+	 * @return ReceiveWindow   The window, or null if nothing was received from there
+	 */
+	private ReceiveWindow findReceiveWindow(InetAddress address, int portNum) {
+		for (int i = 0; i < Math.min(numReceiveWindows, MAX_NUM_PEERS); i++) {
+			ReceiveWindow window = receiveWindows[i];
+			if ((window.portNum == portNum) && Objects.equals(window.address, address)) {
+				return(window);
+			}
+		}
+
+		return(null);
+	}
+
+	/**
+	 * getNumRetransmits
+	 *
+	 * Returns the number of frames sent again
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of retransmissions
+	 */
+	public long getNumRetransmits() {
+		return(numRetransmits.get());
+	}
+
+	/**
+	 * getNumDuplicates
+	 *
+	 * Returns the number of reliable frames received more than once
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of duplicates
+	 */
+	public long getNumDuplicates() {
+		return(numDuplicates.get());
+	}
+
+	/**
+	 * getNumGivenUp
+	 *
+	 * Returns the number of frames that were never acknowledged
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of frames given up on
+	 */
+	public long getNumGivenUp() {
+		return(numGivenUp.get());
+	}
+
+	/**
+	 * getTimeout
+	 *
+	 * Returns the current retransmit timeout for the given destination
+	 *
+	 * @param address  Address of the destination
+	 * @param portNum  Port of the destination
+	 *
+	 * @return long    Timeout in nanoseconds, or -1 if nothing was sent there
+	 */
+	public long getTimeout(InetAddress address, int portNum) {
+		SendWindow window = findSendWindow(address, portNum);
+		if (window == null) {
+			return(-1);
+		}
+
+		window.lock.lock();
+		try {
+			return(window.timeout);
+		} finally {
+			window.lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * Frames sent to one destination that have not been acknowledged, and
+	 * the round trip times measured to it
+	 *
+	 */
+	private static class SendWindow {
+		final InetAddress address;
+		final int portNum;
+
+		final byte frames[][];
+		final ByteBuffer views[];
+		final int lengths[];
+		final int sequences[];
+		final long sentTimes[];
+		final int numSends[];
+		final boolean unacked[];
+
+		// Smoothed round trip time and its variation, in nanoseconds, or -1
+		// before the first measurement
+		long smoothedRtt;
+		long rttVariation;
+		long timeout;
+
+		// Guards the window, and is signalled when a slot is freed. Not a
+		// monitor, so a sender on a virtual thread is not pinned waiting
+		final ReentrantLock lock = new ReentrantLock();
+		final Condition slotFreed = lock.newCondition();
+
+		/**
+		 * SendWindow
+		 *
+		 * Constructor
+		 *
+		 * Create a new empty window for the given destination.
+		 *
+		 * @param address  Address of the destination
+		 * @param portNum  Port of the destination
+		 *
+		 * @return None
+		 */
+		SendWindow(InetAddress address, int portNum) {
+			this.address = address;
+			this.portNum = portNum;
+
+			frames = new byte[WINDOW_SIZE][FrameCodec.HEADER_SIZE + UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+			views = new ByteBuffer[WINDOW_SIZE];
+			for (int i = 0; i < WINDOW_SIZE; i++) {
+				views[i] = ByteBuffer.wrap(frames[i]);
+			}
+
+			lengths = new int[WINDOW_SIZE];
+			sequences = new int[WINDOW_SIZE];
+			sentTimes = new long[WINDOW_SIZE];
+			numSends = new int[WINDOW_SIZE];
+			unacked = new boolean[WINDOW_SIZE];
+
+			smoothedRtt = -1;
+			rttVariation = 0;
+			timeout = UtilityInformation.RELIABLE_INITIAL_TIMEOUT * NANOS_PER_MILLI;
+		}
+
+		/**
+		 * updateTimeout
+		 *
+		 * Works out the retransmit timeout from a new round trip time
+		 *
+		 * @param rtt  The measured round trip time in nanoseconds
+		 *
+		 * @return None
+		 */
+		void updateTimeout(long rtt) {
+			if (rtt < 0) {
+				return;
+			}
+
+			if (smoothedRtt < 0) {
+				smoothedRtt = rtt;
+				rttVariation = rtt / 2;
+			} else {
+				rttVariation = ((3 * rttVariation) + Math.abs(smoothedRtt - rtt)) / 4;
+				smoothedRtt = ((7 * smoothedRtt) + rtt) / 8;
+			}
+
+			timeout = Math.max(UtilityInformation.RELIABLE_MIN_TIMEOUT * NANOS_PER_MILLI,
+			                   Math.min(smoothedRtt + (4 * rttVariation),
+			                            UtilityInformation.RELIABLE_MAX_TIMEOUT * NANOS_PER_MILLI));
+		}
+
+		/**
+		 * resend
+		 *
+		 * Stamps the frame in the given slot with the time it is sent again
+		 *
+		 * @param slot The slot of the frame
+		 * @param now  The current time in nanoseconds
+		 *
+		 * @return None
+		 */
+		void resend(int slot, long now) {
+			views[slot].putLong(FrameCodec.TIMESTAMP_IND, now);
+			sentTimes[slot] = now;
+			numSends[slot]++;
+		}
+
+		/**
+		 * giveUp
+		 *
+		 * Stops waiting for the frame in the given slot to be acknowledged
+		 *
+		 * @param slot The slot of the frame
+		 *
+		 * @return None
+		 */
+		void giveUp(int slot) {
+			unacked[slot] = false;
+			slotFreed.signalAll();
+		}
+	}
+
+	/**
+	 *
+	 * Sequence numbers received from one sender
+	 *
+	 */
+	private static class ReceiveWindow {
+		final InetAddress address;
+		final int portNum;
+
+		// Lowest sequence number not received yet, and a bitmap where bit i
+		// is set if cumulative + i has been received
+		int cumulative;
+		long received;
+
+		/**
+		 * ReceiveWindow
+		 *
+		 * Constructor
+		 *
+		 * Create a new window for a sender whose first sequence number is 0.
+		 *
+		 * @param address  Address of the sender
+		 * @param portNum  Port of the sender
+		 *
+		 * @return None
+		 */
+		ReceiveWindow(InetAddress address, int portNum) {
+			this.address = address;
+			this.portNum = portNum;
+
+			cumulative = 0;
+			received = 0;
+		}
+
+		/**
+		 * record
+		 *
+		 * Records that the given sequence number was received
+		 *
+		 * @param sequence The sequence number received
+		 *
+		 * @return boolean True if it was not received before
+		 */
+		boolean record(int sequence) {
+			int offset = sequence - cumulative;
+
+			if (offset < -RESTART_DISTANCE) {
+				// The sender has started again from 0
+				cumulative = 0;
+				received = 0;
+				offset = sequence;
+			}
+
+			if (offset >= Long.SIZE) {
+				// The sender gave up on the frames before this one, so stop
+				// waiting for them
+				int shift = offset - (Long.SIZE - 1);
+				received = (shift >= Long.SIZE) ? 0 : (received >>> shift);
+				cumulative += shift;
+				offset = Long.SIZE - 1;
+			}
+
+			if ((offset < 0) || ((received & (1L << offset)) != 0)) {
+				return(false);
+			}
+
+			received |= 1L << offset;
+
+			while ((received & 1) != 0) {
+				received >>>= 1;
+				cumulative++;
+			}
+
+			return(true);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class ReliableDeliveryTests {
+    // Longest time to wait for every message or request to get through
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    /**
+     * testEveryMessageDeliveredOnce
+     *
+     * Tests that every message sent reliably is delivered exactly once when
+     * a third of the datagrams in each direction, messages and
+     * acknowledgements, are dropped.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testEveryMessageDeliveredOnce() throws IOException, InterruptedException {
+        final int numMessages = 200;
+
+        int senderPort = TestUtilities.findFreePort();
+        int receiverPort = TestUtilities.findFreePort();
+        LossyTransport senderTransport = new LossyTransport(new SocketTransport(senderPort, "ReliableSender", null), 0.3, 1);
+        LossyTransport receiverTransport = new LossyTransport(new SocketTransport(receiverPort, "ReliableReceiver", null), 0.3, 2);
+
+        ServerPattern sender = new ServerPattern(senderTransport) {};
+        ServerPattern receiver = new ServerPattern(receiverTransport) {};
+
+        try {
+            sender.setReliableSends(true);
+
+            // Sending waits while the window is full, and the window only
+            // empties while the receiver's inbox is being emptied
+            TestUtilities.startDaemon(() -> {
+                try {
+                    for (int i = 0; i < numMessages; i++) {
+                        byte[] message = {UtilityInformation.FLOOR_SENSOR_MODE, (byte) (i % 100), (byte) (i / 100),
+                                          UtilityInformation.END_OF_MESSAGE};
+                        sender.transmit(message, message.length, InetAddress.getLoopbackAddress(), receiverPort);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "ReliableSender");
+
+            boolean[] received = new boolean[numMessages];
+            int numReceived = 0;
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+            while ((numReceived < numMessages) && (System.currentTimeMillis() < deadline)) {
+                if (receiver.getQueueDepth() == 0) {
+                    Thread.sleep(1);
+                    continue;
+                }
+
+                DatagramPacket request = receiver.getNextRequest();
+                byte[] data = request.getData();
+                assertEquals(UtilityInformation.FLOOR_SENSOR_MODE, data[UtilityInformation.MODE_BYTE_IND]);
+
+                int i = data[1] + (data[2] * 100);
+                assertTrue(!received[i], "Message " + i + " was delivered twice");
+                received[i] = true;
+                numReceived++;
+            }
+
+            assertEquals(numMessages, numReceived);
+
+            // Retransmissions of messages whose acknowledgements were lost
+            // must not be delivered again
+            Thread.sleep(200);
+            assertEquals(0, receiver.getQueueDepth());
+
+            assertTrue(senderTransport.getNumDropped() > 0);
+            assertTrue(sender.getReliableDelivery().getNumRetransmits() > 0);
+            assertTrue(receiver.getReliableDelivery().getNumDuplicates() > 0);
+            assertEquals(0, sender.getReliableDelivery().getNumGivenUp());
+        } finally {
+            sender.teardown();
+            receiver.teardown();
+        }
+    }
+
+    /**
+     * testDuplicatesAcknowledged
+     *
+     * Tests that a reliable frame is acknowledged every time it is received
+     * but only delivered the first time, and that the acknowledgement
+     * covers every frame received so far.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testDuplicatesAcknowledged() throws IOException {
+        int receiverPort = TestUtilities.findFreePort();
+        ServerPattern receiver = new ServerPattern(receiverPort, "ReliableReceiver") {};
+        DatagramSocket socket = new DatagramSocket();
+
+        try {
+            socket.setSoTimeout((int) TIMEOUT_MILLIS);
+            byte[] message = {UtilityInformation.FLOOR_SENSOR_MODE, 4, 1, UtilityInformation.END_OF_MESSAGE};
+
+            // Frame 1 arrives before frame 0, and frame 0 is sent twice
+            for (int sequence : new int[] {1, 0, 0}) {
+                ByteBuffer frame = ByteBuffer.allocate(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+                int length = FrameCodec.encode(frame, message, message.length, sequence, 0, FrameCodec.FLAG_RELIABLE);
+                socket.send(new DatagramPacket(frame.array(), length, InetAddress.getLoopbackAddress(), receiverPort));
+            }
+
+            int[] expectedCumulative = {0, 2, 2};
+            long[] expectedBitmap = {2, 0, 0};
+            for (int i = 0; i < expectedCumulative.length; i++) {
+                DatagramPacket ack = new DatagramPacket(new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE], UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+                socket.receive(ack);
+
+                ByteBuffer in = ByteBuffer.wrap(ack.getData(), 0, ack.getLength());
+                assertEquals(FrameCodec.ACK_SIZE, ack.getLength());
+                assertEquals(FrameCodec.FLAG_ACK, FrameCodec.getFlags(in));
+                assertEquals(expectedCumulative[i], in.getInt(FrameCodec.ACK_CUMULATIVE_IND));
+                assertEquals(expectedBitmap[i], in.getLong(FrameCodec.ACK_BITMAP_IND));
+            }
+
+            for (int i = 0; i < 2; i++) {
+                DatagramPacket request = receiver.getNextRequest();
+                assertEquals(message.length, request.getLength());
+                receiver.releaseRequest(request);
+            }
+
+            assertEquals(0, receiver.getQueueDepth());
+            assertEquals(1, receiver.getReliableDelivery().getNumDuplicates());
+        } finally {
+            socket.close();
+            receiver.teardown();
+        }
+    }
+
+    /**
+     * testTraceCompletesWithLoss
+     *
+     * Tests that the Scheduler and the Elevator_Subsystem deliver every
+     * passenger of a short trace when 5% of the datagrams sent by the
+     * Scheduler, the Elevator_Subsystem and the floors are dropped.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testTraceCompletesWithLoss() throws IOException, InterruptedException {
+        final double lossRate = 0.05;
+        final int[][] trace = {{0, 6}, {9, 2}, {3, 12}, {14, 1}, {5, 7}, {11, 4}};
+
+        SimulationClock oldClock = SimulationClock.getClock();
+        SimulationClock.setClock(new ScaledClock(UtilityInformation.SIMULATION_SPEEDUP));
+
+        Scheduler scheduler = new Scheduler(DispatchStrategy.Type.DEFAULT,
+                                            new LossyTransport(new SocketTransport(UtilityInformation.SCHEDULER_PORT_NUM, "Scheduler", null), lossRate, 3),
+                                            SimulationClock.getClock());
+        Elevator_Subsystem elevatorSubsystem = new Elevator_Subsystem(
+                new LossyTransport(new SocketTransport(UtilityInformation.ELEVATOR_PORT_NUM, "Elevator_Subsystem", null), lossRate, 4));
+        ServerPattern floors = new ServerPattern(
+                new LossyTransport(new SocketTransport(UtilityInformation.FLOOR_PORT_NUM, "Floors", null), lossRate, 5)) {};
+
+        try {
+            scheduler.setReliableSends(true);
+            elevatorSubsystem.setReliableSends(true);
+            floors.setReliableSends(true);
+
+            TestUtilities.startDaemon(scheduler::runSheduler, "Scheduler");
+            TestUtilities.startDaemon(elevatorSubsystem::runElevatorSubsystem, "Elevator_Subsystem");
+
+            InetAddress schedulerAddress = InetAddress.getLocalHost();
+            byte[] config = {UtilityInformation.CONFIG_MODE, 2, (byte) UtilityInformation.DEFAULT_NUM_FLOORS, UtilityInformation.END_OF_MESSAGE};
+            floors.transmit(config, config.length, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+
+            DatagramPacket confirm;
+            do {
+                confirm = floors.getNextRequest();
+            } while (confirm.getData()[UtilityInformation.MODE_BYTE_IND] != UtilityInformation.CONFIG_CONFIRM_MODE);
+
+            // Nothing else sent to the floors is checked
+            TestUtilities.startDaemon(() -> {
+                while (true) {
+                    floors.getNextRequest();
+                }
+            }, "Floors");
+
+            for (int[] request : trace) {
+                UtilityInformation.ElevatorDirection dir = (request[1] > request[0]) ? UtilityInformation.ElevatorDirection.UP
+                                                                                      : UtilityInformation.ElevatorDirection.DOWN;
+                byte[] message = {UtilityInformation.FLOOR_REQUEST_MODE, (byte) request[0], (byte) dir.ordinal(),
+                                  (byte) request[1], UtilityInformation.END_OF_MESSAGE};
+                floors.transmit(message, message.length, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+            }
+
+            String delivered = "ecs_ride_nanos_count" + MetricsServer.labels("subsystem", "Scheduler") + " " + trace.length;
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            String metrics = "";
+
+            while (!metrics.contains(delivered) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(50);
+
+                StringWriter text = new StringWriter();
+                scheduler.writeMetrics(new PrintWriter(text));
+                metrics = text.toString();
+            }
+
+            assertTrue(metrics.contains(delivered), metrics);
+        } finally {
+            floors.teardown();
+            elevatorSubsystem.teardown();
+            scheduler.teardown();
+            SimulationClock.setClock(oldClock);
+        }
+    }
+}
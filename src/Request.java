@@ -9,8 +9,8 @@ public class Request {
 	private boolean elevatorArrivedDestinationTimeFlag;
 	
 	// Info about request
-	private byte source;
-	private byte destination;
+	private int source;
+	private int destination;
 	private UtilityInformation.ElevatorDirection requestDirection;
 
 	/**
@@ -27,7 +27,7 @@ public class Request {
 	 * 
 	 * @return None
 	 */
-	public Request(long requestArrived, byte source, byte destination,
+	public Request(long requestArrived, int source, int destination,
 			UtilityInformation.ElevatorDirection requestDirection) {
 		elevatorRequestTime = requestArrived;
 		this.source = source;
@@ -90,7 +90,10 @@ public class Request {
 	 */
 	public void setElevatorArrivedDestinationTime(long time) {
 		elevatorArrivedDestinationTime = time;
-		printRequestDetails();
+		
+		if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+			printRequestDetails();
+		}
 	}
 
 	/**
@@ -127,9 +130,9 @@ public class Request {
 	 * 
 	 * @param  None
 	 * 
-	 * @return byte The source floor of the request
+	 * @return int The source floor of the request
 	 */
-	public byte getSourceFloor() {
+	public int getSourceFloor() {
 		return source;
 	}
 
@@ -140,9 +143,9 @@ public class Request {
 	 * 
 	 * @param  None
 	 * 
-	 * @return byte    The destination floor of the request
+	 * @return int The destination floor of the request
 	 */
-	public byte getDestinationFloor() {
+	public int getDestinationFloor() {
 		return destination;
 	}
 
@@ -0,0 +1,726 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Sends every request of a trace at its time, from one thread, in place
+ * of a sleeping thread per Floor. The requests wait in a hashed timer
+ * wheel: a ring of UtilityInformation.INJECTOR_WHEEL_SLOTS lists, one per
+ * tick of INJECTOR_TICK_MILLIS, with each request in the list of the tick
+ * it is due in, counted around the ring. The injector sleeps until the
+ * next tick with a request due, sends the requests due in it in the order
+ * they were added, and sleeps again.
+ *
+ * Every request is due at its offset from when the injector started, not
+ * from the request before it, so the time taken to send one request does
+ * not delay the rest. How late each request is sent, its release jitter,
+ * is recorded and published with the FloorSubsystem metrics.
+ *
+ * Requests are kept as a few primitives each in arrays, with the lists
+ * linked through them, so adding a request does not allocate until the
+ * arrays have to grow. The requests due in a tick are copied out while
+ * the lock is held and sent without it, so a request added meanwhile can
+ * grow the arrays safely. A request added for a tick the injector has passed
+ * is sent in the next tick and counted as late. The injector sleeps on the
+ * simulation clock, so a request added while it sleeps is not sent before
+ * it wakes, which only matters for traces not in time order.
+ *
+ */
+public class RequestInjector implements Runnable {
+	// Sends the requests once they are due. Implemented by the FloorSubsystem
+	public interface Sender {
+		void sendElevatorRequest(int sourceFloor, int destFloor, UtilityInformation.ElevatorDirection diRequest);
+		void sendErrorOccursMessage(UtilityInformation.ErrorType type, int elevatorNum);
+		int getNumElevators();
+	}
+
+	// Most requests held when the whole trace is added up front
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	// Directions and error types indexed by ordinal
+	private static final UtilityInformation.ElevatorDirection[] DIRECTIONS = UtilityInformation.ElevatorDirection.values();
+	private static final UtilityInformation.ErrorType[] ERROR_TYPES = UtilityInformation.ErrorType.values();
+
+	// Requests held before the arrays first grow
+	private static final int INITIAL_CAPACITY = 64;
+
+	// End of a list of requests
+	private static final int NONE = -1;
+
+	private Sender sender;
+	private SimulationClock clock;
+
+	// Guards the wheel. Signalled when a request is added or taken, or the
+	// injector is closed. Not a monitor, so the reading thread is not pinned
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	// Length of a tick, and the wheel of request lists indexed by tick
+	private final long tickNanos;
+	private final int[] slotHeads;
+	private final int[] slotTails;
+
+	// Earliest tick that a request in each slot is due in, or Long.MAX_VALUE
+	private final long[] slotFirstTicks;
+
+	// Requests, indexed by entry. Free entries are linked through nextEntries
+	private long[] dueTicks;
+	private long[] offsetNanos;
+	private int[] floorNums;
+	private int[] errorTypes;
+	private int[] directions;
+	private int[] finalFloors;
+	private int[] nextEntries;
+	private int freeHead;
+	private int size;
+
+	// Copies of the requests due in the tick being sent, only used by the
+	// sending thread, so they can be sent without the lock while the
+	// arrays above grow
+	private long[] dueOffsetNanos;
+	private int[] dueFloorNums;
+	private int[] dueErrorTypes;
+	private int[] dueDirections;
+	private int[] dueFinalFloors;
+
+	// Most requests held at once, and whether more will be added
+	private int maxSize;
+	private boolean closed;
+
+	// Last tick whose requests have been taken from the wheel
+	private long currentTick;
+
+	// Clock time the offsets are counted from, the sending thread, and
+	// whether it is asleep on the clock
+	private long originNanos;
+	private Thread thread;
+	private boolean sleeping;
+
+	private Random rand;
+
+	// How late each request was sent, in nanoseconds
+	private LatencyHistogram jitter;
+	private long numReleased;
+
+	/**
+	 * RequestInjector
+	 *
+	 * Constructor
+	 *
+	 * Create a new injector that is empty and closed until it is opened.
+	 *
+	 * @param sender   Sends the requests once they are due
+	 * @param clock    Clock the request times are kept on
+	 *
+	 * @return None
+	 */
+	public RequestInjector(Sender sender, SimulationClock clock) {
+		this.sender = sender;
+		this.clock = clock;
+
+		tickNanos = UtilityInformation.INJECTOR_TICK_MILLIS * 1000000L;
+		slotHeads = new int[UtilityInformation.INJECTOR_WHEEL_SLOTS];
+		slotTails = new int[UtilityInformation.INJECTOR_WHEEL_SLOTS];
+		slotFirstTicks = new long[UtilityInformation.INJECTOR_WHEEL_SLOTS];
+
+		dueTicks = new long[INITIAL_CAPACITY];
+		offsetNanos = new long[INITIAL_CAPACITY];
+		floorNums = new int[INITIAL_CAPACITY];
+		errorTypes = new int[INITIAL_CAPACITY];
+		directions = new int[INITIAL_CAPACITY];
+		finalFloors = new int[INITIAL_CAPACITY];
+		nextEntries = new int[INITIAL_CAPACITY];
+
+		dueOffsetNanos = new long[INITIAL_CAPACITY];
+		dueFloorNums = new int[INITIAL_CAPACITY];
+		dueErrorTypes = new int[INITIAL_CAPACITY];
+		dueDirections = new int[INITIAL_CAPACITY];
+		dueFinalFloors = new int[INITIAL_CAPACITY];
+
+		rand = new Random();
+		jitter = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+		                              UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+
+		clear();
+		maxSize = UNBOUNDED;
+		closed = true;
+	}
+
+	/**
+	 * open
+	 *
+	 * Empties the wheel and lets the requests of a new trace be added.
+	 *
+	 * @param newMaxSize   Most requests held at once, or UNBOUNDED
+	 *
+	 * @return None
+	 */
+	public void open(int newMaxSize) {
+		lock.lock();
+		try {
+			clear();
+			maxSize = newMaxSize;
+			closed = false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * add
+	 *
+	 * Adds a request to be sent at the given offset from when the injector
+	 * starts, waiting while the wheel is full.
+	 *
+	 * @param timeOfReq    Offset to send the request at in ms
+	 * @param floorNum     Floor the request is made on
+	 * @param errorType    Ordinal of the error type, or -1 for an elevator request
+	 * @param direction    Ordinal of the direction, or -1 for an error
+	 * @param finalFloor   Floor the passenger is going to, or -1 for an error
+	 *
+	 * @return boolean True if the request was added, false if the injector
+	 *                 was closed first
+	 */
+	public boolean add(int timeOfReq, int floorNum, int errorType, int direction, int finalFloor) {
+		lock.lock();
+		try {
+			while ((size == maxSize) && !closed) {
+				try {
+					changed.await();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+
+			if (closed) {
+				return(false);
+			}
+
+			if (freeHead == NONE) {
+				grow();
+			}
+
+			int entry = freeHead;
+			freeHead = nextEntries[entry];
+
+			long offset = timeOfReq * 1000000L;
+			long dueTick = Math.max((offset + tickNanos - 1) / tickNanos, currentTick + 1);
+
+			dueTicks[entry] = dueTick;
+			offsetNanos[entry] = offset;
+			floorNums[entry] = floorNum;
+			errorTypes[entry] = errorType;
+			directions[entry] = direction;
+			finalFloors[entry] = finalFloor;
+			nextEntries[entry] = NONE;
+
+			// Add to the end of the slot's list, so requests due in the same
+			// tick are sent in the order they were added
+			int slot = slotOf(dueTick);
+			if (slotHeads[slot] == NONE) {
+				slotHeads[slot] = entry;
+			} else {
+				nextEntries[slotTails[slot]] = entry;
+			}
+			slotTails[slot] = entry;
+			slotFirstTicks[slot] = Math.min(slotFirstTicks[slot], dueTick);
+
+			size++;
+			changed.signalAll();
+
+			return(true);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * close
+	 *
+	 * Says that every request in the trace has been added, so the injector
+	 * stops once it has sent them all.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * discard
+	 *
+	 * Closes the injector and drops every request not yet sent, waking the
+	 * injector if it is asleep so it stops.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void discard() {
+		lock.lock();
+		try {
+			clear();
+			closed = true;
+			changed.signalAll();
+
+			// Only interrupted while asleep, as interrupting a send would
+			// close the channel of a ChannelTransport
+			if ((thread != null) && sleeping) {
+				thread.interrupt();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * start
+	 *
+	 * Starts sending the requests on a thread of its own, with their
+	 * offsets counted from now.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void start() {
+		lock.lock();
+		try {
+			originNanos = clock.nanoTime();
+			sleeping = false;
+			thread = new Thread(this, "Request injector");
+			thread.start();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * join
+	 *
+	 * Waits until the injector has sent every request and stopped.
+	 *
+	 * @param millis   Longest time to wait in ms
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 *
+	 * @return boolean True if the injector has stopped
+	 */
+	public boolean join(long millis) throws InterruptedException {
+		Thread toJoin;
+
+		lock.lock();
+		try {
+			toJoin = thread;
+		} finally {
+			lock.unlock();
+		}
+
+		if (toJoin != null) {
+			toJoin.join(millis);
+			return(!toJoin.isAlive());
+		}
+
+		return(true);
+	}
+
+	/**
+	 * run
+	 *
+	 * Overridden
+	 *
+	 * Sends each request once its tick is reached, until the injector is
+	 * closed and every request has been sent.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void run() {
+		lock.lock();
+		try {
+			while (true) {
+				while ((size == 0) && !closed) {
+					try {
+						changed.await();
+					} catch (InterruptedException e) {
+						// Woken to stop
+					}
+				}
+
+				if (size == 0) {
+					break;
+				}
+
+				long nextTick = nextDueTick();
+				long nowTick = (clock.nanoTime() - originNanos) / tickNanos;
+
+				if (nextTick > nowTick) {
+					// No request is due before nextTick, so any added while
+					// asleep are sent from nextTick on
+					currentTick = nextTick - 1;
+
+					long sleepNanos = originNanos + (nextTick * tickNanos) - clock.nanoTime();
+					sleeping = true;
+					lock.unlock();
+					try {
+						clock.sleep(Math.max((sleepNanos + 999999L) / 1000000L, 0));
+					} catch (InterruptedException e) {
+						// Woken to stop
+					} finally {
+						lock.lock();
+						sleeping = false;
+					}
+
+					continue;
+				}
+
+				currentTick = nextTick;
+				int due = takeDue(nextTick);
+				int numDue = copyDue(due);
+
+				lock.unlock();
+				try {
+					release(numDue);
+				} finally {
+					lock.lock();
+				}
+
+				freeEntries(due);
+				changed.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (numReleased > 0) {
+			System.out.println(String.format("Released %d requests, release jitter p50 %d us, p99 %d us, max %d us",
+			                                 numReleased,
+			                                 jitter.getValueAtPercentile(50) / 1000,
+			                                 jitter.getValueAtPercentile(99) / 1000,
+			                                 jitter.getMax() / 1000));
+		}
+	}
+
+	/**
+	 * getJitter
+	 *
+	 * @param  None
+	 *
+	 * @return LatencyHistogram    How late each request was sent in nanoseconds
+	 */
+	public LatencyHistogram getJitter() {
+		return(jitter);
+	}
+
+	/**
+	 * getNumReleased
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of requests sent
+	 */
+	public long getNumReleased() {
+		lock.lock();
+		try {
+			return(numReleased);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * size
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of requests waiting to be sent
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return(size);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * getPendingRequests
+	 *
+	 * Returns a copy of the requests waiting to be sent, in the formats
+	 * Floor.getServiceRequests uses: {time, floor, direction, destination,
+	 * END_OF_MESSAGE} and {time, error type, END_OF_MESSAGE}.
+	 *
+	 * @param  None
+	 *
+	 * @return ArrayList<Integer[]>    The requests waiting to be sent
+	 */
+	public ArrayList<Integer[]> getPendingRequests() {
+		ArrayList<Integer[]> requests = new ArrayList<Integer[]>();
+
+		lock.lock();
+		try {
+			for (int slot = 0; slot < slotHeads.length; slot++) {
+				for (int entry = slotHeads[slot]; entry != NONE; entry = nextEntries[entry]) {
+					int time = (int) (offsetNanos[entry] / 1000000L);
+
+					if (errorTypes[entry] != -1) {
+						requests.add(new Integer[] {time, errorTypes[entry], (int) UtilityInformation.END_OF_MESSAGE});
+					} else {
+						requests.add(new Integer[] {time, floorNums[entry], directions[entry], finalFloors[entry],
+						                            (int) UtilityInformation.END_OF_MESSAGE});
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return(requests);
+	}
+
+	/**
+	 * nextDueTick
+	 *
+	 * Finds the earliest tick with a request due. Looks at each slot once
+	 * around the wheel from the current tick, and then at the earliest tick
+	 * of every slot if nothing is due within one turn. Must be called with
+	 * the lock held and at least one request in the wheel.
+	 *
+	 * @param  None
+	 *
+	 * @return long    The earliest tick with a request due
+	 */
+	private long nextDueTick() {
+		for (int i = 1; i <= slotHeads.length; i++) {
+			long tick = currentTick + i;
+
+			if (slotFirstTicks[slotOf(tick)] == tick) {
+				return(tick);
+			}
+		}
+
+		long earliest = Long.MAX_VALUE;
+		for (long firstTick : slotFirstTicks) {
+			earliest = Math.min(earliest, firstTick);
+		}
+
+		return(earliest);
+	}
+
+	/**
+	 * takeDue
+	 *
+	 * Takes the requests due in the given tick out of its slot, keeping
+	 * the requests due in later turns of the wheel. Must be called with the
+	 * lock held.
+	 *
+	 * @param tick The tick
+	 *
+	 * @return int First of the requests taken, linked in order, or NONE
+	 */
+	private int takeDue(long tick) {
+		int slot = slotOf(tick);
+		int dueHead = NONE;
+		int dueTail = NONE;
+		int keptHead = NONE;
+		int keptTail = NONE;
+		long firstTick = Long.MAX_VALUE;
+
+		int entry = slotHeads[slot];
+		while (entry != NONE) {
+			int next = nextEntries[entry];
+			nextEntries[entry] = NONE;
+
+			if (dueTicks[entry] == tick) {
+				if (dueHead == NONE) {
+					dueHead = entry;
+				} else {
+					nextEntries[dueTail] = entry;
+				}
+				dueTail = entry;
+			} else {
+				if (keptHead == NONE) {
+					keptHead = entry;
+				} else {
+					nextEntries[keptTail] = entry;
+				}
+				keptTail = entry;
+				firstTick = Math.min(firstTick, dueTicks[entry]);
+			}
+
+			entry = next;
+		}
+
+		slotHeads[slot] = keptHead;
+		slotTails[slot] = keptTail;
+		slotFirstTicks[slot] = firstTick;
+
+		return(dueHead);
+	}
+
+	/**
+	 * copyDue
+	 *
+	 * Copies the given requests into the due arrays, growing them if this
+	 * tick has more requests than any before it. Must be called with the
+	 * lock held, by the sending thread.
+	 *
+	 * @param due  First of the requests taken, linked in order
+	 *
+	 * @return int Number of requests copied
+	 */
+	private int copyDue(int due) {
+		int numDue = 0;
+
+		for (int entry = due; entry != NONE; entry = nextEntries[entry]) {
+			if (numDue == dueFloorNums.length) {
+				int newCapacity = numDue * 2;
+
+				dueOffsetNanos = Arrays.copyOf(dueOffsetNanos, newCapacity);
+				dueFloorNums = Arrays.copyOf(dueFloorNums, newCapacity);
+				dueErrorTypes = Arrays.copyOf(dueErrorTypes, newCapacity);
+				dueDirections = Arrays.copyOf(dueDirections, newCapacity);
+				dueFinalFloors = Arrays.copyOf(dueFinalFloors, newCapacity);
+			}
+
+			dueOffsetNanos[numDue] = offsetNanos[entry];
+			dueFloorNums[numDue] = floorNums[entry];
+			dueErrorTypes[numDue] = errorTypes[entry];
+			dueDirections[numDue] = directions[entry];
+			dueFinalFloors[numDue] = finalFloors[entry];
+			numDue++;
+		}
+
+		return(numDue);
+	}
+
+	/**
+	 * release
+	 *
+	 * Sends the requests copied into the due arrays and records how late
+	 * each one was. Called without the lock held, so it only reads the due
+	 * arrays, which requests being added never touch.
+	 *
+	 * @param numDue   Number of requests to send
+	 *
+	 * @return None
+	 */
+	private void release(int numDue) {
+		for (int i = 0; i < numDue; i++) {
+			long lateness = clock.nanoTime() - (originNanos + dueOffsetNanos[i]);
+			jitter.record(Math.max(lateness, 0));
+
+			if (dueErrorTypes[i] != -1) {
+				sender.sendErrorOccursMessage(ERROR_TYPES[dueErrorTypes[i]], rand.nextInt(sender.getNumElevators()));
+			} else {
+				sender.sendElevatorRequest(dueFloorNums[i], dueFinalFloors[i], DIRECTIONS[dueDirections[i]]);
+			}
+		}
+	}
+
+	/**
+	 * freeEntries
+	 *
+	 * Returns the given sent requests to the free list. Must be called with
+	 * the lock held.
+	 *
+	 * @param due  First of the sent requests, linked in order
+	 *
+	 * @return None
+	 */
+	private void freeEntries(int due) {
+		int entry = due;
+
+		while (entry != NONE) {
+			int next = nextEntries[entry];
+
+			nextEntries[entry] = freeHead;
+			freeHead = entry;
+			size--;
+			numReleased++;
+
+			entry = next;
+		}
+	}
+
+	/**
+	 * clear
+	 *
+	 * Drops every request and starts the wheel again from tick 0. Must be
+	 * called with the lock held, or from the constructor.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void clear() {
+		for (int slot = 0; slot < slotHeads.length; slot++) {
+			slotHeads[slot] = NONE;
+			slotTails[slot] = NONE;
+			slotFirstTicks[slot] = Long.MAX_VALUE;
+		}
+
+		for (int entry = 0; entry < nextEntries.length; entry++) {
+			nextEntries[entry] = entry + 1;
+		}
+		nextEntries[nextEntries.length - 1] = NONE;
+		freeHead = 0;
+
+		size = 0;
+		currentTick = -1;
+	}
+
+	/**
+	 * grow
+	 *
+	 * Doubles the number of requests the arrays hold, adding the new
+	 * entries to the free list. Must be called with the lock held.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void grow() {
+		int oldCapacity = nextEntries.length;
+		int newCapacity = oldCapacity * 2;
+
+		dueTicks = Arrays.copyOf(dueTicks, newCapacity);
+		offsetNanos = Arrays.copyOf(offsetNanos, newCapacity);
+		floorNums = Arrays.copyOf(floorNums, newCapacity);
+		errorTypes = Arrays.copyOf(errorTypes, newCapacity);
+		directions = Arrays.copyOf(directions, newCapacity);
+		finalFloors = Arrays.copyOf(finalFloors, newCapacity);
+		nextEntries = Arrays.copyOf(nextEntries, newCapacity);
+
+		for (int entry = oldCapacity; entry < newCapacity; entry++) {
+			nextEntries[entry] = entry + 1;
+		}
+		nextEntries[newCapacity - 1] = freeHead;
+		freeHead = oldCapacity;
+	}
+
+	/**
+	 * slotOf
+	 *
+	 * @param tick A tick
+	 *
+	 * @return int Slot of the wheel the tick's requests are kept in
+	 */
+	private int slotOf(long tick) {
+		return((int) (tick & (slotHeads.length - 1)));
+	}
+}
@@ -0,0 +1,196 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RequestInjectorTests {
+    // Longest time to wait for the injector to send every request
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    /**
+     *
+     * Records each request sent, with the clock time it was sent at
+     *
+     */
+    private static class RecordingSender implements RequestInjector.Sender {
+        private final SimulationClock clock;
+        private final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+        private final List<Long> sendTimes = Collections.synchronizedList(new ArrayList<Long>());
+
+        RecordingSender(SimulationClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void sendElevatorRequest(int sourceFloor, int destFloor, UtilityInformation.ElevatorDirection diRequest) {
+            sendTimes.add(clock.nanoTime());
+            sent.add(sourceFloor + " " + diRequest + " " + destFloor);
+        }
+
+        @Override
+        public void sendErrorOccursMessage(UtilityInformation.ErrorType type, int elevatorNum) {
+            sendTimes.add(clock.nanoTime());
+            sent.add(type + " " + elevatorNum);
+        }
+
+        @Override
+        public int getNumElevators() {
+            return(1);
+        }
+    }
+
+    /**
+     * testRequestsSentAtTheirTimes
+     *
+     * Tests on a virtual clock that requests added out of order are sent
+     * at exactly their times, including times more than one turn of the
+     * wheel away, and that requests due at the same time are sent in the
+     * order they were added.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testRequestsSentAtTheirTimes() throws InterruptedException {
+        VirtualClock clock = new VirtualClock(1);
+        RecordingSender sender = new RecordingSender(clock);
+        RequestInjector injector = new RequestInjector(sender, clock);
+
+        int oneTurn = UtilityInformation.INJECTOR_WHEEL_SLOTS * UtilityInformation.INJECTOR_TICK_MILLIS;
+        int up = UtilityInformation.ElevatorDirection.UP.ordinal();
+        int down = UtilityInformation.ElevatorDirection.DOWN.ordinal();
+
+        injector.open(RequestInjector.UNBOUNDED);
+        injector.add(3 * oneTurn + 5, 4, -1, down, 0);
+        injector.add(5, 1, -1, up, 9);
+        injector.add(0, 2, -1, up, 3);
+        injector.add(5, 7, -1, down, 2);
+        injector.add(oneTurn + 5, 3, UtilityInformation.ErrorType.DOOR_STUCK_ERROR.ordinal(), -1, -1);
+        injector.close();
+
+        assertEquals(5, injector.getPendingRequests().size());
+
+        long start = clock.nanoTime();
+        injector.start();
+        assertTrue(injector.join(TIMEOUT_MILLIS));
+
+        assertEquals(5, injector.getNumReleased());
+        assertEquals(0, injector.size());
+        assertEquals(List.of("2 UP 3", "1 UP 9", "7 DOWN 2", "DOOR_STUCK_ERROR 0", "4 DOWN 0"), sender.sent);
+
+        long[] expectedMillis = {0, 5, 5, oneTurn + 5, 3 * oneTurn + 5};
+        for (int i = 0; i < expectedMillis.length; i++) {
+            assertEquals(expectedMillis[i] * 1000000L, sender.sendTimes.get(i) - start);
+        }
+
+        assertEquals(5, injector.getJitter().getTotalCount());
+        assertEquals(0, injector.getJitter().getMax());
+    }
+
+    /**
+     * testStreamedRequestsBounded
+     *
+     * Tests on the real clock that requests added while the injector runs,
+     * with room for only a few at a time, are all sent in order and not
+     * long after they are due.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testStreamedRequestsBounded() throws InterruptedException {
+        final int maxPending = 4;
+        final int numRequests = 200;
+
+        SimulationClock clock = new RealTimeClock();
+        RecordingSender sender = new RecordingSender(clock);
+        RequestInjector injector = new RequestInjector(sender, clock);
+
+        injector.open(maxPending);
+        injector.start();
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < numRequests; i++) {
+            injector.add(i, i % 10, -1, UtilityInformation.ElevatorDirection.UP.ordinal(), 10);
+            expected.add((i % 10) + " UP 10");
+            assertTrue(injector.size() <= maxPending);
+        }
+        injector.close();
+
+        assertTrue(injector.join(TIMEOUT_MILLIS));
+        assertEquals(expected, sender.sent);
+        assertEquals(numRequests, injector.getJitter().getTotalCount());
+
+        // Generous, as the tests may share a busy machine
+        assertTrue(injector.getJitter().getValueAtPercentile(50) < 50000000L, injector.getJitter().toString());
+    }
+
+    /**
+     * testRequestsAddedWhileSending
+     *
+     * Tests that requests added while a tick's requests are being sent,
+     * enough to grow the arrays they are kept in, do not change the
+     * requests being sent, and are all sent after them.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testRequestsAddedWhileSending() throws InterruptedException {
+        final int numFirst = 100;
+        final int numAdded = 300;
+        final int up = UtilityInformation.ElevatorDirection.UP.ordinal();
+
+        VirtualClock clock = new VirtualClock(1);
+        final RequestInjector[] injector = new RequestInjector[1];
+
+        RecordingSender sender = new RecordingSender(clock) {
+            private boolean added = false;
+
+            @Override
+            public void sendElevatorRequest(int sourceFloor, int destFloor, UtilityInformation.ElevatorDirection diRequest) {
+                super.sendElevatorRequest(sourceFloor, destFloor, diRequest);
+
+                // Add more while the first tick is still being sent
+                if (!added) {
+                    added = true;
+                    for (int i = 0; i < numAdded; i++) {
+                        injector[0].add(10, i % 10, -1, up, 20);
+                    }
+                    injector[0].close();
+                }
+            }
+        };
+        injector[0] = new RequestInjector(sender, clock);
+
+        List<String> expected = new ArrayList<String>();
+        injector[0].open(RequestInjector.UNBOUNDED);
+        for (int i = 0; i < numFirst; i++) {
+            injector[0].add(0, i % 10, -1, up, 10);
+            expected.add((i % 10) + " UP 10");
+        }
+        for (int i = 0; i < numAdded; i++) {
+            expected.add((i % 10) + " UP 20");
+        }
+
+        injector[0].start();
+        assertTrue(injector[0].join(TIMEOUT_MILLIS));
+
+        assertEquals(expected, sender.sent);
+        assertEquals(numFirst + numAdded, injector[0].getNumReleased());
+        assertEquals(0, injector[0].size());
+    }
+}
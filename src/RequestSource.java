@@ -0,0 +1,100 @@
+import java.io.IOException;
+
+/**
+ *
+ * Requests for the FloorSubsystem to send, one at a time: the lines of a
+ * trace file read by TraceReader, or traffic made up as it is needed by
+ * TrafficGenerator. Each call to next moves on to the next request, whose
+ * fields are read with the getters until next is called again.
+ *
+ */
+public interface RequestSource {
+
+	/**
+	 * next
+	 *
+	 * Moves on to the next request.
+	 *
+	 * @throws IOException If the requests could not be read
+	 *
+	 * @return boolean True if there is another request, false if there are no more
+	 */
+	boolean next() throws IOException;
+
+	/**
+	 * getTime
+	 *
+	 * @param  None
+	 *
+	 * @return int Time of the request in ms. Only the difference from the
+	 *             time of the first request is used
+	 */
+	int getTime();
+
+	/**
+	 * isError
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if the request is an error, false if it is an
+	 *                 elevator request
+	 */
+	boolean isError();
+
+	/**
+	 * getErrorType
+	 *
+	 * @param  None
+	 *
+	 * @return UtilityInformation.ErrorType    Type of the error, or null for
+	 *                                         an elevator request
+	 */
+	UtilityInformation.ErrorType getErrorType();
+
+	/**
+	 * getStartFloor
+	 *
+	 * @param  None
+	 *
+	 * @return int Floor the elevator request is made on
+	 */
+	int getStartFloor();
+
+	/**
+	 * getDirection
+	 *
+	 * @param  None
+	 *
+	 * @return UtilityInformation.ElevatorDirection    Direction of the elevator request
+	 */
+	UtilityInformation.ElevatorDirection getDirection();
+
+	/**
+	 * getFinalFloor
+	 *
+	 * @param  None
+	 *
+	 * @return int Floor the elevator request is going to
+	 */
+	int getFinalFloor();
+
+	/**
+	 * describe
+	 *
+	 * @param  None
+	 *
+	 * @return String  Where the request came from, for error messages
+	 */
+	String describe();
+
+	/**
+	 * close
+	 *
+	 * Lets go of anything held to make the requests.
+	 *
+	 * @throws IOException If the requests could not be closed
+	 *
+	 * @return None
+	 */
+	void close() throws IOException;
+}
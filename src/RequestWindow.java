@@ -0,0 +1,291 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Requests waiting to be sent by one Floor. The FloorSubsystem adds the
+ * requests read from a trace and the Floor takes them in order as it sends
+ * them.
+ *
+ * When a trace is streamed the window holds at most a few requests, and
+ * adding to a full window waits until the Floor has sent one, so only a
+ * bounded look ahead of a long trace is ever in memory. When a trace is
+ * read up front the window grows to hold all of it.
+ *
+ * Each request is kept as a few ints in a ring, so adding one does not
+ * allocate until the ring has to grow. Only one thread may take from a
+ * window, but any thread may add to it.
+ *
+ */
+public class RequestWindow {
+	// Fields of each request, in the order they are stored
+	public static final int TIME_IND = 0;
+	public static final int ERROR_TYPE_IND = 1;
+	public static final int DIRECTION_IND = 2;
+	public static final int FINAL_FLOOR_IND = 3;
+	public static final int NUM_FIELDS = 4;
+
+	// Most requests a window holds when it grows to hold the whole trace
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	// Requests the ring holds before it first grows
+	private static final int INITIAL_CAPACITY = 8;
+
+	// Guards the window. notEmpty is signalled when a request is added or
+	// the window is closed, notFull when a request is taken or it is closed
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	// Ring of requests, NUM_FIELDS ints each
+	private int[] requests;
+	private int head;
+	private int size;
+
+	// Most requests held at once
+	private int maxSize;
+
+	// Whether more requests will be added
+	private boolean closed;
+
+	/**
+	 * RequestWindow
+	 *
+	 * Constructor
+	 *
+	 * Create a new window that is empty and closed, so taking from it
+	 * returns straight away until it is opened.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public RequestWindow() {
+		requests = new int[INITIAL_CAPACITY * NUM_FIELDS];
+		head = 0;
+		size = 0;
+
+		maxSize = UNBOUNDED;
+		closed = true;
+	}
+
+	/**
+	 * open
+	 *
+	 * Empties the window and lets requests be added to it.
+	 *
+	 * @param newMaxSize   Most requests held at once, or UNBOUNDED
+	 *
+	 * @return None
+	 */
+	public void open(int newMaxSize) {
+		lock.lock();
+		try {
+			head = 0;
+			size = 0;
+			maxSize = newMaxSize;
+			closed = false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * add
+	 *
+	 * Adds a request to the end of the window, waiting while the window is
+	 * full.
+	 *
+	 * @param time         Time to send the request in ms
+	 * @param errorType    Ordinal of the error type, or -1 for an elevator request
+	 * @param direction    Ordinal of the direction, or -1 for an error
+	 * @param finalFloor   Floor the passenger is going to, or -1 for an error
+	 *
+	 * @return boolean True if the request was added, false if the window was
+	 *                 closed first
+	 */
+	public boolean add(int time, int errorType, int direction, int finalFloor) {
+		lock.lock();
+		try {
+			while ((size == maxSize) && !closed) {
+				try {
+					notFull.await();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+
+			if (closed) {
+				return(false);
+			}
+
+			if (size * NUM_FIELDS == requests.length) {
+				grow();
+			}
+
+			int tail = ((head + size) & (capacity() - 1)) * NUM_FIELDS;
+			requests[tail + TIME_IND] = time;
+			requests[tail + ERROR_TYPE_IND] = errorType;
+			requests[tail + DIRECTION_IND] = direction;
+			requests[tail + FINAL_FLOOR_IND] = finalFloor;
+			size++;
+
+			notEmpty.signal();
+			return(true);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * take
+	 *
+	 * Removes the request at the front of the window into the given array.
+	 * Waits until there is one, or until the window is closed and empty.
+	 *
+	 * @param request  Array of at least NUM_FIELDS ints to copy the request into
+	 *
+	 * @return boolean True if a request was taken, false if the window is
+	 *                 closed and every request has been taken
+	 */
+	public boolean take(int[] request) {
+		lock.lock();
+		try {
+			while ((size == 0) && !closed) {
+				try {
+					notEmpty.await();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+
+			if (size == 0) {
+				return(false);
+			}
+
+			System.arraycopy(requests, head * NUM_FIELDS, request, 0, NUM_FIELDS);
+			head = (head + 1) & (capacity() - 1);
+			size--;
+
+			notFull.signal();
+			return(true);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * close
+	 *
+	 * Says that no more requests will be added. Requests already in the
+	 * window can still be taken.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * discard
+	 *
+	 * Closes the window and drops every request in it, so the Floor stops
+	 * after the request it is sending.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void discard() {
+		lock.lock();
+		try {
+			size = 0;
+			close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * get
+	 *
+	 * Copies the request at the given place in the window into the given
+	 * array, without removing it.
+	 *
+	 * @param index    Place of the request, 0 being the next one taken
+	 * @param request  Array of at least NUM_FIELDS ints to copy the request into
+	 *
+	 * @return None
+	 */
+	public void get(int index, int[] request) {
+		lock.lock();
+		try {
+			if ((index < 0) || (index >= size)) {
+				throw new IndexOutOfBoundsException("Request " + index + " of " + size);
+			}
+
+			int slot = ((head + index) & (capacity() - 1)) * NUM_FIELDS;
+			System.arraycopy(requests, slot, request, 0, NUM_FIELDS);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * size
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of requests in the window
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return(size);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * capacity
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of requests the ring holds before it grows
+	 */
+	private int capacity() {
+		return(requests.length / NUM_FIELDS);
+	}
+
+	/**
+	 * grow
+	 *
+	 * Doubles the size of the ring, keeping the requests in order. Must be
+	 * called with the lock held.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void grow() {
+		int[] newRequests = new int[requests.length * 2];
+
+		for (int i = 0; i < size; i++) {
+			int slot = ((head + i) & (capacity() - 1)) * NUM_FIELDS;
+			System.arraycopy(requests, slot, newRequests, i * NUM_FIELDS, NUM_FIELDS);
+		}
+
+		requests = newRequests;
+		head = 0;
+	}
+}
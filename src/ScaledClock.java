@@ -0,0 +1,38 @@
+/**
+ *
+ * Clock that runs a fixed number of times faster than real time. Each
+ * process has its own, so processes using the same speedup stay in step.
+ *
+ */
+public class ScaledClock extends SimulationClock {
+	private final double speedup;
+	private final long origin;
+
+	/**
+	 * ScaledClock
+	 *
+	 * Constructor
+	 *
+	 * Create a new clock that runs the given number of times faster than real time.
+	 *
+	 * @param speedup  How many times faster than real time the clock runs
+	 *
+	 * @return None
+	 */
+	public ScaledClock(double speedup) {
+		this.speedup = speedup;
+		origin = System.nanoTime();
+	}
+
+	@Override
+	public long nanoTime() {
+		return(origin + (long) ((System.nanoTime() - origin) * speedup));
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		long realNanos = (long) ((millis * 1000000L) / speedup);
+
+		Thread.sleep(realNanos / 1000000L, (int) (realNanos % 1000000L));
+	}
+}
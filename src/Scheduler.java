@@ -3,13 +3,13 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Scheduler extends ServerPattern {
 
@@ -25,54 +25,139 @@ public class Scheduler extends ServerPattern {
 		FIX_ELEVATOR_ERROR, FIX_DOOR_ERROR
 	}
 
-	private DatagramSocket sendSocket = null;
-	private DatagramPacket sendPacket;
 	private ArrayList<UtilityInformation.ElevatorDirection> elevatorDirection;
-	private State currentState;
 	private byte numElevators;
-	private long messageRecieveTime;
 
 	private SchedulerAlgorithm algor;
 	
-	private ArrayList<ArrayList<Long>> frequencyTimes;
-	private ArrayList<ArrayList<Long>> executionDurationTimes;
+	// Wait and ride times of delivered passengers, and the number of active
+	// requests of each elevator after the last message, for the metrics
+	private LatencyHistogram waitTimes;
+	private LatencyHistogram rideTimes;
+	private volatile AtomicIntegerArray activeRequests;
 	
 	private InetAddress floorIP;
 	private InetAddress elevatorIP;
+	
+	// Where the thread handling a message is in the state machine, and the
+	// messages it has queued. Each elevator actor has its own, every other
+	// thread uses the coordinator's.
+	private HandlerState coordinatorState;
+	private ThreadLocal<HandlerState> actorState;
+	
+	// One actor per elevator that handles the messages about that elevator
+	// on its own thread, or null if every message is handled by one thread
+	private boolean useElevatorActors;
+	private volatile ElevatorActor[] actors;
+	
+	// Put in an actor's mailbox to tell the actor to finish. Only ever
+	// compared by reference, so a received teardown message is not mistaken for it.
+	private static final DatagramPacket STOP_ACTOR = new DatagramPacket(
+			new byte[] {UtilityInformation.TEARDOWN_MODE, UtilityInformation.END_OF_MESSAGE}, 2);
+	
+	// Time to wait for each elevator actor to finish when tearing down
+	private final long TEARDOWN_WAIT_MILLIS = 1000;
+	
+	// Clock used for the times reported for requests
+	private SimulationClock clock;
 
 	/**
 	 * Scheduler
 	 * 
 	 * Constructor
 	 * 
-	 * Create a new Scheduler object
+	 * Create a new Scheduler object that uses the default dispatch strategy
 	 */
 	public Scheduler() {
+		this(UtilityInformation.DEFAULT_DISPATCH_STRATEGY);
+	}
+	
+	/**
+	 * Scheduler
+	 * 
+	 * Constructor
+	 * 
+	 * Create a new Scheduler object that uses the given dispatch strategy
+	 * to decide which elevator gets each request
+	 * 
+	 * @param strategyType Dispatch strategy to use
+	 */
+	public Scheduler(DispatchStrategy.Type strategyType) {
 		super(UtilityInformation.SCHEDULER_PORT_NUM, "Scheduler");
 		
-		frequencyTimes = new ArrayList<ArrayList<Long>>();		
-		for (int i = 0; i < 14; i++) {
-		    frequencyTimes.add(new ArrayList<Long>());
-		}
+		initialize(strategyType, SimulationClock.getClock());
+		setElevatorActors(UtilityInformation.SCHEDULER_ELEVATOR_ACTORS);
+	}
+	
+	/**
+	 * Scheduler
+	 * 
+	 * Constructor
+	 * 
+	 * Create a new Scheduler object that sends and receives messages with the
+	 * given transport instead of on the Scheduler port, and reports request
+	 * times from the given clock
+	 * 
+	 * @param strategyType Dispatch strategy to use
+	 * @param transport    Transport to send and receive messages with
+	 * @param clock    Clock used for the times reported for requests
+	 */
+	public Scheduler(DispatchStrategy.Type strategyType, SignalTransport transport, SimulationClock clock) {
+		this(strategyType, transport, clock, UtilityInformation.DEFAULT_INBOX_TYPE, UtilityInformation.DEFAULT_INBOX_WAIT_STRATEGY);
+	}
+	
+	/**
+	 * Scheduler
+	 * 
+	 * Constructor
+	 * 
+	 * Create a new Scheduler object that sends and receives messages with the
+	 * given transport, queues them in an inbox of the given type and reports
+	 * request times from the given clock
+	 * 
+	 * @param strategyType Dispatch strategy to use
+	 * @param transport    Transport to send and receive messages with
+	 * @param clock    Clock used for the times reported for requests
+	 * @param inboxType    Type of inbox to queue received messages in
+	 * @param waitStrategy How the inbox waits when it is empty or full
+	 */
+	public Scheduler(DispatchStrategy.Type strategyType, 
+	                 SignalTransport transport, 
+	                 SimulationClock clock, 
+	                 SignalInbox.Type inboxType, 
+	                 SignalInbox.WaitStrategy waitStrategy) {
+		super(transport, inboxType, waitStrategy);
 		
-		executionDurationTimes = new ArrayList<ArrayList<Long>>();
-		for (int i = 0; i < 14; i++) {
-		    executionDurationTimes.add(new ArrayList<Long>());
-		}
-
-		algor = new SchedulerAlgorithm((byte) 0);
+		initialize(strategyType, clock);
+	}
+	
+	/**
+	 * initialize
+	 * 
+	 * Sets up the lists, algorithm and outbox used by the Scheduler
+	 * 
+	 * @param strategyType Dispatch strategy to use
+	 * @param clock    Clock used for the times reported for requests
+	 * 
+	 * @return void
+	 */
+	private void initialize(DispatchStrategy.Type strategyType, SimulationClock clock) {
+		algor = new SchedulerAlgorithm((byte) 0, strategyType);
+		
+		waitTimes = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS, UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+		rideTimes = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS, UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+		activeRequests = new AtomicIntegerArray(0);
 
 		elevatorDirection = new ArrayList<UtilityInformation.ElevatorDirection>();
 
-		currentState = State.START;
-
-		try {
-			sendSocket = new DatagramSocket();
-		} catch (SocketException e1) {
-			e1.printStackTrace();
-			System.exit(1);
-		}
+		coordinatorState = new HandlerState(this, null);
+		actorState = ThreadLocal.withInitial(() -> coordinatorState);
+		
+		useElevatorActors = false;
+		actors = null;
 		
+		this.clock = clock;
+
 		try {
             floorIP = InetAddress.getLocalHost();
         } catch (UnknownHostException e) {
@@ -101,41 +186,276 @@ public class Scheduler extends ServerPattern {
         while (true) {
             DatagramPacket nextReq = this.getNextRequest();
             
-            byte mode = nextReq.getData()[0];            
-            messageRecieveTime = System.nanoTime();
+            ElevatorActor actor = getActorFor(nextReq);
+            if (actor != null) {
+                // The actor releases the packet once it has handled it
+                actor.mailbox.put(nextReq);
+                continue;
+            }
             
-            eventOccured(Event.MESSAGE_RECIEVED, nextReq);
+            handleMessage(nextReq);
             
-            long finishTime = System.nanoTime();
-            saveTimes(messageRecieveTime, finishTime, mode);
+            // Finished with the packet, so let it be reused
+            this.releaseRequest(nextReq);
             
             printInfo();
         }
     }
     
+    /**
+     * handleMessage
+     * 
+     * Handles one received message and sends every response, timing
+     * how long it took. With elevator actors, no actor handles a message
+     * until this has finished.
+     * 
+     * @param packet   The received message
+     * 
+     * @return void
+     */
+    protected void handleMessage(DatagramPacket packet) {
+        ElevatorActor[] allActors = actors;
+        
+        lockElevators(allActors);
+        try {
+            handle(packet);
+            saveActiveRequests();
+        } finally {
+            unlockElevators(allActors);
+        }
+    }
+    
+    /**
+     * handle
+     * 
+     * Runs the given message through the state machine of the current
+     * thread and sends every response, timing how long it took.
+     * 
+     * @param packet   The received message
+     * 
+     * @return void
+     */
+    private void handle(DatagramPacket packet) {
+        HandlerState state = handlerState();
+        byte mode = packet.getData()[0];            
+        long messageRecieveTime = System.nanoTime();
+        
+        // Everything sent while handling the message goes out together
+        state.batchSends = true;
+        eventOccured(Event.MESSAGE_RECIEVED, packet);
+        flushSends();
+        
+        long finishTime = System.nanoTime();
+        saveTimes(messageRecieveTime, finishTime, mode);
+    }
+    
+    /**
+     * handleElevatorMessage
+     * 
+     * Handles a message about the given actor's elevator on the actor's
+     * thread. Only the actor's elevator is locked, so the actors of other
+     * elevators can handle their messages at the same time. If requests are
+     * waiting for an elevator with room, they are given out with every
+     * elevator locked. If the elevator has nowhere left to go, every
+     * elevator is checked to see if all requests are finished.
+     * 
+     * @param actor    The actor of the elevator
+     * @param packet   The received message
+     * 
+     * @return void
+     */
+    private void handleElevatorMessage(ElevatorActor actor, DatagramPacket packet) {
+        boolean idle;
+        boolean pending;
+        
+        actor.lock.lock();
+        try {
+            handle(packet);
+            saveActiveRequests(actor.elevatorNum);
+            
+            idle = !algor.somewhereToGo(actor.elevatorNum);
+            pending = algor.getNumPendingRequests() != 0;
+        } finally {
+            actor.lock.unlock();
+        }
+        
+        if (pending) {
+            ElevatorActor[] allActors = actors;
+            HandlerState state = handlerState();
+            
+            lockElevators(allActors);
+            try {
+                state.batchSends = true;
+                dispatchPendingRequests(packet);
+                flushSends();
+                saveActiveRequests();
+            } finally {
+                unlockElevators(allActors);
+            }
+        }
+        
+        if (idle && (packet.getData()[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.FLOOR_SENSOR_MODE)) {
+            ElevatorActor[] allActors = actors;
+            boolean finished;
+            
+            // Only taken with no elevator locked, so actors never wait on each other
+            lockElevators(allActors);
+            try {
+                finished = checkForFinish();
+            } finally {
+                unlockElevators(allActors);
+            }
+            
+            if (finished) {
+                sendAllRequestsFinishedMessage(packet);
+            }
+        }
+    }
+    
+    /**
+     * saveActiveRequests
+     * 
+     * Saves the number of active requests of each elevator so the metrics
+     * server can read them while the next message is handled.
+     * 
+     * @param  None
+     * 
+     * @return void
+     */
+    private void saveActiveRequests() {
+        AtomicIntegerArray counts = activeRequests;
+        
+        if (counts.length() != algor.getNumberOfElevators()) {
+            counts = new AtomicIntegerArray(algor.getNumberOfElevators());
+            activeRequests = counts;
+        }
+        
+        for (byte i = 0; i < counts.length(); i++) {
+            counts.set(i, algor.howManyMoreActiveRequests(i));
+        }
+    }
+    
+    /**
+     * saveActiveRequests
+     * 
+     * Saves the number of active requests of the given elevator so the
+     * metrics server can read them.
+     * 
+     * @param elevatorNum  The number of the elevator
+     * 
+     * @return void
+     */
+    private void saveActiveRequests(byte elevatorNum) {
+        AtomicIntegerArray counts = activeRequests;
+        
+        if (elevatorNum < counts.length()) {
+            counts.set(elevatorNum, algor.howManyMoreActiveRequests(elevatorNum));
+        }
+    }
+    
+    /**
+     * writeMetrics
+     * 
+     * Overridden
+     * 
+     * Writes the ServerPattern metrics, the number of active requests of
+     * each elevator, the wait and ride times of delivered passengers and
+     * how long the dispatch strategy took to choose each elevator.
+     * 
+     * @param writer   Where to write the metrics
+     * 
+     * @return None
+     */
+    @Override
+    public void writeMetrics(PrintWriter writer) {
+        super.writeMetrics(writer);
+        
+        String labels = MetricsServer.labels("subsystem", "Scheduler");
+        AtomicIntegerArray counts = activeRequests;
+        
+        MetricsServer.writeType(writer, "ecs_active_requests", "gauge", "Requests given to an elevator that are not delivered yet");
+        for (int i = 0; i < counts.length(); i++) {
+            writer.println("ecs_active_requests" + MetricsServer.labels("subsystem", "Scheduler", "elevator", Integer.toString(i)) + " " + counts.get(i));
+        }
+        
+        MetricsServer.writeType(writer, "ecs_wait_nanos", "summary", "Time from a request until the passenger was picked up");
+        MetricsServer.writeSummary(writer, "ecs_wait_nanos", labels, waitTimes);
+        MetricsServer.writeType(writer, "ecs_wait_average_nanos", "gauge", "Average time from a request until the passenger was picked up");
+        writer.println("ecs_wait_average_nanos" + labels + " " + waitTimes.getMean());
+        
+        MetricsServer.writeType(writer, "ecs_ride_nanos", "summary", "Time from pick up until the passenger reached their destination");
+        MetricsServer.writeSummary(writer, "ecs_ride_nanos", labels, rideTimes);
+        MetricsServer.writeType(writer, "ecs_ride_average_nanos", "gauge", "Average time from pick up until the passenger reached their destination");
+        writer.println("ecs_ride_average_nanos" + labels + " " + rideTimes.getMean());
+        
+        MetricsServer.writeType(writer, "ecs_dispatch_decision_nanos", "summary", "Time the dispatch strategy took to choose an elevator for a request");
+        MetricsServer.writeSummary(writer, "ecs_dispatch_decision_nanos", labels, algor.getDecisionLatency());
+    }
+    
+    /**
+     * getAlgorithm
+     * 
+     * Returns the algorithm that tracks the elevators and their requests
+     * 
+     * @param  None
+     * 
+     * @return SchedulerAlgorithm  The Scheduler's algorithm
+     */
+    protected SchedulerAlgorithm getAlgorithm() {
+        return(algor);
+    }
+    
     /**
      * printInfo
      * 
-     * Prints the requests currently assigned to each elevator
+     * Logs the requests currently assigned to each elevator at DEBUG
      * 
      * @param   None
      * 
      * @return  void
      */
     public void printInfo() {
-    	for (byte i = 0; i < numElevators; i++) {
-    		String toPrint = "";
-    		
-    		toPrint += String.format("Elevator %d: ", i);
-    		
-    		for (Request req : algor.getRequests(i)) {
-    			toPrint += String.format("Request: %d %d ", req.getSourceFloor(), req.getDestinationFloor());
+    	if (!AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+    		return;
+    	}
+    	
+    	ElevatorActor[] allActors = actors;
+    	
+    	lockElevators(allActors);
+    	try {
+    		for (byte i = 0; i < numElevators; i++) {
+    			printElevatorInfo(i);
     		}
-    		
-    		System.out.println(toPrint);
+    	} finally {
+    		unlockElevators(allActors);
     	}
     }
     
+    /**
+     * printElevatorInfo
+     * 
+     * Logs the requests currently assigned to the given elevator at DEBUG
+     * 
+     * @param elevatorNum  The number of the elevator
+     * 
+     * @return  void
+     */
+    private void printElevatorInfo(byte elevatorNum) {
+    	if (!AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+    		return;
+    	}
+    	
+    	StringBuilder toPrint = new StringBuilder();
+    	
+    	toPrint.append("Elevator ").append(elevatorNum).append(":");
+    	
+    	for (Request req : algor.getRequests(elevatorNum)) {
+    		toPrint.append(" Request: ").append(req.getSourceFloor()).append(' ').append(req.getDestinationFloor());
+    	}
+    	
+    	AsyncLog.debug("Scheduler", toPrint.toString());
+    }
+    
     /**
      * saveTimes
      * 
@@ -148,8 +468,7 @@ public class Scheduler extends ServerPattern {
      * @return void
      */
     public void saveTimes(long startTime, long finishTime, byte mode) {
-	    frequencyTimes.get(mode).add(startTime);
-	    executionDurationTimes.get(mode).add(finishTime - startTime);
+	    getMessageTimings().record(mode, startTime, finishTime);
     }
 
 	/**
@@ -160,9 +479,11 @@ public class Scheduler extends ServerPattern {
 	 * @param packet
 	 */
 	private void eventOccured(Event event, DatagramPacket packet) {
-		switch (currentState) {
+		HandlerState state = handlerState();
+		
+		switch (state.currentState) {
 		case READING_MESSAGE:
-		    currentState = State.RESPONDING_TO_MESSAGE;
+		    state.currentState = State.RESPONDING_TO_MESSAGE;
 		    
 		    switch(event) {
 		    case CONFIG_MESSAGE:
@@ -172,17 +493,27 @@ public class Scheduler extends ServerPattern {
 		    case FLOOR_SENSOR_ACTIVATED:
 		        extractFloorReachedNumberAndGenerateResponseMessageAndActions(packet);
 		        
-		        if(checkForFinish() == true) {
-                    sendAllRequestsFinishedMessage(packet);
+		        // An elevator actor checks once it has unlocked its elevator
+		        if (state.actor == null) {
+		            dispatchPendingRequests(packet);
+		            
+		            if (checkForFinish() == true) {
+		                sendAllRequestsFinishedMessage(packet);
+		            }
                 }
 		        
 		        break;
 		    case FLOOR_REQUESTED:
+		        // Requests that were waiting for room go first
+		        dispatchPendingRequests(packet);
+		        
 		        byte elevatorNum = extractFloorRequestedNumberAndGenerateResponseMessageAndActions(packet);
-                kickStartElevator(packet, elevatorNum);
+		        if (elevatorNum != -1) {
+		            kickStartElevator(packet, elevatorNum);
+		        }
                 break;
 		    case TEARDOWN:
-		        currentState = State.END;
+		        state.currentState = State.END;
                 sendTearDownMessage(packet);
                 break;
 		    case CONFIRM_CONFIG:
@@ -195,9 +526,14 @@ public class Scheduler extends ServerPattern {
                 break;
 		    case FIX_ELEVATOR_ERROR:
 		        handleElevatorFixMessage(packet);
+		        dispatchPendingRequests(packet);
 		        break;
 		    case FIX_DOOR_ERROR:
 		        handleDoorFixMessage(packet);
+		        
+		        if (state.actor == null) {
+		            dispatchPendingRequests(packet);
+		        }
 		        break;
 		    default:
 		        System.out.println("Unknown event.");
@@ -205,12 +541,12 @@ public class Scheduler extends ServerPattern {
 		        break;
 		    }
 			
-			currentState = State.WAITING;
+			state.currentState = State.WAITING;
 			
 			break;
 		case WAITING:
 			if (event.equals(Event.MESSAGE_RECIEVED)) {
-				currentState = State.READING_MESSAGE;
+				state.currentState = State.READING_MESSAGE;
 				readMessage(packet);
 			}
 			break;
@@ -219,11 +555,11 @@ public class Scheduler extends ServerPattern {
 		        event.equals(Event.CONFIG_MESSAGE) || 
 		        event.equals(Event.CONFIRM_CONFIG) || 
 		        event.equals(Event.SEND_ELEVATOR_ERROR)) {
-				currentState = State.WAITING;
+				state.currentState = State.WAITING;
 			}
 			break;
 		case START:
-			currentState = State.WAITING;
+			state.currentState = State.WAITING;
 			eventOccured(event, packet);
 			break;
 		default:
@@ -244,7 +580,7 @@ public class Scheduler extends ServerPattern {
 	 * 
 	 * @return void
 	 */
-	private void sendAllRequestsFinishedMessage(DatagramPacket packet) {
+	protected void sendAllRequestsFinishedMessage(DatagramPacket packet) {
 		byte[] message = {UtilityInformation.ALL_REQUESTS_FINISHED_MODE,
 						  UtilityInformation.END_OF_MESSAGE};
 		
@@ -262,12 +598,13 @@ public class Scheduler extends ServerPattern {
 	 * @return boolean True if all requests are completed, false otherwise
 	 */
 	private boolean checkForFinish() {
+		if (algor.getNumPendingRequests() != 0) {
+			return(false);
+		}
+		
 		for (byte i = 0; i < numElevators; i++) {
-			for (Request req : algor.getRequests(i)) {
-				if ((req.getElevatorPickupTimeFlag() == false) ||
-					(req.getElevatorArrivedDestinationTimeFlag() == false)) {
-					return(false);
-				}
+			if (algor.somewhereToGo(i)) {
+				return(false);
 			}
 		}
 		
@@ -332,8 +669,11 @@ public class Scheduler extends ServerPattern {
      * @param configPacket
      */
     protected void sendConfigPacketToElevator(DatagramPacket configPacket) {
-        System.out.println("Sending config file to Elevator...\n");
+        if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+            AsyncLog.debug("Scheduler", "Sending config file to Elevator");
+        }
         setNumElevators(configPacket.getData()[1]);
+        setNumFloors(Byte.toUnsignedInt(configPacket.getData()[2]));
         sendMessage(configPacket.getData(), configPacket.getData().length, elevatorIP,
                 UtilityInformation.ELEVATOR_PORT_NUM);
     }
@@ -353,8 +693,240 @@ public class Scheduler extends ServerPattern {
             elevatorDirection.add(UtilityInformation.ElevatorDirection.STATIONARY);
         }
         algor.setNumberOfElevators(numElevators);
+        
+        if (useElevatorActors) {
+            startElevatorActors(numElevators);
+        }
     }
 
+    /**
+     * setNumFloors
+     * 
+     * Set the number of floors in the building that the algorithm
+     * plans stops for
+     * 
+     * @param newNumFloors Number of floors in the building
+     * 
+     * @return void
+     */
+    public void setNumFloors(int newNumFloors) {
+        algor.setNumberOfFloors(newNumFloors);
+    }
+
+	/**
+	 * setElevatorActors
+	 * 
+	 * Sets whether the messages about each elevator are handled by an actor
+	 * on the elevator's own thread. Floor requests and every other message
+	 * are still handled by the thread running runSheduler. Must be set
+	 * before the configuration is received.
+	 * 
+	 * @param useActors    True to use an actor for each elevator
+	 * 
+	 * @return void
+	 */
+	public void setElevatorActors(boolean useActors) {
+		useElevatorActors = useActors;
+	}
+	
+	/**
+	 * getNumElevatorActors
+	 * 
+	 * Returns the number of elevator actors that have been started
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of elevator actors, 0 if they are not used
+	 */
+	public int getNumElevatorActors() {
+		ElevatorActor[] allActors = actors;
+		
+		return((allActors == null) ? 0 : allActors.length);
+	}
+	
+	/**
+	 * getNumRunningElevatorActors
+	 * 
+	 * Returns the number of elevator actor threads that have not finished
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of running elevator actor threads
+	 */
+	public int getNumRunningElevatorActors() {
+		ElevatorActor[] allActors = actors;
+		int numRunning = 0;
+		
+		if (allActors != null) {
+			for (ElevatorActor actor : allActors) {
+				if (actor.thread.isAlive()) {
+					numRunning++;
+				}
+			}
+		}
+		
+		return(numRunning);
+	}
+	
+	/**
+	 * startElevatorActors
+	 * 
+	 * Starts an actor for each elevator that does not have one yet. Actors
+	 * are kept if the number of elevators goes down.
+	 * 
+	 * @param numActors    Number of elevators that need an actor
+	 * 
+	 * @return void
+	 */
+	private void startElevatorActors(int numActors) {
+		ElevatorActor[] oldActors = (actors == null) ? new ElevatorActor[0] : actors;
+		
+		if (oldActors.length >= numActors) {
+			actors = oldActors;
+			return;
+		}
+		
+		ElevatorActor[] newActors = Arrays.copyOf(oldActors, numActors);
+		
+		for (int i = oldActors.length; i < numActors; i++) {
+			newActors[i] = new ElevatorActor((byte) i);
+			
+			newActors[i].thread = new Thread(newActors[i], "Elevator actor " + i);
+			newActors[i].thread.setDaemon(true);
+			newActors[i].thread.start();
+		}
+		
+		actors = newActors;
+	}
+	
+	/**
+	 * stopElevatorActors
+	 * 
+	 * Tells every elevator actor to finish once it has handled the messages
+	 * already in its mailbox, and waits for each to finish
+	 * 
+	 * @param  None
+	 * 
+	 * @return void
+	 */
+	private void stopElevatorActors() {
+		ElevatorActor[] allActors = actors;
+		
+		if (allActors == null) {
+			return;
+		}
+		
+		for (ElevatorActor actor : allActors) {
+			if (actor.thread.isAlive()) {
+				actor.mailbox.put(STOP_ACTOR);
+			}
+		}
+		
+		for (ElevatorActor actor : allActors) {
+			// An actor can not wait for itself to finish
+			if (actor.thread == Thread.currentThread()) {
+				continue;
+			}
+			
+			try {
+				actor.thread.join(TEARDOWN_WAIT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * getActorFor
+	 * 
+	 * Returns the actor that handles the given message: the actor of the
+	 * elevator for floor sensor and door fixed messages.
+	 * 
+	 * @param packet   The received message
+	 * 
+	 * @return ElevatorActor   The actor, or null if the message is handled by the coordinator
+	 */
+	private ElevatorActor getActorFor(DatagramPacket packet) {
+		ElevatorActor[] allActors = actors;
+		
+		if (allActors == null) {
+			return(null);
+		}
+		
+		byte[] data = packet.getData();
+		int elevatorNum;
+		
+		if (data[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.FLOOR_SENSOR_MODE) {
+			elevatorNum = data[2];
+		} else if (data[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.FIX_DOOR_MODE) {
+			elevatorNum = data[1];
+		} else {
+			return(null);
+		}
+		
+		if ((elevatorNum < 0) || (elevatorNum >= numElevators) || (elevatorNum >= allActors.length)) {
+			return(null);
+		}
+		
+		return(allActors[elevatorNum]);
+	}
+	
+	/**
+	 * handlerState
+	 * 
+	 * Returns the state of the thread handling the current message
+	 * 
+	 * @param  None
+	 * 
+	 * @return HandlerState    The elevator actor's state, or the coordinator's
+	 */
+	private HandlerState handlerState() {
+		if (actors == null) {
+			return(coordinatorState);
+		}
+		
+		return(actorState.get());
+	}
+	
+	/**
+	 * lockElevators
+	 * 
+	 * Locks the elevator of every given actor, always in the same order
+	 * 
+	 * @param allActors    The actors to lock, or null
+	 * 
+	 * @return void
+	 */
+	private static void lockElevators(ElevatorActor[] allActors) {
+		if (allActors == null) {
+			return;
+		}
+		
+		for (ElevatorActor actor : allActors) {
+			actor.lock.lock();
+		}
+	}
+	
+	/**
+	 * unlockElevators
+	 * 
+	 * Unlocks the elevator of every given actor
+	 * 
+	 * @param allActors    The actors to unlock, or null
+	 * 
+	 * @return void
+	 */
+	private static void unlockElevators(ElevatorActor[] allActors) {
+		if (allActors == null) {
+			return;
+		}
+		
+		for (int i = allActors.length - 1; i >= 0; i--) {
+			allActors[i].lock.unlock();
+		}
+	}
+
 	/**
 	 * For when someone on a Floor presses the button for an elevator request.
 	 * 
@@ -363,23 +935,58 @@ public class Scheduler extends ServerPattern {
 	protected byte extractFloorRequestedNumberAndGenerateResponseMessageAndActions(DatagramPacket recievedPacket) {
 		UtilityInformation.ElevatorDirection upOrDown = UtilityInformation.ElevatorDirection.values()[recievedPacket.getData()[2]];
 
-		Request tempRequest = new Request(messageRecieveTime, recievedPacket.getData()[1], recievedPacket.getData()[3],
-				upOrDown);
+		Request tempRequest = new Request(clock.nanoTime(), Byte.toUnsignedInt(recievedPacket.getData()[1]),
+				Byte.toUnsignedInt(recievedPacket.getData()[3]), upOrDown);
 
 		byte elevatorNum = algor.elevatorRequestMade(tempRequest);
 
-		// Update elevator destinations
-		LinkedHashSet<Byte> elevatorDestinations = algor.getDestinations(elevatorNum);
-		if (elevatorDestinations.size() > 0) {
+		// No elevator has room, so the request waits until one does
+		if (elevatorNum != -1) {
+			sendFirstDestination(elevatorNum);
+		}
+
+		return (elevatorNum);
+	}
+	
+	/**
+	 * sendFirstDestination
+	 * 
+	 * Sends the given elevator the first floor it has to go to, if it has one
+	 * 
+	 * @param elevatorNum  The number of the elevator
+	 * 
+	 * @return void
+	 */
+	private void sendFirstDestination(byte elevatorNum) {
+		int firstDestination = algor.getFirstDestination(elevatorNum);
+		if (firstDestination != -1) {
 			byte[] destinationFloor = {UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE,
-                    				   elevatorDestinations.iterator().next(), 
+                    				   (byte) firstDestination, 
                     				   elevatorNum, 
                     				   UtilityInformation.END_OF_MESSAGE };
 			sendMessage(destinationFloor, destinationFloor.length, elevatorIP,
 					UtilityInformation.ELEVATOR_PORT_NUM);
 		}
-
-		return (elevatorNum);
+	}
+	
+	/**
+	 * dispatchPendingRequests
+	 * 
+	 * Gives every pending request that an elevator now has room for to that
+	 * elevator, in the order they were made, and starts the elevator moving.
+	 * Every elevator must be locked.
+	 * 
+	 * @param packet   The DatagramPacket that caused this method to be called
+	 * 
+	 * @return void
+	 */
+	private void dispatchPendingRequests(DatagramPacket packet) {
+		byte elevatorNum;
+		
+		while ((elevatorNum = algor.assignPendingRequest()) != -1) {
+			sendFirstDestination(elevatorNum);
+			kickStartElevator(packet, elevatorNum);
+		}
 	}
 	
 	/**
@@ -396,11 +1003,12 @@ public class Scheduler extends ServerPattern {
 	protected void kickStartElevator(DatagramPacket packet, byte elevatorNum) {
 	    if (algor.getStopSignalSent(elevatorNum)) {
             byte[] newData = {UtilityInformation.FLOOR_SENSOR_MODE, 
-                              algor.getCurrentFloor(elevatorNum),
+                              (byte) algor.getCurrentFloor(elevatorNum),
                               elevatorNum,
                               -1 };
-            packet.setData(newData);
-            moveToFloor(packet);
+            
+            // Use a new packet so the received packet's buffer is left untouched
+            moveToFloor(new DatagramPacket(newData, newData.length));
         }
 	    
 	    algor.setStopSignalSent(elevatorNum, false);
@@ -427,8 +1035,9 @@ public class Scheduler extends ServerPattern {
 		    
 		    if (dir.equals(UtilityInformation.ElevatorDirection.STATIONARY)) {
 		        // Set the time in the requests
-                long updatedTime = System.nanoTime();
+                long updatedTime = clock.nanoTime();
                 updateRequestTimes(algor.getRequests(elevatorNum), updatedTime);
+                updateRequestTimes(algor.archiveCompletedRequests(elevatorNum), updatedTime);
             }
 		} else {
 		    if (!algor.getStopSignalSent(elevatorNum)) {
@@ -437,8 +1046,9 @@ public class Scheduler extends ServerPattern {
     		    algor.setStopSignalSent(elevatorNum, true);
     		    
     		    // Set the time in the requests
-                long updatedTime = System.nanoTime();
+                long updatedTime = clock.nanoTime();
                 updateRequestTimes(algor.getRequests(elevatorNum), updatedTime);
+                updateRequestTimes(algor.archiveCompletedRequests(elevatorNum), updatedTime);
 		    }
 		}
 
@@ -459,12 +1069,14 @@ public class Scheduler extends ServerPattern {
 	protected void sendElevatorInDirection(DatagramPacket packet, UtilityInformation.ElevatorDirection direction) {
 	    byte elevatorNum = packet.getData()[2];
         byte[] message = {UtilityInformation.ELEVATOR_DIRECTION_MODE, 
-                          algor.getCurrentFloor(elevatorNum), 
+                          (byte) algor.getCurrentFloor(elevatorNum), 
                           elevatorNum,
                           (byte) direction.ordinal(), 
                           UtilityInformation.END_OF_MESSAGE};
         
-        System.out.println(String.format("Sending elevator %s... \n", direction.toString()));
+        if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+            AsyncLog.debug("Scheduler", "Sending elevator " + elevatorNum + " " + direction.toString());
+        }
         sendMessage(message, message.length, elevatorIP, UtilityInformation.ELEVATOR_PORT_NUM);
         sendMessage(message, message.length, floorIP, UtilityInformation.FLOOR_PORT_NUM);
         
@@ -501,7 +1113,7 @@ public class Scheduler extends ServerPattern {
 	 * @param recievedPacket
 	 */
 	private void extractFloorReachedNumberAndGenerateResponseMessageAndActions(DatagramPacket recievedPacket) {
-		byte floorNum = recievedPacket.getData()[1];
+		int floorNum = Byte.toUnsignedInt(recievedPacket.getData()[1]);
 		byte elevatorNum = recievedPacket.getData()[2];
 		algor.elevatorHasReachedFloor(floorNum, elevatorNum);
 
@@ -582,12 +1194,17 @@ public class Scheduler extends ServerPattern {
 			if (temp.getElevatorArrivedDestinationTimeFlag() && 
 			   (temp.getElevatorArrivedDestinationTime() == -1)) {
 				temp.setElevatorArrivedDestinationTime(updatedTime);
+				
+				waitTimes.record(temp.getElevatorPickupTime() - temp.getElevatorRequestTime());
+				rideTimes.record(temp.getElevatorArrivedDestinationTime() - temp.getElevatorPickupTime());
 			}
 		}
 	}
 
 	/**
-	 * Send a message
+	 * Send a message. While a received message is being handled, the message
+	 * is queued and sent with the rest of the messages for its destination
+	 * when flushSends is called.
 	 * 
 	 * @param responseData
 	 * @param packetLength
@@ -595,27 +1212,54 @@ public class Scheduler extends ServerPattern {
 	 * @param destPortNum
 	 */
 	private void sendMessage(byte[] responseData, int packetLength, InetAddress destAddress, int destPortNum) {
-		sendPacket = new DatagramPacket(responseData, packetLength, destAddress, destPortNum);
-
-		// Print out info about the message being sent
-		System.out.println("Scheduler: Sending packet:");
-		System.out.println("To host: " + sendPacket.getAddress());
-		System.out.println("Destination host port: " + sendPacket.getPort());
-		int len = sendPacket.getLength();
-		System.out.println("Length: " + len);
-		System.out.print("Containing (as bytes): ");
-		System.out.println(Arrays.toString(sendPacket.getData()));
+		HandlerState state = handlerState();
+		
+		if (state.batchSends) {
+			try {
+				state.outbox.add(responseData, packetLength, destAddress, destPortNum);
+			} catch (IOException e) {
+				System.out.println("Send socket failure!");
+				e.printStackTrace();
+				System.exit(1);
+			}
+			
+			return;
+		}
+		
+		// Log info about the message being sent
+		AsyncLog.packet("Scheduler", "send", responseData, packetLength, destAddress, destPortNum);
 
 		try {
-			System.out.println("Scheduler is sending data...");
-			sendSocket.send(sendPacket);
+			this.transmit(responseData, packetLength, destAddress, destPortNum);
+		} catch (IOException e) {
+			System.out.println("Send socket failure!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * flushSends
+	 * 
+	 * Sends every queued message, one datagram per destination,
+	 * and stops queueing messages.
+	 * 
+	 * @param  None
+	 * 
+	 * @return void
+	 */
+	private void flushSends() {
+		HandlerState state = handlerState();
+		
+		state.batchSends = false;
+		
+		try {
+			state.outbox.flush();
 		} catch (IOException e) {
 			System.out.println("Send socket failure!");
 			e.printStackTrace();
 			System.exit(1);
 		}
-
-		System.out.println("Scheduler: Packet sent.\n");
 	}
 	
     /**
@@ -627,7 +1271,28 @@ public class Scheduler extends ServerPattern {
     private void sendTearDownMessage(DatagramPacket packet) {
         byte[] tearDown = { UtilityInformation.TEARDOWN_MODE, UtilityInformation.END_OF_MESSAGE };
         sendMessage(tearDown, tearDown.length, elevatorIP, UtilityInformation.ELEVATOR_PORT_NUM);
+        flushSends();
         System.out.println("\n\nTEARING DOWN!\n\n");
+        long numMessagesSent = coordinatorState.outbox.getNumMessagesSent();
+        long numDatagramsSent = coordinatorState.outbox.getNumDatagramsSent();
+        
+        ElevatorActor[] allActors = actors;
+        if (allActors != null) {
+            for (ElevatorActor actor : allActors) {
+                numMessagesSent += actor.state.outbox.getNumMessagesSent();
+                numDatagramsSent += actor.state.outbox.getNumDatagramsSent();
+            }
+        }
+        
+        System.out.println(String.format("Scheduler sent %d batched messages in %d datagrams.", 
+                                         numMessagesSent, 
+                                         numDatagramsSent));
+        System.out.println(String.format("%s dispatch: %s", 
+                                         algor.getDispatchStrategyType(), 
+                                         algor.getDecisionLatency()));
+        System.out.println(String.format("Delivered %d passengers, %.2f per minute.", 
+                                         algor.getNumPassengersDelivered(), 
+                                         algor.getPassengersDeliveredPerMinute()));
         socketTearDown();
         printTimingInformation();
         printFrequencyInformation();
@@ -657,45 +1322,15 @@ public class Scheduler extends ServerPattern {
             e.printStackTrace();
         }
         
-        for (int i = 0; i < executionDurationTimes.size(); i++) {
-            if (i == 0) {
-                writer.println("CONFIG_MODE");
-            } else if (i == 1) {
-                writer.println("FLOOR_SENSOR_MODE");
-            } else if (i == 2) {
-                writer.println("FLOOR_REQUEST_MODE");
-            } else if (i == 3) {
-                writer.println("ELEVATOR_BUTTON_HIT_MODE");
-            } else if (i == 4) {
-                writer.println("ELEVATOR_DIRECTION_MODE");
-            } else if (i == 5) {
-                writer.println("ELEVATOR_DOOR_MODE");
-            } else if (i == 6) {
-                writer.println("SEND_DESTINATION_TO_ELEVATOR_MODE");
-            } else if (i == 7) {
-                writer.println("TEARDOWN_MODE");
-            } else if (i == 8) {
-                writer.println("CONFIG_CONFIRM_MODE");
-            } else if (i == 9) {
-                writer.println("ERROR_MESSAGE_MODE");
-            } else if (i == 10) {
-                writer.println("FIX_ERROR_MODE");
-            } else if (i == 11) {
-                writer.println("FIX_DOOR_MODE");
-            } else if (i == 12) {
-                writer.println("ALL_REQUESTS_FINISHED_MODE");
-            }
-            
-            for (Long time : executionDurationTimes.get(i)) {
-                writer.println(time);
-            }
-            
-            writer.println("");
-        }
+        getMessageTimings().printDurations(writer);
         
         writer.println("Finish Request Times: ");
         
         for (byte i = 0; i < numElevators; i++) {
+        	for (Request req : algor.getCompletedRequests(i)) {
+        		writer.println(req.getElevatorArrivedDestinationTime());
+        	}
+        	
         	for (Request req : algor.getRequests(i)) {
         		writer.println(req.getElevatorArrivedDestinationTime());
         	}
@@ -729,41 +1364,7 @@ public class Scheduler extends ServerPattern {
             e.printStackTrace();
         }
         
-        for (int i = 0; i < frequencyTimes.size(); i++) {
-            if (i == 0) {
-                writer.println("CONFIG_MODE");
-            } else if (i == 1) {
-                writer.println("FLOOR_SENSOR_MODE");
-            } else if (i == 2) {
-                writer.println("FLOOR_REQUEST_MODE");
-            } else if (i == 3) {
-                writer.println("ELEVATOR_BUTTON_HIT_MODE");
-            } else if (i == 4) {
-                writer.println("ELEVATOR_DIRECTION_MODE");
-            } else if (i == 5) {
-                writer.println("ELEVATOR_DOOR_MODE");
-            } else if (i == 6) {
-                writer.println("SEND_DESTINATION_TO_ELEVATOR_MODE");
-            } else if (i == 7) {
-                writer.println("TEARDOWN_MODE");
-            } else if (i == 8) {
-                writer.println("CONFIG_CONFIRM_MODE");
-            } else if (i == 9) {
-                writer.println("ERROR_MESSAGE_MODE");
-            } else if (i == 10) {
-                writer.println("FIX_ERROR_MODE");
-            } else if (i == 11) {
-                writer.println("FIX_DOOR_MODE");
-            } else if (i == 12) {
-                writer.println("ALL_REQUESTS_FINISHED_MODE");
-            }
-            
-            for (Long time : frequencyTimes.get(i)) {
-                writer.println(time);
-            }
-            
-            writer.println("");
-        }
+        getMessageTimings().printInterArrivals(writer);
         
         writer.close();     
     }
@@ -772,10 +1373,23 @@ public class Scheduler extends ServerPattern {
      * Close send and reciever sockets
      */
     protected void socketTearDown() {
-        if (sendSocket != null) {
-            sendSocket.close();
-        }
-
+        teardown();
+    }
+    
+    /**
+     * teardown
+     * 
+     * Overridden
+     * 
+     * Stops the elevator actors, then tears down the ServerPattern
+     * 
+     * @param   None
+     * 
+     * @return  void
+     */
+    @Override
+    public void teardown() {
+        stopElevatorActors();
         super.teardown();
     }
 
@@ -784,14 +1398,143 @@ public class Scheduler extends ServerPattern {
 	 * 
 	 * Main method
 	 * 
-	 * Creates and runs a new scheduler
+	 * Creates and runs a new scheduler. The name of a dispatch strategy
+	 * (e.g. COST_FUNCTION) can be given as the first argument.
 	 * 
 	 * @param args
 	 * 
 	 * @return None
 	 */
 	public static void main(String[] args) {
-		Scheduler scheduler = new Scheduler();
+		DispatchStrategy.Type strategyType = UtilityInformation.DEFAULT_DISPATCH_STRATEGY;
+		
+		if (args.length > 0) {
+			strategyType = DispatchStrategy.Type.valueOf(args[0]);
+		}
+		
+		Scheduler scheduler = new Scheduler(strategyType);
+		if (UtilityInformation.METRICS_ENABLED) {
+			scheduler.startMetricsServer(UtilityInformation.SCHEDULER_METRICS_PORT_NUM);
+		}
 		scheduler.runSheduler();
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * 
+	 * Where one thread handling messages is in the state machine, and the
+	 * messages it has queued while handling a message.
+	 * 
+	 */
+	private static class HandlerState {
+		private State currentState;
+		
+		// Collects the messages sent while handling one received message
+		private MessageBatcher outbox;
+		private boolean batchSends;
+		
+		// The actor whose thread this is, or null for the coordinator
+		private ElevatorActor actor;
+		
+		/**
+		 * HandlerState
+		 * 
+		 * Constructor
+		 * 
+		 * Create a new HandlerState at the start of the state machine
+		 * 
+		 * @param scheduler    The Scheduler the messages are sent from
+		 * @param actor    The actor whose thread this is, or null
+		 * 
+		 * @return None
+		 */
+		public HandlerState(Scheduler scheduler, ElevatorActor actor) {
+			currentState = State.START;
+			
+			// Leave room for the frame header so a full batch still fits in a receive buffer
+			outbox = new MessageBatcher(scheduler, 
+			                            UtilityInformation.MAX_BYTE_ARRAY_SIZE - FrameCodec.HEADER_SIZE, 
+			                            UtilityInformation.MULTI_MESSAGE_FRAMES);
+			batchSends = false;
+			
+			this.actor = actor;
+		}
+	}
+	
+	/**
+	 * 
+	 * Handles the messages about one elevator on its own thread, in the
+	 * order they were received. The mailbox is a LaneRingInbox with every
+	 * mode in one lane, a single MpscRing, so a floor sensor message is
+	 * never handled before a door fixed message that arrived ahead of it,
+	 * as it would be with the priority lanes of the ServerPattern's inbox.
+	 * The elevator is locked while a message is
+	 * handled, and the coordinator locks every elevator while it handles a
+	 * message, so the SchedulerAlgorithm's state for each elevator is only
+	 * changed by one thread at a time.
+	 * 
+	 */
+	private class ElevatorActor implements Runnable {
+		private byte elevatorNum;
+		private SignalInbox mailbox;
+		private ReentrantLock lock;
+		private HandlerState state;
+		private Thread thread;
+		
+		/**
+		 * ElevatorActor
+		 * 
+		 * Constructor
+		 * 
+		 * Create a new ElevatorActor for the given elevator
+		 * 
+		 * @param elevatorNum  The number of the elevator
+		 * 
+		 * @return None
+		 */
+		public ElevatorActor(byte elevatorNum) {
+			this.elevatorNum = elevatorNum;
+			
+			// Every mode has the same priority, so messages stay in order
+			Map<Byte, Integer> samePriorities = createMessagePriorities();
+			samePriorities.replaceAll((mode, priority) -> 0);
+			
+			mailbox = createInbox(SignalInbox.Type.LANE_RING, 
+			                      UtilityInformation.DEFAULT_INBOX_WAIT_STRATEGY, 
+			                      samePriorities, 
+			                      UtilityInformation.ELEVATOR_ACTOR_MAILBOX_SIZE);
+			lock = new ReentrantLock();
+			state = new HandlerState(Scheduler.this, this);
+		}
+		
+		/**
+		 * run
+		 * 
+		 * Overridden
+		 * 
+		 * Handles every message put in the mailbox until told to finish
+		 * 
+		 * @param  None
+		 * 
+		 * @return None
+		 */
+		@Override
+		public void run() {
+			actorState.set(state);
+			
+			while (true) {
+				DatagramPacket nextReq = mailbox.take();
+				
+				if (nextReq == STOP_ACTOR) {
+					return;
+				}
+				
+				handleElevatorMessage(this, nextReq);
+				
+				// Finished with the packet, so let it be reused
+				releaseRequest(nextReq);
+				
+				printElevatorInfo(elevatorNum);
+			}
+		}
+	}
+}
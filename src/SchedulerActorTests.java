@@ -0,0 +1,315 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SchedulerActorTests {
+    // Longest time to wait for the Scheduler to respond or finish
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    /**
+     * testElevatorMessagesHandledByActor
+     *
+     * Tests that with elevator actors, floor requests are handled by the
+     * thread running the Scheduler and floor sensor messages by the actor
+     * of the elevator they are about.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testElevatorMessagesHandledByActor() throws InterruptedException {
+        // Every message sent, and the name of the thread that sent it
+        TestUtilities.RecordingTransport recorder = new TestUtilities.RecordingTransport();
+        List<byte[]> sent = recorder.getMessages();
+        List<String> senders = recorder.getSenders();
+
+        Scheduler scheduler = new Scheduler(DispatchStrategy.Type.DEFAULT, recorder, new VirtualClock());
+        scheduler.setElevatorActors(true);
+
+        try {
+            TestUtilities.startDaemon(scheduler::runSheduler, "Coordinator");
+
+            byte[] config = {UtilityInformation.CONFIG_MODE, 3, 10, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(config, config.length));
+
+            // The inbox hands out floor requests before the configuration
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while ((scheduler.getNumElevatorActors() == 0) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            byte[] request = {UtilityInformation.FLOOR_REQUEST_MODE, 4, (byte) UtilityInformation.ElevatorDirection.UP.ordinal(),
+                              8, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(request, request.length));
+
+            byte[] destination = waitForMessage(sent, senders, 0, UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE);
+            byte elevatorNum = destination[2];
+            assertEquals(3, scheduler.getNumElevatorActors());
+
+            // The handler time is recorded once every response has been sent
+            while ((scheduler.getMessageTimings().getDurations(UtilityInformation.FLOOR_REQUEST_MODE).getTotalCount() == 0)
+                    && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            int numSent;
+            synchronized (sent) {
+                numSent = sent.size();
+                for (String sender : senders) {
+                    assertEquals("Coordinator", sender);
+                }
+            }
+
+            // The elevator reaches floor 1 on its way to floor 4
+            byte[] sensor = {UtilityInformation.FLOOR_SENSOR_MODE, 1, elevatorNum, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(sensor, sensor.length));
+
+            byte[] direction = waitForMessage(sent, senders, numSent, UtilityInformation.ELEVATOR_DIRECTION_MODE);
+            assertEquals(elevatorNum, direction[2]);
+
+            synchronized (sent) {
+                for (int i = numSent; i < sent.size(); i++) {
+                    assertEquals("Elevator actor " + elevatorNum, senders.get(i));
+                }
+            }
+        } finally {
+            scheduler.teardown();
+        }
+    }
+
+    /**
+     * testTraceCompletesWithActors
+     *
+     * Tests that the Scheduler with elevator actors and the
+     * Elevator_Subsystem deliver every passenger of a short trace.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testTraceCompletesWithActors() throws IOException, InterruptedException {
+        final int[][] trace = {{0, 6}, {9, 2}, {3, 12}, {14, 1}, {5, 7}, {11, 4}, {0, 17}, {20, 0}};
+
+        SimulationClock oldClock = SimulationClock.getClock();
+        SimulationClock.setClock(new ScaledClock(UtilityInformation.SIMULATION_SPEEDUP));
+
+        Scheduler scheduler = new Scheduler(DispatchStrategy.Type.DEFAULT,
+                                            new SocketTransport(UtilityInformation.SCHEDULER_PORT_NUM, "Scheduler", null),
+                                            SimulationClock.getClock());
+        Elevator_Subsystem elevatorSubsystem = new Elevator_Subsystem(
+                new SocketTransport(UtilityInformation.ELEVATOR_PORT_NUM, "Elevator_Subsystem", null));
+        ServerPattern floors = new ServerPattern(new SocketTransport(UtilityInformation.FLOOR_PORT_NUM, "Floors", null)) {};
+
+        try {
+            scheduler.setElevatorActors(true);
+
+            TestUtilities.startDaemon(scheduler::runSheduler, "Scheduler");
+            TestUtilities.startDaemon(elevatorSubsystem::runElevatorSubsystem, "Elevator_Subsystem");
+
+            InetAddress schedulerAddress = InetAddress.getLocalHost();
+            byte[] config = {UtilityInformation.CONFIG_MODE, 4, (byte) UtilityInformation.DEFAULT_NUM_FLOORS, UtilityInformation.END_OF_MESSAGE};
+            floors.transmit(config, config.length, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+
+            DatagramPacket confirm;
+            do {
+                confirm = floors.getNextRequest();
+            } while (confirm.getData()[UtilityInformation.MODE_BYTE_IND] != UtilityInformation.CONFIG_CONFIRM_MODE);
+
+            // Nothing else sent to the floors is checked
+            TestUtilities.startDaemon(() -> {
+                while (true) {
+                    floors.releaseRequest(floors.getNextRequest());
+                }
+            }, "Floors");
+
+            for (int[] request : trace) {
+                UtilityInformation.ElevatorDirection dir = (request[1] > request[0]) ? UtilityInformation.ElevatorDirection.UP
+                                                                                      : UtilityInformation.ElevatorDirection.DOWN;
+                byte[] message = {UtilityInformation.FLOOR_REQUEST_MODE, (byte) request[0], (byte) dir.ordinal(),
+                                  (byte) request[1], UtilityInformation.END_OF_MESSAGE};
+                floors.transmit(message, message.length, schedulerAddress, UtilityInformation.SCHEDULER_PORT_NUM);
+            }
+
+            String delivered = "ecs_ride_nanos_count" + MetricsServer.labels("subsystem", "Scheduler") + " " + trace.length;
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            String metrics = "";
+
+            while (!metrics.contains(delivered) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(50);
+
+                StringWriter text = new StringWriter();
+                scheduler.writeMetrics(new PrintWriter(text));
+                metrics = text.toString();
+            }
+
+            assertTrue(metrics.contains(delivered), metrics);
+            assertEquals(4, scheduler.getNumElevatorActors());
+        } finally {
+            floors.teardown();
+            elevatorSubsystem.teardown();
+            scheduler.teardown();
+            SimulationClock.setClock(oldClock);
+        }
+    }
+
+    /**
+     * testPendingRequestGivenOutOnceElevatorHasRoom
+     *
+     * Tests that with destination dispatch, a floor request made while the
+     * only elevator is full is kept pending, and is given to the elevator by
+     * its actor once the elevator has delivered its passengers.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testPendingRequestGivenOutOnceElevatorHasRoom() throws InterruptedException {
+        TestUtilities.RecordingTransport recorder = new TestUtilities.RecordingTransport();
+        List<byte[]> sent = recorder.getMessages();
+        List<String> senders = recorder.getSenders();
+
+        Scheduler scheduler = new Scheduler(DispatchStrategy.Type.DESTINATION_DISPATCH, recorder, new VirtualClock());
+        scheduler.setElevatorActors(true);
+
+        try {
+            TestUtilities.startDaemon(scheduler::runSheduler, "Coordinator");
+
+            byte[] config = {UtilityInformation.CONFIG_MODE, 1, 10, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(config, config.length));
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while ((scheduler.getNumElevatorActors() == 0) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            // One more passenger than the elevator holds, all going from floor 0 to floor 5
+            byte[] request = {UtilityInformation.FLOOR_REQUEST_MODE, 0, (byte) UtilityInformation.ElevatorDirection.UP.ordinal(),
+                              5, UtilityInformation.END_OF_MESSAGE};
+            for (int i = 0; i <= UtilityInformation.ELEVATOR_CAPACITY; i++) {
+                scheduler.signalReceived(new DatagramPacket(request.clone(), request.length));
+            }
+
+            while ((scheduler.getMessageTimings().getDurations(UtilityInformation.FLOOR_REQUEST_MODE).getTotalCount()
+                    <= UtilityInformation.ELEVATOR_CAPACITY) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            // The elevator picks up the passengers it has room for and drops them off
+            byte[] pickup = {UtilityInformation.FLOOR_SENSOR_MODE, 0, 0, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(pickup, pickup.length));
+
+            while ((scheduler.getMessageTimings().getDurations(UtilityInformation.FLOOR_SENSOR_MODE).getTotalCount() == 0)
+                    && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            int numSent;
+            synchronized (sent) {
+                numSent = sent.size();
+            }
+
+            byte[] dropOff = {UtilityInformation.FLOOR_SENSOR_MODE, 5, 0, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(dropOff, dropOff.length));
+
+            // The waiting passenger is then given to the elevator
+            byte[] destination = waitForMessage(sent, senders, numSent, UtilityInformation.SEND_DESTINATION_TO_ELEVATOR_MODE);
+            assertEquals(5, destination[1]);
+            assertEquals(0, destination[2]);
+
+            synchronized (sent) {
+                assertEquals("Elevator actor 0", senders.get(sent.indexOf(destination)));
+            }
+        } finally {
+            scheduler.teardown();
+        }
+    }
+
+    /**
+     * testActorsStopOnTeardown
+     *
+     * Tests that every elevator actor thread finishes once the Scheduler
+     * is torn down.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testActorsStopOnTeardown() throws InterruptedException {
+        final int numElevators = 4;
+
+        Scheduler scheduler = new Scheduler(DispatchStrategy.Type.DEFAULT, new TestUtilities.RecordingTransport(), new VirtualClock());
+        scheduler.setElevatorActors(true);
+
+        try {
+            TestUtilities.startDaemon(scheduler::runSheduler, "Coordinator");
+
+            byte[] config = {UtilityInformation.CONFIG_MODE, numElevators, 10, UtilityInformation.END_OF_MESSAGE};
+            scheduler.signalReceived(new DatagramPacket(config, config.length));
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while ((scheduler.getNumRunningElevatorActors() < numElevators) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(numElevators, scheduler.getNumRunningElevatorActors());
+        } finally {
+            scheduler.teardown();
+        }
+
+        assertEquals(numElevators, scheduler.getNumElevatorActors());
+        assertEquals(0, scheduler.getNumRunningElevatorActors());
+    }
+
+    /**
+     * waitForMessage
+     *
+     * Waits until a message of the given mode has been sent
+     *
+     * @param sent  Every message sent so far
+     * @param senders   Name of the thread that sent each message
+     * @param fromIndex Index of the first message to look at
+     * @param mode  The mode of the message to wait for
+     *
+     * @throws InterruptedException
+     *
+     * @return  byte[]  The first message of the mode
+     */
+    private byte[] waitForMessage(List<byte[]> sent, List<String> senders, int fromIndex, byte mode) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (sent) {
+                for (int i = fromIndex; i < sent.size(); i++) {
+                    if (sent.get(i)[UtilityInformation.MODE_BYTE_IND] == mode) {
+                        return(sent.get(i));
+                    }
+                }
+            }
+
+            Thread.sleep(10);
+        }
+
+        throw new AssertionError("No message of mode " + mode + " was sent");
+    }
+}
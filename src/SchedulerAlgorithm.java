@@ -1,77 +1,258 @@
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 
 public class SchedulerAlgorithm {	
 	private ArrayList<AlgorithmElevator> elevatorInfo;
+	
+	// Number of floors the stops of each elevator are sized for
+	private int numFloors;
+	
+	// Decides which elevator gets each request
+	private DispatchStrategy dispatchStrategy;
+	private LatencyHistogram decisionLatency;
+	
+	// Requests no elevator could be given yet, in the order they were made
+	private ArrayList<Request> pendingRequests;
 
 	/**
 	 * SchedulerAlgorithm
 	 * 
 	 * Constructor
 	 * 
-	 * Creates a new scheduler algorithm class with the given number of elevators.
+	 * Creates a new scheduler algorithm class with the given number of elevators
+	 * that uses the default dispatch strategy.
 	 * 
 	 * @param numElevators Number of elevators that the algorithm should control
 	 */
 	public SchedulerAlgorithm(byte numElevators) {
+		this(numElevators, UtilityInformation.DEFAULT_DISPATCH_STRATEGY);
+	}
+	
+	/**
+	 * SchedulerAlgorithm
+	 * 
+	 * Constructor
+	 * 
+	 * Creates a new scheduler algorithm class with the given number of elevators
+	 * that uses the given dispatch strategy.
+	 * 
+	 * @param numElevators Number of elevators that the algorithm should control
+	 * @param strategyType Dispatch strategy used to choose an elevator for each request
+	 */
+	public SchedulerAlgorithm(byte numElevators, DispatchStrategy.Type strategyType) {
 	    elevatorInfo = new ArrayList<AlgorithmElevator>();
+	    pendingRequests = new ArrayList<Request>();
+	    numFloors = UtilityInformation.DEFAULT_NUM_FLOORS;
+	    
+	    decisionLatency = new LatencyHistogram(UtilityInformation.HISTOGRAM_HIGHEST_NANOS,
+	                                           UtilityInformation.HISTOGRAM_SIGNIFICANT_DIGITS);
+	    setDispatchStrategy(strategyType);
 	    
 		setNumberOfElevators(numElevators);
 	}
+	
+	/**
+	 * createDispatchStrategy
+	 * 
+	 * Static
+	 * 
+	 * Creates a dispatch strategy of the given type.
+	 * 
+	 * @param strategyType Type of strategy to create
+	 * 
+	 * @return DispatchStrategy    The created strategy
+	 */
+	public static DispatchStrategy createDispatchStrategy(DispatchStrategy.Type strategyType) {
+		switch (strategyType) {
+		case NEAREST_CAR:
+			return(new NearestCarDispatchStrategy());
+		case COLLECTIVE_CONTROL:
+			return(new CollectiveControlDispatchStrategy());
+		case COST_FUNCTION:
+			return(new CostFunctionDispatchStrategy());
+		case DESTINATION_DISPATCH:
+			return(new DestinationDispatchStrategy());
+		default:
+			return(new DefaultDispatchStrategy());
+		}
+	}
+	
+	/**
+	 * setDispatchStrategy
+	 * 
+	 * Uses a new dispatch strategy of the given type for all future requests
+	 * and clears the recorded decision latency.
+	 * 
+	 * @param strategyType Type of strategy to use
+	 * 
+	 * @return void
+	 */
+	public void setDispatchStrategy(DispatchStrategy.Type strategyType) {
+		dispatchStrategy = createDispatchStrategy(strategyType);
+		decisionLatency.reset();
+	}
+	
+	/**
+	 * getDispatchStrategyType
+	 * 
+	 * Returns the type of the dispatch strategy in use
+	 * 
+	 * @param  None
+	 * 
+	 * @return DispatchStrategy.Type   Type of the current strategy
+	 */
+	public DispatchStrategy.Type getDispatchStrategyType() {
+		return(dispatchStrategy.getType());
+	}
+	
+	/**
+	 * getDecisionLatency
+	 * 
+	 * Returns how long the dispatch strategy has taken to choose elevators
+	 * 
+	 * @param  None
+	 * 
+	 * @return LatencyHistogram    Decision latency of the current strategy
+	 */
+	public LatencyHistogram getDecisionLatency() {
+		return(decisionLatency);
+	}
+	
+	/**
+	 * getNumPassengersDelivered
+	 * 
+	 * Returns the number of archived requests of every elevator, i.e. the
+	 * number of passengers that have reached their destination
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of passengers delivered
+	 */
+	public int getNumPassengersDelivered() {
+		int count = 0;
+		
+		for (AlgorithmElevator elevator : elevatorInfo) {
+			count += elevator.getCompletedRequests().size();
+		}
+		
+		return(count);
+	}
+	
+	/**
+	 * getPassengersDeliveredPerMinute
+	 * 
+	 * Returns the throughput of the elevators, measured from the first
+	 * delivered request being made to the last passenger reaching their
+	 * destination.
+	 * 
+	 * @param  None
+	 * 
+	 * @return double  Passengers delivered per minute, or 0 if there were none
+	 */
+	public double getPassengersDeliveredPerMinute() {
+		int count = 0;
+		long firstRequestTime = Long.MAX_VALUE;
+		long lastArrivalTime = Long.MIN_VALUE;
+		
+		for (AlgorithmElevator elevator : elevatorInfo) {
+			for (Request req : elevator.getCompletedRequests()) {
+				if (req.getElevatorArrivedDestinationTime() != -1) {
+					count++;
+					firstRequestTime = Math.min(firstRequestTime, req.getElevatorRequestTime());
+					lastArrivalTime = Math.max(lastArrivalTime, req.getElevatorArrivedDestinationTime());
+				}
+			}
+		}
+		
+		if ((count == 0) || (lastArrivalTime <= firstRequestTime)) {
+			return(0);
+		}
+		
+		return(count * 60e9 / (lastArrivalTime - firstRequestTime));
+	}
 
 	/**
-	 * Called when someone on the floor has requested an elevator
+	 * Called when someone on the floor has requested an elevator. If the
+	 * dispatch strategy chooses no elevator, the request is kept pending
+	 * until assignPendingRequest gives it to one.
 	 * 
 	 * @param request
-	 * @return
+	 * @return The number of the elevator given the request, or -1 if it is pending
 	 */
 	public byte elevatorRequestMade(Request request) {
-		Byte source = request.getSourceFloor();
-		Byte destination = request.getDestinationFloor();
+		int source = request.getSourceFloor();
+		int destination = request.getDestinationFloor();
 		UtilityInformation.ElevatorDirection upOrDown = request.getRequestDirection();
-		System.out.println("Elevator was requested at: " + source + " in the direction " + upOrDown
-				+ " with destination " + destination);
+		if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+			AsyncLog.debug("Scheduler", "Elevator was requested at: " + source + " in the direction " + upOrDown
+					+ " with destination " + destination);
+		}
 
 		byte elevatorNum = determineElevatorToGiveRequest(request);
+		if (elevatorNum == -1) {
+			pendingRequests.add(request);
+			return (elevatorNum);
+		}
+		
 		addRequestToElevator(elevatorNum, request);
 
 		return (elevatorNum);
 	}
+	
+	/**
+	 * assignPendingRequest
+	 * 
+	 * Gives the oldest pending request to the elevator the dispatch strategy
+	 * chooses for it, if it chooses one. Later requests stay pending behind
+	 * it so they are given out in the order they were made.
+	 * 
+	 * @param  None
+	 * 
+	 * @return byte    The number of the elevator given the request, or -1 if none was given out
+	 */
+	public byte assignPendingRequest() {
+		if (pendingRequests.isEmpty()) {
+			return(-1);
+		}
+		
+		byte elevatorNum = determineElevatorToGiveRequest(pendingRequests.get(0));
+		if (elevatorNum != -1) {
+			addRequestToElevator(elevatorNum, pendingRequests.remove(0));
+		}
+		
+		return(elevatorNum);
+	}
+	
+	/**
+	 * getNumPendingRequests
+	 * 
+	 * Returns the number of requests that no elevator has been given yet
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of pending requests
+	 */
+	public int getNumPendingRequests() {
+		return(pendingRequests.size());
+	}
 
 	/**
 	 * determineElevatorToGiveRequest
 	 * 
-	 * Determines which elevator in the system should be given the request with the
-	 * given start floor.
+	 * Determines which elevator in the system should be given the given
+	 * request using the dispatch strategy, and records how long it took.
 	 * 
-	 * @param startFloor Floor number where request was made
+	 * @param request  The new request
 	 * 
 	 * @return byte containg the elevator number that was given teh request
 	 */
 	private byte determineElevatorToGiveRequest(Request request) {
-	    byte chosenElevator = -1;
-	    
-	    int shortestTime = -1;
-	    int smallestQueue = -1;
-	    
-	    int time;
-	    int queue;
-
-		// Add destination to closest elevator
-		for (byte i = 0; i < elevatorInfo.size(); i++) {
-			if (elevatorInfo.get(i).isUsable()) {
-			    time = howLongUntilRequestWouldBeServed(i, request);
-	            queue = elevatorInfo.get(i).howManyMoreActiveRequests();
-	            
-    			if (((shortestTime == -1) || 
-    			    ((time < shortestTime) && (queue <= smallestQueue)) || 
-    			     (queue < smallestQueue))) {
-    				chosenElevator = i;
-    				shortestTime = time;
-    				smallestQueue = queue;
-    			}
-			}
-		}
+		long startTime = System.nanoTime();
+		
+		byte chosenElevator = dispatchStrategy.chooseElevator(this, request);
+		
+		decisionLatency.record(System.nanoTime() - startTime);
 
 		return (chosenElevator);
 	}
@@ -87,7 +268,7 @@ public class SchedulerAlgorithm {
 	 * 
 	 * @return int Time in milliseconds it would take the current elevator to service the request
 	 */
-	private int howLongUntilRequestWouldBeServed(byte elevatorNum, Request req) {
+	public int howLongUntilRequestWouldBeServed(byte elevatorNum, Request req) {
 		int currFloor = elevatorInfo.get(elevatorNum).getCurrFloor();
 		UtilityInformation.ElevatorDirection dir = elevatorInfo.get(elevatorNum).getDir();
 		int nextFloor = determineNextFloor(elevatorNum);
@@ -129,24 +310,18 @@ public class SchedulerAlgorithm {
 	 * @param floorNum
 	 * @param elevatorNum
 	 */
-	public void elevatorHasReachedFloor(Byte floorNum, Byte elevatorNum) {
-		System.out.println("Elevator " + elevatorNum + " has reached floor: " + floorNum);
+	public void elevatorHasReachedFloor(int floorNum, byte elevatorNum) {
+		if (AsyncLog.isEnabled(AsyncLog.Level.DEBUG)) {
+			AsyncLog.debug("Scheduler", "Elevator " + elevatorNum + " has reached floor: " + floorNum);
+		}
 		
 		boolean stopElevator = false;
 		
-		for (Request req : elevatorInfo.get(elevatorNum).getRequests()) {
-		    if ((req.getElevatorPickupTimeFlag() == false) && 
-		        (req.getSourceFloor() == floorNum)) {
-		        req.setElevatorPickupTimeFlag();
-		        elevatorInfo.get(elevatorNum).setDir(UtilityInformation.ElevatorDirection.STATIONARY);
-		        stopElevator = true;
-		    } else if ((req.getElevatorPickupTimeFlag() == true) && 
-    		           (req.getElevatorArrivedDestinationTimeFlag() == false) && 
-    		           (req.getDestinationFloor() == floorNum)) {
-		        req.setElevatorArrivedDestinationTimeFlag();
-		        elevatorInfo.get(elevatorNum).setDir(UtilityInformation.ElevatorDirection.STATIONARY);
-		        stopElevator = true;
-		    }
+		// Only look through the requests if someone is waiting or getting off here
+		if (elevatorInfo.get(elevatorNum).hasStopAt(floorNum)) {
+			elevatorInfo.get(elevatorNum).serveFloor(floorNum);
+			elevatorInfo.get(elevatorNum).setDir(UtilityInformation.ElevatorDirection.STATIONARY);
+			stopElevator = true;
 		}
 
 		elevatorInfo.get(elevatorNum).setStopElevator(stopElevator);
@@ -237,40 +412,45 @@ public class SchedulerAlgorithm {
 	 *             Returns the current floor if nothing else available
 	 */
 	private int getNextClosestFloorInDirection(byte elevatorNum, UtilityInformation.ElevatorDirection dir) {
-	    int currFloor = elevatorInfo.get(elevatorNum).getCurrFloor();
-        int nextFloor = currFloor;
-        int currDiff;
-        int closestDiff = -1;        
-        int currFloorToCompare;
+	    AlgorithmElevator elevator = elevatorInfo.get(elevatorNum);
+	    int currFloor = elevator.getCurrFloor();
+        int above = elevator.getNextStopAbove(currFloor);
+        int below = elevator.getNextStopBelow(currFloor);
+        
+        if (dir.equals(UtilityInformation.ElevatorDirection.UP)) {
+            return(above);
+        } else if (dir.equals(UtilityInformation.ElevatorDirection.DOWN)) {
+            return(below);
+        }
+        
+        // Stationary: a stop on the current floor is the closest of all
+        if (elevator.hasStopAt(currFloor)) {
+            return(-1);
+        }
+        
+        // Otherwise the nearer of the two
+        if ((below == -1) || ((above != -1) && ((above - currFloor) < (currFloor - below)))) {
+            return(above);
+        } else if ((above == -1) || ((above - currFloor) > (currFloor - below))) {
+            return(below);
+        }
         
-        for (Request req : elevatorInfo.get(elevatorNum).getRequests()) {
-            currFloorToCompare = -1;
+        // A tie goes to the stop of the request that was made first
+        for (Request req : elevator.getRequests()) {
+            int stop = -1;
             
             if (req.getElevatorPickupTimeFlag() == false) {
-                currFloorToCompare = req.getSourceFloor();
-            } else if ((req.getElevatorPickupTimeFlag() == true) && (req.getElevatorArrivedDestinationTimeFlag() == false)) {
-                currFloorToCompare = req.getDestinationFloor();
+                stop = req.getSourceFloor();
+            } else if (req.getElevatorArrivedDestinationTimeFlag() == false) {
+                stop = req.getDestinationFloor();
             }
             
-            if (currFloorToCompare != -1) {
-                if (((dir.equals(UtilityInformation.ElevatorDirection.UP)) && (currFloorToCompare > currFloor)) || 
-                    ((dir.equals(UtilityInformation.ElevatorDirection.DOWN)) && (currFloorToCompare < currFloor)) || 
-                    (dir.equals(UtilityInformation.ElevatorDirection.STATIONARY))) {
-                    currDiff = Math.abs(currFloor - currFloorToCompare);
-                    if ((closestDiff == -1) || (currDiff < closestDiff)) {
-                        closestDiff = currDiff;
-                        nextFloor = currFloorToCompare;
-                    }
-                    
-                }
+            if ((stop == above) || (stop == below)) {
+                return(stop);
             }
         }
         
-        if (nextFloor == currFloor) {
-            nextFloor = -1;
-        }
-        
-        return(nextFloor);
+        return(above);
 	}
 
 	/**
@@ -280,14 +460,7 @@ public class SchedulerAlgorithm {
 	 * @return
 	 */
 	public boolean somewhereToGo(byte elevatorNum) {
-		for (Request req : elevatorInfo.get(elevatorNum).getRequests()) {
-		    if ((req.getElevatorPickupTimeFlag() == false) ||
-		        (req.getElevatorArrivedDestinationTimeFlag() == false)) {
-		        return(true);
-		    }
-		}
-		
-		return(false);
+		return(elevatorInfo.get(elevatorNum).howManyMoreActiveRequests() != 0);
 	}
 
 	/**
@@ -303,24 +476,169 @@ public class SchedulerAlgorithm {
 		}
 
 		while (elevatorInfo.size() < numElevators) {
-			elevatorInfo.add(new AlgorithmElevator((byte) elevatorInfo.size()));
+			elevatorInfo.add(new AlgorithmElevator((byte) elevatorInfo.size(), numFloors));
 		}
 	}
 
 	/**
-	 * Get an elevators destinations
+	 * setNumberOfFloors
 	 * 
-	 * @param elevatorNum
-	 * @return
+	 * Sets the number of floors in the building and sizes the stops of
+	 * every elevator for it.
+	 * 
+	 * @param newNumFloors Number of floors in the building
+	 * 
+	 * @return void
+	 */
+	public void setNumberOfFloors(int newNumFloors) {
+		numFloors = newNumFloors;
+		
+		for (AlgorithmElevator elevator : elevatorInfo) {
+			elevator.setNumFloors(numFloors);
+		}
+	}
+
+	/**
+	 * getNumberOfFloors
+	 * 
+	 * Returns the number of floors in the building
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of floors
+	 */
+	public int getNumberOfFloors() {
+		return(numFloors);
+	}
+
+	/**
+	 * getNumberOfElevators
+	 * 
+	 * Returns the number of elevators that the algorithm controls
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of elevators
+	 */
+	public int getNumberOfElevators() {
+		return(elevatorInfo.size());
+	}
+	
+	/**
+	 * isUsable
+	 * 
+	 * Returns whether the given elevator can be given requests
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * 
+	 * @return boolean True if the elevator is usable
+	 */
+	public boolean isUsable(byte elevatorNum) {
+		return(elevatorInfo.get(elevatorNum).isUsable());
+	}
+	
+	/**
+	 * getDirection
+	 * 
+	 * Returns the current direction of the given elevator
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * 
+	 * @return ElevatorDirection   Current direction of the elevator
+	 */
+	public UtilityInformation.ElevatorDirection getDirection(byte elevatorNum) {
+		return(elevatorInfo.get(elevatorNum).getDir());
+	}
+	
+	/**
+	 * howManyMoreActiveRequests
+	 * 
+	 * Returns the number of requests the given elevator has not completed
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * 
+	 * @return int Number of active requests
+	 */
+	public int howManyMoreActiveRequests(byte elevatorNum) {
+		return(elevatorInfo.get(elevatorNum).howManyMoreActiveRequests());
+	}
+	
+	/**
+	 * getHighestStop
+	 * 
+	 * Returns the highest floor the given elevator still has to stop at,
+	 * either to pick someone up or to drop someone off.
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * 
+	 * @return int The highest stop, or -1 if there are no stops
+	 */
+	public int getHighestStop(byte elevatorNum) {
+		return(elevatorInfo.get(elevatorNum).getHighestStop());
+	}
+	
+	/**
+	 * getLowestStop
+	 * 
+	 * Returns the lowest floor the given elevator still has to stop at,
+	 * either to pick someone up or to drop someone off.
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * 
+	 * @return int The lowest stop, or -1 if there are no stops
+	 */
+	public int getLowestStop(byte elevatorNum) {
+		return(elevatorInfo.get(elevatorNum).getNextStopAbove(-1));
+	}
+	
+	/**
+	 * countStopsBetween
+	 * 
+	 * Returns the number of different floors strictly between the two given
+	 * floors that the given elevator still has to stop at.
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * @param fromFloor    One end of the range
+	 * @param toFloor  The other end of the range
+	 * 
+	 * @return int Number of stops between the floors
+	 */
+	public int countStopsBetween(byte elevatorNum, int fromFloor, int toFloor) {
+		return(elevatorInfo.get(elevatorNum).countStopsBetween(Math.min(fromFloor, toFloor),
+		                                                       Math.max(fromFloor, toFloor)));
+	}
+	
+	/**
+	 * hasStopAt
+	 * 
+	 * Returns whether the given elevator still has to stop at the given floor
+	 * 
+	 * @param elevatorNum  The number of the elevator to check
+	 * @param floor    The floor to check
+	 * 
+	 * @return boolean True if the elevator will stop at the floor
 	 */
-	public LinkedHashSet<Byte> getDestinations(byte elevatorNum) {
-	    LinkedHashSet<Byte> dests = new LinkedHashSet<Byte>();
+	public boolean hasStopAt(byte elevatorNum, int floor) {
+		return(elevatorInfo.get(elevatorNum).hasStopAt(floor));
+	}
+
+	/**
+	 * getFirstDestination
+	 * 
+	 * Returns the destination of the oldest active request of an elevator
+	 * 
+	 * @param elevatorNum  The number of the elevator
+	 * 
+	 * @return int The destination floor, or -1 if the elevator has no active requests
+	 */
+	public int getFirstDestination(byte elevatorNum) {
+	    ArrayList<Request> requests = elevatorInfo.get(elevatorNum).getRequests();
 	    
-	    for (Request req : elevatorInfo.get(elevatorNum).getRequests()) {
-	        dests.add(req.getDestinationFloor());
+	    if (requests.isEmpty()) {
+	        return(-1);
 	    }
 	    
-		return(dests);
+		return(requests.get(0).getDestinationFloor());
 	}
 
 	/**
@@ -329,7 +647,7 @@ public class SchedulerAlgorithm {
 	 * @param elevatorNum
 	 * @return
 	 */
-	public byte getCurrentFloor(byte elevatorNum) {
+	public int getCurrentFloor(byte elevatorNum) {
 		return elevatorInfo.get(elevatorNum).getCurrFloor();
 	}
 
@@ -377,10 +695,10 @@ public class SchedulerAlgorithm {
 		// Move all stops from the broken elevator to the elevator with the shortest
 		// queuse
 		ArrayList<Request> currReqs = elevatorInfo.get(elevatorNum).getRequests();
-		byte currFloor = elevatorInfo.get(elevatorNum).getCurrFloor();
+		int currFloor = elevatorInfo.get(elevatorNum).getCurrFloor();
 		Request tempReq;
-		byte startFloor;
-		byte destFloor;
+		int startFloor;
+		int destFloor;
 		UtilityInformation.ElevatorDirection dir;
 		
 		pauseElevator(elevatorNum);
@@ -396,7 +714,7 @@ public class SchedulerAlgorithm {
 		            dir = UtilityInformation.ElevatorDirection.DOWN;
 		        }
 		        
-		        tempReq = new Request(System.nanoTime(), startFloor, destFloor, dir);
+		        tempReq = new Request(SimulationClock.getClock().nanoTime(), startFloor, destFloor, dir);
 		    } else {
 		        tempReq = req;
 		    }
@@ -442,16 +760,44 @@ public class SchedulerAlgorithm {
 	/**
 	 * getRequests
 	 * 
-	 * Returns the list of requests that the given elevator has
+	 * Returns the list of requests that the given elevator has not completed
 	 * 
 	 * @param elevatorNum  The number of the elevator to check
 	 * 
-	 * @return ArrayList<Request>  Containing all of the elevator's past and current requests
+	 * @return ArrayList<Request>  Containing all of the elevator's current requests
 	 */
     public ArrayList<Request> getRequests(byte elevatorNum) {
         return(elevatorInfo.get(elevatorNum).getRequests());
     }
     
+    /**
+     * getCompletedRequests
+     * 
+     * Returns the requests that the given elevator has completed and that
+     * have been archived
+     * 
+     * @param elevatorNum   The number of the elevator to check
+     * 
+     * @return  ArrayList<Request>  Containing the elevator's archived requests
+     */
+    public ArrayList<Request> getCompletedRequests(byte elevatorNum) {
+        return(elevatorInfo.get(elevatorNum).getCompletedRequests());
+    }
+    
+    /**
+     * archiveCompletedRequests
+     * 
+     * Moves the requests that the given elevator completed since the last call
+     * into its archive, so they are no longer looked at when scheduling.
+     * 
+     * @param elevatorNum   The number of the elevator
+     * 
+     * @return  ArrayList<Request>  The requests that were just archived
+     */
+    public ArrayList<Request> archiveCompletedRequests(byte elevatorNum) {
+        return(elevatorInfo.get(elevatorNum).archiveCompletedRequests());
+    }
+    
     /**
      * getStopSignalSent
      * 
@@ -489,11 +835,22 @@ public class SchedulerAlgorithm {
 	public class AlgorithmElevator {
 	    // Info about elevator
 	    public byte elevatorNum;
-        public byte currFloor;
+        public int currFloor;
         
-        // Requests given to the eelvator
+        // Requests given to the eelvator that are not completed yet
         public ArrayList<Request> elevatorRequests;
         
+        // Completed requests, waiting to be archived and archived
+        public ArrayList<Request> justCompletedRequests;
+        public ArrayList<Request> archivedRequests;
+        
+        // Floors that the elevator still has to stop at for requests going up
+        // and down, with the number of pending stops at each floor
+        public BitSet upStops;
+        public BitSet downStops;
+        public int upStopCounts[];
+        public int downStopCounts[];
+        
         // Condition of elevator
 	    public boolean stopElevator;
 	    public boolean elevatorUsable;
@@ -510,14 +867,22 @@ public class SchedulerAlgorithm {
 	     * Creates a new AlgorithmElevator object
 	     * 
 	     * @param elevatorNum  The number of teh created elevator
+	     * @param numFloors    The number of floors the stops are sized for
 	     * 
 	     * @return None
 	     */
-	    public AlgorithmElevator(byte elevatorNum) {
+	    public AlgorithmElevator(byte elevatorNum, int numFloors) {
 	        this.elevatorNum = elevatorNum;
 	        currFloor = 0;
 	        
             elevatorRequests = new ArrayList<Request>();
+            justCompletedRequests = new ArrayList<Request>();
+            archivedRequests = new ArrayList<Request>();
+            
+            upStops = new BitSet(numFloors);
+            downStops = new BitSet(numFloors);
+            upStopCounts = new int[numFloors];
+            downStopCounts = new int[numFloors];
 	        
 	        stopElevator = true;
 	        elevatorUsable = true;
@@ -601,14 +966,217 @@ public class SchedulerAlgorithm {
         /**
          * addRequest
          * 
-         * Adds the given Request to the list of Requests
+         * Adds the given Request to the list of Requests and adds its
+         * pickup floor to the stops
          * 
          * @param request   The Request to add to the list
          * 
          * @return  void
          */
         public void addRequest(Request request) {
-            elevatorRequests.add(request);            
+            elevatorRequests.add(request);
+            
+            if (request.getElevatorPickupTimeFlag() == false) {
+                addStop(request.getSourceFloor(), request.getRequestDirection());
+            } else if (request.getElevatorArrivedDestinationTimeFlag() == false) {
+                addStop(request.getDestinationFloor(), request.getRequestDirection());
+            }
+        }
+        
+        /**
+         * serveFloor
+         * 
+         * Picks up everyone waiting at the given floor and drops off everyone
+         * going to it. Pickups add their destination to the stops, and
+         * completed requests are moved out of the list of active requests.
+         * 
+         * @param floorNum  The floor the elevator has stopped at
+         * 
+         * @return  void
+         */
+        public void serveFloor(int floorNum) {
+            int numActive = 0;
+            
+            for (int i = 0; i < elevatorRequests.size(); i++) {
+                Request req = elevatorRequests.get(i);
+                
+                if ((req.getElevatorPickupTimeFlag() == false) && 
+                    (req.getSourceFloor() == floorNum)) {
+                    req.setElevatorPickupTimeFlag();
+                    removeStop(req.getSourceFloor(), req.getRequestDirection());
+                    addStop(req.getDestinationFloor(), req.getRequestDirection());
+                } else if ((req.getElevatorPickupTimeFlag() == true) && 
+                           (req.getElevatorArrivedDestinationTimeFlag() == false) && 
+                           (req.getDestinationFloor() == floorNum)) {
+                    req.setElevatorArrivedDestinationTimeFlag();
+                    removeStop(req.getDestinationFloor(), req.getRequestDirection());
+                    justCompletedRequests.add(req);
+                    continue;
+                }
+                
+                // Keep the active requests in order at the front of the list
+                elevatorRequests.set(numActive, req);
+                numActive++;
+            }
+            
+            while (elevatorRequests.size() > numActive) {
+                elevatorRequests.remove(elevatorRequests.size() - 1);
+            }
+        }
+        
+        /**
+         * setNumFloors
+         * 
+         * Sizes the pending stop counts for the given number of floors,
+         * keeping the stops that are already pending
+         * 
+         * @param numFloors The number of floors in the building
+         * 
+         * @return  void
+         */
+        public void setNumFloors(int numFloors) {
+            if (numFloors > upStopCounts.length) {
+                upStopCounts = Arrays.copyOf(upStopCounts, numFloors);
+                downStopCounts = Arrays.copyOf(downStopCounts, numFloors);
+            }
+        }
+        
+        /**
+         * addStop
+         * 
+         * Adds one pending stop at the given floor for a request going
+         * in the given direction
+         * 
+         * @param floorNum  The floor to stop at
+         * @param dir   The direction of the request
+         * 
+         * @return  void
+         */
+        private void addStop(int floorNum, UtilityInformation.ElevatorDirection dir) {
+            if (floorNum >= upStopCounts.length) {
+                int newLength = Math.max(floorNum + 1, upStopCounts.length * 2);
+                upStopCounts = Arrays.copyOf(upStopCounts, newLength);
+                downStopCounts = Arrays.copyOf(downStopCounts, newLength);
+            }
+            
+            if (dir == UtilityInformation.ElevatorDirection.DOWN) {
+                downStopCounts[floorNum]++;
+                downStops.set(floorNum);
+            } else {
+                upStopCounts[floorNum]++;
+                upStops.set(floorNum);
+            }
+        }
+        
+        /**
+         * removeStop
+         * 
+         * Removes one pending stop at the given floor for a request going
+         * in the given direction
+         * 
+         * @param floorNum  The floor of the stop
+         * @param dir   The direction of the request
+         * 
+         * @return  void
+         */
+        private void removeStop(int floorNum, UtilityInformation.ElevatorDirection dir) {
+            if (dir == UtilityInformation.ElevatorDirection.DOWN) {
+                downStopCounts[floorNum]--;
+                if (downStopCounts[floorNum] == 0) {
+                    downStops.clear(floorNum);
+                }
+            } else {
+                upStopCounts[floorNum]--;
+                if (upStopCounts[floorNum] == 0) {
+                    upStops.clear(floorNum);
+                }
+            }
+        }
+        
+        /**
+         * hasStopAt
+         * 
+         * Returns whether the elevator still has to stop at the given floor
+         * 
+         * @param floorNum  The floor to check
+         * 
+         * @return  boolean True if the elevator will stop at the floor
+         */
+        public boolean hasStopAt(int floorNum) {
+            return((floorNum >= 0) && (upStops.get(floorNum) || downStops.get(floorNum)));
+        }
+        
+        /**
+         * getNextStopAbove
+         * 
+         * Returns the closest floor above the given floor that the elevator
+         * still has to stop at
+         * 
+         * @param floorNum  The floor to look above
+         * 
+         * @return  int The closest stop above, or -1 if there are none
+         */
+        public int getNextStopAbove(int floorNum) {
+            int up = upStops.nextSetBit(floorNum + 1);
+            int down = downStops.nextSetBit(floorNum + 1);
+            
+            if ((up == -1) || ((down != -1) && (down < up))) {
+                return(down);
+            }
+            
+            return(up);
+        }
+        
+        /**
+         * getNextStopBelow
+         * 
+         * Returns the closest floor below the given floor that the elevator
+         * still has to stop at
+         * 
+         * @param floorNum  The floor to look below
+         * 
+         * @return  int The closest stop below, or -1 if there are none
+         */
+        public int getNextStopBelow(int floorNum) {
+            if (floorNum <= 0) {
+                return(-1);
+            }
+            
+            return(Math.max(upStops.previousSetBit(floorNum - 1), downStops.previousSetBit(floorNum - 1)));
+        }
+        
+        /**
+         * getHighestStop
+         * 
+         * Returns the highest floor that the elevator still has to stop at
+         * 
+         * @param   None
+         * 
+         * @return  int The highest stop, or -1 if there are none
+         */
+        public int getHighestStop() {
+            return(Math.max(upStops.length(), downStops.length()) - 1);
+        }
+        
+        /**
+         * countStopsBetween
+         * 
+         * Returns the number of different floors strictly between the two
+         * given floors that the elevator still has to stop at
+         * 
+         * @param lowFloor  The lower end of the range
+         * @param highFloor The higher end of the range
+         * 
+         * @return  int Number of stops between the floors
+         */
+        public int countStopsBetween(int lowFloor, int highFloor) {
+            int count = 0;
+            
+            for (int floor = getNextStopAbove(lowFloor); (floor != -1) && (floor < highFloor); floor = getNextStopAbove(floor)) {
+                count++;
+            }
+            
+            return(count);
         }
 
         /**
@@ -618,16 +1186,49 @@ public class SchedulerAlgorithm {
          * 
          * @param   None
          * 
-         * @return  ArrayList<Request> List of past and current requests
+         * @return  ArrayList<Request> List of requests that are not completed
          */
         public ArrayList<Request> getRequests() {
             return(elevatorRequests);
         }
+        
+        /**
+         * getCompletedRequests
+         * 
+         * Returns the archived requests
+         * 
+         * @param   None
+         * 
+         * @return  ArrayList<Request> List of archived requests
+         */
+        public ArrayList<Request> getCompletedRequests() {
+            return(archivedRequests);
+        }
+        
+        /**
+         * archiveCompletedRequests
+         * 
+         * Moves the requests completed since the last call to the archive
+         * 
+         * @param   None
+         * 
+         * @return  ArrayList<Request> The requests that were just archived
+         */
+        public ArrayList<Request> archiveCompletedRequests() {
+            ArrayList<Request> completed = justCompletedRequests;
+            
+            if (!completed.isEmpty()) {
+                archivedRequests.addAll(completed);
+                justCompletedRequests = new ArrayList<Request>();
+            }
+            
+            return(completed);
+        }
 
         /**
          * clearRequests
          * 
-         * Empties the list of requests
+         * Empties the list of requests and their stops
          * 
          * @param   None
          * 
@@ -635,6 +1236,11 @@ public class SchedulerAlgorithm {
          */
         public void clearRequests() {
 	        elevatorRequests.clear();
+	        
+	        upStops.clear();
+	        downStops.clear();
+	        Arrays.fill(upStopCounts, 0);
+	        Arrays.fill(downStopCounts, 0);
 	    }
 
         /**
@@ -672,7 +1278,7 @@ public class SchedulerAlgorithm {
          * 
          * @return  void
          */
-        public void setCurrFloor(Byte floorNum) {
+        public void setCurrFloor(int floorNum) {
             currFloor = floorNum;            
         }
 
@@ -709,9 +1315,9 @@ public class SchedulerAlgorithm {
          * 
          * @param   None
          * 
-         * @return  byte    The current floor of the elevator
+         * @return  int The current floor of the elevator
          */
-        public byte getCurrFloor() {
+        public int getCurrFloor() {
             return(currFloor);
         }
         
@@ -726,15 +1332,7 @@ public class SchedulerAlgorithm {
          * @return  int The number of active requests
          */
         public int howManyMoreActiveRequests() {
-            int count = 0;
-            
-            for (Request req : elevatorRequests) {
-                if (!req.getElevatorPickupTimeFlag() || !req.getElevatorArrivedDestinationTimeFlag()) {
-                    count += 1;
-                }
-            }
-            
-            return(count);
+            return(elevatorRequests.size());
         }
         
         /**
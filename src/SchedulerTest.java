@@ -377,4 +377,101 @@ class SchedulerTest {
 		assertEquals(algor.whatDirectionShouldTravel((byte) 0), UtilityInformation.ElevatorDirection.UP);
 	}
 
+	/**
+	 * Test to make sure the stops are updated as requests are picked up and
+	 * dropped off, and that completed requests are archived.
+	 */
+	@Test
+	void testStopsAndArchive() {
+		SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 1);
+
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 2, (byte) 7, UtilityInformation.ElevatorDirection.UP));
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 9, (byte) 4, UtilityInformation.ElevatorDirection.DOWN));
+
+		assertEquals(2, algor.getLowestStop((byte) 0));
+		assertEquals(9, algor.getHighestStop((byte) 0));
+		assertEquals(0, algor.countStopsBetween((byte) 0, 2, 9));
+
+		// Picking someone up replaces their source with their destination
+		algor.elevatorHasReachedFloor((byte) 2, (byte) 0);
+		assertEquals(true, algor.getStopElevator((byte) 0));
+		assertEquals(false, algor.hasStopAt((byte) 0, 2));
+		assertEquals(true, algor.hasStopAt((byte) 0, 7));
+		assertEquals(1, algor.countStopsBetween((byte) 0, 2, 9));
+
+		// Passing a floor without a stop does not stop the elevator
+		algor.elevatorHasReachedFloor((byte) 3, (byte) 0);
+		assertEquals(false, algor.getStopElevator((byte) 0));
+		assertEquals(UtilityInformation.ElevatorDirection.UP, algor.whatDirectionShouldTravel((byte) 0));
+
+		algor.elevatorHasReachedFloor((byte) 7, (byte) 0);
+		assertEquals(1, algor.howManyMoreActiveRequests((byte) 0));
+		assertEquals(1, algor.getRequests((byte) 0).size());
+		assertEquals(1, algor.archiveCompletedRequests((byte) 0).size());
+		assertEquals(0, algor.archiveCompletedRequests((byte) 0).size());
+
+		algor.elevatorHasReachedFloor((byte) 9, (byte) 0);
+		algor.elevatorHasReachedFloor((byte) 4, (byte) 0);
+		assertEquals(false, algor.somewhereToGo((byte) 0));
+		assertEquals(-1, algor.getHighestStop((byte) 0));
+		assertEquals(-1, algor.getLowestStop((byte) 0));
+
+		algor.archiveCompletedRequests((byte) 0);
+		assertEquals(2, algor.getCompletedRequests((byte) 0).size());
+		assertEquals(0, algor.getRequests((byte) 0).size());
+	}
+
+	/**
+	 * Test to make sure that completed requests do not affect where the
+	 * elevator goes next, no matter how many there are.
+	 */
+	@Test
+	void testNextFloorAfterManyRequests() {
+		SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 1);
+
+		for (int i = 0; i < 1000; i++) {
+			algor.elevatorRequestMade(
+					new Request(System.nanoTime(), (byte) 1, (byte) 5, UtilityInformation.ElevatorDirection.UP));
+			algor.elevatorHasReachedFloor((byte) 1, (byte) 0);
+			algor.elevatorHasReachedFloor((byte) 5, (byte) 0);
+			algor.archiveCompletedRequests((byte) 0);
+		}
+
+		assertEquals(1000, algor.getCompletedRequests((byte) 0).size());
+		assertEquals(false, algor.somewhereToGo((byte) 0));
+
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 3, (byte) 0, UtilityInformation.ElevatorDirection.DOWN));
+		algor.elevatorHasReachedFloor((byte) 5, (byte) 0);
+		assertEquals(UtilityInformation.ElevatorDirection.DOWN, algor.whatDirectionShouldTravel((byte) 0));
+		assertEquals(1, algor.howManyMoreActiveRequests((byte) 0));
+	}
+
+	/**
+	 * Test to make sure that a stationary elevator with stops the same
+	 * distance above and below goes to the stop of the request made first.
+	 */
+	@Test
+	void testStationaryTieGoesToFirstRequest() {
+		SchedulerAlgorithm algor = new SchedulerAlgorithm((byte) 1);
+		algor.elevatorHasReachedFloor((byte) 5, (byte) 0);
+
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 3, (byte) 1, UtilityInformation.ElevatorDirection.DOWN));
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 7, (byte) 9, UtilityInformation.ElevatorDirection.UP));
+		assertEquals(UtilityInformation.ElevatorDirection.DOWN, algor.whatDirectionShouldTravel((byte) 0));
+
+		algor = new SchedulerAlgorithm((byte) 1);
+		algor.elevatorHasReachedFloor((byte) 5, (byte) 0);
+
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 7, (byte) 9, UtilityInformation.ElevatorDirection.UP));
+		algor.elevatorRequestMade(
+				new Request(System.nanoTime(), (byte) 3, (byte) 1, UtilityInformation.ElevatorDirection.DOWN));
+		assertEquals(UtilityInformation.ElevatorDirection.UP, algor.whatDirectionShouldTravel((byte) 0));
+	}
+
 }
@@ -1,12 +1,11 @@
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
+import java.net.InetAddress;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 
@@ -15,23 +14,55 @@ import java.util.HashMap;
  *
  */
 public abstract class ServerPattern {
-	private PriorityQueue<DatagramPacket> receivedSignals;
-
-	private SignalReceiver receiver;
+	private SignalInbox receivedSignals;
+	
+	// Decides what happens to signals received while the inbox is full
+	private OverloadControl overloadControl;
 
-	private boolean receivedSignalsEmpty;
+	private SignalTransport transport;
 
 	private final int MAX_NUM_SIGNALS = 100;
 	
+	// Packets leased beyond those in the inbox: one being received and
+	// one being handled
+	private final int NUM_PACKETS_IN_USE = 2;
+	
+	// Packets leased to the receiver (null if every packet is newly allocated)
+	private PacketPool packetPool;
+	
 	private Map<Byte, Integer> messagePriorities;
+	
+	// Handler times and times between arrivals of each message mode
+	private MessageTimings messageTimings;
+	
+	// Publishes live metrics over HTTP (null until started)
+	private MetricsServer metricsServer;
+	
+	// Checks received frames, and frames sent signals if framedSends is set
+	private FrameCodec frameCodec;
+	private volatile boolean framedSends;
+	
+	// Held while framing and sending a signal. Workers on virtual threads
+	// send through here, and would be pinned blocking in a monitor
+	private final ReentrantLock sendLock = new ReentrantLock();
+	
+	// Acknowledges reliable frames received, and retransmits reliable frames
+	// sent if reliableSends is set
+	private ReliableDelivery reliableDelivery;
+	private volatile boolean reliableSends;
+	
+	// Adds each message of a multi-message frame to the inbox, and the frame
+	// it is unpacking. Only used by the receiving thread
+	private final MessageBatcher.MessageVisitor frameUnpacker = this::addUnpackedMessage;
+	private DatagramPacket unpackingFrame;
 
 	/**
 	 * ServerPattern
 	 * 
 	 * Constructor
 	 * 
-	 * Create a new ServerPattern object. Also creates a new SignalReceiver object
-	 * and runs it.
+	 * Create a new ServerPattern object using the default inbox and
+	 * transport types. Also starts receiving signals.
 	 * 
 	 * @param portNum  Port number to receive requests on
 	 * @param name Name of the ServerPattern
@@ -39,7 +70,140 @@ public abstract class ServerPattern {
 	 * @return None
 	 */
 	public ServerPattern(int portNum, String name) {
-	    messagePriorities = new HashMap<Byte, Integer>();
+		this(portNum, 
+		     name, 
+		     UtilityInformation.DEFAULT_INBOX_TYPE, 
+		     UtilityInformation.DEFAULT_INBOX_WAIT_STRATEGY, 
+		     UtilityInformation.DEFAULT_POOLED_RECEIVE,
+		     UtilityInformation.DEFAULT_TRANSPORT_TYPE);
+	}
+
+	/**
+	 * ServerPattern
+	 * 
+	 * Constructor
+	 * 
+	 * Create a new ServerPattern object that sends and receives signals with
+	 * a transport of the given type and queues received signals in an inbox
+	 * of the given type. Also starts receiving signals.
+	 * 
+	 * @param portNum  Port number to receive requests on
+	 * @param name Name of the ServerPattern
+	 * @param inboxType    Type of inbox to queue received signals in
+	 * @param waitStrategy How the inbox waits when it is empty or full
+	 * @param pooledReceive    True to receive into a fixed pool of packets that
+	 *                         must be returned with releaseRequest
+	 * @param transportType    Type of transport to send and receive signals with
+	 * 
+	 * @return None
+	 */
+	public ServerPattern(int portNum, 
+	                     String name, 
+	                     SignalInbox.Type inboxType, 
+	                     SignalInbox.WaitStrategy waitStrategy, 
+	                     boolean pooledReceive,
+	                     SignalTransport.Type transportType) {
+	    messagePriorities = createMessagePriorities();
+	    messageTimings = new MessageTimings();
+	    metricsServer = null;
+	    
+	    receivedSignals = createInbox(inboxType, waitStrategy, messagePriorities, MAX_NUM_SIGNALS);
+	    
+	    // The pool holds every packet that can be queued, in every lane of
+	    // the inbox, plus the ones being received and handled. Packets held
+	    // anywhere else, such as the Scheduler's actor mailboxes, can run it
+	    // out, which is counted in the metrics
+	    packetPool = null;
+	    if (pooledReceive) {
+	    	packetPool = new PacketPool(receivedSignals.capacity() + NUM_PACKETS_IN_USE, 
+	    	                            UtilityInformation.MAX_BYTE_ARRAY_SIZE, 
+	    	                            name);
+	    }
+	    
+	    overloadControl = new OverloadControl(receivedSignals, 
+	                                          MAX_NUM_SIGNALS, 
+	                                          UtilityInformation.DEFAULT_OVERLOAD_POLICY, 
+	                                          packetPool, 
+	                                          name);
+
+	    frameCodec = new FrameCodec(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+	    framedSends = UtilityInformation.WIRE_FRAMES || UtilityInformation.RELIABLE_DELIVERY;
+	    reliableSends = UtilityInformation.RELIABLE_DELIVERY;
+
+		transport = createTransport(transportType, portNum, name, packetPool);
+		reliableDelivery = new ReliableDelivery(transport, name);
+		transport.start(this);
+	}
+	
+	/**
+	 * ServerPattern
+	 * 
+	 * Constructor
+	 * 
+	 * Create a new ServerPattern object that sends and receives signals with
+	 * the given transport, e.g. one that does not use sockets at all. Uses the
+	 * default inbox and a new packet per received signal, and sends unframed
+	 * signals. Framed and reliable signals are still received.
+	 * 
+	 * @param transport    Transport to send and receive signals with
+	 * 
+	 * @return None
+	 */
+	public ServerPattern(SignalTransport transport) {
+	    this(transport, UtilityInformation.DEFAULT_INBOX_TYPE, UtilityInformation.DEFAULT_INBOX_WAIT_STRATEGY);
+	}
+	
+	/**
+	 * ServerPattern
+	 * 
+	 * Constructor
+	 * 
+	 * Create a new ServerPattern object that sends and receives signals with
+	 * the given transport and queues received signals in an inbox of the
+	 * given type. Uses a new packet per received signal, and sends unframed
+	 * signals. Framed and reliable signals are still received.
+	 * 
+	 * @param transport    Transport to send and receive signals with
+	 * @param inboxType    Type of inbox to queue received signals in
+	 * @param waitStrategy How the inbox waits when it is empty or full
+	 * 
+	 * @return None
+	 */
+	public ServerPattern(SignalTransport transport, SignalInbox.Type inboxType, SignalInbox.WaitStrategy waitStrategy) {
+	    messagePriorities = createMessagePriorities();
+	    messageTimings = new MessageTimings();
+	    metricsServer = null;
+	    
+	    receivedSignals = createInbox(inboxType, waitStrategy, messagePriorities, MAX_NUM_SIGNALS);
+	    packetPool = null;
+	    overloadControl = new OverloadControl(receivedSignals, 
+	                                          MAX_NUM_SIGNALS, 
+	                                          UtilityInformation.DEFAULT_OVERLOAD_POLICY, 
+	                                          null, 
+	                                          getClass().getSimpleName());
+	    frameCodec = new FrameCodec(UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+	    framedSends = false;
+	    reliableSends = false;
+	    
+	    this.transport = transport;
+	    reliableDelivery = new ReliableDelivery(transport, getClass().getSimpleName());
+	    transport.start(this);
+	}
+	
+	/**
+	 * createMessagePriorities
+	 * 
+	 * Static
+	 * 
+	 * Creates the map of message mode to priority used to order
+	 * received signals.
+	 * 
+	 * @param  None
+	 * 
+	 * @return Map<Byte, Integer>  Map of message mode to priority
+	 */
+	public static Map<Byte, Integer> createMessagePriorities() {
+		Map<Byte, Integer> messagePriorities = new HashMap<Byte, Integer>();
 	    
 	    // Assign priorities
 	    // Higher Number = Higher Priority
@@ -57,224 +221,415 @@ public abstract class ServerPattern {
         messagePriorities.put(UtilityInformation.FIX_ERROR_MODE, 0);
         messagePriorities.put(UtilityInformation.ELEVATOR_BUTTON_HIT_MODE, 0);
         
-		receivedSignals = new PriorityQueue<DatagramPacket>(MAX_NUM_SIGNALS, new Comparator<DatagramPacket>() {
-
-            @Override
-            public int compare(DatagramPacket packet1, DatagramPacket packet2) {
-                byte messageType1 = packet1.getData()[UtilityInformation.MODE_BYTE_IND];
-                byte messageType2 = packet2.getData()[UtilityInformation.MODE_BYTE_IND];
-                
-                int priority1 = messagePriorities.get(messageType1);
-                int priority2 = messagePriorities.get(messageType2);
-                
-                if (priority1 < priority2) {
-                    return(-1);
-                } else if (priority1 > priority2) {
-                    return(1);
-                } else {
-                    return(0);
-                }
-            }
-		    
-		});
+        return(messagePriorities);
+	}
+	
+	/**
+	 * createInbox
+	 * 
+	 * Static
+	 * 
+	 * Creates an inbox of the given type.
+	 * 
+	 * @param inboxType    Type of inbox to create
+	 * @param waitStrategy How the inbox waits when it is empty or full
+	 * @param messagePriorities    Map of message mode to priority
+	 * @param maxNumSignals    Maximum number of signals to hold (per lane for LANE_RING)
+	 * 
+	 * @return SignalInbox The created inbox
+	 */
+	public static SignalInbox createInbox(SignalInbox.Type inboxType, 
+	                                      SignalInbox.WaitStrategy waitStrategy, 
+	                                      Map<Byte, Integer> messagePriorities, 
+	                                      int maxNumSignals) {
+		if (inboxType == SignalInbox.Type.LANE_RING) {
+			return(new LaneRingInbox(messagePriorities, maxNumSignals, waitStrategy));
+		}
 		
-		receivedSignalsEmpty = true;
-
-		receiver = new SignalReceiver(portNum, this, name);
+		return(new PriorityQueueInbox(messagePriorities, maxNumSignals));
+	}
 
-		Thread receiverThread = new Thread(receiver, "receiver");
-		receiverThread.start();
+	/**
+	 * createTransport
+	 * 
+	 * Static
+	 * 
+	 * Creates a transport of the given type that receives on the given port.
+	 * 
+	 * @param transportType    Type of transport to create
+	 * @param portNum  Port number to receive signals on
+	 * @param name Name of the ServerPattern
+	 * @param packetPool   Pool to lease receive packets from, or null to allocate a new packet per message
+	 * 
+	 * @return SignalTransport The created transport
+	 */
+	public static SignalTransport createTransport(SignalTransport.Type transportType, 
+	                                              int portNum, 
+	                                              String name, 
+	                                              PacketPool packetPool) {
+		if (transportType == SignalTransport.Type.CHANNEL) {
+			return(new ChannelTransport(portNum, name, packetPool));
+		}
+		
+		return(new SocketTransport(portNum, name, packetPool));
 	}
 
 	/**
 	 * signalReceived
 	 * 
-	 * Synchronized
-	 * 
-	 * Add a new signal to the list of received signals. Waits until
-	 * the list of received signals is not full before adding the received
-	 * signal.
+	 * Add a new signal to the inbox of received signals. If the inbox is
+	 * full, the overload policy decides whether the signal waits for room,
+	 * is dropped or goes into the overflow buffer.
+	 * Framed signals are turned back into the unframed message, and
+	 * dropped if the frame is not valid. Acknowledgements and reliable
+	 * frames already received are dropped. Multi-message frames are split
+	 * up and each message is added as its own signal.
 	 * 
 	 * @param newSignal    DatagramPacket containing the received signal
-	 * @param priority     Priority of the received signal
 	 * 
 	 * @return None
 	 */
-	public synchronized void signalReceived(DatagramPacket newSignal) {
-		// Wait while queue is not full
-		while (receivedSignals.size() >= MAX_NUM_SIGNALS) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				System.out.println("Error waiting in synchronized signalRecieved method in ServerPattern.");
-				e.printStackTrace();
+	public void signalReceived(DatagramPacket newSignal) {
+		if (FrameCodec.isFrame(newSignal.getData(), newSignal.getLength())) {
+			if (!reliableDelivery.accept(newSignal) || !frameCodec.unframe(newSignal)) {
+				releaseRequest(newSignal);
+				return;
 			}
 		}
 		
-		receivedSignals.add(newSignal);
-
-		receivedSignalsEmpty = false;
-		notifyAll();
+		if (newSignal.getData()[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.MULTI_MESSAGE_MODE) {
+			unpackFrame(newSignal);
+			return;
+		}
+		
+		overloadControl.put(newSignal);
+	}
+	
+	/**
+	 * unpackFrame
+	 * 
+	 * Adds each message in the given multi-message frame to the inbox as
+	 * a packet from the same sender, then releases the frame.
+	 * 
+	 * @param frame    DatagramPacket containing the multi-message frame
+	 * 
+	 * @return None
+	 */
+	private void unpackFrame(DatagramPacket frame) {
+		unpackingFrame = frame;
+		MessageBatcher.forEachMessage(frame.getData(), frame.getLength(), frameUnpacker);
+		unpackingFrame = null;
+		
+		releaseRequest(frame);
+	}
+	
+	/**
+	 * addUnpackedMessage
+	 * 
+	 * Copies one message of the frame being unpacked straight into a
+	 * packet from the same sender and adds it to the inbox.
+	 * 
+	 * @param data Bytes of the frame
+	 * @param offset   Where the message starts in the frame
+	 * @param length   Number of bytes in the message
+	 * 
+	 * @return None
+	 */
+	private void addUnpackedMessage(byte[] data, int offset, int length) {
+		DatagramPacket signal;
+		
+		if (packetPool != null) {
+			// Called from the receiving thread, which is the only one that leases packets
+			signal = packetPool.acquire();
+			System.arraycopy(data, offset, signal.getData(), 0, length);
+			signal.setLength(length);
+		} else {
+			signal = new DatagramPacket(Arrays.copyOfRange(data, offset, offset + length), length);
+		}
+		
+		// Address and port separately, as getSocketAddress makes a new one each time
+		signal.setAddress(unpackingFrame.getAddress());
+		signal.setPort(unpackingFrame.getPort());
+		overloadControl.put(signal);
 	}
 
 	/**
 	 * getNextRequest
 	 * 
-	 * Returns the next request in the list of requests and removes
-	 * it from the list.
-	 * Waits until the list of requests is not empty.
+	 * Returns the next request in the inbox and removes
+	 * it from the inbox.
+	 * Waits until the inbox is not empty.
 	 * 
 	 * @param  None
 	 * 
 	 * @return DatagramPacket containing the next received signal
 	 */
-	public synchronized DatagramPacket getNextRequest() {
-		// Wait while queue is empty
-		while (receivedSignalsEmpty) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				System.out.println("Error waiting in synchronized getNextRequest method in ServerPattern.");
-				e.printStackTrace();
-			}
+	public DatagramPacket getNextRequest() {
+		return(overloadControl.take());
+	}
+	
+	/**
+	 * releaseRequest
+	 * 
+	 * Returns a packet from getNextRequest once the caller has finished
+	 * with it and its data. In pooled receive mode the packet is reused for
+	 * a later message, otherwise this does nothing.
+	 * 
+	 * @param request  The packet returned by getNextRequest
+	 * 
+	 * @return None
+	 */
+	public void releaseRequest(DatagramPacket request) {
+		if ((packetPool != null) && (request != null)) {
+			packetPool.release(request);
 		}
+	}
+	
+	/**
+	 * getQueueDepth
+	 * 
+	 * Returns the number of received signals waiting to be handled,
+	 * including any in the overflow buffer.
+	 * 
+	 * @param  None
+	 * 
+	 * @return int Number of signals in the inbox
+	 */
+	public int getQueueDepth() {
+		return(receivedSignals.size() + overloadControl.getOverflowDepth());
+	}
+	
+	/**
+	 * getOverloadControl
+	 * 
+	 * Returns what decides what happens to signals received while the
+	 * inbox is full, with its counts.
+	 * 
+	 * @param  None
+	 * 
+	 * @return OverloadControl The overload control
+	 */
+	public OverloadControl getOverloadControl() {
+		return(overloadControl);
+	}
+	
+	/**
+	 * setOverloadPolicy
+	 * 
+	 * Sets what happens to signals received while the inbox is full.
+	 * 
+	 * @param policy   The new policy
+	 * 
+	 * @return None
+	 */
+	public void setOverloadPolicy(OverloadControl.Policy policy) {
+		overloadControl.setPolicy(policy);
+	}
 
-		DatagramPacket toReturn = receivedSignals.poll();
-
-		if (receivedSignals.size() == 0) {
-			receivedSignalsEmpty = true;
+	/**
+	 * getFrameCodec
+	 * 
+	 * Returns the codec that frames sent signals and checks received frames.
+	 * 
+	 * @param  None
+	 * 
+	 * @return FrameCodec  The codec
+	 */
+	public FrameCodec getFrameCodec() {
+		return(frameCodec);
+	}
+	
+	/**
+	 * setFramedSends
+	 * 
+	 * Sets whether signals are sent as frames or unframed.
+	 * 
+	 * @param framedSends  True to send frames, false to send unframed signals
+	 * 
+	 * @return None
+	 */
+	public void setFramedSends(boolean framedSends) {
+		sendLock.lock();
+		try {
+			this.framedSends = framedSends;
+		} finally {
+			sendLock.unlock();
 		}
-		notifyAll();
-
-		return (toReturn);
 	}
-
+	
 	/**
-	 * teardown
+	 * getReliableDelivery
 	 * 
-	 * Tears down this ServerPattern object
+	 * Returns what acknowledges reliable frames and retransmits them.
+	 * 
+	 * @param  None
+	 * 
+	 * @return ReliableDelivery    The reliable delivery layer
 	 */
-	public void teardown() {
-		receiver.teardown();
-
+	public ReliableDelivery getReliableDelivery() {
+		return(reliableDelivery);
 	}
-
-}
-
-/**
- * 
- * This class is used to recieve messages using DatagramSockets
- *
- */
-
-class SignalReceiver implements Runnable {
-	private DatagramPacket receivePacket;
-	private DatagramSocket receiveSocket;
-
-	private ServerPattern controller;
-	private boolean run;
-
-	private String name;
-
+	
 	/**
-	 * signalReceiver
+	 * setReliableSends
 	 * 
-	 * Creates a new SignalReceiver object
+	 * Sets whether signals are sent reliably, i.e. as frames that are sent
+	 * again until they are acknowledged. Reliable sends are always framed.
 	 * 
-	 * @param portNum  The port number to receive messages on
-	 * @param controller   The ServerPattern that controls this SignalReceiver object
-	 * @param name The name of this ServerPattern object
+	 * @param reliableSends    True to send reliably
 	 * 
 	 * @return None
 	 */
-	public SignalReceiver(int portNum, ServerPattern controller, String name) {
-		run = true;
-
-		this.controller = controller;
-		this.name = name;
-
-		// Initialize the DatagramSocket
+	public void setReliableSends(boolean reliableSends) {
+		sendLock.lock();
 		try {
-			receiveSocket = new DatagramSocket(portNum);
-		} catch (SocketException se) {
-			se.printStackTrace();
-			this.teardown();
-			System.exit(1);
+			this.reliableSends = reliableSends;
+			if (reliableSends) {
+				framedSends = true;
+			}
+		} finally {
+			sendLock.unlock();
 		}
 	}
-
+	
 	/**
-	 * teardown
+	 * getMessageTimings
 	 * 
-	 * Tears down this SignalReceiver object
+	 * Returns the handler times and times between arrivals of every
+	 * message mode this ServerPattern has handled.
+	 * 
+	 * @param  None
+	 * 
+	 * @return MessageTimings  Timings of the handled messages
 	 */
-	public void teardown() {
-		run = false;
-		receiveSocket.close();
-		receiveSocket = null;
-
+	public MessageTimings getMessageTimings() {
+		return(messageTimings);
 	}
-
+	
 	/**
-	 * waitForSignal
+	 * startMetricsServer
 	 * 
-	 * Waits for a packet of the given size to be sent by the Scheduler. When the
-	 * packet is received, information about the packet is printed. The message
-	 * (byte[]) in the packet is then returned.
+	 * Starts publishing this ServerPattern's metrics on the given local port
+	 * at /metrics. The system keeps running without metrics if the port
+	 * cannot be used.
 	 * 
-	 * @param expectedMsgSize The expected size of the message to receive
+	 * @param portNum  Port number to publish the metrics on
 	 * 
-	 * @return The byte[] send in the DatagramPacket
+	 * @return None
 	 */
-	public DatagramPacket waitForSignal() {
-		// Create the receive packet
-		int expectedMsgSize = 100;
-
-		byte data[] = new byte[expectedMsgSize];
-		receivePacket = new DatagramPacket(data, data.length);
-
-		System.out.println(String.format("%s: Waiting for message...", name));
-
+	public void startMetricsServer(int portNum) {
 		try {
-			// Block until a datagram is received via sendSocket.
-			receiveSocket.receive(receivePacket);
+			metricsServer = new MetricsServer(this, portNum);
+			System.out.println("Metrics available at http://localhost:" + portNum + "/metrics");
 		} catch (IOException e) {
-			if (run) {
-				e.printStackTrace();
-				this.teardown();
-				System.exit(1);
-			}
+			System.out.println("Error: Unable to start metrics server on port " + portNum + ".");
+			e.printStackTrace();
 		}
-
-		// Print out information about the response
-		System.out.println(String.format("%s: Packet received:", name));
-		System.out.println("From host: " + receivePacket.getAddress());
-		System.out.println("Host port: " + receivePacket.getPort());
-		int len = receivePacket.getLength();
-		System.out.println("Length: " + len);
-		System.out.print("Containing (as bytes): ");
-		System.out.println(Arrays.toString(receivePacket.getData()) + "\n");
-
-		return (receivePacket);
+	}
+	
+	/**
+	 * writeMetrics
+	 * 
+	 * Writes the current metrics in the Prometheus text format: the number
+	 * of signals waiting in the inbox, the signals shed, coalesced and
+	 * overflowed when it was full, the free and exhausted receive packets,
+	 * the rate and handler times of
+	 * every message mode, the frames received, lost, late and rejected, and
+	 * the reliable frames retransmitted, duplicated and given up on.
+	 * Called from the metrics server's thread.
+	 * 
+	 * @param writer   Where to write the metrics
+	 * 
+	 * @return None
+	 */
+	public void writeMetrics(PrintWriter writer) {
+		String labels = MetricsServer.labels("subsystem", getClass().getSimpleName());
+		
+		MetricsServer.writeType(writer, "ecs_queue_depth", "gauge", "Received signals waiting to be handled");
+		writer.println("ecs_queue_depth" + labels + " " + getQueueDepth());
+		
+		overloadControl.writeMetrics(writer, getClass().getSimpleName());
+		
+		if (packetPool != null) {
+			MetricsServer.writeType(writer, "ecs_packet_pool_free", "gauge", "Receive packets not leased");
+			writer.println("ecs_packet_pool_free" + labels + " " + packetPool.getNumFree());
+			MetricsServer.writeType(writer, "ecs_packet_pool_exhausted_total", "counter", "Times the receiver waited because every packet was leased");
+			writer.println("ecs_packet_pool_exhausted_total" + labels + " " + packetPool.getNumExhausted());
+		}
+		
+		messageTimings.writeMetrics(writer, getClass().getSimpleName());
+		
+		MetricsServer.writeType(writer, "ecs_frames_received_total", "counter", "Valid frames received");
+		writer.println("ecs_frames_received_total" + labels + " " + frameCodec.getNumFramesReceived());
+		MetricsServer.writeType(writer, "ecs_frames_lost_total", "counter", "Frames missing from the sequence numbers received");
+		writer.println("ecs_frames_lost_total" + labels + " " + frameCodec.getNumFramesLost());
+		MetricsServer.writeType(writer, "ecs_frames_late_total", "counter", "Frames received after a frame sent later");
+		writer.println("ecs_frames_late_total" + labels + " " + frameCodec.getNumFramesLate());
+		MetricsServer.writeType(writer, "ecs_frames_rejected_total", "counter", "Frames with an unknown version or mode, or the wrong length");
+		writer.println("ecs_frames_rejected_total" + labels + " " + frameCodec.getNumFramesRejected());
+		MetricsServer.writeType(writer, "ecs_frames_retransmitted_total", "counter", "Reliable frames sent again because they were not acknowledged");
+		writer.println("ecs_frames_retransmitted_total" + labels + " " + reliableDelivery.getNumRetransmits());
+		MetricsServer.writeType(writer, "ecs_frames_duplicated_total", "counter", "Reliable frames received more than once");
+		writer.println("ecs_frames_duplicated_total" + labels + " " + reliableDelivery.getNumDuplicates());
+		MetricsServer.writeType(writer, "ecs_frames_given_up_total", "counter", "Reliable frames never acknowledged");
+		writer.println("ecs_frames_given_up_total" + labels + " " + reliableDelivery.getNumGivenUp());
 	}
 
 	/**
-	 * run
+	 * transmit
 	 * 
-	 * Overridden
+	 * Sends the first length bytes of the given data to the given
+	 * address and port using this ServerPattern's transport. The data
+	 * is sent as a frame unless this ServerPattern sends unframed signals,
+	 * and is kept to be sent again until acknowledged if it sends reliably.
 	 * 
-	 * Runs this SignalReceiver object.
-	 * Waits for signals and adds them to the list of received signals.
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
 	 * 
-	 * @param  None
+	 * @throws IOException If the signal could not be sent
 	 * 
 	 * @return None
 	 */
-	@Override
-	public void run() {
-		while (run) {
-			DatagramPacket signal = waitForSignal();
-			controller.signalReceived(signal);
+	protected void transmit(byte[] data, int length, InetAddress address, int portNum) throws IOException {
+		if (!framedSends) {
+			transport.send(data, length, address, portNum);
+			return;
+		}
+		
+		sendLock.lock();
+		try {
+			byte flags = reliableSends ? FrameCodec.FLAG_RELIABLE : 0;
+			int frameLength = frameCodec.frame(data, length, address, portNum, flags);
+			if (frameLength < 0) {
+				throw new IOException("Unable to frame message of mode " + data[UtilityInformation.MODE_BYTE_IND]);
+			}
+			
+			if (reliableSends) {
+				reliableDelivery.sent(frameCodec.getSendBuffer(), frameLength, frameCodec.getSendSequence(), address, portNum);
+			}
+			
+			transport.send(frameCodec.getSendBuffer(), frameLength, address, portNum);
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/**
+	 * teardown
+	 * 
+	 * Tears down this ServerPattern object
+	 */
+	public void teardown() {
+		if (metricsServer != null) {
+			metricsServer.stop();
+			metricsServer = null;
 		}
+		
+		reliableDelivery.stop();
+		transport.teardown();
+
 	}
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,81 @@
+import java.net.DatagramPacket;
+
+/**
+ *
+ * Interface for the queue that sits between the receiver thread of a
+ * ServerPattern and the thread that handles the received messages.
+ *
+ * Any number of threads may add signals, but only one thread may take them.
+ *
+ */
+public interface SignalInbox {
+
+	// Types of inboxes that a ServerPattern can be created with
+	public enum Type {
+		PRIORITY_QUEUE, LANE_RING
+	}
+
+	// How a thread waits when the inbox is empty (consumer) or full (producers)
+	public enum WaitStrategy {
+		BLOCKING, SPINNING, PARKING
+	}
+
+	/**
+	 * put
+	 *
+	 * Add the given signal to the inbox. Waits until there is room
+	 * in the inbox before adding the signal.
+	 *
+	 * @param signal   DatagramPacket containing the received signal
+	 *
+	 * @return None
+	 */
+	public void put(DatagramPacket signal);
+
+	/**
+	 * offer
+	 *
+	 * Add the given signal to the inbox if there is room for it, without
+	 * waiting.
+	 *
+	 * @param signal   DatagramPacket containing the received signal
+	 *
+	 * @return boolean True if the signal was added, false if there was no room
+	 */
+	public boolean offer(DatagramPacket signal);
+
+	/**
+	 * take
+	 *
+	 * Removes and returns the signal with the highest priority.
+	 * Waits until the inbox is not empty.
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramPacket containing the next signal
+	 */
+	public DatagramPacket take();
+
+	/**
+	 * size
+	 *
+	 * Returns the number of signals currently waiting in the inbox.
+	 *
+	 * @param  None
+	 *
+	 * @return int The number of waiting signals
+	 */
+	public int size();
+
+	/**
+	 * capacity
+	 *
+	 * Returns the most signals the inbox can hold at once, counting every
+	 * lane of an inbox that has more than one.
+	 *
+	 * @param  None
+	 *
+	 * @return int The number of signals the inbox can hold
+	 */
+	public int capacity();
+}
@@ -0,0 +1,227 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.DatagramPacket;
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SignalInboxTests {
+    private Map<Byte, Integer> priorities;
+
+    /**
+     * setUp
+     *
+     * Creates the message priorities used by every inbox
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @BeforeEach
+    void setUp() {
+        priorities = ServerPattern.createMessagePriorities();
+    }
+
+    /**
+     * createPacket
+     *
+     * Creates a packet with the given mode and an id in byte 1
+     *
+     * @param mode  Mode of the packet
+     * @param id    Id stored in byte 1
+     *
+     * @return  DatagramPacket  The created packet
+     */
+    private DatagramPacket createPacket(byte mode, int id) {
+        byte[] data = {mode, (byte) id, 0, UtilityInformation.END_OF_MESSAGE};
+
+        return(new DatagramPacket(data, data.length));
+    }
+
+    /**
+     * testSameOrderAsPriorityQueue
+     *
+     * Tests that the lane ring hands out modes in the same order as the
+     * original priority queue.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSameOrderAsPriorityQueue() {
+        byte[] modes = {UtilityInformation.FLOOR_REQUEST_MODE,
+                        UtilityInformation.ALL_REQUESTS_FINISHED_MODE,
+                        UtilityInformation.FLOOR_SENSOR_MODE,
+                        UtilityInformation.FIX_ERROR_MODE,
+                        UtilityInformation.ERROR_MESSAGE_MODE,
+                        UtilityInformation.ELEVATOR_DIRECTION_MODE};
+
+        SignalInbox queue = new PriorityQueueInbox(priorities, 100);
+
+        for (SignalInbox.WaitStrategy waitStrategy : SignalInbox.WaitStrategy.values()) {
+            SignalInbox ring = new LaneRingInbox(priorities, 100, waitStrategy);
+
+            for (int i = 0; i < modes.length; i++) {
+                queue.put(createPacket(modes[i], i));
+                ring.put(createPacket(modes[i], i));
+            }
+
+            assertEquals(queue.size(), ring.size());
+
+            for (int i = 0; i < modes.length; i++) {
+                assertEquals(queue.take().getData()[0], ring.take().getData()[0]);
+            }
+
+            assertEquals(0, ring.size());
+        }
+    }
+
+    /**
+     * testFifoWithinLane
+     *
+     * Tests that packets with the same priority come out in the order
+     * that they were added.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testFifoWithinLane() {
+        SignalInbox ring = new LaneRingInbox(priorities, 100, SignalInbox.WaitStrategy.BLOCKING);
+
+        for (int i = 0; i < 50; i++) {
+            ring.put(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, i));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, ring.take().getData()[1]);
+        }
+    }
+
+    /**
+     * testOneLaneKeepsArrivalOrder
+     *
+     * Tests that a lane ring with every mode at the same priority, as used
+     * for the Scheduler's actor mailboxes, is a single lane that hands out
+     * every mode in the order it was added.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testOneLaneKeepsArrivalOrder() {
+        byte[] modes = {UtilityInformation.FLOOR_SENSOR_MODE,
+                        UtilityInformation.FIX_DOOR_MODE,
+                        UtilityInformation.FLOOR_SENSOR_MODE,
+                        UtilityInformation.ERROR_MESSAGE_MODE,
+                        UtilityInformation.ELEVATOR_BUTTON_HIT_MODE};
+
+        priorities.replaceAll((mode, priority) -> 0);
+        SignalInbox ring = new LaneRingInbox(priorities, 100, SignalInbox.WaitStrategy.BLOCKING);
+        assertEquals(128, ring.capacity());
+
+        for (int i = 0; i < modes.length; i++) {
+            ring.put(createPacket(modes[i], i));
+        }
+
+        for (int i = 0; i < modes.length; i++) {
+            byte[] data = ring.take().getData();
+            assertEquals(modes[i], data[0]);
+            assertEquals(i, data[1]);
+        }
+    }
+
+    /**
+     * testManyProducers
+     *
+     * Tests that every packet added by several producers through a lane
+     * smaller than the number of packets is taken exactly once.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testManyProducers() throws InterruptedException {
+        final int numProducers = 4;
+        final int packetsPerProducer = 2000;
+
+        for (SignalInbox.WaitStrategy waitStrategy : SignalInbox.WaitStrategy.values()) {
+            final SignalInbox ring = new LaneRingInbox(priorities, 8, waitStrategy);
+
+            ArrayList<Thread> producers = new ArrayList<Thread>();
+            for (int i = 0; i < numProducers; i++) {
+                final byte producerNum = (byte) i;
+
+                Thread producer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < packetsPerProducer; j++) {
+                            byte[] data = {UtilityInformation.FLOOR_REQUEST_MODE, producerNum, (byte) (j >> 8), (byte) j};
+                            ring.put(new DatagramPacket(data, data.length));
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+
+            int[] nextExpected = new int[numProducers];
+            for (int i = 0; i < numProducers * packetsPerProducer; i++) {
+                byte[] data = ring.take().getData();
+                int count = ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+
+                // Packets from one producer stay in order
+                assertEquals(nextExpected[data[1]], count);
+                nextExpected[data[1]]++;
+            }
+
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            for (int i = 0; i < numProducers; i++) {
+                assertEquals(packetsPerProducer, nextExpected[i]);
+            }
+            assertTrue(ring.size() == 0);
+        }
+    }
+
+    /**
+     * testOfferFailsOnlyWhenFull
+     *
+     * Tests that offer queues signals until the priority queue, or the lane
+     * for the signal's mode, is full, and then fails without waiting.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testOfferFailsOnlyWhenFull() {
+        SignalInbox queue = new PriorityQueueInbox(priorities, 100);
+        SignalInbox ring = new LaneRingInbox(priorities, 100, SignalInbox.WaitStrategy.BLOCKING);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, i)));
+        }
+        assertTrue(!queue.offer(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 0)));
+        assertEquals(100, queue.size());
+
+        int numQueued = 0;
+        while (ring.offer(createPacket(UtilityInformation.FLOOR_REQUEST_MODE, numQueued))) {
+            numQueued++;
+        }
+        assertTrue(numQueued >= 100);
+        assertTrue(ring.offer(createPacket(UtilityInformation.FLOOR_SENSOR_MODE, 0)));
+        assertEquals(numQueued + 1, ring.size());
+    }
+}
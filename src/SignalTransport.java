@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ *
+ * Interface for how a ServerPattern sends and receives datagrams.
+ *
+ * The transport delivers every received datagram to its ServerPattern
+ * with signalReceived, and sends datagrams on behalf of the subsystem.
+ *
+ */
+public interface SignalTransport {
+
+	// Types of transports that a ServerPattern can be created with
+	public enum Type {
+		SOCKET, CHANNEL
+	}
+
+	/**
+	 * start
+	 *
+	 * Starts receiving datagrams and passing them to the given controller.
+	 *
+	 * @param controller   The ServerPattern that receives the datagrams
+	 *
+	 * @return None
+	 */
+	public void start(ServerPattern controller);
+
+	/**
+	 * send
+	 *
+	 * Sends the first length bytes of the given data to the given address
+	 * and port. The data may be reused by the caller once this returns.
+	 *
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @throws IOException If the datagram could not be sent
+	 *
+	 * @return None
+	 */
+	public void send(byte[] data, int length, InetAddress address, int portNum) throws IOException;
+
+	/**
+	 * teardown
+	 *
+	 * Stops receiving and closes the transport. Datagrams that were
+	 * already passed to send are sent first.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void teardown();
+}
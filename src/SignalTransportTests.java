@@ -0,0 +1,307 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SignalTransportTests {
+    // Number of packets received by each transport
+    private final int NUM_PACKETS = 200;
+
+    // Number of packets sent in one burst, small enough to fit in the
+    // receive buffer of the test socket
+    private final int NUM_BURST_PACKETS = 20;
+
+    // Bytes a thread may allocate while sending before it counts as allocating
+    private final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    /**
+     * createServer
+     *
+     * Creates a ServerPattern using the given transport on the given port
+     *
+     * @param portNum   Port to receive on
+     * @param transportType Type of transport to use
+     *
+     * @return  ServerPattern   The created ServerPattern
+     */
+    private ServerPattern createServer(int portNum, SignalTransport.Type transportType) {
+        return(new ServerPattern(portNum,
+                                 "TransportTest",
+                                 SignalInbox.Type.LANE_RING,
+                                 SignalInbox.WaitStrategy.BLOCKING,
+                                 true,
+                                 transportType) {});
+    }
+
+    /**
+     * testReceive
+     *
+     * Tests that every transport passes received datagrams to the
+     * ServerPattern with the right contents, length and source.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testReceive() throws IOException {
+        for (SignalTransport.Type transportType : SignalTransport.Type.values()) {
+            int portNum = TestUtilities.findFreePort();
+            ServerPattern server = createServer(portNum, transportType);
+            DatagramSocket sendSocket = new DatagramSocket();
+
+            for (int i = 0; i < NUM_PACKETS; i++) {
+                byte[] data = {UtilityInformation.FLOOR_REQUEST_MODE, (byte) i, UtilityInformation.END_OF_MESSAGE};
+                sendSocket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), portNum));
+
+                // Wait for each packet so none are dropped by the OS
+                DatagramPacket request = server.getNextRequest();
+                assertEquals(UtilityInformation.FLOOR_REQUEST_MODE, request.getData()[0]);
+                assertEquals((byte) i, request.getData()[1]);
+                assertEquals(data.length, request.getLength());
+                assertEquals(sendSocket.getLocalPort(), request.getPort());
+                server.releaseRequest(request);
+            }
+
+            sendSocket.close();
+            server.teardown();
+        }
+    }
+
+    /**
+     * testSend
+     *
+     * Tests that every transport sends the given bytes to the given port,
+     * including datagrams still queued when the transport is torn down.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSend() throws IOException {
+        for (SignalTransport.Type transportType : SignalTransport.Type.values()) {
+            ServerPattern server = createServer(TestUtilities.findFreePort(), transportType);
+
+            DatagramSocket receiveSocket = new DatagramSocket();
+            receiveSocket.setSoTimeout(2000);
+
+            byte[] data = new byte[3];
+            for (int i = 0; i < NUM_BURST_PACKETS; i++) {
+                data[0] = UtilityInformation.FLOOR_SENSOR_MODE;
+                data[1] = (byte) i;
+                data[2] = UtilityInformation.END_OF_MESSAGE;
+
+                // The data is reused straight away, so it must be copied by send
+                server.transmit(data, data.length, InetAddress.getLoopbackAddress(), receiveSocket.getLocalPort());
+            }
+
+            server.teardown();
+
+            byte[] buffer = new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE];
+            DatagramPacket received = new DatagramPacket(buffer, buffer.length);
+            for (int i = 0; i < NUM_BURST_PACKETS; i++) {
+                receiveSocket.receive(received);
+                assertEquals(3, received.getLength());
+                assertEquals((byte) i, buffer[1]);
+            }
+
+            receiveSocket.close();
+        }
+    }
+
+    /**
+     * testSendWhileInboxFull
+     *
+     * Tests that a handler can send more datagrams than fit in the outbound
+     * queue while the inbox is full and the transport is waiting for it to
+     * take a signal, as it would before handling the next one, and that
+     * every datagram arrives in the order it was sent.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSendWhileInboxFull() throws IOException, InterruptedException {
+        final int numResponses = 5 * NUM_PACKETS;
+
+        for (SignalTransport.Type transportType : SignalTransport.Type.values()) {
+            int portNum = TestUtilities.findFreePort();
+            final ServerPattern server = createServer(portNum, transportType);
+            final DatagramSocket receiveSocket = new DatagramSocket();
+            DatagramSocket sendSocket = new DatagramSocket();
+
+            // Room for every response, where the OS allows it
+            receiveSocket.setReceiveBufferSize(1 << 22);
+
+            // Fill the inbox without taking anything from it
+            byte[] data = {UtilityInformation.FLOOR_REQUEST_MODE, 0, UtilityInformation.END_OF_MESSAGE};
+            for (int i = 0; i < 2 * NUM_PACKETS; i++) {
+                sendSocket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), portNum));
+            }
+            Thread.sleep(500);
+
+            final List<Integer> received = new ArrayList<Integer>();
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    DatagramPacket packet = new DatagramPacket(new byte[UtilityInformation.MAX_BYTE_ARRAY_SIZE], UtilityInformation.MAX_BYTE_ARRAY_SIZE);
+
+                    try {
+                        receiveSocket.setSoTimeout(1000);
+                        while (received.size() < numResponses) {
+                            receiveSocket.receive(packet);
+                            received.add(Byte.toUnsignedInt(packet.getData()[1]) + (Byte.toUnsignedInt(packet.getData()[2]) << 8));
+                        }
+                    } catch (IOException e) {
+                        // Timed out, so some were not sent
+                    }
+                }
+            });
+            reader.start();
+
+            Thread handler = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < numResponses; i++) {
+                            byte[] response = {UtilityInformation.ELEVATOR_DIRECTION_MODE, (byte) i, (byte) (i >> 8), UtilityInformation.END_OF_MESSAGE};
+                            server.transmit(response, response.length, InetAddress.getLoopbackAddress(), receiveSocket.getLocalPort());
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+            handler.start();
+            handler.join(10000);
+            assertFalse(handler.isAlive());
+
+            // Let the transport finish delivering what it received
+            while (server.getQueueDepth() > 0) {
+                server.releaseRequest(server.getNextRequest());
+            }
+
+            // The OS may drop some when the reader falls behind, but the
+            // transport must not send any out of order
+            reader.join();
+            assertTrue(received.size() > 0);
+            assertEquals(0, (int) received.get(0));
+            for (int i = 1; i < received.size(); i++) {
+                assertTrue(received.get(i - 1) < received.get(i), "Received " + received.get(i) + " after " + received.get(i - 1));
+            }
+
+            server.teardown();
+            sendSocket.close();
+            receiveSocket.close();
+        }
+    }
+
+    /**
+     * testTeardownWithInboxFull
+     *
+     * Tests that tearing down while the inbox is full and nothing takes
+     * from it frees the port for the next subsystem to use.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testTeardownWithInboxFull() throws IOException, InterruptedException {
+        for (SignalTransport.Type transportType : SignalTransport.Type.values()) {
+            int portNum = TestUtilities.findFreePort();
+            ServerPattern server = createServer(portNum, transportType);
+            DatagramSocket sendSocket = new DatagramSocket();
+
+            byte[] data = {UtilityInformation.FLOOR_REQUEST_MODE, 0, UtilityInformation.END_OF_MESSAGE};
+            for (int i = 0; i < 2 * NUM_PACKETS; i++) {
+                sendSocket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), portNum));
+            }
+            Thread.sleep(500);
+
+            server.teardown();
+            sendSocket.close();
+
+            // Throws a BindException if the port is still bound
+            DatagramSocket nextSocket = new DatagramSocket(portNum);
+            nextSocket.close();
+        }
+    }
+
+    /**
+     * testChannelSendDoesNotAllocate
+     *
+     * Tests that once warmed up, neither a thread sending on a
+     * ChannelTransport nor its event loop allocates per datagram.
+     *
+     * @throws Exception
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testChannelSendDoesNotAllocate() throws Exception {
+        final int numWarmupPackets = 5000;
+        final int numMeasuredPackets = 10000;
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Nothing is sent to the transport, so it needs no ServerPattern
+        ChannelTransport transport = new ChannelTransport(TestUtilities.findFreePort(), "AllocationTest", null);
+        transport.start(null);
+
+        DatagramSocket discardSocket = new DatagramSocket();
+        InetAddress address = InetAddress.getLoopbackAddress();
+        int portNum = discardSocket.getLocalPort();
+        byte[] data = {UtilityInformation.ELEVATOR_DIRECTION_MODE, 1, 2, UtilityInformation.END_OF_MESSAGE};
+
+        long senderId = Thread.currentThread().getId();
+        Thread eventLoopThread = null;
+        long senderStart = 0;
+        long eventLoopStart = 0;
+
+        for (int i = 0; i < numWarmupPackets + numMeasuredPackets; i++) {
+            if (i == numWarmupPackets) {
+                eventLoopThread = TestUtilities.findThread("AllocationTest event loop");
+                assertNotNull(eventLoopThread);
+
+                senderStart = threadBean.getThreadAllocatedBytes(senderId);
+                eventLoopStart = threadBean.getThreadAllocatedBytes(eventLoopThread.getId());
+            }
+
+            transport.send(data, data.length, address, portNum);
+        }
+
+        long senderAllocated = threadBean.getThreadAllocatedBytes(senderId) - senderStart;
+        long eventLoopAllocated = threadBean.getThreadAllocatedBytes(eventLoopThread.getId()) - eventLoopStart;
+
+        transport.teardown();
+        discardSocket.close();
+
+        assertTrue(senderAllocated < MAX_ALLOCATED_BYTES, "Sender allocated " + senderAllocated + " bytes");
+        assertTrue(eventLoopAllocated < MAX_ALLOCATED_BYTES, "Event loop allocated " + eventLoopAllocated + " bytes");
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ * Clock used for every simulated delay (moving between floors, opening and
+ * closing doors, waiting for the next request in a trace) and for the times
+ * reported for requests. Running the system on a faster clock lets traces
+ * finish sooner while the events still happen in the same order and the
+ * reported service times stay the same.
+ *
+ * Every subsystem uses the shared clock given by getClock, which is created
+ * from the type in UtilityInformation unless a different one is set.
+ *
+ */
+public abstract class SimulationClock {
+
+	// Clocks that the system can be run with. To run a trace in virtual
+	// time, use ElevatorSimulator
+	public enum Type {
+		REAL_TIME, SCALED
+	}
+
+	// Clock shared by everything in this process
+	private static SimulationClock sharedClock;
+
+	/**
+	 * getClock
+	 *
+	 * Static
+	 *
+	 * Returns the clock shared by everything in this process, creating it
+	 * from UtilityInformation the first time.
+	 *
+	 * @param  None
+	 *
+	 * @return SimulationClock The shared clock
+	 */
+	public static synchronized SimulationClock getClock() {
+		if (sharedClock == null) {
+			sharedClock = createClock(UtilityInformation.DEFAULT_CLOCK_TYPE);
+		}
+
+		return(sharedClock);
+	}
+
+	/**
+	 * setClock
+	 *
+	 * Static
+	 *
+	 * Replaces the clock shared by everything in this process. Must be called
+	 * before the subsystems are created.
+	 *
+	 * @param clock    The new shared clock
+	 *
+	 * @return None
+	 */
+	public static synchronized void setClock(SimulationClock clock) {
+		sharedClock = clock;
+	}
+
+	/**
+	 * createClock
+	 *
+	 * Static
+	 *
+	 * Creates a clock of the given type. Scaled clocks run
+	 * UtilityInformation.SIMULATION_SPEEDUP times faster than real time.
+	 *
+	 * @param type The type of clock to create
+	 *
+	 * @return SimulationClock The created clock
+	 */
+	public static SimulationClock createClock(Type type) {
+		switch (type) {
+		case SCALED:
+			return(new ScaledClock(UtilityInformation.SIMULATION_SPEEDUP));
+		default:
+			return(new RealTimeClock());
+		}
+	}
+
+	/**
+	 * nanoTime
+	 *
+	 * Returns the current simulated time. Like System.nanoTime, it is only
+	 * meaningful when compared with other times from the same clock.
+	 *
+	 * @param  None
+	 *
+	 * @return long    Current simulated time in nanoseconds
+	 */
+	public abstract long nanoTime();
+
+	/**
+	 * sleep
+	 *
+	 * Blocks the calling thread for the given amount of simulated time
+	 *
+	 * @param millis   Simulated time to sleep for in milliseconds
+	 *
+	 * @throws InterruptedException If the thread is interrupted while sleeping
+	 *
+	 * @return None
+	 */
+	public abstract void sleep(long millis) throws InterruptedException;
+}
@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class SimulationClockTests {
+
+    /**
+     * testScaledClock
+     *
+     * Tests that a scaled clock sleeps for a fraction of the real time
+     * while reporting the full simulated time.
+     *
+     * @param   None
+     *
+     * @return  void
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void testScaledClock() throws InterruptedException {
+        SimulationClock clock = new ScaledClock(100);
+
+        long realStart = System.nanoTime();
+        long simulatedStart = clock.nanoTime();
+
+        clock.sleep(UtilityInformation.TIME_UP_ONE_FLOOR);
+
+        long realMillis = (System.nanoTime() - realStart) / 1000000;
+        long simulatedMillis = (clock.nanoTime() - simulatedStart) / 1000000;
+
+        assertTrue(realMillis < (UtilityInformation.TIME_UP_ONE_FLOOR / 10));
+        assertTrue(simulatedMillis >= UtilityInformation.TIME_UP_ONE_FLOOR);
+    }
+
+    /**
+     * testVirtualClock
+     *
+     * Tests that threads sleeping on a virtual clock wake up in the order of
+     * their wake up times, at exactly those times, without waiting in real time.
+     *
+     * @param   None
+     *
+     * @return  void
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void testVirtualClock() throws InterruptedException {
+        VirtualClock clock = new VirtualClock(3);
+        ArrayList<Long> wakeTimes = new ArrayList<Long>();
+        long sleepTimes[] = {UtilityInformation.TIME_UP_ONE_FLOOR,
+                             UtilityInformation.OPEN_DOOR_TIME,
+                             UtilityInformation.TIME_STOP_AT_FLOOR};
+
+        long realStart = System.nanoTime();
+
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        for (long sleepTime : sleepTimes) {
+            threads.add(new Thread(() -> {
+                try {
+                    clock.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+
+                synchronized (wakeTimes) {
+                    wakeTimes.add(clock.nanoTime() / 1000000);
+                }
+                clock.finished();
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(3, wakeTimes.size());
+        assertEquals(UtilityInformation.OPEN_DOOR_TIME, (long) wakeTimes.get(0));
+        assertEquals(UtilityInformation.TIME_STOP_AT_FLOOR, (long) wakeTimes.get(1));
+        assertEquals(UtilityInformation.TIME_UP_ONE_FLOOR, (long) wakeTimes.get(2));
+
+        assertTrue((System.nanoTime() - realStart) / 1000000 < 1000);
+    }
+
+    /**
+     * testVirtualClockAdvance
+     *
+     * Tests that driving a virtual clock directly wakes sleepers whose time
+     * has come.
+     *
+     * @param   None
+     *
+     * @return  void
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void testVirtualClockAdvance() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+
+        clock.advance(UtilityInformation.CLOSE_DOOR_TIME);
+        assertEquals(UtilityInformation.CLOSE_DOOR_TIME * 1000000L, clock.nanoTime());
+
+        clock.sleep(0);
+        assertEquals(UtilityInformation.CLOSE_DOOR_TIME * 1000000L, clock.nanoTime());
+    }
+
+    /**
+     * testVirtualClockOnlyMovesWhenDriven
+     *
+     * Tests that a virtual clock made without a number of threads never
+     * moves on its own, however long its sleeper waits in real time.
+     *
+     * @param   None
+     *
+     * @return  void
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void testVirtualClockOnlyMovesWhenDriven() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+
+        Thread sleeper = new Thread(() -> {
+            try {
+                clock.sleep(UtilityInformation.OPEN_DOOR_TIME);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        sleeper.start();
+
+        sleeper.join(100);
+        assertTrue(sleeper.isAlive());
+        assertEquals(0, clock.nanoTime());
+
+        clock.advance(UtilityInformation.OPEN_DOOR_TIME);
+        sleeper.join();
+        assertEquals(UtilityInformation.OPEN_DOOR_TIME * 1000000L, clock.nanoTime());
+    }
+}
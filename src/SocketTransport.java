@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+
+/**
+ *
+ * SignalTransport using blocking DatagramSockets. One socket and a
+ * dedicated SignalReceiver thread receive datagrams. Datagrams are sent
+ * from the same socket once it is receiving, so replies such as
+ * acknowledgements come back to the port this transport receives on. A
+ * second socket is used to send them before then.
+ *
+ */
+public class SocketTransport implements SignalTransport {
+	private DatagramSocket sendSocket;
+
+	private volatile SignalReceiver receiver;
+	private Thread receiverThread;
+
+	private int portNum;
+	private String name;
+	private PacketPool packetPool;
+
+	// Time to wait for the receiver thread to finish when tearing down
+	private final long TEARDOWN_WAIT_MILLIS = 1000;
+
+	/**
+	 * SocketTransport
+	 *
+	 * Constructor
+	 *
+	 * Create a new SocketTransport that receives on the given port.
+	 *
+	 * @param portNum  Port number to receive datagrams on
+	 * @param name Name of the ServerPattern using this transport
+	 * @param packetPool   Pool to lease receive packets from, or null to allocate a new packet per message
+	 *
+	 * @return None
+	 */
+	public SocketTransport(int portNum, String name, PacketPool packetPool) {
+		this.portNum = portNum;
+		this.name = name;
+		this.packetPool = packetPool;
+
+		try {
+			sendSocket = new DatagramSocket();
+		} catch (SocketException se) {
+			se.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * start
+	 *
+	 * Overridden
+	 *
+	 * Creates the SignalReceiver and runs it on its own thread.
+	 *
+	 * @param controller   The ServerPattern that receives the datagrams
+	 *
+	 * @return None
+	 */
+	@Override
+	public void start(ServerPattern controller) {
+		receiver = new SignalReceiver(portNum, controller, name, packetPool);
+
+		receiverThread = new Thread(receiver, name + " receiver");
+		receiverThread.start();
+	}
+
+	/**
+	 * send
+	 *
+	 * Overridden
+	 *
+	 * Sends the datagram on the receive socket, or on the send socket if
+	 * the receiver has not started.
+	 *
+	 * @param data Bytes to send
+	 * @param length   Number of bytes to send
+	 * @param address  Address to send to
+	 * @param portNum  Port to send to
+	 *
+	 * @throws IOException If the datagram could not be sent
+	 *
+	 * @return None
+	 */
+	@Override
+	public void send(byte[] data, int length, InetAddress address, int portNum) throws IOException {
+		DatagramSocket socket = (receiver != null) ? receiver.getSocket() : null;
+		if (socket == null) {
+			socket = sendSocket;
+		}
+
+		socket.send(new DatagramPacket(data, length, address, portNum));
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Overridden
+	 *
+	 * Stops the SignalReceiver and closes both sockets. A socket that is
+	 * blocked receiving is only released once the receiving thread wakes up,
+	 * so this waits for the receiver thread to finish so that the port can
+	 * be bound again straight away.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void teardown() {
+		if (receiver != null) {
+			receiver.teardown();
+		}
+
+		if ((receiverThread != null) && (Thread.currentThread() != receiverThread)) {
+			try {
+				receiverThread.join(TEARDOWN_WAIT_MILLIS);
+			} catch (InterruptedException e) {
+				System.out.println("Error waiting in teardown method in SocketTransport.");
+				e.printStackTrace();
+			}
+		}
+
+		if (sendSocket != null) {
+			sendSocket.close();
+		}
+	}
+}
+
+/**
+ *
+ * This class is used to recieve messages using DatagramSockets
+ *
+ */
+
+class SignalReceiver implements Runnable {
+	private DatagramPacket receivePacket;
+	private volatile DatagramSocket receiveSocket;
+
+	private ServerPattern controller;
+	private boolean run;
+
+	private String name;
+
+	private PacketPool packetPool;
+
+	/**
+	 * signalReceiver
+	 *
+	 * Creates a new SignalReceiver object
+	 *
+	 * @param portNum  The port number to receive messages on
+	 * @param controller   The ServerPattern that controls this SignalReceiver object
+	 * @param name The name of this ServerPattern object
+	 * @param packetPool   Pool to lease receive packets from, or null to allocate a new packet per message
+	 *
+	 * @return None
+	 */
+	public SignalReceiver(int portNum, ServerPattern controller, String name, PacketPool packetPool) {
+		run = true;
+
+		this.controller = controller;
+		this.name = name;
+		this.packetPool = packetPool;
+
+		// Initialize the DatagramSocket
+		try {
+			receiveSocket = new DatagramSocket(portNum);
+		} catch (SocketException se) {
+			se.printStackTrace();
+			this.teardown();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * teardown
+	 *
+	 * Tears down this SignalReceiver object
+	 */
+	public void teardown() {
+		run = false;
+
+		if (receiveSocket != null) {
+			receiveSocket.close();
+			receiveSocket = null;
+		}
+	}
+
+	/**
+	 * getSocket
+	 *
+	 * Returns the socket this SignalReceiver receives on
+	 *
+	 * @param  None
+	 *
+	 * @return DatagramSocket  The receive socket, or null once torn down
+	 */
+	public DatagramSocket getSocket() {
+		return(receiveSocket);
+	}
+
+	/**
+	 * waitForSignal
+	 *
+	 * Waits for a packet to be sent to this SignalReceiver. In pooled mode the
+	 * packet is leased from the pool and nothing is printed, otherwise a new
+	 * packet is created and information about it is printed.
+	 *
+	 * @param  None
+	 *
+	 * @return The received DatagramPacket, or null if the receiver was torn down
+	 */
+	public DatagramPacket waitForSignal() {
+		// Create or lease the receive packet
+		if (packetPool != null) {
+			receivePacket = packetPool.acquire();
+		} else {
+			int expectedMsgSize = UtilityInformation.MAX_BYTE_ARRAY_SIZE;
+
+			byte data[] = new byte[expectedMsgSize];
+			receivePacket = new DatagramPacket(data, data.length);
+		}
+
+		try {
+			// Block until a datagram is received via sendSocket.
+			DatagramSocket socket = receiveSocket;
+			if (socket != null) {
+				socket.receive(receivePacket);
+			}
+		} catch (IOException e) {
+			if (run) {
+				e.printStackTrace();
+				this.teardown();
+				System.exit(1);
+			}
+		}
+
+		if (!run) {
+			controller.releaseRequest(receivePacket);
+			return(null);
+		}
+
+		// Log information about the response
+		AsyncLog.packet(name, "receive", receivePacket.getData(), receivePacket.getLength(),
+		                receivePacket.getAddress(), receivePacket.getPort());
+
+		return (receivePacket);
+	}
+
+	/**
+	 * run
+	 *
+	 * Overridden
+	 *
+	 * Runs this SignalReceiver object.
+	 * Waits for signals and adds them to the list of received signals.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void run() {
+		while (run) {
+			DatagramPacket signal = waitForSignal();
+
+			if (signal != null) {
+				controller.signalReceived(signal);
+			}
+		}
+	}
+}
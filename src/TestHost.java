@@ -22,6 +22,9 @@ public class TestHost implements Runnable {
 	private int expectedNumMessages;
 	
 	private boolean response;
+	
+	// Print information about every packet sent and received
+	private boolean verbose;
 
 	/**
 	 * TestHost
@@ -66,6 +69,7 @@ public class TestHost implements Runnable {
 		this.expectedNumMessages = expectedNumMessages;
 		
 		response = true;
+		verbose = true;
 
 	}
 
@@ -104,13 +108,15 @@ public class TestHost implements Runnable {
 		DatagramPacket sendPacket = new DatagramPacket(msg, msg.length, address, portNum);
 
 		// Print out information about the packet being sent
-		System.out.println("Test: Sending packet:");
-		System.out.println("Test: To address: " + sendPacket.getAddress());
-		System.out.println("Test: Destination port: " + sendPacket.getPort());
-		int len = sendPacket.getLength();
-		System.out.println("Test: Length: " + len);
-		System.out.print("Test: Containing (as bytes): ");
-		System.out.println(Arrays.toString(sendPacket.getData()));
+		if (verbose) {
+			System.out.println("Test: Sending packet:");
+			System.out.println("Test: To address: " + sendPacket.getAddress());
+			System.out.println("Test: Destination port: " + sendPacket.getPort());
+			int len = sendPacket.getLength();
+			System.out.println("Test: Length: " + len);
+			System.out.print("Test: Containing (as bytes): ");
+			System.out.println(Arrays.toString(sendPacket.getData()));
+		}
 
 		// Send the packet
 		try {
@@ -120,7 +126,9 @@ public class TestHost implements Runnable {
 			System.exit(1);
 		}
 
-		System.out.println("Test: packet sent");
+		if (verbose) {
+			System.out.println("Test: packet sent");
+		}
 	}
 
 	/**
@@ -132,20 +140,29 @@ public class TestHost implements Runnable {
 	 * 
 	 * @param expectedLen  Expected length of the DatagramPacket being sent
 	 * 
-	 * @return void
+	 * @return DatagramPacket  The received packet, or null if this TestHost
+	 *                         was torn down while waiting
 	 */
 	public DatagramPacket receivePacket(int expectedLen) {
 		// Initialize the DatagramPacket used to receive requests
 		byte data[] = new byte[expectedLen];
 		DatagramPacket receivePacket = new DatagramPacket(data, data.length);
 
-		System.out.println("Test: Waiting for Packet.\n");
+		if (verbose) {
+			System.out.println("Test: Waiting for Packet.\n");
+		}
 
 		// Wait on the DatagramSocket to receive a request
 		try {
-			System.out.println("Test: Waiting...");
+			if (verbose) {
+				System.out.println("Test: Waiting...");
+			}
 			receiveSocket.receive(receivePacket);
 		} catch (IOException e) {
+			if (receiveSocket.isClosed()) {
+				return(null);
+			}
+			
 			System.out.print("Test: IO Exception: likely:");
 			System.out.println("Test: Receive Socket Timed Out.\n" + e);
 			e.printStackTrace();
@@ -153,13 +170,15 @@ public class TestHost implements Runnable {
 		}
 
 		// Print out information about the received packet
-		System.out.println("Test: Packet received:");
-		System.out.println("Test: From address: " + receivePacket.getAddress());
-		System.out.println("Test: From port: " + receivePacket.getPort());
-		int len = receivePacket.getLength();
-		System.out.println("Test: Length: " + len);
-		System.out.print("Test: Containing (as bytes): ");
-		System.out.println(Arrays.toString(data) + "\n");
+		if (verbose) {
+			System.out.println("Test: Packet received:");
+			System.out.println("Test: From address: " + receivePacket.getAddress());
+			System.out.println("Test: From port: " + receivePacket.getPort());
+			int len = receivePacket.getLength();
+			System.out.println("Test: Length: " + len);
+			System.out.print("Test: Containing (as bytes): ");
+			System.out.println(Arrays.toString(data) + "\n");
+		}
 		
 		return(receivePacket);
 	}
@@ -219,6 +238,20 @@ public class TestHost implements Runnable {
 	    response = false;
 	}
 	
+	/**
+	 * setVerbose
+	 * 
+	 * Sets whether this TestHost prints information about every packet
+	 * it sends and receives. Turned off when sending many packets quickly.
+	 * 
+	 * @param verbose  True to print information about every packet
+	 * 
+	 * @return None
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+	
 	/**
      * enableResponse
      * 
@@ -238,7 +271,8 @@ public class TestHost implements Runnable {
 	 * Overridden
 	 * 
 	 * Run the TestHost when called in a Thread object.
-	 * Repeats the following for the number of expected messages:
+	 * Repeats the following for the number of expected messages,
+	 * or until the TestHost is torn down:
 	 *     Receive packet
 	 *     Send packet with the same contents back to the sender.
 	 *     
@@ -255,6 +289,10 @@ public class TestHost implements Runnable {
 		// Receive and echo the expected number of messages
 		for (int i = 0; i < expectedNumMessages; i++) {
 			temp = receivePacket(expectedLen);
+			if (temp == null) {
+				break;
+			}
+			
 			if (response) {
 			    sendPacket(temp.getData(), temp.getAddress(), DEST_PORT);
 			}
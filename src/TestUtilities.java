@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Helpers shared by the JUnit tests and the benchmarks for picking ports,
+ * starting background threads, creating bare servers and standing in for a
+ * transport.
+ *
+ */
+public final class TestUtilities {
+
+	/**
+	 * TestUtilities
+	 *
+	 * Constructor
+	 *
+	 * Only has static methods, so is never created
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private TestUtilities() {
+	}
+
+	/**
+	 * findFreePort
+	 *
+	 * Static
+	 *
+	 * Returns a port number that is not currently in use
+	 *
+	 * @param  None
+	 *
+	 * @throws IOException If no socket could be opened to find a port
+	 *
+	 * @return int Free port number
+	 */
+	public static int findFreePort() throws IOException {
+		DatagramSocket portFinder = new DatagramSocket();
+		int portNum = portFinder.getLocalPort();
+		portFinder.close();
+
+		return(portNum);
+	}
+
+	/**
+	 * startDaemon
+	 *
+	 * Static
+	 *
+	 * Runs the given loop on a daemon thread so it does not outlive the test
+	 *
+	 * @param loop The loop to run
+	 * @param name Name of the thread
+	 *
+	 * @return Thread  The started thread
+	 */
+	public static Thread startDaemon(Runnable loop, String name) {
+		Thread thread = new Thread(loop, name);
+		thread.setDaemon(true);
+		thread.start();
+
+		return(thread);
+	}
+
+	/**
+	 * createServer
+	 *
+	 * Static
+	 *
+	 * Creates a ServerPattern that only receives signals into its inbox,
+	 * using the default inbox and a transport of the given type
+	 *
+	 * @param portNum  Port to receive on
+	 * @param name Name of the ServerPattern
+	 * @param transportType    Type of transport to use
+	 *
+	 * @return ServerPattern   The created ServerPattern
+	 */
+	public static ServerPattern createServer(int portNum, String name, SignalTransport.Type transportType) {
+		return(new ServerPattern(portNum,
+		                         name,
+		                         UtilityInformation.DEFAULT_INBOX_TYPE,
+		                         UtilityInformation.DEFAULT_INBOX_WAIT_STRATEGY,
+		                         true,
+		                         transportType) {});
+	}
+
+	/**
+	 * findThread
+	 *
+	 * Static
+	 *
+	 * Returns the live thread with the given name
+	 *
+	 * @param name Name of the thread
+	 *
+	 * @return Thread  The thread, or null if there is none
+	 */
+	public static Thread findThread(String name) {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(name)) {
+				return(thread);
+			}
+		}
+
+		return(null);
+	}
+
+	/**
+	 *
+	 * Transport that sends nothing and keeps every message it was given,
+	 * with the name of the thread that sent it. Batched messages are kept
+	 * one by one. Lock getMessages while reading either list.
+	 *
+	 */
+	public static class RecordingTransport implements SignalTransport {
+		private final List<byte[]> messages = new ArrayList<byte[]>();
+		private final List<String> senders = new ArrayList<String>();
+
+		@Override
+		public void start(ServerPattern controller) {
+		}
+
+		@Override
+		public void send(byte[] data, int length, InetAddress address, int portNum) {
+			List<byte[]> received = new ArrayList<byte[]>();
+
+			if (data[UtilityInformation.MODE_BYTE_IND] == UtilityInformation.MULTI_MESSAGE_MODE) {
+				received.addAll(MessageBatcher.unpack(data, length));
+			} else {
+				byte[] copy = new byte[length];
+				System.arraycopy(data, 0, copy, 0, length);
+				received.add(copy);
+			}
+
+			synchronized (messages) {
+				for (byte[] message : received) {
+					messages.add(message);
+					senders.add(Thread.currentThread().getName());
+				}
+			}
+		}
+
+		@Override
+		public void teardown() {
+		}
+
+		/**
+		 * getMessages
+		 *
+		 * @param  None
+		 *
+		 * @return List<byte[]>    Every message sent so far, in order
+		 */
+		public List<byte[]> getMessages() {
+			return(messages);
+		}
+
+		/**
+		 * getSenders
+		 *
+		 * @param  None
+		 *
+		 * @return List<String>    Name of the thread that sent each message
+		 */
+		public List<String> getSenders() {
+			return(senders);
+		}
+	}
+}
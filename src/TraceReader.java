@@ -0,0 +1,582 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * Reads the requests in a trace file one line at a time, in the format
+ * used by FloorSubsystem.parseInputFile:
+ *     HH:MM:SS.mmm START_FLOOR DIRECTION END_FLOOR
+ *     HH:MM:SS.mmm ERROR_TYPE
+ *
+ * The file is read through a memory mapped window that moves along the
+ * file as it is read, so a trace of any size is read without copying it
+ * onto the heap. Each line is parsed straight out of the window into the
+ * fields of this reader, which are overwritten by the next line, so
+ * reading a request does not allocate. Directions and error types are
+ * matched against their names without regard to case.
+ *
+ * The digits after the seconds are read as a number of milliseconds, as
+ * parseInputFile always has, so 15.9 is 9 milliseconds after 15 seconds.
+ * Blank lines are skipped, and so are lines that cannot be read, after
+ * saying which line was skipped.
+ *
+ */
+public class TraceReader implements RequestSource {
+	// Directions and error types indexed by ordinal, and their names as bytes
+	private static final UtilityInformation.ElevatorDirection[] DIRECTIONS = UtilityInformation.ElevatorDirection.values();
+	private static final UtilityInformation.ErrorType[] ERROR_TYPES = UtilityInformation.ErrorType.values();
+	private static final byte[][] DIRECTION_NAMES = names(DIRECTIONS);
+	private static final byte[][] ERROR_TYPE_NAMES = names(ERROR_TYPES);
+
+	// Largest number read from a line, so a time never overflows
+	private static final int MAX_NUMBER = 99999999;
+
+	// Results of reading a line
+	private static final int LINE_READ = 0;
+	private static final int LINE_BLANK = 1;
+	private static final int LINE_MALFORMED = 2;
+
+	private String pathToFile;
+	private FileChannel channel;
+	private long fileSize;
+
+	// Part of the file currently mapped, and where it starts in the file
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int windowSize;
+	private int mapBytes;
+
+	// Position of the next byte to read in the file
+	private long position;
+	private int lineNumber;
+
+	// The last request read. errorType is -1 for an elevator request
+	private int time;
+	private int startFloor;
+	private int direction;
+	private int finalFloor;
+	private int errorType;
+
+	/**
+	 * TraceReader
+	 *
+	 * Constructor
+	 *
+	 * Opens the given trace file, mapping UtilityInformation.TRACE_MAP_BYTES
+	 * of it at a time.
+	 *
+	 * @param pathToFile   Path to the trace file
+	 *
+	 * @throws IOException If the file could not be opened
+	 *
+	 * @return None
+	 */
+	public TraceReader(String pathToFile) throws IOException {
+		this(pathToFile, UtilityInformation.TRACE_MAP_BYTES);
+	}
+
+	/**
+	 * TraceReader
+	 *
+	 * Constructor
+	 *
+	 * Opens the given trace file, mapping the given number of bytes of it at
+	 * a time.
+	 *
+	 * @param pathToFile   Path to the trace file
+	 * @param mapBytes     Bytes of the file mapped at once
+	 *
+	 * @throws IOException If the file could not be opened
+	 *
+	 * @return None
+	 */
+	public TraceReader(String pathToFile, int mapBytes) throws IOException {
+		this.pathToFile = pathToFile;
+		this.mapBytes = mapBytes;
+
+		channel = FileChannel.open(Paths.get(pathToFile), StandardOpenOption.READ);
+		fileSize = channel.size();
+
+		window = null;
+		windowStart = 0;
+		windowSize = 0;
+
+		position = 0;
+		lineNumber = 0;
+
+		errorType = -1;
+	}
+
+	/**
+	 * next
+	 *
+	 * Reads the next request in the file into this reader.
+	 *
+	 * @throws IOException If the file could not be read
+	 *
+	 * @return boolean True if a request was read, false at the end of the file
+	 */
+	public boolean next() throws IOException {
+		while (position < fileSize) {
+			long lineStart = position;
+			lineNumber++;
+
+			int result = readLine();
+
+			if (result == LINE_MALFORMED) {
+				System.out.println("Error: Skipping line " + lineNumber + " of " + pathToFile + ": " + lineText(lineStart));
+			}
+
+			skipLine();
+
+			if (result == LINE_READ) {
+				return(true);
+			}
+		}
+
+		return(false);
+	}
+
+	/**
+	 * close
+	 *
+	 * Closes the file. The mapped window is let go of once it is collected.
+	 *
+	 * @throws IOException If the file could not be closed
+	 *
+	 * @return None
+	 */
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	/**
+	 * getTime
+	 *
+	 * @param  None
+	 *
+	 * @return int Time of the last request in milliseconds since midnight
+	 */
+	public int getTime() {
+		return(time);
+	}
+
+	/**
+	 * isError
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if the last request was an error, false if it
+	 *                 was an elevator request
+	 */
+	public boolean isError() {
+		return(errorType != -1);
+	}
+
+	/**
+	 * getErrorType
+	 *
+	 * @param  None
+	 *
+	 * @return UtilityInformation.ErrorType    Type of the last error, or null
+	 *                                         for an elevator request
+	 */
+	public UtilityInformation.ErrorType getErrorType() {
+		return((errorType == -1) ? null : ERROR_TYPES[errorType]);
+	}
+
+	/**
+	 * getStartFloor
+	 *
+	 * @param  None
+	 *
+	 * @return int Floor the last elevator request was made on
+	 */
+	public int getStartFloor() {
+		return(startFloor);
+	}
+
+	/**
+	 * getDirection
+	 *
+	 * @param  None
+	 *
+	 * @return UtilityInformation.ElevatorDirection    Direction of the last
+	 *                                                 elevator request
+	 */
+	public UtilityInformation.ElevatorDirection getDirection() {
+		return(DIRECTIONS[direction]);
+	}
+
+	/**
+	 * getFinalFloor
+	 *
+	 * @param  None
+	 *
+	 * @return int Floor the last elevator request is going to
+	 */
+	public int getFinalFloor() {
+		return(finalFloor);
+	}
+
+	/**
+	 * describe
+	 *
+	 * @param  None
+	 *
+	 * @return String  The line and file the last request was read from
+	 */
+	public String describe() {
+		return("line " + lineNumber + " of " + pathToFile);
+	}
+
+	/**
+	 * getLineNumber
+	 *
+	 * @param  None
+	 *
+	 * @return int Line of the file the last request was read from, from 1
+	 */
+	public int getLineNumber() {
+		return(lineNumber);
+	}
+
+	/**
+	 * readLine
+	 *
+	 * Reads the request on the current line into this reader, leaving the
+	 * position somewhere on the line.
+	 *
+	 * @param  None
+	 *
+	 * @return int LINE_READ, LINE_BLANK or LINE_MALFORMED
+	 */
+	private int readLine() throws IOException {
+		skipSpaces();
+		if (isEndOfLine(peek())) {
+			return(LINE_BLANK);
+		}
+
+		// Time format is hh:mm:ss.mmm
+		int hours = readNumber();
+		if ((hours < 0) || (peek() != ':')) {
+			return(LINE_MALFORMED);
+		}
+		position++;
+
+		int minutes = readNumber();
+		if ((minutes < 0) || (peek() != ':')) {
+			return(LINE_MALFORMED);
+		}
+		position++;
+
+		int seconds = readNumber();
+		if (seconds < 0) {
+			return(LINE_MALFORMED);
+		}
+
+		int milliseconds = 0;
+		if (peek() == '.') {
+			position++;
+
+			milliseconds = readNumber();
+			if (milliseconds < 0) {
+				return(LINE_MALFORMED);
+			}
+		}
+
+		long lineTime = milliseconds + (seconds * 1000L) + (minutes * 60L * 1000L) + (hours * 60L * 60L * 1000L);
+		if ((lineTime > Integer.MAX_VALUE) || (skipSpaces() == 0)) {
+			return(LINE_MALFORMED);
+		}
+
+		int newTime = (int) lineTime;
+
+		// An error line names the error where an elevator request has its floor
+		if (!isDigit(peek())) {
+			int newErrorType = readName(ERROR_TYPE_NAMES);
+			if (newErrorType < 0) {
+				return(LINE_MALFORMED);
+			}
+
+			time = newTime;
+			errorType = newErrorType;
+			startFloor = -1;
+			direction = 0;
+			finalFloor = -1;
+
+			return(LINE_READ);
+		}
+
+		int newStartFloor = readNumber();
+		if (skipSpaces() == 0) {
+			return(LINE_MALFORMED);
+		}
+
+		int newDirection = readName(DIRECTION_NAMES);
+		if ((newDirection < 0) || (skipSpaces() == 0)) {
+			return(LINE_MALFORMED);
+		}
+
+		int newFinalFloor = readNumber();
+		if (newFinalFloor < 0) {
+			return(LINE_MALFORMED);
+		}
+
+		time = newTime;
+		errorType = -1;
+		startFloor = newStartFloor;
+		direction = newDirection;
+		finalFloor = newFinalFloor;
+
+		return(LINE_READ);
+	}
+
+	/**
+	 * readNumber
+	 *
+	 * Reads the digits at the position as a number.
+	 *
+	 * @param  None
+	 *
+	 * @return int The number, or -1 if there are no digits or too many
+	 */
+	private int readNumber() throws IOException {
+		int c = peek();
+		if (!isDigit(c)) {
+			return(-1);
+		}
+
+		int value = 0;
+		while (isDigit(c)) {
+			value = (value * 10) + (c - '0');
+			if (value > MAX_NUMBER) {
+				return(-1);
+			}
+
+			position++;
+			c = peek();
+		}
+
+		return(value);
+	}
+
+	/**
+	 * readName
+	 *
+	 * Reads the word at the position and finds it in the given names,
+	 * without regard to case.
+	 *
+	 * @param names    Upper case names, indexed by ordinal
+	 *
+	 * @return int Ordinal of the name read, or -1 if it is not one of them
+	 */
+	private int readName(byte[][] names) throws IOException {
+		long wordStart = position;
+		while (!isSpace(peek()) && !isEndOfLine(peek())) {
+			position++;
+		}
+		long wordLength = position - wordStart;
+
+		for (int i = 0; i < names.length; i++) {
+			byte[] name = names[i];
+			if (name.length != wordLength) {
+				continue;
+			}
+
+			int j = 0;
+			while ((j < name.length) && (toUpperCase(byteAt(wordStart + j)) == name[j])) {
+				j++;
+			}
+
+			if (j == name.length) {
+				return(i);
+			}
+		}
+
+		return(-1);
+	}
+
+	/**
+	 * skipSpaces
+	 *
+	 * Moves the position past any spaces and tabs.
+	 *
+	 * @param  None
+	 *
+	 * @return int Number of spaces and tabs skipped
+	 */
+	private int skipSpaces() throws IOException {
+		int numSkipped = 0;
+
+		while (isSpace(peek())) {
+			position++;
+			numSkipped++;
+		}
+
+		return(numSkipped);
+	}
+
+	/**
+	 * skipLine
+	 *
+	 * Moves the position to the start of the next line.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private void skipLine() throws IOException {
+		int c = peek();
+
+		while ((c != '\n') && (c != -1)) {
+			position++;
+			c = peek();
+		}
+
+		if (c == '\n') {
+			position++;
+		}
+	}
+
+	/**
+	 * lineText
+	 *
+	 * Returns the line starting at the given position, to say which line
+	 * was skipped.
+	 *
+	 * @param lineStart    Position of the start of the line
+	 *
+	 * @return String  The line, without its line ending
+	 */
+	private String lineText(long lineStart) throws IOException {
+		position = lineStart;
+		skipLine();
+
+		long lineEnd = position;
+		while ((lineEnd > lineStart) && isEndOfLine(byteAt(lineEnd - 1))) {
+			lineEnd--;
+		}
+
+		byte[] line = new byte[(int) Math.min(lineEnd - lineStart, 200)];
+		for (int i = 0; i < line.length; i++) {
+			line[i] = (byte) byteAt(lineStart + i);
+		}
+
+		position = lineStart;
+		return(new String(line, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * peek
+	 *
+	 * @param  None
+	 *
+	 * @return int The byte at the position, or -1 at the end of the file
+	 */
+	private int peek() throws IOException {
+		return(byteAt(position));
+	}
+
+	/**
+	 * byteAt
+	 *
+	 * Returns the byte at the given position in the file, moving the
+	 * mapped window there if it is not already mapped.
+	 *
+	 * @param filePosition Position in the file
+	 *
+	 * @return int The byte, or -1 at the end of the file
+	 */
+	private int byteAt(long filePosition) throws IOException {
+		if (filePosition >= fileSize) {
+			return(-1);
+		}
+
+		long offset = filePosition - windowStart;
+		if ((window == null) || (offset < 0) || (offset >= windowSize)) {
+			windowStart = filePosition;
+			windowSize = (int) Math.min(mapBytes, fileSize - filePosition);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+			offset = 0;
+		}
+
+		return(window.get((int) offset) & 0xff);
+	}
+
+	/**
+	 * isDigit
+	 *
+	 * Static
+	 *
+	 * @param c    A byte from the file
+	 *
+	 * @return boolean True if the byte is a digit
+	 */
+	private static boolean isDigit(int c) {
+		return((c >= '0') && (c <= '9'));
+	}
+
+	/**
+	 * isSpace
+	 *
+	 * Static
+	 *
+	 * @param c    A byte from the file
+	 *
+	 * @return boolean True if the byte is a space or tab
+	 */
+	private static boolean isSpace(int c) {
+		return((c == ' ') || (c == '\t'));
+	}
+
+	/**
+	 * isEndOfLine
+	 *
+	 * Static
+	 *
+	 * @param c    A byte from the file
+	 *
+	 * @return boolean True if the byte ends a line or the file
+	 */
+	private static boolean isEndOfLine(int c) {
+		return((c == '\n') || (c == '\r') || (c == -1));
+	}
+
+	/**
+	 * toUpperCase
+	 *
+	 * Static
+	 *
+	 * @param c    A byte from the file
+	 *
+	 * @return int The byte as an upper case letter if it is a lower case one
+	 */
+	private static int toUpperCase(int c) {
+		return(((c >= 'a') && (c <= 'z')) ? (c - 'a' + 'A') : c);
+	}
+
+	/**
+	 * names
+	 *
+	 * Static
+	 *
+	 * @param values   Values of an enum
+	 *
+	 * @return byte[][]    Names of the values as bytes, indexed by ordinal
+	 */
+	private static byte[][] names(Enum<?>[] values) {
+		byte[][] names = new byte[values.length][];
+
+		for (int i = 0; i < values.length; i++) {
+			names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+		}
+
+		return(names);
+	}
+}
@@ -0,0 +1,194 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TraceReaderTests {
+    // Longest time to wait for the requests to be added and taken
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    // Trace written for each test
+    private Path tracePath;
+
+    /**
+     * setUp
+     *
+     * Writes a trace with requests in mixed case, an error, a blank line,
+     * a line that cannot be read and Windows line endings
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        tracePath = Files.createTempFile("trace", ".txt");
+
+        String trace = "14:05:15.0 2 Up 4\n"
+                     + "03:14:15.9 7 down 0\r\n"
+                     + "\n"
+                     + "22:00:59.900 3 uP 8\n"
+                     + "12:56:37.453 door_stuck_error\n"
+                     + "12:56:38.0 6 sideways 1\n"
+                     + "  00:56:42.7\t8 UP 9";
+
+        Files.write(tracePath, trace.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * tearDown
+     *
+     * Deletes the trace
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tracePath);
+    }
+
+    /**
+     * testReadTrace
+     *
+     * Tests that every request is read with its time and fields, and that
+     * the blank line and the line with an unknown direction are skipped.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testReadTrace() throws IOException {
+        ArrayList<String> requests = readAll(new TraceReader(tracePath.toString()));
+
+        assertEquals(5, requests.size());
+        assertEquals("50715000 2 UP 4 line 1", requests.get(0));
+        assertEquals("11655009 7 DOWN 0 line 2", requests.get(1));
+        assertEquals("79259900 3 UP 8 line 4", requests.get(2));
+        assertEquals("46597453 DOOR_STUCK_ERROR line 5", requests.get(3));
+        assertEquals("3402007 8 UP 9 line 7", requests.get(4));
+    }
+
+    /**
+     * testSmallWindow
+     *
+     * Tests that the trace reads the same when only a few bytes are mapped
+     * at a time, so lines and words are split across windows.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSmallWindow() throws IOException {
+        ArrayList<String> expected = readAll(new TraceReader(tracePath.toString()));
+
+        for (int mapBytes = 1; mapBytes < 20; mapBytes++) {
+            assertEquals(expected, readAll(new TraceReader(tracePath.toString(), mapBytes)), mapBytes + " bytes mapped");
+        }
+    }
+
+    /**
+     * testWindowBounded
+     *
+     * Tests that a window never holds more than its most requests, that
+     * adding waits until the Floor takes one, and that the requests come
+     * out in order once it is closed.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testWindowBounded() throws InterruptedException {
+        final int maxSize = 4;
+        final int numRequests = 100;
+
+        RequestWindow window = new RequestWindow();
+        window.open(maxSize);
+
+        AtomicInteger numAdded = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < numRequests; i++) {
+                window.add(i, -1, UtilityInformation.ElevatorDirection.UP.ordinal(), i % 10);
+                numAdded.incrementAndGet();
+            }
+            window.close();
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while ((window.size() < maxSize) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+
+        assertEquals(maxSize, window.size());
+        assertEquals(maxSize, numAdded.get());
+
+        int[] request = new int[RequestWindow.NUM_FIELDS];
+        for (int i = 0; i < numRequests; i++) {
+            assertTrue(window.take(request));
+            assertEquals(i, request[RequestWindow.TIME_IND]);
+            assertEquals(i % 10, request[RequestWindow.FINAL_FLOOR_IND]);
+            assertTrue(window.size() <= maxSize);
+        }
+
+        assertFalse(window.take(request));
+        reader.join(TIMEOUT_MILLIS);
+        assertFalse(reader.isAlive());
+    }
+
+    /**
+     * readAll
+     *
+     * Reads every request in the trace, each written out as one string
+     *
+     * @param trace The trace to read
+     *
+     * @throws IOException
+     *
+     * @return  ArrayList<String>   The requests read
+     */
+    private ArrayList<String> readAll(TraceReader trace) throws IOException {
+        ArrayList<String> requests = new ArrayList<String>();
+
+        try {
+            while (trace.next()) {
+                if (trace.isError()) {
+                    requests.add(trace.getTime() + " " + trace.getErrorType() + " line " + trace.getLineNumber());
+                } else {
+                    requests.add(trace.getTime() + " " + trace.getStartFloor() + " " + trace.getDirection()
+                                 + " " + trace.getFinalFloor() + " line " + trace.getLineNumber());
+                }
+            }
+        } finally {
+            trace.close();
+        }
+
+        return(requests);
+    }
+}
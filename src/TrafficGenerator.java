@@ -0,0 +1,443 @@
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ *
+ * Makes up passenger traffic for the FloorSubsystem to send, in place of a
+ * recorded trace. Passengers arrive as a Poisson process: the time between
+ * arrivals is drawn from an exponential distribution with the mean set by
+ * the arrival rate. The rate can be raised by a fixed amount every minute
+ * of traffic, or changed while the traffic is being sent, to find the
+ * rate at which the Scheduler can no longer keep up.
+ *
+ * Where each passenger starts and where they go comes from the profile:
+ *     UP_PEAK     Morning arrivals. Most passengers start at the lobby
+ *     DOWN_PEAK   Evening departures. Most passengers go to the lobby
+ *     LUNCH       As many passengers going to the lobby as leaving it
+ *     INTER_FLOOR Passengers between any two floors, none favoured
+ * Passengers that do not start or end at the lobby travel between two
+ * other floors chosen at random.
+ *
+ * The same seed always makes the same traffic. The traffic never ends
+ * unless a number of passengers is given, so it can be streamed with
+ * FloorSubsystem.streamRequests for as long as needed, and making each
+ * passenger does not allocate. Run as a Java Application to write traffic
+ * to a trace file instead.
+ *
+ */
+public class TrafficGenerator implements RequestSource {
+
+	// Shapes of traffic, with the share of passengers leaving the lobby and
+	// the share going to it. The rest travel between other floors
+	public enum Profile {
+		UP_PEAK(0.85, 0.05),
+		DOWN_PEAK(0.05, 0.85),
+		LUNCH(0.45, 0.45),
+		INTER_FLOOR(0.0, 0.0);
+
+		private final double fromLobby;
+		private final double toLobby;
+
+		Profile(double fromLobby, double toLobby) {
+			this.fromLobby = fromLobby;
+			this.toLobby = toLobby;
+		}
+
+		public double getFromLobby() {
+			return(fromLobby);
+		}
+
+		public double getToLobby() {
+			return(toLobby);
+		}
+	}
+
+	// Floor that the lobby is on
+	private static final int LOBBY = 0;
+
+	private static final double MILLIS_PER_MINUTE = 60 * 1000;
+
+	private Profile profile;
+	private int numFloors;
+	private long seed;
+	private Random rand;
+
+	// Passengers arriving each minute, and how much that rises each minute
+	private volatile double arrivalsPerMinute;
+	private double rampPerMinute;
+
+	// Passengers to make, or 0 to never stop
+	private long maxPassengers;
+	private long numPassengers;
+
+	// Time of the last arrival since the traffic started, in ms
+	private double arrivalTime;
+
+	// The last passenger made
+	private int time;
+	private int startFloor;
+	private UtilityInformation.ElevatorDirection direction;
+	private int finalFloor;
+
+	/**
+	 * TrafficGenerator
+	 *
+	 * Constructor
+	 *
+	 * Create traffic that arrives at a steady rate and never ends.
+	 *
+	 * @param profile              Where passengers start and go
+	 * @param numFloors            Number of floors in the building, at least 2
+	 * @param arrivalsPerMinute    Average passengers arriving each minute
+	 * @param seed                 Seed that the traffic is made from
+	 *
+	 * @return None
+	 */
+	public TrafficGenerator(Profile profile, int numFloors, double arrivalsPerMinute, long seed) {
+		this(profile, numFloors, arrivalsPerMinute, 0, 0, seed);
+	}
+
+	/**
+	 * TrafficGenerator
+	 *
+	 * Constructor
+	 *
+	 * Create traffic whose arrival rate rises every minute.
+	 *
+	 * @param profile              Where passengers start and go
+	 * @param numFloors            Number of floors in the building, at least 2
+	 * @param arrivalsPerMinute    Average passengers arriving each minute at the start
+	 * @param rampPerMinute        How much the arrival rate rises each minute
+	 * @param maxPassengers        Passengers to make, or 0 to never stop
+	 * @param seed                 Seed that the traffic is made from
+	 *
+	 * @return None
+	 */
+	public TrafficGenerator(Profile profile, int numFloors, double arrivalsPerMinute, double rampPerMinute,
+	                        long maxPassengers, long seed) {
+		if (numFloors < 2) {
+			throw new IllegalArgumentException("Traffic needs at least 2 floors, not " + numFloors);
+		}
+
+		if (arrivalsPerMinute <= 0) {
+			throw new IllegalArgumentException("Arrival rate must be above 0, not " + arrivalsPerMinute);
+		}
+
+		this.profile = profile;
+		this.numFloors = numFloors;
+		this.arrivalsPerMinute = arrivalsPerMinute;
+		this.rampPerMinute = rampPerMinute;
+		this.maxPassengers = maxPassengers;
+		this.seed = seed;
+
+		rand = new Random(seed);
+		numPassengers = 0;
+		arrivalTime = 0;
+	}
+
+	/**
+	 * next
+	 *
+	 * Overridden
+	 *
+	 * Makes the next passenger.
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if a passenger was made, false if the given
+	 *                 number have been made or the time no longer fits in an int
+	 */
+	@Override
+	public boolean next() {
+		if ((maxPassengers > 0) && (numPassengers >= maxPassengers)) {
+			return(false);
+		}
+
+		// Time to the next arrival at the rate at the last arrival
+		double rate = getArrivalsPerMinute() / MILLIS_PER_MINUTE;
+		double nextArrivalTime = arrivalTime - (Math.log(1.0 - rand.nextDouble()) / rate);
+
+		if (nextArrivalTime > Integer.MAX_VALUE) {
+			return(false);
+		}
+
+		arrivalTime = nextArrivalTime;
+		time = (int) arrivalTime;
+
+		double share = rand.nextDouble();
+		if (share < profile.getFromLobby()) {
+			startFloor = LOBBY;
+			finalFloor = randomFloorExcept(LOBBY, LOBBY);
+		} else if (share < profile.getFromLobby() + profile.getToLobby()) {
+			startFloor = randomFloorExcept(LOBBY, LOBBY);
+			finalFloor = LOBBY;
+		} else if ((profile == Profile.INTER_FLOOR) || (numFloors < 3)) {
+			startFloor = rand.nextInt(numFloors);
+			finalFloor = randomFloorExcept(startFloor, startFloor);
+		} else {
+			startFloor = randomFloorExcept(LOBBY, LOBBY);
+			finalFloor = randomFloorExcept(LOBBY, startFloor);
+		}
+
+		direction = (finalFloor > startFloor) ? UtilityInformation.ElevatorDirection.UP
+		                                      : UtilityInformation.ElevatorDirection.DOWN;
+
+		numPassengers++;
+		return(true);
+	}
+
+	/**
+	 * getArrivalsPerMinute
+	 *
+	 * Returns the average number of passengers arriving each minute at the
+	 * time of the last arrival.
+	 *
+	 * @param  None
+	 *
+	 * @return double  Arrivals each minute
+	 */
+	public double getArrivalsPerMinute() {
+		return(arrivalsPerMinute + (rampPerMinute * (arrivalTime / MILLIS_PER_MINUTE)));
+	}
+
+	/**
+	 * setArrivalsPerMinute
+	 *
+	 * Changes the arrival rate from the next passenger on. Any ramp is
+	 * added on top of the new rate.
+	 *
+	 * @param newArrivalsPerMinute Average passengers arriving each minute
+	 *
+	 * @return None
+	 */
+	public void setArrivalsPerMinute(double newArrivalsPerMinute) {
+		arrivalsPerMinute = newArrivalsPerMinute;
+	}
+
+	/**
+	 * getTime
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return int Time the last passenger arrived since the traffic started in ms
+	 */
+	@Override
+	public int getTime() {
+		return(time);
+	}
+
+	/**
+	 * isError
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return boolean False, as only passengers are made
+	 */
+	@Override
+	public boolean isError() {
+		return(false);
+	}
+
+	/**
+	 * getErrorType
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return UtilityInformation.ErrorType    null, as only passengers are made
+	 */
+	@Override
+	public UtilityInformation.ErrorType getErrorType() {
+		return(null);
+	}
+
+	/**
+	 * getStartFloor
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return int Floor the last passenger arrived at
+	 */
+	@Override
+	public int getStartFloor() {
+		return(startFloor);
+	}
+
+	/**
+	 * getDirection
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return UtilityInformation.ElevatorDirection    Direction the last passenger is going
+	 */
+	@Override
+	public UtilityInformation.ElevatorDirection getDirection() {
+		return(direction);
+	}
+
+	/**
+	 * getFinalFloor
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return int Floor the last passenger is going to
+	 */
+	@Override
+	public int getFinalFloor() {
+		return(finalFloor);
+	}
+
+	/**
+	 * describe
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return String  Which passenger of which traffic was made last
+	 */
+	@Override
+	public String describe() {
+		return("passenger " + numPassengers + " of " + profile + " traffic with seed " + seed);
+	}
+
+	/**
+	 * close
+	 *
+	 * Overridden
+	 *
+	 * Nothing is held, so there is nothing to let go of.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * getNumPassengers
+	 *
+	 * @param  None
+	 *
+	 * @return long    Number of passengers made so far
+	 */
+	public long getNumPassengers() {
+		return(numPassengers);
+	}
+
+	/**
+	 * writeTrace
+	 *
+	 * Writes every passenger, from the next one on, to the given trace file
+	 * in the format read by FloorSubsystem.parseInputFile, starting at
+	 * midnight. Only for traffic with a number of passengers.
+	 *
+	 * @param pathToFile   Path of the file to write
+	 *
+	 * @throws FileNotFoundException   If the file could not be written
+	 *
+	 * @return None
+	 */
+	public void writeTrace(String pathToFile) throws FileNotFoundException {
+		if (maxPassengers <= 0) {
+			throw new IllegalStateException("Only traffic with a number of passengers can be written to a file");
+		}
+
+		PrintWriter writer = new PrintWriter(pathToFile);
+
+		try {
+			while (next()) {
+				writer.println(String.format("%02d:%02d:%02d.%03d %d %s %d",
+				                             time / (60 * 60 * 1000),
+				                             (time / (60 * 1000)) % 60,
+				                             (time / 1000) % 60,
+				                             time % 1000,
+				                             startFloor,
+				                             direction,
+				                             finalFloor));
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * randomFloorExcept
+	 *
+	 * Picks a floor at random that is neither of the given floors, which
+	 * may be the same floor.
+	 *
+	 * @param first    A floor not to pick
+	 * @param second   Another floor not to pick
+	 *
+	 * @return int The floor picked
+	 */
+	private int randomFloorExcept(int first, int second) {
+		int low = Math.min(first, second);
+		int high = Math.max(first, second);
+		int numExcluded = (low == high) ? 1 : 2;
+
+		// Pick from the floors left, then step over the excluded ones
+		int floor = rand.nextInt(numFloors - numExcluded);
+		if (floor >= low) {
+			floor++;
+		}
+		if ((low != high) && (floor >= high)) {
+			floor++;
+		}
+
+		return(floor);
+	}
+
+	/**
+	 * main
+	 *
+	 * Static
+	 *
+	 * Writes traffic to a trace file. The arguments are the profile, the
+	 * number of floors, the arrivals each minute, the number of passengers,
+	 * the seed and the file to write, e.g.
+	 *     UP_PEAK 22 30 500 1 "Test Files/UpPeak.txt"
+	 *
+	 * @param args The arguments
+	 *
+	 * @return None
+	 */
+	public static void main(String[] args) {
+		if (args.length != 6) {
+			System.out.println("Usage: TrafficGenerator PROFILE NUM_FLOORS ARRIVALS_PER_MINUTE NUM_PASSENGERS SEED FILE");
+			System.exit(1);
+		}
+
+		TrafficGenerator traffic = new TrafficGenerator(Profile.valueOf(args[0].toUpperCase()),
+		                                                Integer.parseInt(args[1]),
+		                                                Double.parseDouble(args[2]),
+		                                                0,
+		                                                Long.parseLong(args[3]),
+		                                                Long.parseLong(args[4]));
+
+		try {
+			traffic.writeTrace(args[5]);
+		} catch (FileNotFoundException e) {
+			System.out.println("Error: Unable to write to " + args[5]);
+			e.printStackTrace();
+			System.exit(1);
+		}
+
+		System.out.println("Wrote " + traffic.getNumPassengers() + " passengers to " + args[5]);
+	}
+}
@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class TrafficGeneratorTests {
+    // Floors in the generated buildings
+    private static final int NUM_FLOORS = 22;
+
+    // Passengers made to check the shape of the traffic
+    private static final int NUM_PASSENGERS = 20000;
+
+    /**
+     * testSameSeedSameTraffic
+     *
+     * Tests that traffic made from the same seed is the same, and that
+     * traffic from another seed is not.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testSameSeedSameTraffic() {
+        TrafficGenerator first = new TrafficGenerator(TrafficGenerator.Profile.LUNCH, NUM_FLOORS, 60, 42);
+        TrafficGenerator second = new TrafficGenerator(TrafficGenerator.Profile.LUNCH, NUM_FLOORS, 60, 42);
+        TrafficGenerator other = new TrafficGenerator(TrafficGenerator.Profile.LUNCH, NUM_FLOORS, 60, 43);
+
+        boolean differs = false;
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(first.next() && second.next() && other.next());
+
+            assertEquals(first.getTime(), second.getTime());
+            assertEquals(first.getStartFloor(), second.getStartFloor());
+            assertEquals(first.getFinalFloor(), second.getFinalFloor());
+            assertEquals(first.getDirection(), second.getDirection());
+
+            differs |= (first.getTime() != other.getTime()) || (first.getStartFloor() != other.getStartFloor());
+        }
+
+        assertTrue(differs);
+    }
+
+    /**
+     * testProfiles
+     *
+     * Tests that each profile sends the expected share of passengers from
+     * and to the lobby, that every passenger goes to another floor in the
+     * building in the direction they asked for, and that passengers arrive
+     * at the given rate.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testProfiles() {
+        final double arrivalsPerMinute = 120;
+
+        for (TrafficGenerator.Profile profile : TrafficGenerator.Profile.values()) {
+            TrafficGenerator traffic = new TrafficGenerator(profile, NUM_FLOORS, arrivalsPerMinute, 7);
+            int numFromLobby = 0;
+            int numToLobby = 0;
+            int lastTime = 0;
+
+            for (int i = 0; i < NUM_PASSENGERS; i++) {
+                assertTrue(traffic.next());
+                assertFalse(traffic.isError());
+                assertTrue(traffic.getTime() >= lastTime);
+                lastTime = traffic.getTime();
+
+                int start = traffic.getStartFloor();
+                int end = traffic.getFinalFloor();
+                assertTrue((start >= 0) && (start < NUM_FLOORS) && (end >= 0) && (end < NUM_FLOORS));
+                assertNotEquals(start, end);
+                assertEquals((end > start) ? UtilityInformation.ElevatorDirection.UP : UtilityInformation.ElevatorDirection.DOWN,
+                             traffic.getDirection());
+
+                if (start == 0) {
+                    numFromLobby++;
+                } else if (end == 0) {
+                    numToLobby++;
+                }
+            }
+
+            // Passengers between other floors sometimes start or end at the
+            // lobby too when every floor is equally likely
+            if (profile == TrafficGenerator.Profile.INTER_FLOOR) {
+                assertEquals(1.0 / NUM_FLOORS, (double) numFromLobby / NUM_PASSENGERS, 0.01);
+                assertEquals(1.0 / NUM_FLOORS, (double) numToLobby / NUM_PASSENGERS, 0.01);
+            } else {
+                assertEquals(profile.getFromLobby(), (double) numFromLobby / NUM_PASSENGERS, 0.01);
+                assertEquals(profile.getToLobby(), (double) numToLobby / NUM_PASSENGERS, 0.01);
+            }
+
+            double minutes = lastTime / 60000.0;
+            assertEquals(arrivalsPerMinute, NUM_PASSENGERS / minutes, arrivalsPerMinute * 0.03);
+        }
+    }
+
+    /**
+     * testRamp
+     *
+     * Tests that the arrival rate rises by the ramp every minute.
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testRamp() {
+        TrafficGenerator traffic = new TrafficGenerator(TrafficGenerator.Profile.UP_PEAK, NUM_FLOORS, 10, 10, 0, 3);
+
+        while (traffic.next() && (traffic.getTime() < 10 * 60000)) {
+        }
+
+        assertEquals(110, traffic.getArrivalsPerMinute(), 1);
+    }
+
+    /**
+     * testWriteTrace
+     *
+     * Tests that traffic written to a trace file reads back the same.
+     *
+     * @throws IOException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testWriteTrace() throws IOException {
+        Path tracePath = Files.createTempFile("traffic", ".txt");
+
+        try {
+            new TrafficGenerator(TrafficGenerator.Profile.DOWN_PEAK, NUM_FLOORS, 30, 0, 500, 11).writeTrace(tracePath.toString());
+
+            TrafficGenerator traffic = new TrafficGenerator(TrafficGenerator.Profile.DOWN_PEAK, NUM_FLOORS, 30, 0, 500, 11);
+            TraceReader trace = new TraceReader(tracePath.toString());
+
+            try {
+                while (traffic.next()) {
+                    assertTrue(trace.next());
+                    assertEquals(traffic.getTime(), trace.getTime());
+                    assertEquals(traffic.getStartFloor(), trace.getStartFloor());
+                    assertEquals(traffic.getDirection(), trace.getDirection());
+                    assertEquals(traffic.getFinalFloor(), trace.getFinalFloor());
+                }
+
+                assertFalse(trace.next());
+                assertEquals(500, traffic.getNumPassengers());
+            } finally {
+                trace.close();
+            }
+        } finally {
+            Files.deleteIfExists(tracePath);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 import java.awt.FileDialog;
 import java.awt.Frame;
+import java.util.Arrays;
 
 import javax.swing.JOptionPane;
 
@@ -19,10 +20,16 @@ public class UserInterface {
 	// Path to the current test file being run
 	private String pathToTestFile;
 	
+	// Traffic to generate instead of a test file
+	private TrafficGenerator.Profile trafficProfile;
+	private double arrivalsPerMinute;
+	private long trafficSeed;
+	
 	// Return values for options the user selected
 	public enum ReturnVals {
 		RECONFIG,
 		NEW_TEST_FILE,
+		GENERATE_TRAFFIC,
 		TEARDOWN
 	}
 	
@@ -146,6 +153,59 @@ public class UserInterface {
 	    System.out.println("Selected file: " + pathToTestFile);
 	}
 	
+	/**
+	 * getNewTraffic
+	 * 
+	 * Get the profile, arrival rate and seed of the traffic to generate
+	 * from the user. Gets input until valid values are entered. A blank
+	 * seed picks one at random.
+	 * 
+	 * @param	None
+	 * 
+	 * @return	void
+	 */
+	public void getNewTraffic() {
+		boolean valid = false;
+		
+		// Get input from the user until a valid profile is entered
+		while (!valid) {
+			String profile = JOptionPane.showInputDialog(String.format("Enter the traffic profile (%s): ", 
+					Arrays.toString(TrafficGenerator.Profile.values())));
+			
+			try {
+				trafficProfile = TrafficGenerator.Profile.valueOf(profile.trim().toUpperCase());
+				valid = true;
+			} catch (IllegalArgumentException e) {
+				System.out.println("Invalid traffic profile. "
+						+ "Please enter one of the listed profiles.");
+			}
+		}
+		
+		valid = false;
+		
+		// Get input from the user until a valid rate is entered
+		while (!valid) {
+			arrivalsPerMinute = Double.parseDouble(JOptionPane.showInputDialog("Enter the passengers arriving each minute: "));
+			
+			if (arrivalsPerMinute > 0) {
+				valid = true;
+			} else {
+				System.out.println("Invalid arrival rate. "
+						+ "Please enter a value above 0.");
+			}
+		}
+		
+		String seed = JOptionPane.showInputDialog("Enter the seed, or leave blank for a random one: ");
+		if ((seed == null) || seed.trim().isEmpty()) {
+			trafficSeed = System.nanoTime();
+		} else {
+			trafficSeed = Long.parseLong(seed.trim());
+		}
+		
+		System.out.println(String.format("Generating %s traffic at %.1f passengers a minute with seed %d", 
+				trafficProfile, arrivalsPerMinute, trafficSeed));
+	}
+	
 	/**
 	 * displayMenu
 	 * 
@@ -160,7 +220,8 @@ public class UserInterface {
 		int newNumElevatorsChoice = 1;
 		int newNumFloorsChoice = 2;
 		int newTestFileChoice = 3;
-		int exitChoice = 4;
+		int generateTrafficChoice = 4;
+		int exitChoice = 5;
 		
 		boolean valid = false;
 		
@@ -171,9 +232,10 @@ public class UserInterface {
 																					"\t%d. Enter a new number of elevators.\n" +
 																					"\t%d. Enter a new number of floors.\n" +
 																					"\t%d. Choose a new test file.\n" +
+																					"\t%d. Generate traffic.\n" +
 																					"\t%d. Exit program", newNumElevatorsChoice,
 																					newNumFloorsChoice, newTestFileChoice,
-																					exitChoice)));
+																					generateTrafficChoice, exitChoice)));
 			
 			valid = true;
 			
@@ -191,6 +253,10 @@ public class UserInterface {
 				// Get new test file from the user
 				this.getNewTestFile();
 				return(ReturnVals.NEW_TEST_FILE);
+			} else if (choice == generateTrafficChoice) {
+				// Get the traffic to generate from the user
+				this.getNewTraffic();
+				return(ReturnVals.GENERATE_TRAFFIC);
 			} else if (choice == exitChoice) {
 				// Exit program
 				//input.close();
@@ -237,4 +303,18 @@ public class UserInterface {
 	public String getTestFile() {
 		return(pathToTestFile);
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * getTraffic
+	 * 
+	 * Return a generator of the traffic the user asked for, for the given
+	 * number of floors. The traffic never ends.
+	 * 
+	 * @param	numFloors	Number of floors in the building
+	 * 
+	 * @return TrafficGenerator	The traffic to send
+	 */
+	public TrafficGenerator getTraffic(int numFloors) {
+		return(new TrafficGenerator(trafficProfile, numFloors, arrivalsPerMinute, trafficSeed));
+	}
+}
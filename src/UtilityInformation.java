@@ -43,6 +43,7 @@ public class UtilityInformation {
 	public final static byte FIX_ERROR_MODE = 10;
 	public final static byte FIX_DOOR_MODE = 11;
 	public final static byte ALL_REQUESTS_FINISHED_MODE = 12;
+	public final static byte MULTI_MESSAGE_MODE = 13;
 
 	// Messages (End of Message Indicator)
 	public final static byte END_OF_MESSAGE = -1;
@@ -51,6 +52,12 @@ public class UtilityInformation {
 	public final static int SCHEDULER_PORT_NUM = 420;
 	public final static int ELEVATOR_PORT_NUM = 69;
 	public final static int FLOOR_PORT_NUM = 666;
+	
+	// Local HTTP ports each subsystem publishes its live metrics on at /metrics
+	public final static boolean METRICS_ENABLED = true;
+	public final static int SCHEDULER_METRICS_PORT_NUM = 9420;
+	public final static int ELEVATOR_METRICS_PORT_NUM = 9069;
+	public final static int FLOOR_METRICS_PORT_NUM = 9666;
 
 	// Information to configure times for important actions (in milliseconds)
 	public final static int OPEN_DOOR_TIME = 1500;
@@ -60,10 +67,130 @@ public class UtilityInformation {
 	public final static int TIME_STOP_AT_FLOOR = 2000;
 
 	// Valid ranges for the number of
-	// floors and number of elevators
+	// floors and number of elevators.
+	// Floor numbers are sent as one unsigned byte (read them with
+	// Byte.toUnsignedInt) and elevator numbers as one signed byte,
+	// and 255 is left unused so a floor byte is never END_OF_MESSAGE.
 	public final static int MIN_NUM_FLOORS = 1;
-	public final static int MAX_NUM_FLOORS = 22;
+	public final static int MAX_NUM_FLOORS = 255;
 
 	public final static int MIN_NUM_ELEVATORS = 1;
-	public final static int MAX_NUM_ELEVATORS = 4;
+	public final static int MAX_NUM_ELEVATORS = 127;
+
+	// Building simulated and offered when nothing else is chosen
+	public final static int DEFAULT_NUM_FLOORS = 22;
+	public final static int DEFAULT_NUM_ELEVATORS = 4;
+
+	// Inbox used by ServerPattern to queue received messages
+	public final static SignalInbox.Type DEFAULT_INBOX_TYPE = SignalInbox.Type.LANE_RING;
+	public final static SignalInbox.WaitStrategy DEFAULT_INBOX_WAIT_STRATEGY = SignalInbox.WaitStrategy.BLOCKING;
+	
+	// What ServerPattern does with messages received while its inbox is
+	// full, the share of the inbox that must be full before SHED drops
+	// floor requests or COALESCE drops duplicate floor requests,
+	// and the most messages OVERFLOW holds beyond the inbox before the
+	// receiving thread waits (see OverloadControl)
+	public final static OverloadControl.Policy DEFAULT_OVERLOAD_POLICY = OverloadControl.Policy.BLOCK;
+	public final static double OVERLOAD_SHED_START = 0.5;
+	public final static double OVERLOAD_COALESCE_START = 0.5;
+	public final static int OVERLOAD_OVERFLOW_SIZE = 1000;
+	
+	// Receive into a fixed pool of packets instead of a new packet per message
+	public final static boolean DEFAULT_POOLED_RECEIVE = true;
+	
+	// Transport used by ServerPattern to send and receive messages
+	public final static SignalTransport.Type DEFAULT_TRANSPORT_TYPE = SignalTransport.Type.SOCKET;
+	
+	// Strategy the Scheduler uses to choose which elevator gets each request
+	public final static DispatchStrategy.Type DEFAULT_DISPATCH_STRATEGY = DispatchStrategy.Type.DEFAULT;
+	
+	// Banks the BankedScheduler splits the elevators and floors into, each
+	// scheduled on its own thread
+	public final static int DEFAULT_NUM_BANKS = 2;
+	
+	// Handle the messages about each elevator in the Scheduler on the
+	// elevator's own thread, with floor requests on the receiving thread,
+	// and the most messages waiting for each elevator
+	public final static boolean SCHEDULER_ELEVATOR_ACTORS = false;
+	public final static int ELEVATOR_ACTOR_MAILBOX_SIZE = 100;
+	
+	// Threads the Floor and Elevator workers run on. VIRTUAL needs Java 21
+	// and runs them on platform threads on older runtimes
+	public final static WorkerThreads.Mode WORKER_THREAD_MODE = WorkerThreads.Mode.PLATFORM;
+	
+	// Stream trace files to the floors while they are sent instead of reading
+	// them up front, the requests each floor holds before reading waits for
+	// it to send one, and the bytes of a trace file mapped at once
+	public final static boolean STREAM_TRACES = true;
+	public final static int TRACE_LOOKAHEAD = 64;
+	public final static int TRACE_MAP_BYTES = 64 * 1024 * 1024;
+	
+	// Send every request of a trace from one timer wheel instead of a
+	// sleeping thread per Floor, the length of each tick of the wheel, and
+	// the number of ticks in one turn of it (a power of two)
+	public final static boolean REQUEST_INJECTOR = true;
+	public final static int INJECTOR_TICK_MILLIS = 1;
+	public final static int INJECTOR_WHEEL_SLOTS = 1024;
+	
+	// Floor requests each second LoadTester sends in its first step, the
+	// most it sends, how much faster each step is than the one before, how
+	// long in milliseconds each step sends for, and how long it waits for
+	// the Scheduler to handle another request before counting the rest as
+	// dropped. A step is past the knee if it drops requests, handles less
+	// than the given share of them each second or its p99 latency is more
+	// than the given factor above the first step's.
+	public final static double LOAD_TEST_START_RATE = 250;
+	public final static double LOAD_TEST_MAX_RATE = 256000;
+	public final static double LOAD_TEST_RATE_FACTOR = 2;
+	public final static long LOAD_TEST_STEP_MILLIS = 3000;
+	public final static long LOAD_TEST_DRAIN_MILLIS = 1000;
+	public final static double LOAD_TEST_KNEE_THROUGHPUT = 0.95;
+	public final static long LOAD_TEST_KNEE_LATENCY_FACTOR = 10;
+	
+	// Most passengers that destination dispatch gives one elevator at a time
+	public final static int ELEVATOR_CAPACITY = 8;
+	
+	// Clock used for the simulated delays and request times, and how many
+	// times faster than real time the SCALED clock runs
+	public final static SimulationClock.Type DEFAULT_CLOCK_TYPE = SimulationClock.Type.REAL_TIME;
+	public final static double SIMULATION_SPEEDUP = 100;
+	
+	// Send the messages the Scheduler produces for one event to each
+	// subsystem in a single multi-message frame
+	public final static boolean MULTI_MESSAGE_FRAMES = true;
+	
+	// Send messages between subsystems as frames with a version, length,
+	// sequence number and timestamp (see FrameCodec). Framed and unframed
+	// messages are always both accepted, so this can be turned on one
+	// subsystem at a time.
+	public final static boolean WIRE_FRAMES = false;
+
+	// Send messages as frames that are acknowledged and sent again until they
+	// are (see ReliableDelivery). Reliable frames are always acknowledged, so
+	// this can also be turned on one subsystem at a time.
+	public final static boolean RELIABLE_DELIVERY = false;
+
+	// Frames that can wait for an acknowledgement to one destination (a power
+	// of two, at most 64), the retransmit timeout in milliseconds before any
+	// round trip is measured and the least and most it can be, the times a
+	// frame is sent again before giving up, and how often in milliseconds
+	// the retransmit thread checks for frames to send again
+	public final static int RELIABLE_WINDOW_SIZE = 32;
+	public final static long RELIABLE_INITIAL_TIMEOUT = 100;
+	public final static long RELIABLE_MIN_TIMEOUT = 5;
+	public final static long RELIABLE_MAX_TIMEOUT = 2000;
+	public final static int RELIABLE_MAX_RETRANSMITS = 10;
+	public final static long RELIABLE_TICK = 2;
+
+	// Longest time the message timing histograms count exactly (one week in
+	// nanoseconds) and the significant digits they keep
+	public final static long HISTOGRAM_HIGHEST_NANOS = 7L * 24 * 60 * 60 * 1000000000L;
+	public final static int HISTOGRAM_SIGNIFICANT_DIGITS = 2;
+	
+	// Lowest level the asynchronous log writes, records it can hold before
+	// dropping new ones, and longest time in milliseconds to wait for it to
+	// write what is queued. Per-packet information is logged at DEBUG.
+	public final static AsyncLog.Level DEFAULT_LOG_LEVEL = AsyncLog.Level.INFO;
+	public final static int LOG_QUEUE_SIZE = 8192;
+	public final static long LOG_FLUSH_TIMEOUT = 1000;
 }
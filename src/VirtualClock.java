@@ -0,0 +1,194 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Discrete-event clock. Simulated time only moves when it is driven: either
+ * directly with advance, as ElevatorSimulator does, or by its sleepers.
+ * A clock made for a number of threads jumps straight to the earliest wake
+ * up time once that many threads are asleep on it, so those threads run as
+ * fast as they can while their events happen in the same order every run.
+ * Each of those threads calls finished once it will not sleep again.
+ *
+ * Time never moves on its own, so the clock is only for a known set of
+ * threads in one process. It cannot be the shared clock of the subsystems,
+ * whose threads also wait on sockets and inboxes it cannot see; use
+ * ElevatorSimulator to run a trace in virtual time.
+ *
+ */
+public class VirtualClock extends SimulationClock {
+	// Current simulated time in nanoseconds
+	private long now;
+
+	// Threads waiting for simulated time to pass, earliest first
+	private PriorityQueue<Sleeper> sleepers;
+	private long nextSleeperNum;
+
+	// Number of sleepers that move the time on, 0 if only advance does
+	private int numThreads;
+
+	// Guards the clock and is signalled whenever it changes. Not a monitor,
+	// so workers on virtual threads are not pinned while they sleep
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	/**
+	 * VirtualClock
+	 *
+	 * Constructor
+	 *
+	 * Create a new virtual clock starting at time 0 that only moves
+	 * when advance is called.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public VirtualClock() {
+		this(0);
+	}
+
+	/**
+	 * VirtualClock
+	 *
+	 * Constructor
+	 *
+	 * Create a new virtual clock starting at time 0 that also moves to the
+	 * earliest wake up time once the given number of threads are asleep on it.
+	 *
+	 * @param numThreads   Number of threads using the clock
+	 *
+	 * @return None
+	 */
+	public VirtualClock(int numThreads) {
+		now = 0;
+		sleepers = new PriorityQueue<Sleeper>();
+		nextSleeperNum = 0;
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * nanoTime
+	 *
+	 * Overridden
+	 *
+	 * @param  None
+	 *
+	 * @return long    Current simulated time in nanoseconds
+	 */
+	@Override
+	public long nanoTime() {
+		lock.lock();
+		try {
+			return(now);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * advance
+	 *
+	 * Moves simulated time forward by the given amount and wakes every
+	 * sleeper whose time has come.
+	 *
+	 * @param millis   Simulated time to move forward by in milliseconds
+	 *
+	 * @return None
+	 */
+	public void advance(long millis) {
+		lock.lock();
+		try {
+			now += millis * 1000000L;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * finished
+	 *
+	 * Called by one of the threads the clock was made for once it will not
+	 * sleep on the clock again, so the others no longer wait for it.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	public void finished() {
+		lock.lock();
+		try {
+			numThreads--;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * sleep
+	 *
+	 * Overridden
+	 *
+	 * Waits until simulated time reaches the wake up time. If this makes
+	 * every thread using the clock asleep, the time moves straight to the
+	 * earliest wake up time.
+	 *
+	 * @param millis   Simulated time to sleep for in milliseconds
+	 *
+	 * @throws InterruptedException If the thread is interrupted while sleeping
+	 *
+	 * @return None
+	 */
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		lock.lock();
+		try {
+			Sleeper sleeper = new Sleeper(now + (millis * 1000000L), nextSleeperNum++);
+
+			sleepers.add(sleeper);
+			try {
+				while (now < sleeper.wakeTime) {
+					// Only once the sleepers already due have woken up
+					if ((numThreads > 0) && (sleepers.size() >= numThreads) && (sleepers.peek().wakeTime > now)) {
+						now = sleepers.peek().wakeTime;
+						changed.signalAll();
+					} else {
+						changed.await();
+					}
+				}
+			} finally {
+				sleepers.remove(sleeper);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * A thread waiting for the given simulated time. Sleepers are ordered by
+	 * wake up time and then by when they went to sleep.
+	 *
+	 */
+	private static class Sleeper implements Comparable<Sleeper> {
+		private final long wakeTime;
+		private final long sleeperNum;
+
+		public Sleeper(long wakeTime, long sleeperNum) {
+			this.wakeTime = wakeTime;
+			this.sleeperNum = sleeperNum;
+		}
+
+		@Override
+		public int compareTo(Sleeper other) {
+			if (wakeTime != other.wakeTime) {
+				return(Long.compare(wakeTime, other.wakeTime));
+			}
+
+			return(Long.compare(sleeperNum, other.sleeperNum));
+		}
+	}
+}
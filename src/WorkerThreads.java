@@ -0,0 +1,172 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ *
+ * Creates the threads that run the Floor and Elevator workers. Each worker
+ * spends nearly all of its time asleep on the simulation clock or waiting
+ * for its next action, so a large building, or many buildings in one
+ * process, needs thousands of threads that do almost nothing.
+ *
+ * In VIRTUAL mode the workers run on virtual threads, which only hold a
+ * platform thread while they are running. Virtual threads need Java 21, and
+ * the system is built for an older release, so they are created through
+ * Thread.ofVirtual() looked up when this class is loaded. On an older
+ * runtime VIRTUAL mode falls back to platform threads.
+ *
+ * A virtual thread that blocks while holding a monitor (a synchronized
+ * block or method) cannot let go of its platform thread, so everything the
+ * workers block in while holding a lock uses a ReentrantLock instead.
+ *
+ */
+public class WorkerThreads {
+
+	// Ways of running the workers
+	public enum Mode {
+		PLATFORM, VIRTUAL
+	}
+
+	// Thread.ofVirtual(), Thread.Builder.name(String) and
+	// Thread.Builder.unstarted(Runnable), or null before Java 21
+	private static final MethodHandle OF_VIRTUAL;
+	private static final MethodHandle NAME;
+	private static final MethodHandle UNSTARTED;
+
+	// How new workers are run
+	private static volatile Mode mode = UtilityInformation.WORKER_THREAD_MODE;
+
+	// Whether the fall back to platform threads has been reported
+	private static boolean fallbackReported = false;
+
+	static {
+		MethodHandle ofVirtual = null;
+		MethodHandle name = null;
+		MethodHandle unstarted = null;
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+			ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilderClass));
+			name = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class));
+			unstarted = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+		} catch (ReflectiveOperationException e) {
+			// Virtual threads are not available on this runtime
+			ofVirtual = null;
+		}
+
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		UNSTARTED = unstarted;
+	}
+
+	/**
+	 * WorkerThreads
+	 *
+	 * Constructor
+	 *
+	 * Only has static methods, so should not be created.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private WorkerThreads() {
+	}
+
+	/**
+	 * getMode
+	 *
+	 * Static
+	 *
+	 * Returns how new workers are run.
+	 *
+	 * @param  None
+	 *
+	 * @return Mode    How new workers are run
+	 */
+	public static Mode getMode() {
+		return(mode);
+	}
+
+	/**
+	 * setMode
+	 *
+	 * Static
+	 *
+	 * Sets how workers created from now on are run. Workers that are
+	 * already running keep their threads.
+	 *
+	 * @param newMode  How new workers are run
+	 *
+	 * @return None
+	 */
+	public static void setMode(Mode newMode) {
+		mode = newMode;
+	}
+
+	/**
+	 * isVirtualAvailable
+	 *
+	 * Static
+	 *
+	 * Returns whether this runtime can run workers on virtual threads.
+	 *
+	 * @param  None
+	 *
+	 * @return boolean True if VIRTUAL mode uses virtual threads
+	 */
+	public static boolean isVirtualAvailable() {
+		return(OF_VIRTUAL != null);
+	}
+
+	/**
+	 * newThread
+	 *
+	 * Static
+	 *
+	 * Creates an unstarted thread for the given worker in the current mode.
+	 *
+	 * @param worker   The worker to run
+	 * @param name     Name of the thread
+	 *
+	 * @return Thread  The thread, not yet started
+	 */
+	public static Thread newThread(Runnable worker, String name) {
+		if (mode == Mode.VIRTUAL) {
+			if (OF_VIRTUAL != null) {
+				try {
+					Object builder = OF_VIRTUAL.invoke();
+					builder = NAME.invoke(builder, name);
+					return((Thread) UNSTARTED.invoke(builder, worker));
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			} else {
+				reportFallback();
+			}
+		}
+
+		return(new Thread(worker, name));
+	}
+
+	/**
+	 * reportFallback
+	 *
+	 * Static
+	 *
+	 * Says once that VIRTUAL mode is running workers on platform threads.
+	 *
+	 * @param  None
+	 *
+	 * @return None
+	 */
+	private static synchronized void reportFallback() {
+		if (!fallbackReported) {
+			fallbackReported = true;
+			System.out.println("Virtual threads need Java 21 or later, running workers on platform threads");
+		}
+	}
+}
@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class WorkerThreadsTests {
+    // Longest time to wait for the workers to start or stop
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    /**
+     * tearDown
+     *
+     * Puts the worker mode back to the configured one after each test
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @AfterEach
+    void tearDown() {
+        WorkerThreads.setMode(UtilityInformation.WORKER_THREAD_MODE);
+    }
+
+    /**
+     * testPlatformMode
+     *
+     * Tests that in PLATFORM mode workers get an unstarted platform thread
+     * with the given name.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testPlatformMode() throws InterruptedException {
+        WorkerThreads.setMode(WorkerThreads.Mode.PLATFORM);
+
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread thread = WorkerThreads.newThread(ran::countDown, "Floor 3");
+
+        assertEquals("Floor 3", thread.getName());
+        assertEquals(Thread.State.NEW, thread.getState());
+        assertFalse(isVirtual(thread));
+
+        thread.start();
+        assertTrue(ran.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * testVirtualMode
+     *
+     * Tests that in VIRTUAL mode workers run on virtual threads when the
+     * runtime has them, and on platform threads when it does not.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testVirtualMode() throws InterruptedException {
+        WorkerThreads.setMode(WorkerThreads.Mode.VIRTUAL);
+
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread thread = WorkerThreads.newThread(ran::countDown, "Elevator 0");
+
+        assertEquals("Elevator 0", thread.getName());
+        assertEquals(WorkerThreads.isVirtualAvailable(), isVirtual(thread));
+
+        thread.start();
+        assertTrue(ran.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * testElevatorWorkersStopOnTeardown
+     *
+     * Tests that the elevators of an Elevator_Subsystem wait for their next
+     * action on their worker threads, in each mode, and finish once the
+     * subsystem is torn down.
+     *
+     * @throws InterruptedException
+     *
+     * @param   None
+     *
+     * @return  void
+     */
+    @Test
+    void testElevatorWorkersStopOnTeardown() throws InterruptedException {
+        final int numElevators = 4;
+
+        for (WorkerThreads.Mode mode : WorkerThreads.Mode.values()) {
+            WorkerThreads.setMode(mode);
+
+            Elevator_Subsystem elevatorSubsystem = new Elevator_Subsystem(new TestUtilities.RecordingTransport());
+
+            try {
+                elevatorSubsystem.configSubsystem(10, numElevators);
+
+                assertTrue(waitForIdleElevators(elevatorSubsystem, numElevators), mode + " elevators did not start");
+                assertEquals(numElevators, elevatorSubsystem.getNumRunningElevators());
+            } finally {
+                elevatorSubsystem.teardown();
+            }
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while ((elevatorSubsystem.getNumRunningElevators() != 0) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(0, elevatorSubsystem.getNumRunningElevators(), mode + " elevators did not stop");
+        }
+    }
+
+    /**
+     * waitForIdleElevators
+     *
+     * Waits until the given number of elevators are waiting for an action
+     *
+     * @param elevatorSubsystem The subsystem the elevators belong to
+     * @param numIdle   Number of idle elevators to wait for
+     *
+     * @throws InterruptedException
+     *
+     * @return  boolean True if that many elevators became idle in time
+     */
+    private boolean waitForIdleElevators(Elevator_Subsystem elevatorSubsystem, int numIdle) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while ((elevatorSubsystem.getNumIdleElevators() != numIdle) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+
+        return(elevatorSubsystem.getNumIdleElevators() == numIdle);
+    }
+
+    /**
+     * isVirtual
+     *
+     * Returns whether the given thread is a virtual thread. Thread.isVirtual
+     * only exists from Java 21, so it is looked up by name.
+     *
+     * @param thread    The thread to check
+     *
+     * @return  boolean True if the thread is virtual
+     */
+    private boolean isVirtual(Thread thread) {
+        try {
+            return((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        } catch (ReflectiveOperationException e) {
+            return(false);
+        }
+    }
+}